@@ -17,7 +17,9 @@ import org.junit.Before;
 import org.junit.Test;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.GroupFunction;
+import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
+import org.openhab.core.library.items.NumberItem;
 import org.openhab.core.library.items.DimmerItem;
 import org.openhab.core.library.items.SwitchItem;
 import org.openhab.core.types.Command;
@@ -205,6 +207,74 @@ public class ArithmeticGroupFunctionTest {
 		Assert.assertEquals(new DecimalType("234.95"), state);
 	}
 	
+	@Test
+	public void testIncrementalOrFunction() {
+		SwitchItem switch1 = new SwitchItem("TestSwitch1");
+		SwitchItem switch2 = new SwitchItem("TestSwitch2");
+		SwitchItem switch3 = new SwitchItem("TestSwitch3");
+		GroupItem subGroup = new GroupItem("SubGroup", null, 
+				new ArithmeticGroupFunction.Or(OnOffType.ON, OnOffType.OFF));
+		subGroup.addMember(switch3);
+		GroupItem group = new GroupItem("Group", null, 
+				new ArithmeticGroupFunction.Or(OnOffType.ON, OnOffType.OFF));
+		group.addMember(switch1);
+		group.addMember(switch2);
+		group.addMember(subGroup);
+		
+		switch1.setState(OnOffType.OFF);
+		Assert.assertEquals(OnOffType.OFF, group.getState());
+		
+		switch3.setState(OnOffType.ON);
+		Assert.assertEquals(OnOffType.ON, subGroup.getState());
+		Assert.assertEquals(OnOffType.ON, group.getState());
+		Assert.assertEquals(new DecimalType("1"), group.getStateAs(DecimalType.class));
+
+		switch1.setState(OnOffType.ON);
+		Assert.assertEquals(new DecimalType("2"), group.getStateAs(DecimalType.class));
+
+		group.removeMember(subGroup);
+		switch1.setState(OnOffType.OFF);
+		Assert.assertEquals(OnOffType.OFF, group.getState());
+		Assert.assertEquals(new DecimalType("0"), group.getStateAs(DecimalType.class));
+	}
+
+	@Test
+	public void testIncrementalNumericFunctions() {
+		NumberItem number1 = new NumberItem("TestNumber1");
+		NumberItem number2 = new NumberItem("TestNumber2");
+		NumberItem number3 = new NumberItem("TestNumber3");
+		GroupItem avg = new GroupItem("Avg", null, new ArithmeticGroupFunction.Avg());
+		GroupItem sum = new GroupItem("Sum", null, new ArithmeticGroupFunction.Sum());
+		GroupItem min = new GroupItem("Min", null, new ArithmeticGroupFunction.Min());
+		GroupItem max = new GroupItem("Max", null, new ArithmeticGroupFunction.Max());
+		for(GroupItem group : new GroupItem[] { avg, sum, min, max }) {
+			group.addMember(number1);
+			group.addMember(number2);
+			group.addMember(number3);
+		}
+
+		number1.setState(new DecimalType("3"));
+		number2.setState(new DecimalType("9"));
+		number3.setState(new DecimalType("6"));
+		Assert.assertEquals(new DecimalType("6"), avg.getState());
+		Assert.assertEquals(new DecimalType("18"), sum.getState());
+		Assert.assertEquals(new DecimalType("3"), min.getState());
+		Assert.assertEquals(new DecimalType("9"), max.getState());
+
+		number2.setState(UnDefType.UNDEF);
+		Assert.assertEquals(new DecimalType("5"), avg.getState());
+		Assert.assertEquals(new DecimalType("9"), sum.getState());
+		Assert.assertEquals(new DecimalType("3"), min.getState());
+		Assert.assertEquals(new DecimalType("6"), max.getState());
+
+		// the running aggregates must match a full calculation
+		List<Item> members = avg.getMembers();
+		Assert.assertEquals(new ArithmeticGroupFunction.Avg().calculate(members), avg.getState());
+		Assert.assertEquals(new ArithmeticGroupFunction.Sum().calculate(members), sum.getState());
+		Assert.assertEquals(new ArithmeticGroupFunction.Min().calculate(members), min.getState());
+		Assert.assertEquals(new ArithmeticGroupFunction.Max().calculate(members), max.getState());
+	}
+	
 	class TestItem extends GenericItem {
 
 		public TestItem(String name, State state) {
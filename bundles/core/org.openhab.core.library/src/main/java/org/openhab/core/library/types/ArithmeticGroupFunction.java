@@ -11,8 +11,11 @@ package org.openhab.core.library.types;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 import org.openhab.core.items.GroupFunction;
+import org.openhab.core.items.IncrementalGroupFunction;
 import org.openhab.core.items.Item;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
@@ -27,6 +30,138 @@ import org.openhab.core.types.UnDefType;
  */
 public interface ArithmeticGroupFunction extends GroupFunction {
 
+	/**
+	 * This aggregate counts the members, which are in a given 'activeState'.
+	 * It serves as the running aggregate of the logical functions.
+	 * 
+	 * @since 1.7.0
+	 */
+	static abstract class ActiveStateAggregate extends IncrementalGroupFunction.Aggregate<Boolean> {
+		
+		protected final State activeState;
+		protected int activeCount = 0;
+		protected int count = 0;
+		
+		public ActiveStateAggregate(State activeState) {
+			this.activeState = activeState;
+		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		protected Boolean contributionOf(Item item) {
+			return activeState.equals(item.getStateAs(activeState.getClass()));
+		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		protected void added(Boolean active) {
+			count++;
+			if(active) {
+				activeCount++;
+			}
+		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		protected void removed(Boolean active) {
+			count--;
+			if(active) {
+				activeCount--;
+			}
+		}
+	}
+
+	/**
+	 * This aggregate keeps the sum and the number of all member states of decimal type.
+	 * 
+	 * @since 1.7.0
+	 */
+	static abstract class SumAggregate extends IncrementalGroupFunction.Aggregate<BigDecimal> {
+		
+		protected BigDecimal sum = BigDecimal.ZERO;
+		protected int count = 0;
+
+		/**
+		 * @{inheritDoc
+		 */
+		protected BigDecimal contributionOf(Item item) {
+			DecimalType itemState = (DecimalType) item.getStateAs(DecimalType.class);
+			return itemState!=null ? itemState.toBigDecimal() : null;
+		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		protected void added(BigDecimal value) {
+			if(value!=null) {
+				sum = sum.add(value);
+				count++;
+			}
+		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		protected void removed(BigDecimal value) {
+			if(value!=null) {
+				sum = sum.subtract(value);
+				count--;
+			}
+		}
+	}
+
+	/**
+	 * This aggregate keeps all member states of decimal type in sorted order,
+	 * so that their minimum and maximum can be determined without walking all members.
+	 * 
+	 * @since 1.7.0
+	 */
+	static abstract class SortedAggregate extends IncrementalGroupFunction.Aggregate<BigDecimal> {
+		
+		protected final TreeMap<BigDecimal, Integer> values = new TreeMap<BigDecimal, Integer>();
+
+		/**
+		 * @{inheritDoc
+		 */
+		protected BigDecimal contributionOf(Item item) {
+			DecimalType itemState = (DecimalType) item.getStateAs(DecimalType.class);
+			return itemState!=null ? itemState.toBigDecimal() : null;
+		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		protected void added(BigDecimal value) {
+			if(value!=null) {
+				Integer count = values.get(value);
+				values.put(value, count==null ? 1 : count + 1);
+			}
+		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		protected void removed(BigDecimal value) {
+			if(value!=null) {
+				Integer count = values.get(value);
+				if(count!=null) {
+					if(count > 1) {
+						values.put(value, count - 1);
+					} else {
+						values.remove(value);
+					}
+				}
+			}
+		}
+
+		protected State toState(Map.Entry<BigDecimal, Integer> entry) {
+			return entry!=null ? new DecimalType(entry.getKey()) : UnDefType.UNDEF;
+		}
+	}
+
 	/**
 	 * This does a logical 'and' operation. Only if all items are of 'activeState' this
 	 * is returned, otherwise the 'passiveState' is returned.
@@ -38,7 +173,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class And implements GroupFunction {
+	static class And implements IncrementalGroupFunction {
 		
 		protected final State activeState;
 		protected final State passiveState;
@@ -100,6 +235,39 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			return count;
 			
 		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregate<?> createAggregate() {
+			return new ActiveStateAggregate(activeState) {
+				public synchronized State getState() {
+					return calculate(activeCount, count);
+				}
+
+				public synchronized State getStateAs(Class<? extends State> stateClass) {
+					State state = getState();
+					if(stateClass.isInstance(state)) {
+						return state;
+					} else if(stateClass == DecimalType.class) {
+						return new DecimalType(count - activeCount);
+					} else {
+						return null;
+					}
+				}
+			};
+		}
+
+		/**
+		 * Calculates the group state from the number of members in 'activeState'.
+		 * 
+		 * @param activeCount the number of members in 'activeState'
+		 * @param count the number of all members
+		 * @return the calculated group state
+		 */
+		protected State calculate(int activeCount, int count) {
+			return count > 0 && activeCount == count ? activeState : passiveState;
+		}
 	}
 
 	/**
@@ -113,7 +281,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Or implements GroupFunction {
+	static class Or implements IncrementalGroupFunction {
 
 		protected final State activeState;
 		protected final State passiveState;
@@ -167,6 +335,39 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			}
 			return count;
 		}
+
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregate<?> createAggregate() {
+			return new ActiveStateAggregate(activeState) {
+				public synchronized State getState() {
+					return calculate(activeCount, count);
+				}
+
+				public synchronized State getStateAs(Class<? extends State> stateClass) {
+					State state = getState();
+					if(stateClass.isInstance(state)) {
+						return state;
+					} else if(stateClass == DecimalType.class) {
+						return new DecimalType(activeCount);
+					} else {
+						return null;
+					}
+				}
+			};
+		}
+
+		/**
+		 * Calculates the group state from the number of members in 'activeState'.
+		 * 
+		 * @param activeCount the number of members in 'activeState'
+		 * @param count the number of all members
+		 * @return the calculated group state
+		 */
+		protected State calculate(int activeCount, int count) {
+			return activeCount > 0 ? activeState : passiveState;
+		}
 	}
 	
 	/**
@@ -190,6 +391,12 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				result.equals(activeState) ? passiveState : activeState;
 			return notResult;
 		}
+
+		@Override
+		protected State calculate(int activeCount, int count) {
+			State result = super.calculate(activeCount, count);
+			return result.equals(activeState) ? passiveState : activeState;
+		}
 		
 	}
 
@@ -214,6 +421,12 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 				result.equals(activeState) ? passiveState : activeState;
 			return notResult;
 		}
+
+		@Override
+		protected State calculate(int activeCount, int count) {
+			State result = super.calculate(activeCount, count);
+			return result.equals(activeState) ? passiveState : activeState;
+		}
 		
 	}
 	
@@ -224,7 +437,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Avg implements GroupFunction {
+	static class Avg implements IncrementalGroupFunction {
 		
 		public Avg() {}
 
@@ -243,6 +456,21 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 					}
 				}
 			}
+			return average(sum, count);
+		}
+		
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregate<?> createAggregate() {
+			return new SumAggregate() {
+				public synchronized State getState() {
+					return average(sum, count);
+				}
+			};
+		}
+		
+		private State average(BigDecimal sum, int count) {
 			if(count>0) {
 				return new DecimalType(sum.divide(new BigDecimal(count), RoundingMode.HALF_UP));
 			} else {
@@ -270,7 +498,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 1.1.0
 	 *
 	 */
-	static class Sum implements GroupFunction {
+	static class Sum implements IncrementalGroupFunction {
 		
 		public Sum() {}
 
@@ -290,6 +518,17 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			return new DecimalType(sum);
 		}
 		
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregate<?> createAggregate() {
+			return new SumAggregate() {
+				public synchronized State getState() {
+					return new DecimalType(sum);
+				}
+			};
+		}
+		
 		/**
 		 * @{inheritDoc
 		 */
@@ -310,7 +549,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Min implements GroupFunction {
+	static class Min implements IncrementalGroupFunction {
 		
 		public Min() {}
 
@@ -334,6 +573,17 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			}
 			return UnDefType.UNDEF;
 		}
+		
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregate<?> createAggregate() {
+			return new SortedAggregate() {
+				public synchronized State getState() {
+					return toState(values.firstEntry());
+				}
+			};
+		}
 
 		/**
 		 * @{inheritDoc
@@ -355,7 +605,7 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 	 * @since 0.7.0
 	 *
 	 */
-	static class Max implements GroupFunction {
+	static class Max implements IncrementalGroupFunction {
 		
 		public Max() {}
 
@@ -379,6 +629,17 @@ public interface ArithmeticGroupFunction extends GroupFunction {
 			}
 			return UnDefType.UNDEF;
 		}
+		
+		/**
+		 * @{inheritDoc
+		 */
+		public Aggregate<?> createAggregate() {
+			return new SortedAggregate() {
+				public synchronized State getState() {
+					return toState(values.lastEntry());
+				}
+			};
+		}
 
 		/**
 		 * @{inheritDoc
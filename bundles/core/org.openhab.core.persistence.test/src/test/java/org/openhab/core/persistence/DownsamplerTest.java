@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Test;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.persistence.FilterCriteria.Aggregation;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.types.State;
+
+/**
+ * @since 1.7.0
+ */
+public class DownsamplerTest {
+
+	@Test
+	public void testNoResolutionKeepsItems() {
+		List<HistoricItem> items = createItems(0, 1, 10, 2);
+		assertSame(items, Downsampler.downsample(items, createFilter(0, Aggregation.MEAN)));
+	}
+
+	@Test
+	public void testMeanIsWeightedByTime() {
+		List<HistoricItem> items = createItems(0, 0, 10, 10, 60, 20);
+		List<HistoricItem> result = toList(Downsampler.downsample(items, createFilter(2, Aggregation.MEAN)));
+
+		assertEquals(2, result.size());
+		// 0 for 10ms and 10 for 40ms
+		assertEquals(8.0, ((DecimalType) result.get(0).getState()).doubleValue(), 0.0001);
+		assertEquals(0, result.get(0).getTimestamp().getTime());
+		// 10 for 10ms (carried over) and 20 for 40ms
+		assertEquals(18.0, ((DecimalType) result.get(1).getState()).doubleValue(), 0.0001);
+		assertEquals(50, result.get(1).getTimestamp().getTime());
+	}
+
+	@Test
+	public void testExtremesAndLastReturnItemsOfTheBucket() {
+		List<HistoricItem> items = createItems(0, 5, 10, 7, 20, 3, 30, 7, 60, 1);
+
+		List<HistoricItem> result = toList(Downsampler.downsample(items, createFilter(2, Aggregation.MAXIMUM)));
+		assertEquals(2, result.size());
+		assertSame(items.get(1), result.get(0));
+		assertSame(items.get(4), result.get(1));
+
+		result = toList(Downsampler.downsample(items, createFilter(2, Aggregation.MINIMUM)));
+		assertSame(items.get(2), result.get(0));
+
+		result = toList(Downsampler.downsample(items, createFilter(2, Aggregation.LAST)));
+		assertSame(items.get(3), result.get(0));
+	}
+
+	@Test
+	public void testEmptyBucketsAreLeftOut() {
+		List<HistoricItem> items = createItems(0, 1, 95, 2);
+		List<HistoricItem> result = toList(Downsampler.downsample(items, createFilter(10, Aggregation.LAST)));
+		assertEquals(2, result.size());
+	}
+
+	@Test
+	public void testDescendingOrdering() {
+		List<HistoricItem> items = createItems(60, 20, 10, 10, 0, 0);
+		FilterCriteria filter = createFilter(2, Aggregation.LAST).setOrdering(Ordering.DESCENDING);
+		List<HistoricItem> result = toList(Downsampler.downsample(items, filter));
+		assertSame(items.get(0), result.get(0));
+		assertSame(items.get(1), result.get(1));
+	}
+
+	@Test
+	public void testStatesThatAreNotDecimalAreNotAggregated() {
+		List<HistoricItem> items = new ArrayList<HistoricItem>();
+		items.add(createItem(0, OnOffType.ON));
+		items.add(createItem(10, OnOffType.OFF));
+		List<HistoricItem> result = toList(Downsampler.downsample(items, createFilter(1, Aggregation.MEAN)));
+		assertEquals(1, result.size());
+		assertSame(items.get(1), result.get(0));
+	}
+
+	private FilterCriteria createFilter(int resolution, Aggregation aggregation) {
+		return new FilterCriteria().setItemName("Test").setBeginDate(new Date(0)).setEndDate(new Date(100))
+				.setOrdering(Ordering.ASCENDING).setResolution(resolution).setAggregation(aggregation);
+	}
+
+	/**
+	 * @param timesAndValues pairs of timestamp and decimal value
+	 */
+	private List<HistoricItem> createItems(int... timesAndValues) {
+		List<HistoricItem> items = new ArrayList<HistoricItem>();
+		for (int i = 0; i < timesAndValues.length; i += 2) {
+			items.add(createItem(timesAndValues[i], new DecimalType(timesAndValues[i + 1])));
+		}
+		return items;
+	}
+
+	private HistoricItem createItem(final long time, final State state) {
+		return new HistoricItem() {
+			public Date getTimestamp() {
+				return new Date(time);
+			}
+
+			public State getState() {
+				return state;
+			}
+
+			public String getName() {
+				return "Test";
+			}
+		};
+	}
+
+	private List<HistoricItem> toList(Iterable<HistoricItem> items) {
+		List<HistoricItem> list = new ArrayList<HistoricItem>();
+		for (HistoricItem item : items) {
+			list.add(item);
+		}
+		return list;
+	}
+
+}
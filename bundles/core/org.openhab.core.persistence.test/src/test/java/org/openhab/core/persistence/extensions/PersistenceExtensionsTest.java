@@ -21,6 +21,7 @@ import org.openhab.core.items.GenericItem;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
+import org.openhab.core.persistence.test.TestAggregatingPersistenceService;
 import org.openhab.core.persistence.test.TestPersistenceService;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.State;
@@ -33,6 +34,7 @@ import org.openhab.core.types.State;
 public class PersistenceExtensionsTest {
 
 	private PersistenceService testPersistenceService = new TestPersistenceService();
+	private TestAggregatingPersistenceService aggregatingPersistenceService = new TestAggregatingPersistenceService();
 	private PersistenceExtensions ext;
 	private GenericItem item;
 	
@@ -40,6 +42,7 @@ public class PersistenceExtensionsTest {
 	public void setUp() {
 		ext = new PersistenceExtensions();
 		ext.addPersistenceService(testPersistenceService);
+		ext.addPersistenceService(aggregatingPersistenceService);
 		item = new GenericItem("Test") {
 			@Override
 			public List<Class<? extends State>> getAcceptedDataTypes() {
@@ -56,6 +59,7 @@ public class PersistenceExtensionsTest {
 	@After
 	public void tearDown() {
 		ext.removePersistenceService(testPersistenceService);	
+		ext.removePersistenceService(aggregatingPersistenceService);
 	}
 	
 	@Test
@@ -103,4 +107,39 @@ public class PersistenceExtensionsTest {
 		DecimalType average = PersistenceExtensions.averageSince(item, new DateMidnight(2003, 1, 1), "test");
 		assertEquals("2100", average.toString());
 	}
+
+	@Test
+	public void testAggregatedMinimumSince() {
+		item.setState(new DecimalType(5000));
+		HistoricItem historicItem = PersistenceExtensions.minimumSince(item, new DateMidnight(1940, 1, 1), "test-aggregating");
+		assertEquals("5000", historicItem.getState().toString());
+		
+		historicItem = PersistenceExtensions.minimumSince(item, new DateMidnight(2005, 1, 1), "test-aggregating");
+		assertEquals("2005", historicItem.getState().toString());
+		assertEquals(new DateMidnight(2005, 1, 1).toDate(), historicItem.getTimestamp());
+		assertEquals(0, aggregatingPersistenceService.getQueryCount());
+	}
+
+	@Test
+	public void testAggregatedMaximumSince() {
+		item.setState(new DecimalType(1));
+		HistoricItem historicItem = PersistenceExtensions.maximumSince(item, new DateMidnight(2012, 1, 1), "test-aggregating");
+		assertEquals("1", historicItem.getState().toString());
+		
+		historicItem = PersistenceExtensions.maximumSince(item, new DateMidnight(2005, 1, 1), "test-aggregating");
+		assertEquals("2012", historicItem.getState().toString());
+		assertEquals(new DateMidnight(2012, 1, 1).toDate(), historicItem.getTimestamp());
+		assertEquals(0, aggregatingPersistenceService.getQueryCount());
+	}
+
+	@Test
+	public void testAggregatedAverageSince() {
+		item.setState(new DecimalType(3025));
+		DecimalType average = PersistenceExtensions.averageSince(item, new DateMidnight(2003, 1, 1), "test-aggregating");
+		assertEquals("2100", average.toString());
+
+		average = PersistenceExtensions.averageSince(item, new DateMidnight(1940, 1, 1), "test-aggregating");
+		assertEquals("3025", average.toString());
+		assertEquals(0, aggregatingPersistenceService.getQueryCount());
+	}
 }
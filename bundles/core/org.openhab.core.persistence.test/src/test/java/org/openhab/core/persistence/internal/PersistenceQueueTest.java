@@ -0,0 +1,290 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.BatchPersistenceService;
+import org.openhab.core.persistence.PersistenceEntry;
+import org.openhab.core.persistence.PersistenceService;
+import org.openhab.core.persistence.internal.PersistenceQueue.OverflowPolicy;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+
+/**
+ * @since 1.7.0
+ */
+public class PersistenceQueueTest {
+
+	@Test
+	public void testBatchesAreStoredInOrder() throws InterruptedException {
+		TestBatchService service = new TestBatchService();
+		PersistenceQueue queue = new PersistenceQueue(service, 100, 10, OverflowPolicy.BLOCK);
+		queue.start();
+		TestItem item = new TestItem("Temperature");
+		for(int i=0; i<25; i++) {
+			item.setState(new DecimalType(i));
+			queue.add(item, null);
+		}
+		service.awaitEntries(25);
+		queue.stop();
+
+		for(int i=0; i<25; i++) {
+			assertEquals(new DecimalType(i), service.entries.get(i).getState());
+		}
+		assertEquals(25, queue.getStoredCount());
+	}
+
+	@Test
+	public void testCoalesceReplacesPendingEntryOfFullQueue() throws InterruptedException {
+		TestBatchService service = new TestBatchService();
+		PersistenceQueue queue = new PersistenceQueue(service, 2, 10, OverflowPolicy.COALESCE);
+		queue.start();
+		TestItem item = new TestItem("Temperature");
+		TestItem otherItem = new TestItem("Humidity");
+		service.block(queue, otherItem);
+
+		item.setState(new DecimalType(1));
+		queue.add(item, null);
+		queue.add(otherItem, null);
+		item.setState(new DecimalType(2));
+		queue.add(item, null);
+		assertEquals(2, queue.getQueueSize());
+		assertEquals(1, queue.getCoalescedCount());
+
+		service.release();
+		service.awaitEntries(3);
+		queue.stop();
+		assertEquals("Temperature", service.entries.get(1).getName());
+		assertEquals(new DecimalType(2), service.entries.get(1).getState());
+		assertEquals("Humidity", service.entries.get(2).getName());
+	}
+
+	@Test
+	public void testCoalesceKeepsAllEntriesIfQueueHasRoom() throws InterruptedException {
+		TestBatchService service = new TestBatchService();
+		PersistenceQueue queue = new PersistenceQueue(service, 100, 10, OverflowPolicy.COALESCE);
+		queue.start();
+		TestItem item = new TestItem("Temperature");
+		service.block(queue, new TestItem("Humidity"));
+
+		for(int i=1; i<=3; i++) {
+			item.setState(new DecimalType(i));
+			queue.add(item, null);
+		}
+		assertEquals(3, queue.getQueueSize());
+		assertEquals(0, queue.getCoalescedCount());
+
+		service.release();
+		service.awaitEntries(4);
+		queue.stop();
+		for(int i=1; i<=3; i++) {
+			assertEquals(new DecimalType(i), service.entries.get(i).getState());
+		}
+	}
+
+	@Test
+	public void testStopStoresPendingEntries() throws InterruptedException {
+		final TestBatchService service = new TestBatchService();
+		PersistenceQueue queue = new PersistenceQueue(service, 100, 10, OverflowPolicy.BLOCK);
+		queue.start();
+		TestItem item = new TestItem("Temperature");
+		service.block(queue, item);
+		queue.add(item, null);
+		queue.add(item, null);
+
+		new Thread() {
+			public void run() {
+				try {
+					Thread.sleep(100);
+				} catch (InterruptedException e) {
+					return;
+				}
+				service.release();
+			}
+		}.start();
+		queue.stop();
+
+		assertEquals(3, service.entries.size());
+		assertEquals(0, queue.getDroppedCount());
+		assertFalse(queue.add(item, null));
+	}
+
+	@Test
+	public void testDropOldestKeepsNewestEntries() throws InterruptedException {
+		TestBatchService service = new TestBatchService();
+		PersistenceQueue queue = new PersistenceQueue(service, 2, 10, OverflowPolicy.DROPOLDEST);
+		queue.start();
+		TestItem item = new TestItem("Temperature");
+		service.block(queue, item);
+
+		for(int i=1; i<=3; i++) {
+			item.setState(new DecimalType(i));
+			queue.add(item, null);
+		}
+		assertEquals(2, queue.getQueueSize());
+		assertEquals(1, queue.getDroppedCount());
+
+		service.release();
+		service.awaitEntries(3);
+		queue.stop();
+		assertEquals(new DecimalType(2), service.entries.get(1).getState());
+		assertEquals(new DecimalType(3), service.entries.get(2).getState());
+	}
+
+	@Test
+	public void testStoppedQueueDiscardsEntries() {
+		PersistenceQueue queue = new PersistenceQueue(new TestBatchService(), 2, 10, OverflowPolicy.BLOCK);
+		queue.add(new TestItem("Temperature"), null);
+		assertEquals(0, queue.getQueueSize());
+	}
+
+	@Test
+	public void testServiceWithoutBatchesReceivesQueuedStates() throws InterruptedException {
+		TestService service = new TestService();
+		PersistenceQueue queue = new PersistenceQueue(service, 100, 10, OverflowPolicy.BLOCK);
+		queue.start();
+		TestItem item = new TestItem("Temperature");
+		item.getGroupNames().add("Temperatures");
+		synchronized (service) {
+			// the worker has to wait until all states have been queued
+			for(int i=0; i<5; i++) {
+				item.setState(new DecimalType(i));
+				queue.add(item, "Outside");
+			}
+		}
+		service.awaitItems(5);
+		queue.stop();
+
+		for(int i=0; i<5; i++) {
+			Item storedItem = service.items.get(i);
+			assertNotSame(item, storedItem);
+			assertSame(TestItem.class, storedItem.getClass());
+			assertEquals("Temperature", storedItem.getName());
+			assertEquals("Temperatures", storedItem.getGroupNames().get(0));
+			assertEquals(new DecimalType(i), service.states.get(i));
+			assertEquals("Outside", service.aliases.get(i));
+		}
+		assertEquals(5, queue.getStoredCount());
+	}
+
+	private static class TestService implements PersistenceService {
+
+		final List<Item> items = new ArrayList<Item>();
+
+		final List<State> states = new ArrayList<State>();
+
+		final List<String> aliases = new ArrayList<String>();
+
+		public String getName() {
+			return "test";
+		}
+
+		public void store(Item item) {
+			store(item, null);
+		}
+
+		public synchronized void store(Item item, String alias) {
+			items.add(item);
+			states.add(item.getState());
+			aliases.add(alias);
+			notifyAll();
+		}
+
+		synchronized void awaitItems(int count) throws InterruptedException {
+			long end = System.currentTimeMillis() + 5000;
+			while(items.size() < count && System.currentTimeMillis() < end) {
+				wait(100);
+			}
+			assertEquals(count, items.size());
+		}
+	}
+
+	private static class TestBatchService implements BatchPersistenceService {
+
+		final List<PersistenceEntry> entries = new ArrayList<PersistenceEntry>();
+
+		private boolean blocked = false;
+
+		public String getName() {
+			return "test";
+		}
+
+		public void store(Item item) {
+			throw new UnsupportedOperationException();
+		}
+
+		public void store(Item item, String alias) {
+			throw new UnsupportedOperationException();
+		}
+
+		public synchronized void store(List<PersistenceEntry> batch) {
+			entries.addAll(batch);
+			notifyAll();
+			while(blocked) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					return;
+				}
+			}
+		}
+
+		/**
+		 * Lets the worker of the queue store the given item and keeps it busy within
+		 * that call until {@link #release()} is called.
+		 */
+		void block(PersistenceQueue queue, Item item) throws InterruptedException {
+			synchronized (this) {
+				blocked = true;
+			}
+			queue.add(item, null);
+			awaitEntries(1);
+		}
+
+		synchronized void release() {
+			blocked = false;
+			notifyAll();
+		}
+
+		synchronized void awaitEntries(int count) throws InterruptedException {
+			long end = System.currentTimeMillis() + 5000;
+			while(entries.size() < count && System.currentTimeMillis() < end) {
+				wait(100);
+			}
+			assertEquals(count, entries.size());
+		}
+	}
+
+	public static class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return null;
+		}
+
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return null;
+		}
+	}
+
+}
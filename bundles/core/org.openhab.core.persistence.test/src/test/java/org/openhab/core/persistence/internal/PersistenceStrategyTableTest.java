@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+import org.openhab.core.persistence.internal.PersistenceStrategyTable.Target;
+
+/**
+ * @since 1.7.0
+ */
+public class PersistenceStrategyTableTest {
+
+	@Test
+	public void testTargetsAreFoundByItemAndStrategy() {
+		Target rrd = new Target("rrd4j", null);
+		Target mysql = new Target("mysql", "Temp");
+		PersistenceStrategyTable table = new PersistenceStrategyTable.Builder()
+			.add("Temperature", "everyChange", rrd)
+			.add("Temperature", "everyChange", mysql)
+			.add("Temperature", "everyMinute", rrd)
+			.add("Humidity", "restoreOnStartup", rrd)
+			.build();
+
+		Target[] targets = table.getTargets("Temperature", "everyChange");
+		assertEquals(2, targets.length);
+		assertSame(rrd, targets[0]);
+		assertSame(mysql, targets[1]);
+		assertEquals(1, table.getTargets("Temperature", "everyMinute").length);
+		assertEquals(0, table.getTargets("Temperature", "everyUpdate").length);
+		assertEquals(0, table.getTargets("Unknown", "everyChange").length);
+		assertEquals(2, table.size());
+	}
+
+	@Test
+	public void testEmptyTable() {
+		PersistenceStrategyTable table = new PersistenceStrategyTable.Builder().build();
+		assertEquals(0, table.getTargets("Temperature", "everyChange").length);
+		assertEquals(0, table.size());
+	}
+
+	@Test
+	public void testEntriesOfSingleItemsAreReplaced() {
+		Target rrd = new Target("rrd4j", null);
+		Target mysql = new Target("mysql", null);
+		PersistenceStrategyTable table = new PersistenceStrategyTable.Builder()
+			.add("Temperature", "everyChange", rrd)
+			.add("Humidity", "everyChange", rrd)
+			.build();
+
+		table.replace("Temperature", new PersistenceStrategyTable.Builder().add("Temperature", "everyUpdate", mysql));
+		assertEquals(0, table.getTargets("Temperature", "everyChange").length);
+		assertSame(mysql, table.getTargets("Temperature", "everyUpdate")[0]);
+		assertSame(rrd, table.getTargets("Humidity", "everyChange")[0]);
+
+		table.replace("Pressure", new PersistenceStrategyTable.Builder().add("Pressure", "everyChange", rrd));
+		assertEquals(3, table.size());
+
+		table.replace("Pressure", new PersistenceStrategyTable.Builder());
+		table.remove("Humidity");
+		assertEquals(1, table.size());
+		assertEquals(0, table.getTargets("Humidity", "everyChange").length);
+	}
+
+}
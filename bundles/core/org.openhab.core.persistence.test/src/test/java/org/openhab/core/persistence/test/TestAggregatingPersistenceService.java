@@ -0,0 +1,88 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.test;
+
+import java.util.Date;
+
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.types.State;
+
+/**
+ * A persistence service used for unit tests, which aggregates the values of the
+ * {@link TestPersistenceService} and counts the queries for single values.
+ * 
+ * @since 1.7.0
+ */
+public class TestAggregatingPersistenceService extends TestPersistenceService implements AggregatingPersistenceService {
+
+	private int queryCount = 0;
+
+	@Override
+	public String getName() {
+		return "test-aggregating";
+	}
+
+	@Override
+	public Iterable<HistoricItem> query(FilterCriteria filter) {
+		queryCount++;
+		return super.query(filter);
+	}
+
+	/**
+	 * @return the number of calls to {@link #query(FilterCriteria)}
+	 */
+	public int getQueryCount() {
+		return queryCount;
+	}
+
+	@Override
+	public HistoricItem aggregate(FilterCriteria filter, AggregateFunction function) {
+		HistoricItem result = null;
+		double sum = 0;
+		int count = 0;
+		for(HistoricItem historicItem : super.query(filter)) {
+			DecimalType value = (DecimalType) historicItem.getState();
+			sum += value.doubleValue();
+			count++;
+			if(result==null 
+					|| (function==AggregateFunction.MINIMUM && value.compareTo((DecimalType) result.getState())<0)
+					|| (function==AggregateFunction.MAXIMUM && value.compareTo((DecimalType) result.getState())>0)) {
+				result = historicItem;
+			}
+		}
+		switch(function) {
+			case AVERAGE:
+				return count==0 ? null : createItem(new DecimalType(sum / count));
+			case COUNT:
+				return createItem(new DecimalType(count));
+			default:
+				return result;
+		}
+	}
+
+	private HistoricItem createItem(final State state) {
+		return new HistoricItem() {
+			public Date getTimestamp() {
+				return new Date();
+			}
+			
+			public State getState() {
+				return state;
+			}
+			
+			public String getName() {
+				return "Test";
+			}
+		};
+	}
+
+}
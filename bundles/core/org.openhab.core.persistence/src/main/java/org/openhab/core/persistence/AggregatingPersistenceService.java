@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+/**
+ * An aggregating persistence service is able to compute aggregates of the persisted
+ * states of an item within the database, so that the states themselves do not have
+ * to be retrieved.
+ *
+ * <p>The persistence extensions use this for the minimum, maximum and average state
+ * of an item. For other {@link QueryablePersistenceService}s, they have to retrieve
+ * all states of the requested period and aggregate them on their own.</p>
+ *
+ * @since 1.7.0
+ */
+public interface AggregatingPersistenceService extends QueryablePersistenceService {
+
+	/** Enumeration with all aggregate functions */
+	public enum AggregateFunction {
+		/** the arithmetic mean of the states */
+		AVERAGE,
+		/** the state with the smallest value; the earliest one, if several states have this value */
+		MINIMUM,
+		/** the state with the largest value; the earliest one, if several states have this value */
+		MAXIMUM,
+		/** the number of states */
+		COUNT
+	}
+
+	/**
+	 * Aggregates the numeric states of an item. Only the item name as well as the begin and end
+	 * date of the filter are considered; ordering and paging do not apply to an aggregate.
+	 *
+	 * @param filter the filter that defines the item and the period to aggregate
+	 * @param function the aggregate function to compute
+	 * @return for {@link AggregateFunction#MINIMUM} and {@link AggregateFunction#MAXIMUM}, the persisted
+	 * state with the extreme value; for the other functions, a historic item with the result as
+	 * decimal state. <code>null</code> if there are no numeric states to aggregate, except for
+	 * {@link AggregateFunction#COUNT}, which returns a count of 0 then.
+	 */
+	HistoricItem aggregate(FilterCriteria filter, AggregateFunction function);
+
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.List;
+
+/**
+ * A batch persistence service is able to store many item states at once, e.g.
+ * within a single transaction or through a single request to a remote service.
+ * 
+ * <p>The persistence manager queues all store requests for a service and processes
+ * them in a separate thread. For services implementing this interface, all requests
+ * that are queued at that time are passed with a single call.</p>
+ * 
+ * @since 1.7.0
+ */
+public interface BatchPersistenceService extends PersistenceService {
+
+	/**
+	 * Stores the given entries in the order of the list.
+	 * 
+	 * @param entries the states to store, each with the item, its alias and the time of the store request
+	 */
+	void store(List<PersistenceEntry> entries);
+
+}
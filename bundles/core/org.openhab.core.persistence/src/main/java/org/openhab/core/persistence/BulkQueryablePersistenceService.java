@@ -0,0 +1,35 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * A bulk queryable persistence service is able to retrieve the latest persisted
+ * states of many items with a single request.
+ *
+ * <p>The persistence manager uses this to restore the item states on startup. For
+ * other {@link QueryablePersistenceService}s, it has to send a separate query for
+ * every item.</p>
+ *
+ * @since 1.7.0
+ */
+public interface BulkQueryablePersistenceService extends QueryablePersistenceService {
+
+	/**
+	 * Queries the most recent persisted state of each of the given items.
+	 *
+	 * @param itemNames the names of the items to query
+	 * @return the most recent historic item by item name; items without any
+	 * persisted state are not contained
+	 */
+	Map<String, HistoricItem> queryLatest(Collection<String> itemNames);
+
+}
@@ -0,0 +1,257 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.FilterCriteria.Aggregation;
+import org.openhab.core.persistence.FilterCriteria.Ordering;
+import org.openhab.core.types.State;
+
+/**
+ * The downsampler reduces a time series of historic items to the resolution of a
+ * {@link FilterCriteria}. The period of the filter is divided into as many buckets of
+ * equal length, and the items of each bucket are aggregated into a single one. Buckets
+ * without any items are left out.
+ *
+ * <p>Items have to be added in ascending order of their timestamps. Only the items of
+ * the current bucket are aggregated at a time, so a persistence service can reduce its
+ * result while reading it from the database, without keeping all of its items.</p>
+ *
+ * <p>The time-weighted mean of a bucket weights each decimal state by the time until the
+ * next state, or until the end of the bucket. The state that is valid at the start of a
+ * bucket is taken from the previous bucket. The mean is returned with the start of its
+ * bucket as timestamp. The other aggregations return one of the items of the bucket.</p>
+ *
+ * @since 1.7.0
+ */
+public class Downsampler {
+
+	private final int resolution;
+
+	private final Aggregation aggregation;
+
+	private final Ordering ordering;
+
+	private final List<HistoricItem> result = new ArrayList<HistoricItem>();
+
+	private long begin;
+
+	private final long end;
+
+	private long bucketSize = 0;
+
+	/** the index of the current bucket, -1 before the first item */
+	private long bucketIndex = -1;
+
+	/** the last item of the current bucket */
+	private HistoricItem lastItem;
+
+	/** the item with the extreme decimal state of the current bucket */
+	private HistoricItem extremeItem;
+
+	private DecimalType extremeValue;
+
+	/** the sum of the decimal states of the current bucket, weighted by their duration */
+	private double weightedSum;
+
+	/** the duration covered by the weighted sum */
+	private long weight;
+
+	/** the unweighted sum and count of the decimal states of the current bucket, used if no time has passed */
+	private double sampleSum;
+
+	private int sampleCount;
+
+	/** the decimal value of the last item or null, if it had no decimal state */
+	private Double currentValue;
+
+	/** the time since which the current value is valid within the current bucket */
+	private long currentSince;
+
+	/**
+	 * Creates a downsampler for the resolution, aggregation and ordering of the given filter.
+	 * If the filter has no begin date, the period starts with the first item; if it has no
+	 * end date, the period ends now.
+	 *
+	 * @param filter the filter of the query
+	 */
+	public Downsampler(FilterCriteria filter) {
+		this.resolution = Math.max(1, filter.getResolution());
+		this.aggregation = filter.getAggregation() != null ? filter.getAggregation() : Aggregation.MEAN;
+		this.ordering = filter.getOrdering();
+		this.end = filter.getEndDate() != null ? filter.getEndDate().getTime() : System.currentTimeMillis();
+		if (filter.getBeginDate() != null) {
+			initBuckets(filter.getBeginDate().getTime());
+		}
+	}
+
+	/**
+	 * Downsamples a complete query result, if the filter asks for it.
+	 *
+	 * @param items the result of a query in the ordering of the filter
+	 * @param filter the filter of the query
+	 * @return the downsampled result or the given items, if the filter does not define a resolution
+	 */
+	public static Iterable<HistoricItem> downsample(Iterable<HistoricItem> items, FilterCriteria filter) {
+		if (filter.getResolution() <= 0) {
+			return items;
+		}
+		if (filter.getOrdering() == Ordering.DESCENDING) {
+			List<HistoricItem> ascendingItems = new ArrayList<HistoricItem>();
+			for (HistoricItem item : items) {
+				ascendingItems.add(item);
+			}
+			Collections.reverse(ascendingItems);
+			items = ascendingItems;
+		}
+		Downsampler downsampler = new Downsampler(filter);
+		for (HistoricItem item : items) {
+			downsampler.add(item);
+		}
+		return downsampler.getResult();
+	}
+
+	/**
+	 * Adds the next item of the series.
+	 *
+	 * @param item the item, not older than the previous one
+	 */
+	public void add(HistoricItem item) {
+		long time = item.getTimestamp().getTime();
+		if (bucketSize == 0) {
+			initBuckets(time);
+		}
+		long index = Math.max(0, Math.min(resolution - 1, (time - begin) / bucketSize));
+		if (index != bucketIndex) {
+			if (bucketIndex >= 0) {
+				closeBucket(getBucketStart(bucketIndex + 1));
+			}
+			openBucket(index);
+		}
+
+		State state = item.getState();
+		if (state instanceof DecimalType) {
+			DecimalType value = (DecimalType) state;
+			if (currentValue != null && time > currentSince) {
+				weightedSum += currentValue * (time - currentSince);
+				weight += time - currentSince;
+			}
+			currentValue = value.doubleValue();
+			currentSince = Math.max(time, currentSince);
+			sampleSum += currentValue;
+			sampleCount++;
+			if (extremeValue == null
+					|| (aggregation == Aggregation.MINIMUM && value.compareTo(extremeValue) < 0)
+					|| (aggregation == Aggregation.MAXIMUM && value.compareTo(extremeValue) > 0)) {
+				extremeValue = value;
+				extremeItem = item;
+			}
+		} else {
+			currentValue = null;
+		}
+		lastItem = item;
+	}
+
+	/**
+	 * Finishes the downsampling.
+	 *
+	 * @return one item per bucket that has received items, in the ordering of the filter
+	 */
+	public List<HistoricItem> getResult() {
+		if (bucketIndex >= 0) {
+			closeBucket(Math.min(getBucketStart(bucketIndex + 1), Math.max(end, currentSince)));
+			bucketIndex = -1;
+		}
+		List<HistoricItem> items = new ArrayList<HistoricItem>(result);
+		if (ordering == Ordering.DESCENDING) {
+			Collections.reverse(items);
+		}
+		return items;
+	}
+
+	private void initBuckets(long begin) {
+		this.begin = begin;
+		this.bucketSize = Math.max(1, (end - begin + resolution - 1) / resolution);
+	}
+
+	private long getBucketStart(long index) {
+		return begin + index * bucketSize;
+	}
+
+	private void openBucket(long index) {
+		bucketIndex = index;
+		lastItem = null;
+		extremeItem = null;
+		extremeValue = null;
+		weightedSum = 0;
+		weight = 0;
+		sampleSum = 0;
+		sampleCount = 0;
+		// the current value is carried over from the previous bucket
+		currentSince = getBucketStart(index);
+	}
+
+	private void closeBucket(long bucketEnd) {
+		if (lastItem == null) {
+			return;
+		}
+		if (!(lastItem.getState() instanceof DecimalType) || aggregation == Aggregation.LAST) {
+			result.add(lastItem);
+		} else if (aggregation == Aggregation.MEAN) {
+			if (currentValue != null && bucketEnd > currentSince) {
+				weightedSum += currentValue * (bucketEnd - currentSince);
+				weight += bucketEnd - currentSince;
+			}
+			double mean = weight > 0 ? weightedSum / weight : sampleSum / sampleCount;
+			result.add(new DownsampledItem(lastItem.getName(), new DecimalType(mean),
+					new Date(getBucketStart(bucketIndex))));
+		} else {
+			result.add(extremeItem);
+		}
+	}
+
+	/**
+	 * A historic item that holds the mean of a bucket.
+	 */
+	private static class DownsampledItem implements HistoricItem {
+
+		private final String name;
+		private final State state;
+		private final Date timestamp;
+
+		DownsampledItem(String name, State state, Date timestamp) {
+			this.name = name;
+			this.state = state;
+			this.timestamp = timestamp;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public State getState() {
+			return state;
+		}
+
+		public Date getTimestamp() {
+			return timestamp;
+		}
+
+		@Override
+		public String toString() {
+			return timestamp + ": " + name + " -> " + state;
+		}
+	}
+
+}
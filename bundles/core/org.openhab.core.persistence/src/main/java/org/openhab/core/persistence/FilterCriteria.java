@@ -22,6 +22,9 @@ import org.openhab.core.types.State;
  * <p>Additionally, the filter criteria supports ordering and paging of the result, so the
  * caller can ask to only return chunks of the result of a certain size (=pageSize) from a
  * starting index (pageNumber*pageSize).</p>
+ * <p>The result can be downsampled to a maximum number of entries (=resolution). The period
+ * of the query is then divided into as many buckets of equal length, and the entries of
+ * each bucket are aggregated into a single one.</p>
  * <p>All setter methods return the filter criteria instance, so that the methods can be
  * easily chained in order to define a filter.
  * 
@@ -54,6 +57,18 @@ public class FilterCriteria {
 	public enum Ordering {
 		ASCENDING, DESCENDING
 	}
+
+	/** Enumeration with all options to aggregate the entries of a bucket, if the result is downsampled */
+	public enum Aggregation {
+		/** the mean of the decimal states, weighted by the time each state has been valid */
+		MEAN,
+		/** the entry with the smallest decimal state */
+		MINIMUM,
+		/** the entry with the largest decimal state */
+		MAXIMUM,
+		/** the last entry; this is also used for states which are not decimal */
+		LAST
+	}
 	
 	/** filter result to only contain entries for the given item */
 	private String itemName;
@@ -79,6 +94,12 @@ public class FilterCriteria {
 	/** filter result to only contain entries that evaluate to true with the given operator and state */
 	private State state;
 
+	/** downsample the result to at most this many entries, 0 for no downsampling; paging does not apply then */
+	private int resolution = 0;
+
+	/** how to aggregate the entries of a bucket, if the result is downsampled */
+	private Aggregation aggregation = Aggregation.MEAN;
+
 	public String getItemName() {
 		return itemName;
 	}
@@ -111,6 +132,14 @@ public class FilterCriteria {
 		return state;
 	}
 
+	public int getResolution() {
+		return resolution;
+	}
+
+	public Aggregation getAggregation() {
+		return aggregation;
+	}
+
 	public FilterCriteria setItemName(String itemName) {
 		this.itemName = itemName;
 		return this;
@@ -151,4 +180,14 @@ public class FilterCriteria {
 		return this;
 	}
 
+	public FilterCriteria setResolution(int resolution) {
+		this.resolution = resolution;
+		return this;
+	}
+
+	public FilterCriteria setAggregation(Aggregation aggregation) {
+		this.aggregation = aggregation;
+		return this;
+	}
+
 }
@@ -0,0 +1,81 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence;
+
+import java.util.Date;
+
+import org.openhab.core.items.Item;
+import org.openhab.core.types.State;
+
+/**
+ * A persistence entry is a request to store the state of an item, which has been
+ * queued by the persistence manager. Besides the item and the alias to store it under,
+ * it holds the state of the item and the time at which the store has been requested,
+ * as the state of the item might already have changed again when the entry is processed.
+ * 
+ * @since 1.7.0
+ */
+public class PersistenceEntry {
+
+	private final Item item;
+
+	private final String alias;
+
+	private final State state;
+
+	private final Date timestamp;
+
+	public PersistenceEntry(Item item, String alias, State state, Date timestamp) {
+		this.item = item;
+		this.alias = alias;
+		this.state = state;
+		this.timestamp = timestamp;
+	}
+
+	/**
+	 * @return the item to store
+	 */
+	public Item getItem() {
+		return item;
+	}
+
+	/**
+	 * @return the alias to store the item under, might be <code>null</code>
+	 */
+	public String getAlias() {
+		return alias;
+	}
+
+	/**
+	 * @return the name under which the item should be stored, i.e. the alias if given, the item name otherwise
+	 */
+	public String getName() {
+		return alias!=null ? alias : item.getName();
+	}
+
+	/**
+	 * @return the state of the item at the time the store was requested
+	 */
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * @return the time at which the store was requested
+	 */
+	public Date getTimestamp() {
+		return timestamp;
+	}
+
+	@Override
+	public String toString() {
+		return getName() + " -> " + state + " (" + timestamp + ")";
+	}
+
+}
@@ -19,6 +19,8 @@ import java.util.Map;
 import org.joda.time.base.AbstractInstant;
 import org.openhab.core.items.Item;
 import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.AggregatingPersistenceService.AggregateFunction;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
@@ -241,41 +243,7 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return a historic item with the maximum state value since the given point in time
 	 */
 	static public HistoricItem maximumSince(final Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
-		HistoricItem maximumHistoricItem = null;
-		DecimalType maximum = (DecimalType) item.getStateAs(DecimalType.class);
-		while(it.hasNext()) {
-			HistoricItem historicItem = it.next();
-			State state = historicItem.getState();
-			if (state instanceof DecimalType) {
-				DecimalType value = (DecimalType) state;
-				if(maximum==null || value.compareTo(maximum)>0) {
-					maximum = value;
-					maximumHistoricItem = historicItem;
-				}
-			}
-		}
-		if(maximumHistoricItem==null && maximum!=null) {
-			// the maximum state is the current one, so construct a historic item on the fly
-			final DecimalType state = maximum;
-			return new HistoricItem() {
-				
-				public Date getTimestamp() {
-					return Calendar.getInstance().getTime();
-				}
-				
-				public State getState() {
-					return state;
-				}
-				
-				public String getName() {
-					return item.getName();
-				}
-			};
-		} else {
-			return maximumHistoricItem;
-		}
+		return extremeSince(item, timestamp, serviceName, AggregateFunction.MAXIMUM);
 	} 
 
 	/**
@@ -306,24 +274,44 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the historic item with the minimum state value since the given point in time
 	 */
 	static public HistoricItem minimumSince(final Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
-		HistoricItem minimumHistoricItem = null;
-		DecimalType minimum = (DecimalType) item.getStateAs(DecimalType.class);
-		while(it.hasNext()) {
-			HistoricItem historicItem = it.next();
-			State state = historicItem.getState();
-			if (state instanceof DecimalType) {
-				DecimalType value = (DecimalType) state;
-				if(minimum==null || value.compareTo(minimum)<0) {
-					minimum = value;
-					minimumHistoricItem = historicItem;
-				}
-			}
+		return extremeSince(item, timestamp, serviceName, AggregateFunction.MINIMUM);
+	} 
+
+	/**
+	 * Gets the historic item with the minimum or maximum value of the state of a given <code>item</code>
+	 * since a certain point in time. If the current state of the item is at least as extreme as all
+	 * persisted states, a historic item with the current state is returned.
+	 * 
+	 * @param item the item to get the extreme state value for
+	 * @param the point in time to start the check 
+	 * @param serviceName the name of the {@link PersistenceService} to use
+	 * @param function either {@link AggregateFunction#MINIMUM} or {@link AggregateFunction#MAXIMUM}
+	 * @return the historic item with the extreme state value since the given point in time
+	 */
+	static private HistoricItem extremeSince(final Item item, AbstractInstant timestamp, String serviceName, AggregateFunction function) {
+		int sign = function==AggregateFunction.MAXIMUM ? 1 : -1;
+		DecimalType current = (DecimalType) item.getStateAs(DecimalType.class);
+
+		HistoricItem extremeHistoricItem;
+		PersistenceService service = services.get(serviceName);
+		if (service instanceof AggregatingPersistenceService) {
+			extremeHistoricItem = ((AggregatingPersistenceService) service).aggregate(getFilterSince(item, timestamp), function);
+		} else {
+			NumericFold fold = new NumericFold(getAllStatesSince(item, timestamp, serviceName));
+			extremeHistoricItem = function==AggregateFunction.MAXIMUM ? fold.maximum : fold.minimum;
+		}
+		if(extremeHistoricItem!=null && !(extremeHistoricItem.getState() instanceof DecimalType)) {
+			extremeHistoricItem = null;
 		}
-		if(minimumHistoricItem==null && minimum!=null) {
-			// the minimal state is the current one, so construct a historic item on the fly
-			final DecimalType state = minimum;
+		if(extremeHistoricItem!=null && current!=null
+				&& sign * ((DecimalType) extremeHistoricItem.getState()).compareTo(current)<=0) {
+			// the current state is at least as extreme as the persisted ones
+			extremeHistoricItem = null;
+		}
+
+		if(extremeHistoricItem==null && current!=null) {
+			// the extreme state is the current one, so construct a historic item on the fly
+			final DecimalType state = current;
 			return new HistoricItem() {
 				
 				public Date getTimestamp() {
@@ -339,9 +327,9 @@ public class PersistenceExtensions implements ManagedService {
 				}
 			};
 		} else {
-			return minimumHistoricItem;
+			return extremeHistoricItem;
 		}
-	} 
+	}
 	
 	/**
 	 * Gets the average value of the state of a given <code>item</code> since a certain point in time. 
@@ -369,27 +357,34 @@ public class PersistenceExtensions implements ManagedService {
 	 * @return the average state value since the given point in time
 	 */
 	static public DecimalType averageSince(Item item, AbstractInstant timestamp, String serviceName) {
-		Iterable<HistoricItem> result = getAllStatesSince(item, timestamp, serviceName);
-		Iterator<HistoricItem> it = result.iterator();
-		
 		DecimalType value = (DecimalType) item.getStateAs(DecimalType.class);
 		if (value == null) {
 			value = DecimalType.ZERO;
 		}
 		
-		double average = value.doubleValue();
-		int quantity = 1;
-		while(it.hasNext()) {
-			State state = it.next().getState();
-			if (state instanceof DecimalType) {
-				value = (DecimalType) state;
-				average += value.doubleValue();
-				quantity++;
+		// the current state counts as one of the values
+		double sum = value.doubleValue();
+		long quantity = 1;
+		PersistenceService service = services.get(serviceName);
+		if (service instanceof AggregatingPersistenceService) {
+			AggregatingPersistenceService aService = (AggregatingPersistenceService) service;
+			FilterCriteria filter = getFilterSince(item, timestamp);
+			HistoricItem count = aService.aggregate(filter, AggregateFunction.COUNT);
+			long persistedQuantity = count!=null ? ((DecimalType) count.getState()).longValue() : 0;
+			if (persistedQuantity > 0) {
+				HistoricItem average = aService.aggregate(filter, AggregateFunction.AVERAGE);
+				if (average != null) {
+					sum += ((DecimalType) average.getState()).doubleValue() * persistedQuantity;
+					quantity += persistedQuantity;
+				}
 			}
+		} else {
+			NumericFold fold = new NumericFold(getAllStatesSince(item, timestamp, serviceName));
+			sum += fold.sum;
+			quantity += fold.count;
 		}
-		average /= quantity;
 		
-		return new DecimalType(average);
+		return new DecimalType(sum / quantity);
 	}
 	
 	/**
@@ -592,16 +587,56 @@ public class PersistenceExtensions implements ManagedService {
 		PersistenceService service = services.get(serviceName);
 		if (service instanceof QueryablePersistenceService) {
 			QueryablePersistenceService qService = (QueryablePersistenceService) service;
-			FilterCriteria filter = new FilterCriteria();
-			filter.setBeginDate(timestamp.toDate());
-			filter.setItemName(item.getName());
-			filter.setOrdering(Ordering.ASCENDING);
-			return qService.query(filter);
+			return qService.query(getFilterSince(item, timestamp));
 		} else {
 			logger.warn("There is no queryable persistence service registered with the name '{}'", serviceName);
 			return Collections.emptySet();
 		}
 	}
+
+	static private FilterCriteria getFilterSince(Item item, AbstractInstant timestamp) {
+		FilterCriteria filter = new FilterCriteria();
+		filter.setBeginDate(timestamp.toDate());
+		filter.setItemName(item.getName());
+		filter.setOrdering(Ordering.ASCENDING);
+		return filter;
+	}
+	
+	/**
+	 * Aggregates the decimal states of historic items in a single pass, so that the
+	 * historic items do not have to be kept. This is used for persistence services
+	 * that cannot aggregate the states on their own.
+	 */
+	static private class NumericFold {
+
+		long count = 0;
+		double sum = 0;
+		/** the earliest historic item with the smallest state */
+		HistoricItem minimum = null;
+		/** the earliest historic item with the largest state */
+		HistoricItem maximum = null;
+
+		NumericFold(Iterable<HistoricItem> historicItems) {
+			DecimalType minimumValue = null;
+			DecimalType maximumValue = null;
+			for(HistoricItem historicItem : historicItems) {
+				State state = historicItem.getState();
+				if (state instanceof DecimalType) {
+					DecimalType value = (DecimalType) state;
+					count++;
+					sum += value.doubleValue();
+					if(minimumValue==null || value.compareTo(minimumValue)<0) {
+						minimumValue = value;
+						minimum = historicItem;
+					}
+					if(maximumValue==null || value.compareTo(maximumValue)>0) {
+						maximumValue = value;
+						maximum = historicItem;
+					}
+				}
+			}
+		}
+	}
 	
 	/**
 	 * Returns <code>true</code>, if a default service is configured and returns <code>false</code> and logs a warning otherwise.
@@ -0,0 +1,136 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import java.lang.reflect.Constructor;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Creates copies of items that keep the state an item had when it was queued for
+ * persistence. Persistence services which do not support batch writes read the state
+ * from the item they are called with, but they are called by the queue some time after
+ * the item has been updated. The copy is an instance of the same item class, so that
+ * services can still tell the item type with <code>instanceof</code>.
+ *
+ * @since 1.7.0
+ */
+final class ItemSnapshot {
+
+	private static final Logger logger = LoggerFactory.getLogger(ItemSnapshot.class);
+
+	/** the constructors taking the item name by item class */
+	private static final Map<Class<?>, Constructor<?>> constructors = new ConcurrentHashMap<Class<?>, Constructor<?>>();
+
+	/** the item classes without a constructor taking the item name */
+	private static final Set<Class<?>> unsupportedClasses = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+
+	private ItemSnapshot() {
+	}
+
+	/**
+	 * Creates a copy of an item with the given state.
+	 *
+	 * @param item the item to copy
+	 * @param state the state of the copy
+	 * @return the copy or the item itself, if its class cannot be instantiated
+	 */
+	static Item create(Item item, State state) {
+		if(item instanceof GroupItem) {
+			return new GroupItemSnapshot((GroupItem) item, state);
+		}
+		if(item instanceof GenericItem) {
+			Constructor<?> constructor = getConstructor(item.getClass());
+			if(constructor!=null) {
+				try {
+					GenericItem copy = (GenericItem) constructor.newInstance(item.getName());
+					copy.getGroupNames().addAll(item.getGroupNames());
+					copy.setState(state);
+					return copy;
+				} catch (Exception e) {
+					logger.debug("Cannot copy item '{}': {}", item.getName(), e.getMessage());
+				}
+			}
+		}
+		return item;
+	}
+
+	private static Constructor<?> getConstructor(Class<?> itemClass) {
+		if(unsupportedClasses.contains(itemClass)) {
+			return null;
+		}
+		Constructor<?> constructor = constructors.get(itemClass);
+		if(constructor==null) {
+			try {
+				constructor = itemClass.getConstructor(String.class);
+				constructors.put(itemClass, constructor);
+			} catch (NoSuchMethodException e) {
+				logger.debug("Items of type '{}' cannot be copied, they are stored with their current state.", itemClass.getSimpleName());
+				unsupportedClasses.add(itemClass);
+			}
+		}
+		return constructor;
+	}
+
+	/**
+	 * A group item with a fixed state. The members and the conversions into other
+	 * state types are taken from the original group, as they are computed from its members.
+	 */
+	private static class GroupItemSnapshot extends GroupItem {
+
+		private final GroupItem group;
+
+		GroupItemSnapshot(GroupItem group, State state) {
+			super(group.getName(), group.getBaseItem());
+			this.group = group;
+			this.state = state;
+			this.groupNames.addAll(group.getGroupNames());
+		}
+
+		@Override
+		public State getStateAs(Class<? extends State> typeClass) {
+			if(typeClass!=null && typeClass.isInstance(state)) {
+				return state;
+			}
+			return group.getStateAs(typeClass);
+		}
+
+		@Override
+		public List<Item> getMembers() {
+			return group.getMembers();
+		}
+
+		@Override
+		public List<Item> getAllMembers() {
+			return group.getAllMembers();
+		}
+
+		@Override
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return group.getAcceptedDataTypes();
+		}
+
+		@Override
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return group.getAcceptedCommandTypes();
+		}
+	}
+
+}
@@ -8,13 +8,6 @@
  */
 package org.openhab.core.persistence.internal;
 
-import org.eclipse.emf.ecore.EObject;
-import org.openhab.core.items.Item;
-import org.openhab.core.persistence.PersistenceService;
-import org.openhab.model.core.ModelRepository;
-import org.openhab.model.persistence.persistence.PersistenceConfiguration;
-import org.openhab.model.persistence.persistence.PersistenceModel;
-import org.openhab.model.persistence.persistence.Strategy;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
@@ -22,8 +15,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * Implementation of Quartz {@link Job}-Interface. It takes a PersistenceModel and a CronStrategy,
- * scans through the relevant configurations and persists the concerned items.
+ * Implementation of Quartz {@link Job}-Interface. It takes a PersistenceModel and a CronStrategy
+ * and persists the concerned items, which are looked up in the compiled {@link PersistenceStrategyTable}.
  * 
  * @author Kai Kreuzer
  * @since 1.0.0
@@ -41,51 +34,10 @@ public class PersistItemsJob implements Job {
 		
 		PersistenceManager persistenceManager = PersistenceManager.getInstance();
 		if(persistenceManager!=null) {
-			ModelRepository modelRepository = persistenceManager.modelRepository;
-			PersistenceService persistenceService = persistenceManager.persistenceServices.get(modelName);
-			
-			if(modelRepository!=null && persistenceService!=null) {
-				EObject model = modelRepository.getModel(modelName + ".persist");
-				if (model instanceof PersistenceModel) {
-					PersistenceModel persistModel = (PersistenceModel) model;
-					for(PersistenceConfiguration config : persistModel.getConfigs()) {
-						if(hasStrategy(persistModel, config, strategyName)) {
-							for(Item item : persistenceManager.getAllItems(config)) {
-								long startTime = System.currentTimeMillis();
-								persistenceService.store(item, config.getAlias());
-								logger.trace("Storing item '{}' with persistence service '{}' took {}ms",
-										new Object[] { item.getName(), modelName, System.currentTimeMillis() - startTime});
-							}
-						}
-					}
-				} else {
-					logger.debug("Persistence file '{}' does not exist", modelName);
-				}
-			}
+			persistenceManager.store(modelName, strategyName);
 		} else {
 			logger.warn("Persistence manager is not available!");
 		}
 	}
 
-	private boolean hasStrategy(PersistenceModel persistModel, PersistenceConfiguration config, String strategyName) {
-		// check if the strategy is directly defined on the config
-		for(Strategy strategy : config.getStrategies()) {
-			if(strategy.getName().equals(strategyName)) return true;
-		}
-		// if no strategies are given, check the default strategies to use
-		if(config.getStrategies().isEmpty() && isDefault(persistModel, strategyName)) {
-			return true;
-		}
-		return false;
-	}
-
-	private boolean isDefault(PersistenceModel persistModel, String strategyName) {
-		for (Strategy strategy : persistModel.getDefaults()) {
-			if(strategy.getName().equals(strategyName)) {
-				return true;
-			}
-		}
-		return false;
-	}
-
 }
\ No newline at end of file
@@ -12,18 +12,33 @@ import static org.quartz.JobBuilder.newJob;
 import static org.quartz.TriggerBuilder.newTrigger;
 
 import java.text.DateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Dictionary;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.osgi.framework.console.CommandInterpreter;
+import org.eclipse.osgi.framework.console.CommandProvider;
 import org.openhab.core.events.AbstractEventSubscriber;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.GroupItem;
@@ -32,11 +47,15 @@ import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.core.items.ItemRegistryChangeListener;
 import org.openhab.core.items.StateChangeListener;
+import org.openhab.core.persistence.BulkQueryablePersistenceService;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.PersistentStateRestorer;
 import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.persistence.internal.PersistenceQueue.OverflowPolicy;
+import org.openhab.core.persistence.internal.PersistenceStrategyTable.Target;
+import org.openhab.core.service.NamedThreadFactory;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.openhab.model.core.EventType;
@@ -50,6 +69,8 @@ import org.openhab.model.persistence.persistence.PersistenceConfiguration;
 import org.openhab.model.persistence.persistence.PersistenceModel;
 import org.openhab.model.persistence.persistence.Strategy;
 import org.openhab.model.persistence.scoping.GlobalStrategies;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
 import org.quartz.CronScheduleBuilder;
 import org.quartz.Job;
 import org.quartz.JobDetail;
@@ -66,13 +87,32 @@ import org.slf4j.LoggerFactory;
  * This class is the central part of the persistence management and delegation. It reads the persistence
  * models, schedules timers and manages the invocation of {@link PersistenceService}s upon events.
  * 
+ * Items are not stored directly by the thread that has updated them: their current state is
+ * put into a {@link PersistenceQueue} of each service, which is processed in the background.
+ * The queues can be inspected with the console command "persistence".
+ * 
+ * The persistence models are compiled into a {@link PersistenceStrategyTable}, so that
+ * finding the services an item has to be stored with takes a single lookup per event.
+ * 
+ * Item states are restored in bulk: the latest states are queried from all services
+ * in parallel, using a single query per chunk of items for {@link BulkQueryablePersistenceService}s.
+ * 
  * @author Kai Kreuzer
  * @since 1.0.0
  *
  */
-public class PersistenceManager extends AbstractEventSubscriber implements ModelRepositoryChangeListener, ItemRegistryChangeListener, StateChangeListener, PersistentStateRestorer {
+public class PersistenceManager extends AbstractEventSubscriber implements ModelRepositoryChangeListener, ItemRegistryChangeListener, StateChangeListener, PersistentStateRestorer, ManagedService, CommandProvider {
 	
 	private static final Logger logger = LoggerFactory.getLogger(PersistenceManager.class);
+	
+	private static final int DEFAULT_QUEUE_SIZE = 10000;
+	
+	private static final int DEFAULT_BATCH_SIZE = 100;
+	
+	private static final int DEFAULT_RESTORE_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+	
+	/** the maximum number of items whose states are queried with a single bulk query */
+	private static final int RESTORE_CHUNK_SIZE = 100;
 
 	private static PersistenceManager instance;
 	
@@ -92,6 +132,23 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	protected Map<String, List<Strategy>> defaultStrategies = 
 			Collections.synchronizedMap(new HashMap<String, List<Strategy>>());
 	
+	/** the strategies and services of each item as compiled from all persistence models */
+	private volatile PersistenceStrategyTable strategyTable = new PersistenceStrategyTable.Builder().build();
+	
+	/** keeps the queue of pending store requests for each batch persistence service */
+	protected Map<String, PersistenceQueue> persistenceQueues = new ConcurrentHashMap<String, PersistenceQueue>();
+	
+	private int queueSize = DEFAULT_QUEUE_SIZE;
+	
+	private int batchSize = DEFAULT_BATCH_SIZE;
+	
+	private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+	
+	private int restoreThreads = DEFAULT_RESTORE_THREADS;
+	
+	/** runs the queries for restoring item states, its idle threads terminate after a while */
+	private ExecutorService restoreExecutor;
+	
 	
 	public PersistenceManager() {
 		PersistenceManager.instance = this;
@@ -111,6 +168,11 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 	
 	public void deactivate() {
+		for(PersistenceQueue queue : persistenceQueues.values()) {
+			queue.stop();
+		}
+		persistenceQueues.clear();
+		shutdownRestoreExecutor();
 	}
 	
 	
@@ -141,11 +203,13 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	public void unsetItemRegistry(ItemRegistry itemRegistry) {
 		itemRegistry.removeItemRegistryChangeListener(this);
 		this.itemRegistry = null;
+		updateStrategyTable();
 	}
 
 	public void addPersistenceService(PersistenceService persistenceService) {
 		logger.debug("Initializing {} persistence service.", persistenceService.getName());
 		persistenceServices.put(persistenceService.getName(), persistenceService);
+		startQueue(persistenceService);
 		stopEventHandling(persistenceService.getName());
 		startEventHandling(persistenceService.getName());
 	}
@@ -153,6 +217,69 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	public void removePersistenceService(PersistenceService persistenceService) {
 		stopEventHandling(persistenceService.getName());
 		persistenceServices.remove(persistenceService.getName());
+		PersistenceQueue queue = persistenceQueues.remove(persistenceService.getName());
+		if(queue!=null) {
+			queue.stop();
+		}
+	}
+	
+	/**
+	 * Creates and starts a new queue for the given persistence service, replacing
+	 * any existing one. The pending entries of the old queue are stored before it stops.
+	 * 
+	 * @param persistenceService the service to create the queue for
+	 */
+	private void startQueue(PersistenceService persistenceService) {
+		PersistenceQueue queue = new PersistenceQueue(persistenceService, queueSize, batchSize, overflowPolicy);
+		queue.start();
+		PersistenceQueue oldQueue = persistenceQueues.put(persistenceService.getName(), queue);
+		if(oldQueue!=null) {
+			oldQueue.stop();
+		}
+	}
+	
+	/**
+	 * Queues the current state of an item to be stored with a persistence service.
+	 * 
+	 * @param serviceName the name of the persistence service
+	 * @param item the item to store
+	 * @param alias the alias to store the item under, might be <code>null</code>
+	 */
+	/* default */ void store(String serviceName, Item item, String alias) {
+		PersistenceQueue queue = persistenceQueues.get(serviceName);
+		while(queue!=null && !queue.add(item, alias)) {
+			// the queue has been stopped meanwhile, so try again with the one that replaced it
+			PersistenceQueue currentQueue = persistenceQueues.get(serviceName);
+			queue = currentQueue!=queue ? currentQueue : null;
+		}
+	}
+	
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getHelp() {
+		return "---openHAB persistence---\n\tpersistence - shows the queue statistics of all persistence services\n";
+	}
+	
+	/**
+	 * Prints the queue statistics of the persistence services to the console.
+	 * 
+	 * @param interpreter the console command interpreter
+	 * @return null
+	 */
+	public Object _persistence(CommandInterpreter interpreter) {
+		if(persistenceQueues.isEmpty()) {
+			interpreter.println("No persistence service is available.");
+		}
+		List<String> serviceNames = new ArrayList<String>(persistenceQueues.keySet());
+		Collections.sort(serviceNames);
+		for(String serviceName : serviceNames) {
+			PersistenceQueue queue = persistenceQueues.get(serviceName);
+			if(queue!=null) {
+				interpreter.println(queue.toString());
+			}
+		}
+		return null;
 	}
 	
 	
@@ -181,6 +308,7 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 		if(model!=null) {
 			persistenceConfigurations.put(modelName, model.getConfigs());
 			defaultStrategies.put(modelName, model.getDefaults());
+			updateStrategyTable();
 			initializeItems(model, modelName);
 			createTimers(modelName);
 		}
@@ -194,8 +322,137 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	private void stopEventHandling(String modelName) {
 		persistenceConfigurations.remove(modelName);
 		defaultStrategies.remove(modelName);
+		updateStrategyTable();
 		removeTimers(modelName);
 	}
+	
+	/**
+	 * Compiles the configurations of all persistence models into a new strategy table,
+	 * which maps each item and strategy to the services the item has to be stored with.
+	 */
+	/* default */ synchronized void updateStrategyTable() {
+		PersistenceStrategyTable.Builder builder = new PersistenceStrategyTable.Builder();
+		if(itemRegistry!=null) {
+			for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
+				String serviceName = entry.getKey();
+				for(PersistenceConfiguration config : entry.getValue()) {
+					List<Strategy> strategies = getStrategies(serviceName, config);
+					Target target = new Target(serviceName, config.getAlias());
+					for(Item item : getAllItems(config)) {
+						for(Strategy strategy : strategies) {
+							builder.add(item.getName(), strategy.getName(), target);
+						}
+					}
+				}
+			}
+		}
+		strategyTable = builder.build();
+		logger.debug("Compiled persistence strategies for {} items.", strategyTable.size());
+	}
+	
+	/**
+	 * Compiles the configurations of all persistence models for a single item and replaces
+	 * its entries in the strategy table. If the item is a group, the entries of its members
+	 * are updated as well, as group configurations apply to them.
+	 * 
+	 * @param item the item that has been added to the item registry
+	 */
+	private synchronized void updateStrategyTable(Item item) {
+		if(itemRegistry==null) {
+			return;
+		}
+		updateStrategyTableEntries(item);
+		if(item instanceof GroupItem) {
+			for(Item member : ((GroupItem) item).getAllMembers()) {
+				updateStrategyTableEntries(member);
+			}
+		}
+	}
+	
+	private void updateStrategyTableEntries(Item item) {
+		Set<String> groupNames = getAllGroupNames(item);
+		PersistenceStrategyTable.Builder builder = new PersistenceStrategyTable.Builder();
+		for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
+			String serviceName = entry.getKey();
+			for(PersistenceConfiguration config : entry.getValue()) {
+				if(appliesToItem(config, item, groupNames)) {
+					Target target = new Target(serviceName, config.getAlias());
+					for(Strategy strategy : getStrategies(serviceName, config)) {
+						builder.add(item.getName(), strategy.getName(), target);
+					}
+				}
+			}
+		}
+		strategyTable.replace(item.getName(), builder);
+	}
+	
+	/**
+	 * Returns the strategies of a persistence configuration, which are the default
+	 * strategies of the service, if the configuration does not define any.
+	 */
+	private List<Strategy> getStrategies(String serviceName, PersistenceConfiguration config) {
+		List<Strategy> strategies = config.getStrategies();
+		if(strategies.isEmpty()) {
+			List<Strategy> defaults = defaultStrategies.get(serviceName);
+			if(defaults!=null) {
+				return defaults;
+			}
+		}
+		return strategies;
+	}
+	
+	/**
+	 * Checks if a given persistence configuration entry is relevant for an item. Just like
+	 * {@link #getAllItems(PersistenceConfiguration)}, group configurations only apply to the
+	 * members that are no groups themselves.
+	 * 
+	 * @param config the persistence configuration entry
+	 * @param item the item to check if the configuration applies to
+	 * @param groupNames the names of all groups the item is a direct or indirect member of
+	 * @return true, if the configuration applies to the item
+	 */
+	private boolean appliesToItem(PersistenceConfiguration config, Item item, Set<String> groupNames) {
+		for(EObject itemCfg : config.getItems()) {
+			if (itemCfg instanceof AllConfig) {
+				return true;
+			}
+			if (itemCfg instanceof ItemConfig) {
+				if(item.getName().equals(((ItemConfig) itemCfg).getItem())) {
+					return true;
+				}
+			}
+			if (itemCfg instanceof GroupConfig && !(item instanceof GroupItem)) {
+				if(groupNames.contains(((GroupConfig) itemCfg).getGroup())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * @param item the item to get the groups for
+	 * @return the names of all registered groups the item is a direct or indirect member of
+	 */
+	private Set<String> getAllGroupNames(Item item) {
+		Set<String> groupNames = new HashSet<String>();
+		List<String> pendingNames = new ArrayList<String>(item.getGroupNames());
+		while(!pendingNames.isEmpty()) {
+			String groupName = pendingNames.remove(pendingNames.size() - 1);
+			if(!groupNames.contains(groupName)) {
+				try {
+					Item groupItem = itemRegistry.getItem(groupName);
+					if(groupItem instanceof GroupItem) {
+						groupNames.add(groupName);
+						pendingNames.addAll(groupItem.getGroupNames());
+					}
+				} catch (ItemNotFoundException e) {
+					// the group is not registered, so the item is not one of its members
+				}
+			}
+		}
+		return groupNames;
+	}
 
 	@Override
 	public void initializeItems(String modelName) {
@@ -206,13 +463,15 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 	
 	private void initializeItems(PersistenceModel model, String modelName) {
+		Set<Item> items = new LinkedHashSet<Item>();
 		for(PersistenceConfiguration config : model.getConfigs()) {
 			if(hasStrategy(modelName, config, GlobalStrategies.RESTORE)) {
 				for(Item item : getAllItems(config)) {
-					initialize(item);
+					items.add(item);
 				}
 			}
 		}
+		initialize(items);
 	}
 
 	public void stateChanged(Item item, State oldState, State newState) {
@@ -230,19 +489,10 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	 * @param onlyChanges true, if it has the change strategy, false otherwise
 	 */
 	private void handleStateEvent(Item item, boolean onlyChanges) {
-		synchronized (persistenceConfigurations) {
-			for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
-				String serviceName = entry.getKey();
-				if(persistenceServices.containsKey(serviceName)) {				
-					for(PersistenceConfiguration config : entry.getValue()) {
-						if(hasStrategy(serviceName, config, onlyChanges ? GlobalStrategies.CHANGE : GlobalStrategies.UPDATE)) {
-							if(appliesToItem(config, item)) {
-								persistenceServices.get(serviceName).store(item, config.getAlias());
-							}
-						}
-					}
-				}
-			}
+		Strategy strategy = onlyChanges ? GlobalStrategies.CHANGE : GlobalStrategies.UPDATE;
+		Target[] targets = strategyTable.getTargets(item.getName(), strategy.getName());
+		for(int i=0; i<targets.length; i++) {
+			store(targets[i].getServiceName(), item, targets[i].getAlias());
 		}
 	}
 	
@@ -267,41 +517,6 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 		}
 	}
 
-	/**
-	 * Checks if a given persistence configuration entry is relevant for an item
-	 * 
-	 * @param config the persistence configuration entry
-	 * @param item to check if the configuration applies to
-	 * @return true, if the configuration applies to the item
-	 */
-	protected boolean appliesToItem(PersistenceConfiguration config, Item item) {
-		for(EObject itemCfg : config.getItems()) {
-			if (itemCfg instanceof AllConfig) {
-				return true;
-			}
-			if (itemCfg instanceof ItemConfig) {
-				ItemConfig singleItemConfig = (ItemConfig) itemCfg;
-				if(item.getName().equals(singleItemConfig.getItem())) {
-					return true;
-				}
-			}
-			if (itemCfg instanceof GroupConfig) {
-				GroupConfig groupItemCfg = (GroupConfig) itemCfg;
-				String groupName = groupItemCfg.getGroup();
-				try {
-					Item gItem = itemRegistry.getItem(groupName);
-					if (gItem instanceof GroupItem) {
-						GroupItem groupItem = (GroupItem) gItem;
-						if(groupItem.getAllMembers().contains(item)) {
-							return true;
-						}
-					}
-				} catch (Exception e) {}
-			}
-		}
-		return false;
-	}
-
 	/**
 	 * Retrieves all items for which the persistence configuration applies to.
 	 * 
@@ -346,12 +561,19 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 
 	public void allItemsChanged(Collection<String> oldItemNames) {
-		for(Item item : itemRegistry.getItems()) {
-			itemAdded(item);
+		updateStrategyTable();
+		Collection<Item> items = itemRegistry.getItems();
+		initialize(items);
+		for(Item item : items) {
+			if (item instanceof GenericItem) {
+				GenericItem genericItem = (GenericItem) item;
+				genericItem.addStateChangeListener(this);
+			}
 		}
 	}
 
 	public void itemAdded(Item item) {
+		updateStrategyTable(item);
 		initialize(item);
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
@@ -361,45 +583,129 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 
 	/**
 	 * Handles the "restoreOnStartup" strategy for the item.
-	 * If the item state is still undefined when entering this method, all persistence configurations are checked,
-	 * if they have the "restoreOnStartup" strategy configured for the item. If so, the item state will be set
-	 * to its last persisted value.
 	 * 
 	 * @param item the item to restore the state for
+	 * @see #initialize(Iterable)
 	 */
 	protected void initialize(Item item) {
-		// get the last persisted state from the persistence service if no state is yet set
-		if(item.getState().equals(UnDefType.NULL) && item instanceof GenericItem) {
-			for(Entry<String, List<PersistenceConfiguration>> entry : persistenceConfigurations.entrySet()) {
-				String serviceName = entry.getKey();
-				for(PersistenceConfiguration config : entry.getValue()) {
-					if(hasStrategy(serviceName, config, GlobalStrategies.RESTORE)) {
-						if(appliesToItem(config, item)) {
-							PersistenceService service = persistenceServices.get(serviceName);
-							if(service instanceof QueryablePersistenceService) {
-								QueryablePersistenceService queryService = (QueryablePersistenceService) service;
-								FilterCriteria filter = new FilterCriteria().setItemName(item.getName()).setPageSize(1);
-								Iterable<HistoricItem> result = queryService.query(filter);
-								Iterator<HistoricItem> it = result.iterator();
-								if(it.hasNext()) {
-									HistoricItem historicItem = it.next();
-									GenericItem genericItem = (GenericItem) item;
-									genericItem.removeStateChangeListener(this);
-									genericItem.setState(historicItem.getState());
-									genericItem.addStateChangeListener(this);
-									logger.debug("Restored item state from '{}' for item '{}' -> '{}'", 
-											new Object[] { DateFormat.getDateTimeInstance().format(historicItem.getTimestamp()), 
-											item.getName(), historicItem.getState().toString() } );
-									return;
-								}
-							} else if(service!=null) {
-								logger.warn("Failed to restore item states as persistence service '{}' can not be queried.", serviceName);
-							}
-						}
+		initialize(Collections.singletonList(item));
+	}
+
+	/**
+	 * Handles the "restoreOnStartup" strategy for the items.
+	 * For all items whose state is still undefined when entering this method, the services with 
+	 * the "restoreOnStartup" strategy are looked up. The latest states of all these items are then
+	 * queried at once and each item is set to its last persisted value.
+	 * 
+	 * @param items the items to restore the states for
+	 */
+	protected void initialize(Iterable<Item> items) {
+		PersistenceStrategyTable table = strategyTable;
+		String strategyName = GlobalStrategies.RESTORE.getName();
+		
+		// collect the items to restore for each service
+		List<GenericItem> restoredItems = new ArrayList<GenericItem>();
+		Map<String, Set<String>> itemNamesByService = new LinkedHashMap<String, Set<String>>();
+		for(Item item : items) {
+			if(item.getState().equals(UnDefType.NULL) && item instanceof GenericItem) {
+				Target[] targets = table.getTargets(item.getName(), strategyName);
+				if(targets.length > 0) {
+					restoredItems.add((GenericItem) item);
+				}
+				for(Target target : targets) {
+					Set<String> itemNames = itemNamesByService.get(target.getServiceName());
+					if(itemNames==null) {
+						itemNames = new LinkedHashSet<String>();
+						itemNamesByService.put(target.getServiceName(), itemNames);
 					}
+					itemNames.add(item.getName());
 				}
-			}	
-		}		
+			}
+		}
+		if(restoredItems.isEmpty()) {
+			return;
+		}
+		
+		Map<String, Map<String, HistoricItem>> latestStates = queryLatestStates(itemNamesByService);
+		for(GenericItem item : restoredItems) {
+			// the item might have received a state while we were waiting for the query results 
+			if(!item.getState().equals(UnDefType.NULL)) {
+				continue;
+			}
+			for(Target target : table.getTargets(item.getName(), strategyName)) {
+				Map<String, HistoricItem> serviceStates = latestStates.get(target.getServiceName());
+				HistoricItem historicItem = serviceStates!=null ? serviceStates.get(item.getName()) : null;
+				if(historicItem!=null) {
+					item.removeStateChangeListener(this);
+					item.setState(historicItem.getState());
+					item.addStateChangeListener(this);
+					logger.debug("Restored item state from '{}' for item '{}' -> '{}'", 
+							new Object[] { DateFormat.getDateTimeInstance().format(historicItem.getTimestamp()), 
+							item.getName(), historicItem.getState().toString() } );
+					break;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Queries the latest persisted states of items from their services. The queries are split
+	 * into chunks, which are run in parallel on a bounded number of threads.
+	 * 
+	 * @param itemNamesByService the names of the items to query, by the name of the service to query
+	 * @return the latest states by item name, by service name
+	 */
+	private Map<String, Map<String, HistoricItem>> queryLatestStates(Map<String, Set<String>> itemNamesByService) {
+		List<RestoreQuery> queries = new ArrayList<RestoreQuery>();
+		for(Entry<String, Set<String>> entry : itemNamesByService.entrySet()) {
+			String serviceName = entry.getKey();
+			PersistenceService service = persistenceServices.get(serviceName);
+			if(service instanceof QueryablePersistenceService) {
+				List<String> itemNames = new ArrayList<String>(entry.getValue());
+				// services that do not support bulk queries are called once per item, so
+				// we spread their items over all threads
+				int chunkSize = service instanceof BulkQueryablePersistenceService ? RESTORE_CHUNK_SIZE
+						: (itemNames.size() + restoreThreads - 1) / restoreThreads;
+				for(int i=0; i<itemNames.size(); i+=chunkSize) {
+					List<String> chunk = itemNames.subList(i, Math.min(i + chunkSize, itemNames.size()));
+					queries.add(new RestoreQuery((QueryablePersistenceService) service, chunk));
+				}
+			} else if(service!=null) {
+				logger.warn("Failed to restore item states as persistence service '{}' can not be queried.", serviceName);
+			}
+		}
+		
+		Map<String, Map<String, HistoricItem>> latestStates = new HashMap<String, Map<String, HistoricItem>>();
+		if(queries.size()==1) {
+			RestoreQuery query = queries.get(0);
+			latestStates.put(query.service.getName(), query.call());
+		} else if(!queries.isEmpty()) {
+			long startTime = System.currentTimeMillis();
+			try {
+				List<Future<Map<String, HistoricItem>>> results = getRestoreExecutor().invokeAll(queries);
+				for(int i=0; i<queries.size(); i++) {
+					String serviceName = queries.get(i).service.getName();
+					Map<String, HistoricItem> serviceStates = latestStates.get(serviceName);
+					if(serviceStates==null) {
+						serviceStates = new HashMap<String, HistoricItem>();
+						latestStates.put(serviceName, serviceStates);
+					}
+					try {
+						serviceStates.putAll(results.get(i).get());
+					} catch (ExecutionException e) {
+						logger.error("Failed to query item states from persistence service '" + serviceName + "'", e.getCause());
+					}
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				logger.debug("Interrupted while restoring item states.");
+			} catch (RejectedExecutionException e) {
+				logger.debug("Restoring item states has been aborted, as the persistence manager is shut down.");
+			}
+			logger.debug("Queried the states of items for restoring with {} queries in {}ms", 
+					queries.size(), System.currentTimeMillis() - startTime);
+		}
+		return latestStates;
 	}
 
 	public void itemRemoved(Item item) {
@@ -407,6 +713,48 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.removeStateChangeListener(this);
 		}
+		removeFromStrategyTable(item);
+	}
+	
+	/**
+	 * Removes the entries of an item from the strategy table.
+	 * 
+	 * @param item the item that has been removed from the item registry
+	 */
+	private synchronized void removeFromStrategyTable(Item item) {
+		if(item instanceof GroupItem) {
+			// the group has already lost its members, so we do not know whose entries to update
+			updateStrategyTable();
+		} else {
+			strategyTable.remove(item.getName());
+		}
+	}
+	
+	/**
+	 * Stores all items that have a strategy with a persistence service, e.g. when
+	 * the cron expression of the strategy fires.
+	 * 
+	 * @param serviceName the name of the persistence service
+	 * @param strategyName the name of the strategy
+	 */
+	/* default */ void store(String serviceName, String strategyName) {
+		PersistenceStrategyTable table = strategyTable;
+		ItemRegistry registry = itemRegistry;
+		if(registry==null) {
+			return;
+		}
+		for(String itemName : table.getItemNames()) {
+			for(Target target : table.getTargets(itemName, strategyName)) {
+				if(target.getServiceName().equals(serviceName)) {
+					try {
+						store(serviceName, registry.getItem(itemName), target.getAlias());
+						logger.trace("Stored item '{}' with persistence service '{}'", itemName, serviceName);
+					} catch (ItemNotFoundException e) {
+						logger.debug("Item '{}' does not exist.", itemName);
+					}
+				}
+			}
+		}
 	}
 	
 	/**
@@ -473,4 +821,122 @@ public class PersistenceManager extends AbstractEventSubscriber implements Model
 	}
 		
 
+	/**
+	 * @return the executor to run the restore queries, which is created on first use
+	 */
+	private synchronized ExecutorService getRestoreExecutor() {
+		if(restoreExecutor==null) {
+			ThreadPoolExecutor executor = new ThreadPoolExecutor(restoreThreads, restoreThreads, 60, TimeUnit.SECONDS, 
+					new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("openHAB-persistence-restore"));
+			executor.allowCoreThreadTimeOut(true);
+			restoreExecutor = executor;
+		}
+		return restoreExecutor;
+	}
+	
+	/**
+	 * Shuts down the executor of the restore queries. Queries that are already submitted are still run.
+	 */
+	private synchronized void shutdownRestoreExecutor() {
+		if(restoreExecutor!=null) {
+			restoreExecutor.shutdown();
+			restoreExecutor = null;
+		}
+	}
+
+	/**
+	 * A query for the latest states of some items of a single persistence service.
+	 */
+	private static class RestoreQuery implements Callable<Map<String, HistoricItem>> {
+		
+		final QueryablePersistenceService service;
+		
+		final List<String> itemNames;
+		
+		RestoreQuery(QueryablePersistenceService service, List<String> itemNames) {
+			this.service = service;
+			this.itemNames = itemNames;
+		}
+		
+		public Map<String, HistoricItem> call() {
+			try {
+				if(service instanceof BulkQueryablePersistenceService) {
+					return ((BulkQueryablePersistenceService) service).queryLatest(itemNames);
+				}
+				Map<String, HistoricItem> latestStates = new HashMap<String, HistoricItem>();
+				for(String itemName : itemNames) {
+					FilterCriteria filter = new FilterCriteria().setItemName(itemName).setPageSize(1);
+					Iterable<HistoricItem> result = service.query(filter);
+					if(result!=null) {
+						Iterator<HistoricItem> it = result.iterator();
+						if(it.hasNext()) {
+							latestStates.put(itemName, it.next());
+						}
+					}
+				}
+				return latestStates;
+			} catch (RuntimeException e) {
+				logger.error("Failed to query item states from persistence service '" + service.getName() + "'", e);
+				return Collections.emptyMap();
+			}
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("rawtypes")
+	public void updated(Dictionary config) throws ConfigurationException {
+		int newRestoreThreads = DEFAULT_RESTORE_THREADS;
+		int newQueueSize = DEFAULT_QUEUE_SIZE;
+		int newBatchSize = DEFAULT_BATCH_SIZE;
+		OverflowPolicy newOverflowPolicy = OverflowPolicy.BLOCK;
+		
+		if (config != null) {
+			newRestoreThreads = parsePositiveInt(config, "restorethreads", DEFAULT_RESTORE_THREADS);
+			newQueueSize = parsePositiveInt(config, "queuesize", DEFAULT_QUEUE_SIZE);
+			newBatchSize = parsePositiveInt(config, "batchsize", DEFAULT_BATCH_SIZE);
+			String overflowString = (String) config.get("overflow");
+			if (StringUtils.isNotBlank(overflowString)) {
+				try {
+					newOverflowPolicy = OverflowPolicy.valueOf(overflowString.trim().toUpperCase());
+				} catch (IllegalArgumentException e) {
+					throw new ConfigurationException("overflow", "Unknown overflow policy '" + overflowString + 
+							"', valid values are 'block', 'dropoldest' and 'coalesce'");
+				}
+			}
+		}
+		
+		if (newRestoreThreads != restoreThreads) {
+			restoreThreads = newRestoreThreads;
+			shutdownRestoreExecutor();
+		}
+		
+		if (newQueueSize != queueSize || newBatchSize != batchSize || newOverflowPolicy != overflowPolicy) {
+			queueSize = newQueueSize;
+			batchSize = newBatchSize;
+			overflowPolicy = newOverflowPolicy;
+			for(PersistenceService persistenceService : persistenceServices.values()) {
+				startQueue(persistenceService);
+			}
+		}
+	}
+	
+	@SuppressWarnings("rawtypes")
+	private int parsePositiveInt(Dictionary config, String key, int defaultValue) throws ConfigurationException {
+		String value = (String) config.get(key);
+		if (StringUtils.isBlank(value)) {
+			return defaultValue;
+		}
+		try {
+			int result = Integer.parseInt(value.trim());
+			if (result > 0) {
+				return result;
+			}
+		} catch (NumberFormatException e) {
+			// handled below
+		}
+		throw new ConfigurationException(key, "The value must be a positive integer, but is '" + value + "'");
+	}
+
 }
@@ -0,0 +1,322 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.openhab.core.items.Item;
+import org.openhab.core.persistence.BatchPersistenceService;
+import org.openhab.core.persistence.PersistenceEntry;
+import org.openhab.core.persistence.PersistenceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The persistence queue decouples the storage of item states from the thread that
+ * has updated the item. Store requests are put into a bounded queue and they are
+ * passed to the persistence service by a dedicated worker thread, together with the
+ * state the item had when the store was requested.
+ *
+ * A {@link BatchPersistenceService} receives all entries that are queued at a time
+ * with a single call. Any other service is called once per entry with a copy of the
+ * item that has the queued state, see {@link ItemSnapshot}.
+ *
+ * @since 1.7.0
+ */
+public class PersistenceQueue implements Runnable {
+
+	private static final Logger logger = LoggerFactory.getLogger(PersistenceQueue.class);
+
+	/** the time to wait for the pending entries to be stored when the queue is stopped */
+	private static final long DRAIN_TIMEOUT = 10000;
+
+	/** Defines what happens to a new store request, if the queue is full */
+	public enum OverflowPolicy {
+		/** the thread that requests the store waits until there is space in the queue */
+		BLOCK,
+		/** the oldest entry of the queue is discarded */
+		DROPOLDEST,
+		/**
+		 * a pending entry of the same item and alias is replaced by the new one;
+		 * only if there is none, the thread waits until there is space in the queue
+		 */
+		COALESCE
+	}
+
+	private final PersistenceService service;
+
+	private final int capacity;
+
+	private final int batchSize;
+
+	private final OverflowPolicy overflowPolicy;
+
+	private final LinkedList<Slot> queue = new LinkedList<Slot>();
+
+	/** the latest queued slot by item and alias, only used for the coalesce policy */
+	private final Map<String, Slot> pendingSlots = new HashMap<String, Slot>();
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	private final Condition notEmpty = lock.newCondition();
+
+	private final Condition notFull = lock.newCondition();
+
+	private final AtomicLong storedCount = new AtomicLong();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	private volatile boolean running = false;
+
+	private Thread worker;
+
+	/**
+	 * @param service the service to pass the queued entries to
+	 * @param capacity the maximum number of pending entries
+	 * @param batchSize the maximum number of entries that are passed at once to the service
+	 * @param overflowPolicy what to do if the queue is full
+	 */
+	public PersistenceQueue(PersistenceService service, int capacity, int batchSize, OverflowPolicy overflowPolicy) {
+		this.service = service;
+		this.capacity = capacity;
+		this.batchSize = batchSize;
+		this.overflowPolicy = overflowPolicy;
+	}
+
+	/**
+	 * Starts the worker thread of this queue.
+	 */
+	public synchronized void start() {
+		if(!running) {
+			running = true;
+			worker = new Thread(this, "openHAB-persistence-" + service.getName());
+			worker.setDaemon(true);
+			worker.start();
+		}
+	}
+
+	/**
+	 * Stops the worker thread of this queue. New store requests are not accepted anymore,
+	 * but the entries that are still pending are passed to the service before the worker
+	 * terminates. Only if this takes too long, the remaining entries are discarded.
+	 */
+	public synchronized void stop() {
+		lock.lock();
+		try {
+			running = false;
+			notEmpty.signalAll();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		if(worker!=null) {
+			try {
+				worker.join(DRAIN_TIMEOUT);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			if(worker.isAlive()) {
+				worker.interrupt();
+			}
+			worker = null;
+		}
+		lock.lock();
+		try {
+			if(!queue.isEmpty()) {
+				logger.warn("Discarding {} pending entries for persistence service '{}'.", queue.size(), service.getName());
+				droppedCount.addAndGet(queue.size());
+			}
+			queue.clear();
+			pendingSlots.clear();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Queues the current state of an item to be stored by the service.
+	 *
+	 * @param item the item to store
+	 * @param alias the alias to store the item under, might be <code>null</code>
+	 * @return <code>false</code>, if the queue has not accepted the entry, because it is not running
+	 */
+	public boolean add(Item item, String alias) {
+		PersistenceEntry entry = new PersistenceEntry(item, alias, item.getState(), new Date());
+		String key = item.getName() + "->" + alias;
+		lock.lock();
+		try {
+			while(queue.size() >= capacity && running) {
+				if(overflowPolicy==OverflowPolicy.COALESCE) {
+					Slot slot = pendingSlots.get(key);
+					if(slot!=null) {
+						slot.entry = entry;
+						coalescedCount.incrementAndGet();
+						return true;
+					}
+					notFull.await();
+				} else if(overflowPolicy==OverflowPolicy.DROPOLDEST) {
+					queue.removeFirst();
+					long count = droppedCount.incrementAndGet();
+					if(count==1 || count % 1000==0) {
+						logger.warn("Queue of persistence service '{}' is full, {} entries have been dropped so far.", service.getName(), count);
+					}
+				} else {
+					notFull.await();
+				}
+			}
+			if(!running) {
+				return false;
+			}
+			Slot slot = new Slot(key, entry);
+			queue.addLast(slot);
+			if(overflowPolicy==OverflowPolicy.COALESCE) {
+				pendingSlots.put(key, slot);
+			}
+			notEmpty.signal();
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			logger.debug("Interrupted while waiting to queue item '{}' for persistence service '{}'.", item.getName(), service.getName());
+			return false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void run() {
+		while(true) {
+			List<PersistenceEntry> entries;
+			try {
+				entries = takeEntries();
+			} catch (InterruptedException e) {
+				break;
+			}
+			if(entries==null) {
+				break;
+			}
+			if(service instanceof BatchPersistenceService) {
+				try {
+					((BatchPersistenceService) service).store(entries);
+					storedCount.addAndGet(entries.size());
+				} catch (Exception e) {
+					logger.error("Persistence service '" + service.getName() + "' failed to store " + entries.size() + " entries.", e);
+				}
+			} else {
+				for(PersistenceEntry entry : entries) {
+					try {
+						service.store(ItemSnapshot.create(entry.getItem(), entry.getState()), entry.getAlias());
+						storedCount.incrementAndGet();
+					} catch (Exception e) {
+						logger.error("Persistence service '" + service.getName() + "' failed to store item '" + entry.getItem().getName() + "'.", e);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Waits for pending entries and removes up to a batch of them from the queue.
+	 *
+	 * @return the entries to store next or <code>null</code>, if the queue has been
+	 * stopped and all pending entries have been taken
+	 * @throws InterruptedException if the worker thread has been interrupted while waiting
+	 */
+	private List<PersistenceEntry> takeEntries() throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while(queue.isEmpty()) {
+				if(!running) {
+					return null;
+				}
+				notEmpty.await();
+			}
+			int count = Math.min(batchSize, queue.size());
+			List<PersistenceEntry> entries = new ArrayList<PersistenceEntry>(count);
+			for(int i=0; i<count; i++) {
+				Slot slot = queue.removeFirst();
+				if(overflowPolicy==OverflowPolicy.COALESCE && pendingSlots.get(slot.key)==slot) {
+					pendingSlots.remove(slot.key);
+				}
+				entries.add(slot.entry);
+			}
+			notFull.signalAll();
+			return entries;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of entries that are waiting to be stored
+	 */
+	public int getQueueSize() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return the number of entries that have been passed to the service
+	 */
+	public long getStoredCount() {
+		return storedCount.get();
+	}
+
+	/**
+	 * @return the number of entries that have been dropped because of a full queue
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * @return the number of entries that have been replaced by a newer entry of the same item
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "PersistenceQueue [service=" + service.getName() + ", queued=" + getQueueSize() + "/" + capacity +
+				", overflow=" + overflowPolicy.name().toLowerCase() +
+				", stored=" + getStoredCount() + ", dropped=" + getDroppedCount() +
+				", coalesced=" + getCoalescedCount() + "]";
+	}
+
+	/**
+	 * A position in the queue, whose entry can be replaced by the coalesce policy.
+	 */
+	private static class Slot {
+		final String key;
+		PersistenceEntry entry;
+
+		Slot(String key, PersistenceEntry entry) {
+			this.key = key;
+			this.entry = entry;
+		}
+	}
+
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.persistence.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The persistence strategy table holds the compiled result of all persistence models.
+ * For every item, it maps the name of each strategy (e.g. "everyChange", "restoreOnStartup"
+ * or the name of a cron strategy) to the persistence services and aliases that apply.
+ *
+ * A table can be read by any thread without synchronization. It is rebuilt by the
+ * {@link PersistenceManager} whenever a persistence model changes, while single items
+ * that are added to or removed from the item registry only replace their own entries.
+ *
+ * @since 1.7.0
+ */
+public class PersistenceStrategyTable {
+
+	private static final Target[] NO_TARGETS = new Target[0];
+
+	private final ConcurrentMap<String, Map<String, Target[]>> targets;
+
+	private PersistenceStrategyTable(ConcurrentMap<String, Map<String, Target[]>> targets) {
+		this.targets = targets;
+	}
+
+	/**
+	 * Returns the persistence targets of an item for a strategy.
+	 *
+	 * @param itemName the name of the item
+	 * @param strategyName the name of the strategy
+	 * @return the targets, an empty array if there are none
+	 */
+	public Target[] getTargets(String itemName, String strategyName) {
+		Map<String, Target[]> itemTargets = targets.get(itemName);
+		if(itemTargets!=null) {
+			Target[] result = itemTargets.get(strategyName);
+			if(result!=null) {
+				return result;
+			}
+		}
+		return NO_TARGETS;
+	}
+
+	/**
+	 * Replaces all targets of an item by the ones that a builder has collected for it.
+	 *
+	 * @param itemName the name of the item
+	 * @param builder the builder with the new targets of the item, might not contain any
+	 */
+	public void replace(String itemName, Builder builder) {
+		Map<String, List<Target>> itemTargets = builder.targets.get(itemName);
+		if(itemTargets==null) {
+			targets.remove(itemName);
+		} else {
+			targets.put(itemName, toArrays(itemTargets));
+		}
+	}
+
+	/**
+	 * Removes all targets of an item.
+	 *
+	 * @param itemName the name of the item
+	 */
+	public void remove(String itemName) {
+		targets.remove(itemName);
+	}
+
+	/**
+	 * @return the names of all items that have at least one target
+	 */
+	public Set<String> getItemNames() {
+		return Collections.unmodifiableSet(targets.keySet());
+	}
+
+	/**
+	 * @return the number of items that have at least one target
+	 */
+	public int size() {
+		return targets.size();
+	}
+
+	private static Map<String, Target[]> toArrays(Map<String, List<Target>> itemTargets) {
+		Map<String, Target[]> result = new HashMap<String, Target[]>(itemTargets.size() * 2);
+		for(Entry<String, List<Target>> strategyEntry : itemTargets.entrySet()) {
+			List<Target> strategyTargets = strategyEntry.getValue();
+			result.put(strategyEntry.getKey(), strategyTargets.toArray(new Target[strategyTargets.size()]));
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * A target describes the persistence service an item is stored with and the
+	 * alias it is stored under.
+	 */
+	public static class Target {
+
+		private final String serviceName;
+
+		private final String alias;
+
+		public Target(String serviceName, String alias) {
+			this.serviceName = serviceName;
+			this.alias = alias;
+		}
+
+		public String getServiceName() {
+			return serviceName;
+		}
+
+		/**
+		 * @return the alias to use or <code>null</code>, if the item name should be used
+		 */
+		public String getAlias() {
+			return alias;
+		}
+
+		@Override
+		public String toString() {
+			return alias==null ? serviceName : serviceName + " as " + alias;
+		}
+	}
+
+	/**
+	 * Collects the targets of all items to build a new table.
+	 */
+	public static class Builder {
+
+		private final Map<String, Map<String, List<Target>>> targets = new HashMap<String, Map<String, List<Target>>>();
+
+		/**
+		 * Adds a target for an item and strategy.
+		 *
+		 * @param itemName the name of the item
+		 * @param strategyName the name of the strategy
+		 * @param target the target to add
+		 * @return this builder
+		 */
+		public Builder add(String itemName, String strategyName, Target target) {
+			Map<String, List<Target>> itemTargets = targets.get(itemName);
+			if(itemTargets==null) {
+				itemTargets = new HashMap<String, List<Target>>();
+				targets.put(itemName, itemTargets);
+			}
+			List<Target> strategyTargets = itemTargets.get(strategyName);
+			if(strategyTargets==null) {
+				strategyTargets = new ArrayList<Target>(1);
+				itemTargets.put(strategyName, strategyTargets);
+			}
+			strategyTargets.add(target);
+			return this;
+		}
+
+		public PersistenceStrategyTable build() {
+			ConcurrentMap<String, Map<String, Target[]>> result = new ConcurrentHashMap<String, Map<String, Target[]>>(targets.size() * 2);
+			for(Entry<String, Map<String, List<Target>>> itemEntry : targets.entrySet()) {
+				result.put(itemEntry.getKey(), toArrays(itemEntry.getValue()));
+			}
+			return new PersistenceStrategyTable(result);
+		}
+	}
+
+}
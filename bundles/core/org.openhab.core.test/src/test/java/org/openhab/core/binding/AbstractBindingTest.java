@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.binding;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+
+/**
+ * @since 1.7.0
+ */
+public class AbstractBindingTest {
+
+	private TestBinding binding;
+
+	private TestProvider provider;
+
+	@Before
+	public void setup() {
+		binding = new TestBinding();
+		provider = new TestProvider();
+		provider.itemNames.add("Light");
+		binding.addBindingProvider(provider);
+	}
+
+	@Test
+	public void testOnlyBoundItemsAreRouted() {
+		binding.receiveCommand("Light", TestType.ON);
+		binding.receiveCommand("Switch", TestType.ON);
+		binding.receiveUpdate("Light", TestType.OFF);
+		binding.receiveUpdate("Switch", TestType.OFF);
+
+		assertEquals("[command Light ON, update Light OFF]", binding.received.toString());
+	}
+
+	@Test
+	public void testChangedBindingIsRouted() {
+		provider.itemNames.add("Switch");
+		provider.fireBindingChanged("Switch");
+		provider.itemNames.remove("Light");
+		provider.fireBindingChanged("Light");
+		binding.receiveCommand("Light", TestType.ON);
+		binding.receiveCommand("Switch", TestType.ON);
+
+		assertEquals("[command Switch ON]", binding.received.toString());
+	}
+
+	@Test
+	public void testChangedBindingsOfAllItemsAreRouted() {
+		provider.itemNames.clear();
+		provider.itemNames.add("Switch");
+		provider.fireAllBindingsChanged();
+		binding.receiveUpdate("Light", TestType.ON);
+		binding.receiveUpdate("Switch", TestType.ON);
+
+		assertEquals("[update Switch ON]", binding.received.toString());
+	}
+
+	@Test
+	public void testItemsOfRemovedProviderAreNotRouted() {
+		TestProvider otherProvider = new TestProvider();
+		otherProvider.itemNames.add("Switch");
+		binding.addBindingProvider(otherProvider);
+		binding.removeBindingProvider(provider);
+		binding.receiveCommand("Light", TestType.ON);
+		binding.receiveCommand("Switch", TestType.ON);
+
+		assertEquals("[command Switch ON]", binding.received.toString());
+	}
+
+	private enum TestType implements Command, State {
+		ON, OFF;
+
+		public String format(String pattern) {
+			return name();
+		}
+	}
+
+	private static class TestBinding extends AbstractBinding<TestProvider> {
+
+		final List<String> received = new ArrayList<String>();
+
+		@Override
+		protected void internalReceiveCommand(String itemName, Command command) {
+			received.add("command " + itemName + " " + command);
+		}
+
+		@Override
+		protected void internalReceiveUpdate(String itemName, State newState) {
+			received.add("update " + itemName + " " + newState);
+		}
+	}
+
+	private static class TestProvider implements BindingProvider {
+
+		final Set<String> itemNames = new TreeSet<String>();
+
+		private final List<BindingChangeListener> listeners = new CopyOnWriteArrayList<BindingChangeListener>();
+
+		public void addBindingChangeListener(BindingChangeListener listener) {
+			listeners.add(listener);
+		}
+
+		public void removeBindingChangeListener(BindingChangeListener listener) {
+			listeners.remove(listener);
+		}
+
+		public boolean providesBindingFor(String itemName) {
+			return itemNames.contains(itemName);
+		}
+
+		public boolean providesBinding() {
+			return !itemNames.isEmpty();
+		}
+
+		public Collection<String> getItemNames() {
+			return new ArrayList<String>(itemNames);
+		}
+
+		void fireBindingChanged(String itemName) {
+			for (BindingChangeListener listener : listeners) {
+				listener.bindingChanged(this, itemName);
+			}
+		}
+
+		void fireAllBindingsChanged() {
+			for (BindingChangeListener listener : listeners) {
+				listener.allBindingsChanged(this);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,156 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.events;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import org.openhab.core.events.ItemEvent;
+import org.openhab.core.internal.events.ShardedEventDispatcher.OverflowPolicy;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventAdmin;
+
+/**
+ * @since 1.7.0
+ */
+public class ShardedEventDispatcherTest {
+
+	@Test
+	public void testSubscriberCanPostToItsOwnFullShard() throws InterruptedException {
+		final CountDownLatch delivered = new CountDownLatch(4);
+		final ShardedEventDispatcher[] dispatcher = new ShardedEventDispatcher[1];
+		EventPublisherImpl eventPublisher = new EventPublisherImpl();
+		eventPublisher.setEventAdmin(new TestEventAdmin() {
+			@Override
+			public void sendEvent(Event event) {
+				if(((ItemEvent) event).getItemName().equals("Trigger")) {
+					for(int i=0; i<3; i++) {
+						dispatcher[0].dispatch(ItemEvent.createUpdateEvent("Echo", UnDefType.UNDEF));
+					}
+				}
+				delivered.countDown();
+			}
+		});
+		dispatcher[0] = new ShardedEventDispatcher(eventPublisher, 1, 1, OverflowPolicy.BLOCK);
+
+		dispatcher[0].dispatch(ItemEvent.createUpdateEvent("Trigger", UnDefType.UNDEF));
+		assertTrue(delivered.await(5, TimeUnit.SECONDS));
+		dispatcher[0].shutdown();
+	}
+
+	@Test
+	public void testEventsPostedToOwnFullShardKeepTheirOrder() throws InterruptedException {
+		final ShardedEventDispatcher[] dispatcher = new ShardedEventDispatcher[1];
+		EventPublisherImpl eventPublisher = new EventPublisherImpl();
+		TestEventAdmin eventAdmin = new TestEventAdmin() {
+			@Override
+			public void sendEvent(Event event) {
+				super.sendEvent(event);
+				if(((ItemEvent) event).getItemName().equals("Trigger")) {
+					for(int i=1; i<=3; i++) {
+						dispatcher[0].dispatch(ItemEvent.createUpdateEvent("Echo", new TestState(i)));
+					}
+				}
+			}
+		};
+		eventPublisher.setEventAdmin(eventAdmin);
+		dispatcher[0] = new ShardedEventDispatcher(eventPublisher, 1, 1, OverflowPolicy.BLOCK);
+
+		dispatcher[0].dispatch(ItemEvent.createUpdateEvent("Trigger", new TestState(0)));
+		eventAdmin.awaitEvents(4);
+		dispatcher[0].shutdown();
+		assertEquals("[Trigger=0, Echo=1, Echo=2, Echo=3]", eventAdmin.sentEvents.toString());
+		assertEquals(0, dispatcher[0].getDroppedEventCount());
+	}
+
+	@Test
+	public void testEventsAfterShutdownAreDeliveredInOrder() throws InterruptedException {
+		TestEventAdmin eventAdmin = new TestEventAdmin();
+		EventPublisherImpl eventPublisher = new EventPublisherImpl();
+		eventPublisher.setEventAdmin(eventAdmin);
+		ShardedEventDispatcher dispatcher = new ShardedEventDispatcher(eventPublisher, 1, 1, OverflowPolicy.DROP);
+		dispatcher.shutdown();
+
+		for(int i=1; i<=3; i++) {
+			dispatcher.dispatch(ItemEvent.createUpdateEvent("Item", new TestState(i)));
+		}
+		eventAdmin.awaitEvents(3);
+		assertEquals("[Item=1, Item=2, Item=3]", eventAdmin.sentEvents.toString());
+		assertEquals(0, eventAdmin.postedEvents);
+		assertEquals(0, dispatcher.getDroppedEventCount());
+
+		awaitTermination(dispatcher);
+		dispatcher.dispatch(ItemEvent.createUpdateEvent("Item", new TestState(4)));
+		assertEquals("[Item=1, Item=2, Item=3, Item=4]", eventAdmin.sentEvents.toString());
+
+		eventPublisher.unsetEventAdmin(eventAdmin);
+		dispatcher.dispatch(ItemEvent.createUpdateEvent("Item", new TestState(5)));
+		assertEquals(1, dispatcher.getDroppedEventCount());
+	}
+
+	private static void awaitTermination(ShardedEventDispatcher dispatcher) throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while(!dispatcher.isTerminated() && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		assertTrue(dispatcher.isTerminated());
+	}
+
+	private static class TestState implements State {
+
+		private final int value;
+
+		TestState(int value) {
+			this.value = value;
+		}
+
+		public String format(String pattern) {
+			return String.valueOf(value);
+		}
+
+		@Override
+		public String toString() {
+			return String.valueOf(value);
+		}
+	}
+
+	private static class TestEventAdmin implements EventAdmin {
+
+		final List<String> sentEvents = new ArrayList<String>();
+
+		int postedEvents = 0;
+
+		public void postEvent(Event event) {
+			postedEvents++;
+		}
+
+		public synchronized void sendEvent(Event event) {
+			ItemEvent itemEvent = (ItemEvent) event;
+			sentEvents.add(itemEvent.getItemName() + "=" + itemEvent.getState());
+			notifyAll();
+		}
+
+		synchronized void awaitEvents(int count) throws InterruptedException {
+			long end = System.currentTimeMillis() + 5000;
+			while(sentEvents.size() < count && System.currentTimeMillis() < end) {
+				wait(100);
+			}
+			assertEquals(count, sentEvents.size());
+		}
+	}
+
+}
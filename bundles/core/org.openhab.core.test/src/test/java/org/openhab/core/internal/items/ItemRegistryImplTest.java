@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.items;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.items.ItemProvider;
+import org.openhab.core.items.ItemsChangeListener;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+
+
+/**
+ * @since 1.7.0
+ */
+public class ItemRegistryImplTest {
+
+	private ItemRegistryImpl registry;
+
+	private TestItemProvider provider;
+
+	@Before
+	public void setup() {
+		provider = new TestItemProvider();
+		provider.items.add(new TestItem("Light_Kitchen"));
+		provider.items.add(new TestItem("Light_Living"));
+		provider.items.add(new TestItem("Temperature"));
+		registry = new ItemRegistryImpl();
+		registry.addItemProvider(provider);
+	}
+
+	@Test
+	public void testGetItem() throws ItemNotFoundException {
+		Assert.assertEquals("Temperature", registry.getItem("Temperature").getName());
+	}
+
+	@Test(expected=ItemNotFoundException.class)
+	public void testGetUnknownItem() throws ItemNotFoundException {
+		registry.getItem("Unknown");
+	}
+
+	@Test
+	public void testGetItemsByPattern() {
+		Assert.assertEquals(2, registry.getItems("Light_*").size());
+		Assert.assertEquals(1, registry.getItems("Temperature").size());
+		Assert.assertEquals(0, registry.getItems("Unknown").size());
+		// a second call must return the same result from the cached pattern
+		Assert.assertEquals(2, registry.getItems("Light_*").size());
+	}
+
+	@Test
+	public void testIndexFollowsProviderChanges() throws ItemNotFoundException {
+		Item item = new TestItem("Humidity");
+		registry.itemAdded(provider, item);
+		Assert.assertSame(item, registry.getItem("Humidity"));
+
+		registry.itemRemoved(provider, item);
+		Assert.assertTrue(registry.getItems("Humidity").isEmpty());
+
+		provider.items.clear();
+		provider.items.add(new TestItem("Pressure"));
+		registry.allItemsChanged(provider, null);
+		Assert.assertTrue(registry.getItems("Light_*").isEmpty());
+		Assert.assertEquals("Pressure", registry.getItem("Pressure").getName());
+
+		registry.removeItemProvider(provider);
+		Assert.assertTrue(registry.getItems().isEmpty());
+		Assert.assertTrue(registry.getItems("Pressure").isEmpty());
+	}
+
+	@Test
+	public void testGroupMembersAreResolved() {
+		TestItem member = new TestItem("Light_Bath");
+		member.getGroupNames().add("Lights");
+		GroupItem group = new GroupItem("Lights");
+		registry.itemAdded(provider, group);
+		registry.itemAdded(provider, member);
+		Assert.assertEquals(1, group.getMembers().size());
+		Assert.assertSame(member, group.getMembers().get(0));
+	}
+
+	@Test
+	public void testGroupMembersFollowProviderReload() {
+		GroupItem group = new GroupItem("Lights");
+		TestItemProvider groupProvider = new TestItemProvider();
+		groupProvider.items.add(group);
+		registry.addItemProvider(groupProvider);
+		Assert.assertTrue(group.getMembers().isEmpty());
+
+		TestItem member = new TestItem("Light_Bath");
+		member.getGroupNames().add("Lights");
+		provider.items.add(member);
+		registry.allItemsChanged(provider, null);
+		Assert.assertEquals(1, group.getMembers().size());
+
+		// a reload must replace the old member instead of adding another one
+		TestItem newMember = new TestItem("Light_Bath");
+		newMember.getGroupNames().add("Lights");
+		provider.items.remove(member);
+		provider.items.add(newMember);
+		registry.allItemsChanged(provider, null);
+		Assert.assertEquals(1, group.getMembers().size());
+		Assert.assertSame(newMember, group.getMembers().get(0));
+
+		registry.itemRemoved(provider, newMember);
+		Assert.assertTrue(group.getMembers().isEmpty());
+	}
+
+
+	class TestItemProvider implements ItemProvider {
+
+		List<Item> items = new ArrayList<Item>();
+
+		@Override
+		public Collection<Item> getItems() {
+			return new ArrayList<Item>(items);
+		}
+
+		@Override
+		public void addItemChangeListener(ItemsChangeListener listener) {
+		}
+
+		@Override
+		public void removeItemChangeListener(ItemsChangeListener listener) {
+		}
+
+	}
+
+	class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		@Override
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return null;
+		}
+
+		@Override
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return null;
+		}
+
+	}
+
+}
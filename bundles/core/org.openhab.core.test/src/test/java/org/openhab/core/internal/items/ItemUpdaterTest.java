@@ -0,0 +1,203 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.items;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.ItemNotFoundException;
+import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+
+/**
+ * @since 1.7.0
+ */
+public class ItemUpdaterTest {
+
+	private final Map<String, GenericItem> items = new HashMap<String, GenericItem>();
+
+	private ItemUpdater itemUpdater;
+
+	@Before
+	public void setUp() {
+		itemUpdater = new ItemUpdater();
+		itemUpdater.setItemRegistry((ItemRegistry) Proxy.newProxyInstance(ItemUpdaterTest.class.getClassLoader(),
+				new Class<?>[] { ItemRegistry.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (method.getName().equals("getItem")) {
+							GenericItem item = items.get(args[0]);
+							if (item == null) {
+								throw new ItemNotFoundException((String) args[0]);
+							}
+							return item;
+						}
+						return null;
+					}
+				}));
+	}
+
+	@Test
+	public void testAcceptedStatesAreSet() {
+		TestItem item = addItem(new TestItem("Item"));
+
+		itemUpdater.receiveUpdate("Item", BaseState.INSTANCE);
+		assertSame(BaseState.INSTANCE, item.getState());
+
+		// a subclass of an accepted type is accepted as well
+		State subState = new SubState();
+		itemUpdater.receiveUpdate("Item", subState);
+		assertSame(subState, item.getState());
+	}
+
+	@Test
+	public void testRejectedStatesAreNotSet() {
+		TestItem item = addItem(new TestItem("Item"));
+
+		itemUpdater.receiveUpdate("Item", OtherState.INSTANCE);
+		assertSame(UnDefType.NULL, item.getState());
+	}
+
+	@Test
+	public void testAcceptanceIsCachedByItemClass() {
+		TestItem first = addItem(new TestItem("First"));
+		TestItem second = addItem(new TestItem("Second"));
+
+		itemUpdater.receiveUpdate("First", BaseState.INSTANCE);
+		itemUpdater.receiveUpdate("First", OtherState.INSTANCE);
+		assertEquals(2, first.acceptedDataTypesCalls);
+
+		// the cached results are used for all items of the class
+		itemUpdater.receiveUpdate("Second", OtherState.INSTANCE);
+		assertSame(UnDefType.NULL, second.getState());
+		itemUpdater.receiveUpdate("Second", BaseState.INSTANCE);
+		assertSame(BaseState.INSTANCE, second.getState());
+		itemUpdater.receiveUpdate("First", OtherState.INSTANCE);
+		assertSame(BaseState.INSTANCE, first.getState());
+		assertEquals(2, first.acceptedDataTypesCalls);
+		assertEquals(0, second.acceptedDataTypesCalls);
+	}
+
+	@Test
+	public void testGroupItemWithBaseItemUsesAcceptanceOfBaseItemClass() {
+		TestItem baseItem = new TestItem("Base");
+		GroupItem group = addItem(new GroupItem("Group", baseItem));
+		TestItem item = addItem(new TestItem("Item"));
+
+		itemUpdater.receiveUpdate("Group", BaseState.INSTANCE);
+		assertSame(BaseState.INSTANCE, group.getState());
+		itemUpdater.receiveUpdate("Group", OtherState.INSTANCE);
+		assertSame(BaseState.INSTANCE, group.getState());
+		assertEquals(2, baseItem.acceptedDataTypesCalls);
+
+		// the group has filled the cache for the class of its base item
+		itemUpdater.receiveUpdate("Item", BaseState.INSTANCE);
+		assertSame(BaseState.INSTANCE, item.getState());
+		itemUpdater.receiveUpdate("Group", BaseState.INSTANCE);
+		assertEquals(2, baseItem.acceptedDataTypesCalls);
+		assertEquals(0, item.acceptedDataTypesCalls);
+	}
+
+	@Test
+	public void testGroupItemWithoutBaseItemIsNotCached() {
+		GroupItem group = addItem(new GroupItem("Group"));
+		TestItem member = new TestItem("Member");
+		group.addMember(member);
+
+		itemUpdater.receiveUpdate("Group", BaseState.INSTANCE);
+		assertSame(BaseState.INSTANCE, group.getState());
+		itemUpdater.receiveUpdate("Group", BaseState.INSTANCE);
+		assertEquals(2, member.acceptedDataTypesCalls);
+
+		// the accepted types change with the members
+		group.addMember(new OtherItem("Other"));
+		group.setState(UnDefType.NULL);
+		itemUpdater.receiveUpdate("Group", BaseState.INSTANCE);
+		assertSame(UnDefType.NULL, group.getState());
+	}
+
+	private <T extends GenericItem> T addItem(T item) {
+		items.put(item.getName(), item);
+		return item;
+	}
+
+	private static class BaseState implements State {
+
+		static final BaseState INSTANCE = new BaseState();
+
+		public String format(String pattern) {
+			return toString();
+		}
+	}
+
+	private static class SubState extends BaseState {
+	}
+
+	private enum OtherState implements State {
+		INSTANCE;
+
+		public String format(String pattern) {
+			return toString();
+		}
+	}
+
+	/**
+	 * An item which accepts {@link BaseState}s and counts how often its accepted
+	 * types are asked for.
+	 */
+	private static class TestItem extends GenericItem {
+
+		int acceptedDataTypesCalls = 0;
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			acceptedDataTypesCalls++;
+			return Collections.<Class<? extends State>>singletonList(BaseState.class);
+		}
+
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * An item which accepts {@link OtherState}s only.
+	 */
+	private static class OtherItem extends GenericItem {
+
+		public OtherItem(String name) {
+			super(name);
+		}
+
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return Collections.<Class<? extends State>>singletonList(OtherState.class);
+		}
+
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return Collections.emptyList();
+		}
+	}
+
+}
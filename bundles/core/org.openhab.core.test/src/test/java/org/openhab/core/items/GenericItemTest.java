@@ -0,0 +1,127 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.items;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.core.types.UnDefType;
+
+/**
+ * @since 1.7.0
+ */
+public class GenericItemTest {
+
+	private TestItem item;
+
+	private List<String> notifications;
+
+	@Before
+	public void setup() {
+		item = new TestItem("item");
+		notifications = new ArrayList<String>();
+	}
+
+	@Test
+	public void testUpdateAndChangeNotifications() {
+		item.addStateChangeListener(new RecordingListener("a"));
+		item.addStateChangeListener(new RecordingListener("b"));
+
+		item.setState(UnDefType.UNDEF);
+		item.setState(UnDefType.UNDEF);
+
+		assertEquals("[a updated Undefined, a changed Uninitialized->Undefined, b updated Undefined, b changed Uninitialized->Undefined, " +
+				"a updated Undefined, b updated Undefined]", notifications.toString());
+	}
+
+	@Test
+	public void testListenerIsOnlyAddedOnce() {
+		RecordingListener listener = new RecordingListener("a");
+		item.addStateChangeListener(listener);
+		item.addStateChangeListener(listener);
+
+		item.setState(UnDefType.NULL);
+
+		assertEquals("[a updated Uninitialized]", notifications.toString());
+	}
+
+	@Test
+	public void testRemoveListener() {
+		RecordingListener listenerA = new RecordingListener("a");
+		RecordingListener listenerB = new RecordingListener("b");
+		item.addStateChangeListener(listenerA);
+		item.addStateChangeListener(listenerB);
+		item.removeStateChangeListener(listenerA);
+
+		item.setState(UnDefType.NULL);
+		item.removeStateChangeListener(listenerB);
+		item.setState(UnDefType.NULL);
+
+		assertEquals("[b updated Uninitialized]", notifications.toString());
+	}
+
+	@Test
+	public void testListenerRemovedDuringNotification() {
+		final RecordingListener listenerB = new RecordingListener("b");
+		item.addStateChangeListener(new RecordingListener("a") {
+			@Override
+			public void stateUpdated(Item item, State state) {
+				super.stateUpdated(item, state);
+				((GenericItem) item).removeStateChangeListener(listenerB);
+			}
+		});
+		item.addStateChangeListener(listenerB);
+
+		item.setState(UnDefType.NULL);
+		item.setState(UnDefType.NULL);
+
+		// the running notification still uses the listeners of its start
+		assertEquals("[a updated Uninitialized, b updated Uninitialized, a updated Uninitialized]", notifications.toString());
+	}
+
+	class RecordingListener implements StateChangeListener {
+
+		private final String name;
+
+		RecordingListener(String name) {
+			this.name = name;
+		}
+
+		public void stateChanged(Item item, State oldState, State newState) {
+			notifications.add(name + " changed " + oldState + "->" + newState);
+		}
+
+		public void stateUpdated(Item item, State state) {
+			notifications.add(name + " updated " + state);
+		}
+	}
+
+	class TestItem extends GenericItem {
+
+		public TestItem(String name) {
+			super(name);
+		}
+
+		public List<Class<? extends State>> getAcceptedDataTypes() {
+			return Collections.emptyList();
+		}
+
+		public List<Class<? extends Command>> getAcceptedCommandTypes() {
+			return Collections.emptyList();
+		}
+	}
+
+}
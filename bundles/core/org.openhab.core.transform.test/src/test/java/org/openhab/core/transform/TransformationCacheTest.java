@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertSame;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.transform.TransformationCache.Loader;
+
+/**
+ * @since 1.7.0
+ */
+public class TransformationCacheTest {
+
+	private File file;
+
+	private int loadCount;
+
+	@Before
+	public void init() throws IOException {
+		TransformationCache.clear();
+		file = File.createTempFile("transform", ".map");
+		FileUtils.writeStringToFile(file, "a=1");
+		loadCount = 0;
+	}
+
+	@After
+	public void cleanup() {
+		TransformationCache.clear();
+		file.delete();
+	}
+
+	@Test
+	public void testArtifactIsLoadedOnce() throws TransformationException {
+		Object first = TransformationCache.get("TEST", "function", new CountingLoader());
+		Object second = TransformationCache.get("TEST", "function", new CountingLoader());
+
+		assertSame(first, second);
+		assertEquals(1, loadCount);
+	}
+
+	@Test
+	public void testArtifactsAreCachedPerType() throws TransformationException {
+		TransformationCache.get("TEST", "function", new CountingLoader());
+		TransformationCache.get("OTHER", "function", new CountingLoader());
+
+		assertEquals(2, loadCount);
+	}
+
+	@Test
+	public void testChangedFileIsReloaded() throws Exception {
+		Object first = TransformationCache.get("TEST", file.getPath(), file, new CountingLoader());
+		TransformationCache.checkFiles();
+		assertSame(first, TransformationCache.get("TEST", file.getPath(), file, new CountingLoader()));
+
+		FileUtils.writeStringToFile(file, "a=2\nb=3");
+		TransformationCache.checkFiles();
+		TransformationCache.get("TEST", file.getPath(), file, new CountingLoader());
+
+		assertEquals(2, loadCount);
+	}
+
+	@Test
+	public void testVersionIsIncreasedByChangedFile() throws Exception {
+		TransformationCache.get("TEST", file.getPath(), file, new CountingLoader());
+		long version = TransformationCache.getVersion();
+		TransformationCache.checkFiles();
+		assertEquals(version, TransformationCache.getVersion());
+
+		FileUtils.writeStringToFile(file, "a=2\nb=3");
+		TransformationCache.checkFiles();
+		assertTrue(TransformationCache.getVersion() > version);
+	}
+
+	@Test
+	public void testDeletedFileIsReloaded() throws Exception {
+		TransformationCache.get("TEST", file.getPath(), file, new CountingLoader());
+		file.delete();
+		TransformationCache.checkFiles();
+		TransformationCache.get("TEST", file.getPath(), file, new CountingLoader());
+
+		assertEquals(2, loadCount);
+	}
+
+	private class CountingLoader implements Loader<Object> {
+		public Object load() {
+			loadCount++;
+			return new Object();
+		}
+	}
+
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.transform;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.core.service.NamedThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cache for the compiled artifacts of transformation functions, like parsed mapping
+ * files, compiled stylesheets, expressions and scripts. Bindings usually call the same
+ * transformation with every poll of an item, so a {@link TransformationService} should
+ * only read and compile a function on its first use.
+ *
+ * <p>The artifacts are cached by the transformation type and the function. An artifact
+ * which has been loaded from a file of the transform folder is removed from the cache as
+ * soon as a watcher notices that the file has been changed or deleted; it is then loaded
+ * again on its next use. Since a cached artifact is shared by all callers, it has to be
+ * thread-safe, like a {@link javax.xml.transform.Templates} or a {@link java.util.regex.Pattern}.</p>
+ *
+ * <p>The {@link #getVersion() version} of the cache is increased whenever an artifact of a
+ * file is removed, so that callers which keep transformed values can tell that a
+ * transformation may now return different results.</p>
+ *
+ * @since 1.7.0
+ */
+public final class TransformationCache {
+
+	private static final Logger logger = LoggerFactory.getLogger(TransformationCache.class);
+
+	/** the interval in milliseconds in which the watcher checks the files of the cached artifacts */
+	private static final long WATCH_INTERVAL = 5000;
+
+	/** the maximum number of cached artifacts; the least recently used one is removed first */
+	private static final int MAX_ENTRIES = 500;
+
+	private static final Map<String, CachedArtifact> entries = new LinkedHashMap<String, CachedArtifact>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedArtifact> eldest) {
+			if (size() > MAX_ENTRIES) {
+				if (eldest.getValue().file != null) {
+					// the file may change before the artifact is loaded again
+					version.incrementAndGet();
+				}
+				return true;
+			}
+			return false;
+		}
+	};
+
+	/** the number of artifacts of files which have been removed from the cache */
+	private static final AtomicLong version = new AtomicLong();
+
+	private static ScheduledExecutorService watcher;
+
+	/**
+	 * Loads the artifact of a transformation function.
+	 *
+	 * @param <T> the type of the artifact
+	 */
+	public interface Loader<T> {
+
+		/**
+		 * @return the artifact, which must be thread-safe
+		 * @throws TransformationException if the function cannot be loaded or compiled
+		 */
+		T load() throws TransformationException;
+	}
+
+	private TransformationCache() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Returns the cached artifact of a transformation function, which does not depend on a file,
+	 * e.g. a compiled regular expression.
+	 *
+	 * @param type the transformation type, e.g. "REGEX"
+	 * @param function the transformation function
+	 * @param loader the loader of the artifact, which is called if the artifact is not cached yet
+	 * @return the artifact
+	 * @throws TransformationException if the artifact cannot be loaded
+	 */
+	public static <T> T get(String type, String function, Loader<T> loader) throws TransformationException {
+		return get(type, function, null, loader);
+	}
+
+	/**
+	 * Returns the cached artifact of a transformation function. If the artifact has been loaded
+	 * from the given file, it is reloaded after the file has been changed.
+	 *
+	 * @param type the transformation type, e.g. "XSLT"
+	 * @param function the transformation function
+	 * @param file the file which the artifact is loaded from or <code>null</code>
+	 * @param loader the loader of the artifact, which is called if the artifact is not cached yet
+	 * @return the artifact
+	 * @throws TransformationException if the artifact cannot be loaded
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T get(String type, String function, File file, Loader<T> loader) throws TransformationException {
+		String key = type + ":" + function;
+		CachedArtifact entry;
+		synchronized (entries) {
+			entry = entries.get(key);
+		}
+		if (entry == null) {
+			// take the file stamp before loading, so that a change during the load is noticed
+			entry = new CachedArtifact(file);
+			entry.artifact = loader.load();
+			synchronized (entries) {
+				entries.put(key, entry);
+				if (file != null && watcher == null) {
+					watcher = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("openHAB-transform"));
+					watcher.scheduleWithFixedDelay(new Runnable() {
+						public void run() {
+							checkFiles();
+						}
+					}, WATCH_INTERVAL, WATCH_INTERVAL, TimeUnit.MILLISECONDS);
+				}
+			}
+			logger.debug("Loaded the '{}' transformation '{}'", type, function);
+		}
+		return (T) entry.artifact;
+	}
+
+	/**
+	 * Returns the version of the transformation files. It is increased whenever an artifact
+	 * has been removed from the cache because its file has been changed or deleted, which the
+	 * watcher notices within a few seconds. Files which have never been loaded are not watched.
+	 *
+	 * @return the version
+	 */
+	public static long getVersion() {
+		return version.get();
+	}
+
+	/**
+	 * Removes all cached artifacts and stops the watcher.
+	 */
+	public static void clear() {
+		synchronized (entries) {
+			entries.clear();
+			version.incrementAndGet();
+			if (watcher != null) {
+				watcher.shutdownNow();
+				watcher = null;
+			}
+		}
+	}
+
+	/**
+	 * Removes the artifacts whose files have been changed or deleted since they have been loaded.
+	 */
+	static void checkFiles() {
+		List<Map.Entry<String, CachedArtifact>> cached;
+		synchronized (entries) {
+			cached = new ArrayList<Map.Entry<String, CachedArtifact>>(entries.entrySet());
+		}
+		for (Map.Entry<String, CachedArtifact> cachedEntry : cached) {
+			CachedArtifact entry = cachedEntry.getValue();
+			if (entry.file != null && entry.isModified()) {
+				synchronized (entries) {
+					if (entries.get(cachedEntry.getKey()) == entry) {
+						entries.remove(cachedEntry.getKey());
+						version.incrementAndGet();
+					}
+				}
+				logger.debug("Transformation file '{}' has been changed", entry.file);
+			}
+		}
+	}
+
+	private static class CachedArtifact {
+
+		private final File file;
+
+		private final long lastModified;
+
+		private final long length;
+
+		private Object artifact;
+
+		CachedArtifact(File file) {
+			this.file = file;
+			this.lastModified = file != null ? file.lastModified() : 0;
+			this.length = file != null ? file.length() : 0;
+		}
+
+		boolean isModified() {
+			return file.lastModified() != lastModified || file.length() != length;
+		}
+	}
+
+}
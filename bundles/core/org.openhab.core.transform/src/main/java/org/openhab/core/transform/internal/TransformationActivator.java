@@ -8,6 +8,7 @@
  */
 package org.openhab.core.transform.internal;
 
+import org.openhab.core.transform.TransformationCache;
 import org.osgi.framework.BundleActivator;
 import org.osgi.framework.BundleContext;
 import org.slf4j.Logger;
@@ -43,6 +44,7 @@ public final class TransformationActivator implements BundleActivator {
 	 */
 	public void stop(BundleContext bc) throws Exception {
 		context = null;
+		TransformationCache.clear();
 		logger.debug("Transformation Service has been stopped.");
 	}
 	
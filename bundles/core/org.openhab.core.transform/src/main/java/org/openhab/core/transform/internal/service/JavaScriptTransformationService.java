@@ -14,12 +14,17 @@ import java.io.FileNotFoundException;
 import java.io.InputStreamReader;
 import java.io.Reader;
 
+import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
 
 import org.apache.commons.io.IOUtils;
 import org.openhab.config.core.ConfigDispatcher;
+import org.openhab.core.transform.TransformationCache;
+import org.openhab.core.transform.TransformationCache.Loader;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.openhab.core.transform.internal.TransformationActivator;
@@ -37,6 +42,9 @@ public class JavaScriptTransformationService implements TransformationService {
 
 	static final Logger logger = 
 		LoggerFactory.getLogger(JavaScriptTransformationService.class);
+
+	/** the engine which compiles all scripts, created on first use */
+	private static ScriptEngine engine;
 	
 	/**
 	 * Transforms the input <code>source</code> by Java Script. It expects the
@@ -60,32 +68,29 @@ public class JavaScriptTransformationService implements TransformationService {
 
 		logger.debug("about to transform '{}' by the Java Script '{}'", source, filename);
 
-		Reader reader;
-
-		try {
-			String path = ConfigDispatcher.getConfigFolder() 
-				+ File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME
-				+ File.separator + filename;
-			reader = new InputStreamReader(new FileInputStream(path));
-		} catch (FileNotFoundException e) {
-			throw new TransformationException("An error occured while loading script.", e);
-		}
+		String path = ConfigDispatcher.getConfigFolder() 
+			+ File.separator + TransformationActivator.TRANSFORM_FOLDER_NAME
+			+ File.separator + filename;
+		CompiledScript script = compileScript(new File(path));
 
-		ScriptEngineManager manager = new ScriptEngineManager();
-		
-		ScriptEngine engine = manager.getEngineByName("javascript");
-		engine.put("input", source);
+		// every call gets its own bindings, so that calls do not see each other's input
+		Bindings bindings = script.getEngine().createBindings();
+		bindings.put("input", source);
 
 		Object result = null;
 
 		long startTime = System.currentTimeMillis();
 
 		try {
-			result = engine.eval(reader);
+			if (isThreadSafe(script.getEngine())) {
+				result = script.eval(bindings);
+			} else {
+				synchronized (script) {
+					result = script.eval(bindings);
+				}
+			}
 		} catch (ScriptException e) {
 			throw new TransformationException("An error occured while executing script.", e);
-		} finally {
-			IOUtils.closeQuietly(reader);
 		}
 
 		logger.trace("JavaScript execution elapsed {} ms", System.currentTimeMillis() - startTime);
@@ -93,4 +98,53 @@ public class JavaScriptTransformationService implements TransformationService {
 		return String.valueOf(result);
 	}
 
+	/**
+	 * Returns the compiled script of the given file, which is compiled only once until the file is changed.
+	 * 
+	 * @param file the script file
+	 * @return the compiled script
+	 * @throws TransformationException if the script cannot be loaded or compiled
+	 */
+	private CompiledScript compileScript(final File file) throws TransformationException {
+		return TransformationCache.get("JS", file.getPath(), file, new Loader<CompiledScript>() {
+			public CompiledScript load() throws TransformationException {
+				Reader reader;
+				try {
+					reader = new InputStreamReader(new FileInputStream(file));
+				} catch (FileNotFoundException e) {
+					throw new TransformationException("An error occured while loading script.", e);
+				}
+
+				try {
+					ScriptEngine engine = getEngine();
+					if (!(engine instanceof Compilable)) {
+						throw new TransformationException("The Java Script engine cannot compile scripts.");
+					}
+					return ((Compilable) engine).compile(reader);
+				} catch (ScriptException e) {
+					throw new TransformationException("An error occured while executing script.", e);
+				} finally {
+					IOUtils.closeQuietly(reader);
+				}
+			}
+		});
+	}
+
+	private static synchronized ScriptEngine getEngine() throws TransformationException {
+		if (engine == null) {
+			engine = new ScriptEngineManager().getEngineByName("javascript");
+			if (engine == null) {
+				throw new TransformationException("There is no Java Script engine available.");
+			}
+		}
+		return engine;
+	}
+
+	/**
+	 * @return true, if the engine allows to evaluate scripts concurrently
+	 */
+	private static boolean isThreadSafe(ScriptEngine engine) {
+		return engine.getFactory().getParameter("THREADING") != null;
+	}
+
 }
@@ -8,11 +8,15 @@
  */
 package org.openhab.core.transform.internal.service;
 
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
 import java.util.Properties;
+
 import org.apache.commons.io.IOUtils;
+import org.openhab.core.transform.TransformationCache;
+import org.openhab.core.transform.TransformationCache.Loader;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.slf4j.Logger;
@@ -53,27 +57,44 @@ public class MapTransformationService extends LocalizableTransformationService i
 			throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
 		}
 		
-		String path = getLocalizedProposedFilename(filename);					
-		Reader reader = null;
-		try {						
-			Properties properties = new Properties();
-			reader = new FileReader(path);
-			properties.load(reader);
-			String target = properties.getProperty(source);
-			if (target!=null) {
-				logger.debug("transformation resulted in '{}'", target);
-				return target;
-			} else {
-				logger.warn("Could not find a mapping for '{}' in the file '{}'.", source, filename);
-				return "";
-			}
-		} catch (IOException e) {
-			String message = "opening file '" + filename + "' throws exception";
-			logger.error(message, e);
-			throw new TransformationException(message, e);
-		} finally {
-			IOUtils.closeQuietly(reader);
+		String path = getLocalizedProposedFilename(filename);
+		Properties properties = loadProperties(filename, path);
+		String target = properties.getProperty(source);
+		if (target!=null) {
+			logger.debug("transformation resulted in '{}'", target);
+			return target;
+		} else {
+			logger.warn("Could not find a mapping for '{}' in the file '{}'.", source, filename);
+			return "";
 		}
 	}
 
+	/**
+	 * Returns the mappings of the given file, which are read only once until the file is changed.
+	 * 
+	 * @param filename the name of the file as given to the transformation
+	 * @param path the path of the (localized) file
+	 * @return the mappings of the file
+	 * @throws TransformationException if the file cannot be read
+	 */
+	private Properties loadProperties(final String filename, final String path) throws TransformationException {
+		return TransformationCache.get("MAP", path, new File(path), new Loader<Properties>() {
+			public Properties load() throws TransformationException {
+				Reader reader = null;
+				try {
+					Properties properties = new Properties();
+					reader = new FileReader(path);
+					properties.load(reader);
+					return properties;
+				} catch (IOException e) {
+					String message = "opening file '" + filename + "' throws exception";
+					logger.error(message, e);
+					throw new TransformationException(message, e);
+				} finally {
+					IOUtils.closeQuietly(reader);
+				}
+			}
+		});
+	}
+
 }
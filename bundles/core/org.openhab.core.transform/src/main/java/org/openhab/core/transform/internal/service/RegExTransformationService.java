@@ -11,6 +11,8 @@ package org.openhab.core.transform.internal.service;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.openhab.core.transform.TransformationCache;
+import org.openhab.core.transform.TransformationCache.Loader;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.slf4j.Logger;
@@ -43,7 +45,7 @@ public class RegExTransformationService implements TransformationService {
 
 		String result = source;
 
-		Matcher matcher = Pattern.compile("^" + regExpression + "$", Pattern.DOTALL).matcher(source.trim());
+		Matcher matcher = getPattern(regExpression).matcher(source.trim());
 		if (!matcher.matches()) {
 			logger.debug("the given regex '^{}$' doesn't match the given content '{}' -> couldn't compute transformation", regExpression, source);
 			return result;
@@ -67,4 +69,18 @@ public class RegExTransformationService implements TransformationService {
 		return result;
 	}
 
+	/**
+	 * Returns the compiled pattern of the given regular expression, which is compiled only on its first use.
+	 * 
+	 * @param regExpression the regular expression of the transformation
+	 * @return the pattern, which matches the whole content
+	 */
+	private Pattern getPattern(final String regExpression) throws TransformationException {
+		return TransformationCache.get("REGEX", regExpression, new Loader<Pattern>() {
+			public Pattern load() throws TransformationException {
+				return Pattern.compile("^" + regExpression + "$", Pattern.DOTALL);
+			}
+		});
+	}
+
 }
@@ -9,13 +9,18 @@
 package org.openhab.core.transform.internal.service;
 
 import java.io.BufferedReader;
-import java.io.DataInputStream;
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.commons.io.IOUtils;
+import org.openhab.core.transform.TransformationCache;
+import org.openhab.core.transform.TransformationCache.Loader;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.slf4j.Logger;
@@ -53,51 +58,85 @@ public class ScaleTransformationService extends LocalizableTransformationService
 	 */
 	public String transform(String filename, String source) throws TransformationException {
 
-	if (filename == null || source == null) {
-		throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
-	}
+		if (filename == null || source == null) {
+			throw new TransformationException("the given parameters 'filename' and 'source' must not be null");
+		}
+
+		String result = "not found";
+		String path = getLocalizedProposedFilename(filename);
 
-	String result = "not found";
-	String path = getLocalizedProposedFilename(filename);
-
-	try{
-		double value = Double.parseDouble(source);
-		FileInputStream fstream = new FileInputStream(path);
-		DataInputStream in = new DataInputStream(fstream);
-		BufferedReader br = new BufferedReader(new InputStreamReader(in));
-
-		String strLine;
-		while ((strLine = br.readLine()) != null) {
-			Matcher matcher = limits_pattern.matcher(strLine);
-			if (matcher.matches() && (matcher.groupCount()==5)) {
-				double minLimit = Double.parseDouble(matcher.group(2));
-				double maxLimit = Double.parseDouble(matcher.group(3));
-
-				// a bit of a trick to include/exclude limits of the segment
-				if (matcher.group(1).equals(']'))
-					minLimit = minLimit - 0.0000000001;
-				if (matcher.group(1).equals('['))
-					minLimit = minLimit + 0.0000000001;
-
-				if ((minLimit < value) && (value < maxLimit)) {
-					result = matcher.group(5);
+		try {
+			double value = Double.parseDouble(source);
+			for (Segment segment : loadSegments(path)) {
+				if ((segment.minLimit < value) && (value < segment.maxLimit)) {
+					result = segment.value;
 					break;
 				}
-			} 
+			}
+		} catch (NumberFormatException e) {
+			// If it's not a number let's try it like a classical map
+			// mainly for UnDefType value reason
+			MapTransformationService map = new MapTransformationService();
+			result = map.transform(filename, source);
 		}
 
-		in.close();
-	} catch (NumberFormatException e){
-		// If it's not a number let's try it like a classical map
-		// mainly for UnDefType value reason
-		MapTransformationService map = new MapTransformationService();
-		result = map.transform(filename, source);
-		
-	} catch (IOException e) {	
-		throw new TransformationException("An error occured while scaling value ", e);
+		return result;
 	}
 
-	return result;
-}
+	/**
+	 * Returns the segments of the given scale file, which is read only once until it is changed.
+	 * 
+	 * @param path the path of the (localized) scale file
+	 * @return the segments of the file in their order
+	 * @throws TransformationException if the file cannot be read
+	 */
+	private List<Segment> loadSegments(final String path) throws TransformationException {
+		return TransformationCache.get("SCALE", path, new File(path), new Loader<List<Segment>>() {
+			public List<Segment> load() throws TransformationException {
+				List<Segment> segments = new ArrayList<Segment>();
+				BufferedReader br = null;
+				try {
+					br = new BufferedReader(new InputStreamReader(new FileInputStream(path)));
+					String strLine;
+					while ((strLine = br.readLine()) != null) {
+						Matcher matcher = limits_pattern.matcher(strLine);
+						if (matcher.matches() && (matcher.groupCount()==5)) {
+							double minLimit = Double.parseDouble(matcher.group(2));
+							double maxLimit = Double.parseDouble(matcher.group(3));
+
+							// a bit of a trick to include/exclude limits of the segment
+							if (matcher.group(1).equals(']'))
+								minLimit = minLimit - 0.0000000001;
+							if (matcher.group(1).equals('['))
+								minLimit = minLimit + 0.0000000001;
+
+							segments.add(new Segment(minLimit, maxLimit, matcher.group(5)));
+						}
+					}
+				} catch (IOException e) {
+					throw new TransformationException("An error occured while scaling value ", e);
+				} finally {
+					IOUtils.closeQuietly(br);
+				}
+				return segments;
+			}
+		});
+	}
+
+	/**
+	 * A segment of a scale file, which maps the values between its limits to a string.
+	 */
+	private static class Segment {
+
+		private final double minLimit;
+		private final double maxLimit;
+		private final String value;
+
+		Segment(double minLimit, double maxLimit, String value) {
+			this.minLimit = minLimit;
+			this.maxLimit = maxLimit;
+			this.value = value;
+		}
+	}
 
 }
@@ -15,8 +15,11 @@ import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.xpath.XPath;
 import javax.xml.xpath.XPathConstants;
 import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
 import javax.xml.xpath.XPathFactory;
 
+import org.openhab.core.transform.TransformationCache;
+import org.openhab.core.transform.TransformationCache.Loader;
 import org.openhab.core.transform.TransformationException;
 import org.openhab.core.transform.TransformationService;
 import org.slf4j.Logger;
@@ -47,6 +50,7 @@ public class XPathTransformationService implements TransformationService {
 
 		logger.debug("about to transform '{}' by the function '{}'", source, xpathExpression);
 
+		XPathExpression expr = getExpression(xpathExpression);
 		StringReader stringReader = null;
 
 		try {
@@ -61,10 +65,11 @@ public class XPathTransformationService implements TransformationService {
 
 			Document doc = builder.parse(inputSource);
 
-			XPath xpath = XPathFactory.newInstance().newXPath();
-			XPathExpression expr = xpath.compile(xpathExpression);
-
-			String transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
+			// a compiled expression must not be evaluated concurrently
+			String transformationResult;
+			synchronized (expr) {
+				transformationResult = (String) expr.evaluate(doc, XPathConstants.STRING);
+			}
 
 			logger.debug("transformation resulted in '{}'", transformationResult);
 
@@ -79,4 +84,24 @@ public class XPathTransformationService implements TransformationService {
 
 	}
 
+	/**
+	 * Returns the compiled XPath expression, which is compiled only on its first use.
+	 * 
+	 * @param xpathExpression the XPath expression of the transformation
+	 * @return the compiled expression
+	 * @throws TransformationException if the expression is invalid
+	 */
+	private XPathExpression getExpression(final String xpathExpression) throws TransformationException {
+		return TransformationCache.get("XPATH", xpathExpression, new Loader<XPathExpression>() {
+			public XPathExpression load() throws TransformationException {
+				try {
+					XPath xpath = XPathFactory.newInstance().newXPath();
+					return xpath.compile(xpathExpression);
+				} catch (XPathExpressionException e) {
+					throw new TransformationException("transformation throws exceptions", e);
+				}
+			}
+		});
+	}
+
 }
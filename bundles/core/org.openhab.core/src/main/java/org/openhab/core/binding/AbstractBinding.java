@@ -9,6 +9,10 @@
 package org.openhab.core.binding;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.openhab.core.events.AbstractEventSubscriber;
@@ -32,6 +36,22 @@ public abstract class AbstractBinding<P extends BindingProvider> extends Abstrac
 	
 	protected EventPublisher eventPublisher = null;
 	
+	/** 
+	 * the names of all items for which any of the providers contains a binding config; 
+	 * it is used to route commands and updates to this binding only if it owns the item
+	 */
+	private final Set<String> boundItemNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	
+	/** keeps {@link #boundItemNames} in sync with the binding configs of all providers */
+	private final BindingChangeListener routingListener = new BindingChangeListener() {
+		public void bindingChanged(BindingProvider provider, String itemName) {
+			updateBoundItemName(itemName);
+		}
+		public void allBindingsChanged(BindingProvider provider) {
+			updateBoundItemNames();
+		}
+	};
+	
 	
 	public void setEventPublisher(EventPublisher eventPublisher) {
 		this.eventPublisher = eventPublisher;
@@ -55,6 +75,8 @@ public abstract class AbstractBinding<P extends BindingProvider> extends Abstrac
 	 */
 	public void addBindingProvider(P provider) {
 		this.providers.add(provider);
+		provider.addBindingChangeListener(routingListener);
+		updateBoundItemNames();
         provider.addBindingChangeListener(this);
         allBindingsChanged(provider);
     }
@@ -68,6 +90,8 @@ public abstract class AbstractBinding<P extends BindingProvider> extends Abstrac
 	public void removeBindingProvider(P provider) {
 		this.providers.remove(provider);
 		provider.removeBindingChangeListener(this);
+		provider.removeBindingChangeListener(routingListener);
+		updateBoundItemNames();
 	}
 	
 	
@@ -135,12 +159,36 @@ public abstract class AbstractBinding<P extends BindingProvider> extends Abstrac
 	 *         otherwise
 	 */
 	protected boolean providesBindingFor(String itemName) {
+		return boundItemNames.contains(itemName);
+	}
+	
+	/**
+	 * Updates the routing entry of a single item after its binding config 
+	 * has been added or removed by a provider.
+	 * 
+	 * @param itemName the item whose binding config has changed
+	 */
+	private synchronized void updateBoundItemName(String itemName) {
 		for (P provider : providers) {
 			if (provider.providesBindingFor(itemName)) {
-				return true;
+				boundItemNames.add(itemName);
+				return;
 			}
 		}
-		return false;
+		boundItemNames.remove(itemName);
+	}
+	
+	/**
+	 * Rebuilds the routing entries of all items from the binding configs of
+	 * all providers.
+	 */
+	private synchronized void updateBoundItemNames() {
+		Set<String> itemNames = new HashSet<String>();
+		for (P provider : providers) {
+			itemNames.addAll(provider.getItemNames());
+		}
+		boundItemNames.retainAll(itemNames);
+		boundItemNames.addAll(itemNames);
 	}
 	
 	/**
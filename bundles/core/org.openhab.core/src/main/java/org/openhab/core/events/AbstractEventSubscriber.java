@@ -23,6 +23,16 @@ abstract public class AbstractEventSubscriber implements EventSubscriber, EventH
 	 * {@inheritDoc}
 	 */
 	public void handleEvent(Event event) {  
+		if(event instanceof ItemEvent) {
+			// the event has already been parsed, so we do not need to look at its topic
+			ItemEvent itemEvent = (ItemEvent) event;
+			switch(itemEvent.getType()) {
+				case UPDATE:  receiveUpdate(itemEvent.getItemName(), itemEvent.getState()); break;
+				case COMMAND: receiveCommand(itemEvent.getItemName(), itemEvent.getCommand()); break;
+			}
+			return;
+		}
+		
 		String itemName = (String) event.getProperty("item");
 		
 		String topic = event.getTopic();
@@ -0,0 +1,116 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.events;
+
+import static org.openhab.core.events.EventConstants.TOPIC_PREFIX;
+import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+
+import org.openhab.core.types.Command;
+import org.openhab.core.types.EventType;
+import org.openhab.core.types.State;
+import org.osgi.service.event.Event;
+
+/**
+ * An item event is an OSGi {@link Event} for a command or a status update of 
+ * an item. It carries the same topic and properties as any other openHAB event,
+ * but keeps them in an already parsed form as well, so that subscribers
+ * do not need to split the topic again for every event they receive.
+ * 
+ * Instances are immutable.
+ * 
+ * @since 1.7.0
+ */
+public class ItemEvent extends Event {
+
+	private final EventType type;
+
+	private final String itemName;
+
+	private final State state;
+
+	private final Command command;
+
+	private ItemEvent(EventType type, String itemName, State state, Command command) {
+		super(createTopic(type, itemName), createProperties(itemName, state, command));
+		this.type = type;
+		this.itemName = itemName;
+		this.state = state;
+		this.command = command;
+	}
+
+	/**
+	 * Creates an event for a status update of an item.
+	 * 
+	 * @param itemName the name of the item
+	 * @param newState the new state of the item
+	 * @return the update event
+	 */
+	public static ItemEvent createUpdateEvent(String itemName, State newState) {
+		return new ItemEvent(EventType.UPDATE, itemName, newState, null);
+	}
+
+	/**
+	 * Creates an event for a command sent to an item.
+	 * 
+	 * @param itemName the name of the item
+	 * @param command the command to send
+	 * @return the command event
+	 */
+	public static ItemEvent createCommandEvent(String itemName, Command command) {
+		return new ItemEvent(EventType.COMMAND, itemName, null, command);
+	}
+
+	/**
+	 * @return the type of this event
+	 */
+	public EventType getType() {
+		return type;
+	}
+
+	/**
+	 * @return the name of the item this event is about
+	 */
+	public String getItemName() {
+		return itemName;
+	}
+
+	/**
+	 * @return the new state of an update event, <code>null</code> for command events
+	 */
+	public State getState() {
+		return state;
+	}
+
+	/**
+	 * @return the command of a command event, <code>null</code> for update events
+	 */
+	public Command getCommand() {
+		return command;
+	}
+
+	private static String createTopic(EventType type, String itemName) {
+		return TOPIC_PREFIX + TOPIC_SEPERATOR + type + TOPIC_SEPERATOR + itemName;
+	}
+
+	private static Dictionary<String, Object> createProperties(String itemName, State state, Command command) {
+		Dictionary<String, Object> properties = new Hashtable<String, Object>();
+		properties.put("item", itemName);
+		if(state!=null) {
+			properties.put("state", state);
+		}
+		if(command!=null) {
+			properties.put("command", command);
+		}
+		return properties;
+	}
+
+}
@@ -8,17 +8,16 @@
  */
 package org.openhab.core.internal.events;
 
-import static org.openhab.core.events.EventConstants.TOPIC_PREFIX;
-import static org.openhab.core.events.EventConstants.TOPIC_SEPERATOR;
-
 import java.util.Dictionary;
-import java.util.Hashtable;
 
+import org.apache.commons.lang.StringUtils;
 import org.openhab.core.events.EventPublisher;
+import org.openhab.core.events.ItemEvent;
+import org.openhab.core.internal.events.ShardedEventDispatcher.OverflowPolicy;
 import org.openhab.core.types.Command;
-import org.openhab.core.types.EventType;
 import org.openhab.core.types.State;
-import org.osgi.service.event.Event;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
 import org.osgi.service.event.EventAdmin;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -28,17 +27,43 @@ import org.slf4j.LoggerFactory;
  * Through it, openHAB events can be sent to the OSGi EventAdmin service
  * in order to broadcast them.
  * 
+ * Asynchronously posted events are not passed to the EventAdmin's own
+ * asynchronous delivery, but are dispatched by a {@link ShardedEventDispatcher},
+ * which keeps the order of events per item, but delivers events of different
+ * items in parallel. The dispatcher can be configured through the "events:"
+ * section of the openHAB configuration.
+ * 
  * @author Kai Kreuzer
  *
  */
-public class EventPublisherImpl implements EventPublisher {
+public class EventPublisherImpl implements EventPublisher, ManagedService {
 
 	private static final Logger logger = 
 		LoggerFactory.getLogger(EventPublisherImpl.class);
+	
+	/** the default size of the event queue of a single shard */
+	private static final int DEFAULT_QUEUE_SIZE = 1000;
 		
-	private EventAdmin eventAdmin;
+	private volatile EventAdmin eventAdmin;
+	
+	/** the dispatcher for posted events; if it is null, they are posted through the EventAdmin */
+	private volatile ShardedEventDispatcher dispatcher;
+	
+	private int shardCount = Runtime.getRuntime().availableProcessors();
+	
+	private int queueSize = DEFAULT_QUEUE_SIZE;
+	
+	private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
 	
 	
+	public void activate() {
+		startDispatcher();
+	}
+	
+	public void deactivate() {
+		stopDispatcher();
+	}
+	
 	public void setEventAdmin(EventAdmin eventAdmin) {
 		this.eventAdmin = eventAdmin;
 	}
@@ -47,13 +72,17 @@ public class EventPublisherImpl implements EventPublisher {
 		this.eventAdmin = null;
 	}
 	
+	protected EventAdmin getEventAdmin() {
+		return eventAdmin;
+	}
+	
 
 	/* (non-Javadoc)
 	 * @see org.openhab.core.internal.events.EventPublisher#sendCommand(org.openhab.core.items.GenericItem, org.openhab.core.datatypes.DataType)
 	 */
 	public void sendCommand(String itemName, Command command) {
 		if (command != null) {
-			if(eventAdmin!=null) eventAdmin.sendEvent(createCommandEvent(itemName, command));
+			if(eventAdmin!=null) eventAdmin.sendEvent(ItemEvent.createCommandEvent(itemName, command));
 		} else {
 			logger.warn("given command is NULL, couldn't send command to '{}'", itemName);
 		}
@@ -64,7 +93,7 @@ public class EventPublisherImpl implements EventPublisher {
 	 */
 	public void postCommand(String itemName, Command command) {
 		if (command != null) {
-			if(eventAdmin!=null) eventAdmin.postEvent(createCommandEvent(itemName, command));
+			post(ItemEvent.createCommandEvent(itemName, command));
 		} else {
 			logger.warn("given command is NULL, couldn't post command to '{}'", itemName);
 		}
@@ -75,29 +104,87 @@ public class EventPublisherImpl implements EventPublisher {
 	 */
 	public void postUpdate(String itemName, State newState) {
 		if (newState != null) {
-			if(eventAdmin!=null) eventAdmin.postEvent(createUpdateEvent(itemName, newState));
+			post(ItemEvent.createUpdateEvent(itemName, newState));
 		} else {
 			logger.warn("given new state is NULL, couldn't post update for '{}'", itemName);
 		}
 	}
 	
-	private Event createUpdateEvent(String itemName, State newState) {
-		Dictionary<String, Object> properties = new Hashtable<String, Object>();
-		properties.put("item", itemName);
-		properties.put("state", newState);
-		return new Event(createTopic(EventType.UPDATE, itemName), properties);
+	private void post(ItemEvent event) {
+		ShardedEventDispatcher currentDispatcher = dispatcher;
+		if(currentDispatcher!=null) {
+			currentDispatcher.dispatch(event);
+		} else if(eventAdmin!=null) {
+			eventAdmin.postEvent(event);
+		}
 	}
-
-	private Event createCommandEvent(String itemName, Command command) {
-		Dictionary<String, Object> properties = new Hashtable<String, Object>();
-		properties.put("item", itemName);
-		properties.put("command", command);
-		return new Event(createTopic(EventType.COMMAND, itemName) , properties);
+	
+	private synchronized void startDispatcher() {
+		ShardedEventDispatcher oldDispatcher = dispatcher;
+		if(shardCount > 0) {
+			// replace the dispatcher before shutting down the old one, so that no events are rejected meanwhile
+			dispatcher = new ShardedEventDispatcher(this, shardCount, queueSize, overflowPolicy);
+			logger.debug("Started event dispatcher with {} shard(s) and a queue size of {}.", shardCount, queueSize);
+		} else {
+			dispatcher = null;
+		}
+		if(oldDispatcher!=null) {
+			oldDispatcher.shutdown();
+		}
 	}
-
-	private String createTopic(EventType type, String itemName) {
-		return TOPIC_PREFIX + TOPIC_SEPERATOR + type + TOPIC_SEPERATOR + itemName;
+	
+	private synchronized void stopDispatcher() {
+		if(dispatcher!=null) {
+			dispatcher.shutdown();
+			dispatcher = null;
+		}
 	}
 	
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("rawtypes")
+	public void updated(Dictionary config) throws ConfigurationException {
+		int newShardCount = Runtime.getRuntime().availableProcessors();
+		int newQueueSize = DEFAULT_QUEUE_SIZE;
+		OverflowPolicy newOverflowPolicy = OverflowPolicy.BLOCK;
+		
+		if (config != null) {
+			String shardsString = (String) config.get("shards");
+			if (StringUtils.isNotBlank(shardsString)) {
+				try {
+					newShardCount = Integer.parseInt(shardsString.trim());
+				} catch (NumberFormatException e) {
+					throw new ConfigurationException("shards", "The number of shards must be an integer value");
+				}
+			}
+			String queueSizeString = (String) config.get("queuesize");
+			if (StringUtils.isNotBlank(queueSizeString)) {
+				try {
+					newQueueSize = Integer.parseInt(queueSizeString.trim());
+				} catch (NumberFormatException e) {
+					throw new ConfigurationException("queuesize", "The queue size must be an integer value");
+				}
+				if (newQueueSize <= 0) {
+					throw new ConfigurationException("queuesize", "The queue size must be greater than 0");
+				}
+			}
+			String overflowString = (String) config.get("overflow");
+			if (StringUtils.isNotBlank(overflowString)) {
+				try {
+					newOverflowPolicy = OverflowPolicy.valueOf(overflowString.trim().toUpperCase());
+				} catch (IllegalArgumentException e) {
+					throw new ConfigurationException("overflow", "Unknown overflow policy '" + overflowString + "', valid values are 'block' and 'drop'");
+				}
+			}
+		}
+		
+		if (newShardCount != shardCount || newQueueSize != queueSize || newOverflowPolicy != overflowPolicy) {
+			shardCount = newShardCount;
+			queueSize = newQueueSize;
+			overflowPolicy = newOverflowPolicy;
+			startDispatcher();
+		}
+	}
 	
 }
@@ -0,0 +1,246 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.internal.events;
+
+import java.util.LinkedList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.core.events.ItemEvent;
+import org.openhab.core.service.NamedThreadFactory;
+import org.osgi.service.event.EventAdmin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The sharded event dispatcher asynchronously delivers {@link ItemEvent}s to the
+ * {@link EventAdmin}. Events are distributed over a number of shards by the name
+ * of their item. Each shard is served by a single thread, so that all events of an
+ * item are delivered in the order they have been posted, while events of different
+ * items are delivered in parallel.
+ *
+ * The queue of each shard is bounded. If it is full, the posting thread is either
+ * blocked until there is room again or the event is dropped, depending on the
+ * configured {@link OverflowPolicy}. A shard thread itself is never blocked, as it
+ * might be the only one which can make room in the queue: if an event subscriber
+ * posts an event to a full shard, the event is appended to the queue beyond its
+ * bound, so that it is still delivered after all events which have been queued before.
+ *
+ * After the shutdown of the dispatcher, e.g. while it is replaced with a reconfigured
+ * one, the shards still accept events until they have delivered all of their queued
+ * events. Events which are dispatched after that are delivered directly on the
+ * posting thread, which keeps their order as there is nothing left to wait for.
+ *
+ * @since 1.7.0
+ */
+public class ShardedEventDispatcher {
+
+	private static final Logger logger = LoggerFactory.getLogger(ShardedEventDispatcher.class);
+
+	/** Defines what happens to an event if the queue of its shard is full */
+	public enum OverflowPolicy {
+		/** the posting thread is blocked until the event can be queued */
+		BLOCK,
+		/** the event is dropped */
+		DROP
+	}
+
+	private final EventPublisherImpl eventPublisher;
+
+	private final Shard[] shards;
+
+	private final int queueSize;
+
+	private final OverflowPolicy overflowPolicy;
+
+	private final AtomicLong droppedEvents = new AtomicLong();
+
+	/** set on the threads of the shards of this dispatcher */
+	private final ThreadLocal<Boolean> shardThread = new ThreadLocal<Boolean>();
+
+	/**
+	 * @param eventPublisher the event publisher, which provides the event admin to deliver to
+	 * @param shardCount the number of shards (and thus threads) to use
+	 * @param queueSize the maximum number of pending events per shard
+	 * @param overflowPolicy defines what happens if the queue of a shard is full
+	 */
+	public ShardedEventDispatcher(EventPublisherImpl eventPublisher, int shardCount, int queueSize, OverflowPolicy overflowPolicy) {
+		this.eventPublisher = eventPublisher;
+		this.queueSize = queueSize;
+		this.overflowPolicy = overflowPolicy;
+		this.shards = new Shard[shardCount];
+
+		NamedThreadFactory threadFactory = new NamedThreadFactory("openHAB-events");
+		for(int i=0; i<shardCount; i++) {
+			shards[i] = new Shard();
+			threadFactory.newThread(shards[i]).start();
+		}
+	}
+
+	/**
+	 * Queues an event for asynchronous delivery on the shard of its item.
+	 *
+	 * @param event the event to dispatch
+	 */
+	public void dispatch(ItemEvent event) {
+		int shard = (event.getItemName().hashCode() & Integer.MAX_VALUE) % shards.length;
+		if(!shards[shard].add(event)) {
+			if(eventPublisher.getEventAdmin()!=null) {
+				deliver(event);
+			} else {
+				countDroppedEvent("Event dispatcher has been shut down");
+			}
+		}
+	}
+
+	/**
+	 * Stops all shard threads as soon as they have delivered their queued events.
+	 */
+	public void shutdown() {
+		for(Shard shard : shards) {
+			shard.shutdown();
+		}
+	}
+
+	/**
+	 * @return the number of events that are currently waiting for their delivery
+	 */
+	public int getQueuedEventCount() {
+		int count = 0;
+		for(Shard shard : shards) {
+			count += shard.size();
+		}
+		return count;
+	}
+
+	/**
+	 * @return <code>true</code> if the dispatcher has been shut down and all shard
+	 *         threads have delivered their queued events
+	 */
+	boolean isTerminated() {
+		for(Shard shard : shards) {
+			if(!shard.isTerminated()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return the number of events that have been dropped because of a full queue
+	 */
+	public long getDroppedEventCount() {
+		return droppedEvents.get();
+	}
+
+	private void countDroppedEvent(String reason) {
+		long dropped = droppedEvents.incrementAndGet();
+		if(dropped==1 || dropped % 1000==0) {
+			logger.warn("{}, {} event(s) have been dropped so far.", reason, dropped);
+		}
+	}
+
+	/**
+	 * Delivers a single event synchronously to the event admin.
+	 */
+	private void deliver(ItemEvent event) {
+		EventAdmin eventAdmin = eventPublisher.getEventAdmin();
+		if(eventAdmin!=null) {
+			try {
+				eventAdmin.sendEvent(event);
+			} catch (RuntimeException e) {
+				logger.error("Error while delivering event '" + event.getTopic() + "'", e);
+			}
+		}
+	}
+
+	/**
+	 * A shard holds the queue of pending events of its items and delivers them
+	 * one after the other on its own thread.
+	 */
+	private class Shard implements Runnable {
+
+		private final LinkedList<ItemEvent> queue = new LinkedList<ItemEvent>();
+
+		private boolean shutdown = false;
+
+		private boolean terminated = false;
+
+		/**
+		 * Appends an event to the queue of this shard.
+		 *
+		 * @param event the event to queue
+		 * @return <code>false</code> if the shard has already terminated and the
+		 *         event has not been taken, <code>true</code> otherwise
+		 */
+		synchronized boolean add(ItemEvent event) {
+			if(terminated) {
+				return false;
+			}
+			// a shard thread must not wait, as it might have to drain the queue itself
+			if(queue.size() >= queueSize && !shutdown && shardThread.get()==null) {
+				if(overflowPolicy==OverflowPolicy.DROP) {
+					countDroppedEvent("Event queue is full");
+					return true;
+				}
+				while(queue.size() >= queueSize && !shutdown) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new RejectedExecutionException("Interrupted while waiting for the event queue", e);
+					}
+				}
+				if(terminated) {
+					return false;
+				}
+			}
+			queue.add(event);
+			notifyAll();
+			return true;
+		}
+
+		synchronized int size() {
+			return queue.size();
+		}
+
+		synchronized boolean isTerminated() {
+			return terminated;
+		}
+
+		synchronized void shutdown() {
+			shutdown = true;
+			notifyAll();
+		}
+
+		public void run() {
+			shardThread.set(Boolean.TRUE);
+			while(true) {
+				ItemEvent event;
+				synchronized (this) {
+					while(queue.isEmpty() && !shutdown) {
+						try {
+							wait();
+						} catch (InterruptedException e) {
+							// keep on delivering until the dispatcher is shut down
+						}
+					}
+					if(queue.isEmpty()) {
+						terminated = true;
+						return;
+					}
+					event = queue.removeFirst();
+					notifyAll();
+				}
+				deliver(event);
+			}
+		}
+	}
+
+}
@@ -10,11 +10,14 @@ package org.openhab.core.internal.items;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.regex.Pattern;
 
 import org.openhab.core.events.EventPublisher;
 import org.openhab.core.items.GenericItem;
@@ -44,12 +47,30 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	
 	private static final Logger logger = LoggerFactory.getLogger(ItemRegistryImpl.class);
 
+	/** the naming convention all item names must comply with */
+	private static final Pattern VALID_ITEM_NAME_PATTERN = Pattern.compile("[a-zA-Z0-9_]*");
+	
+	/** the maximum number of compiled search patterns we keep in our cache */
+	private static final int MAX_CACHED_PATTERNS = 256;
+
 	/** if an EventPublisher service is available, we provide it to all items, so that they can communicate over the bus */
 	protected EventPublisher eventPublisher;
 	
 	/** this is our local map in which we store all our items */
 	protected Map<ItemProvider, Collection<Item>> itemMap = new ConcurrentHashMap<ItemProvider, Collection<Item>>();
 	
+	/** an index of all registered items by their name, which is kept in sync with the itemMap */
+	protected ConcurrentHashMap<String, Item> itemIndex = new ConcurrentHashMap<String, Item>();
+	
+	/** 
+	 * an index of group memberships, mapping the name of a group to the names of all items 
+	 * that declare to be a member of it - regardless whether the group itself is registered yet
+	 */
+	protected Map<String, Set<String>> groupMembers = new HashMap<String, Set<String>>();
+	
+	/** a cache of already compiled search patterns as used by {@link #getItems(String)} */
+	protected Map<String, Pattern> patternCache = new ConcurrentHashMap<String, Pattern>();
+	
 	/** to keep track of all item change listeners */
 	protected Collection<ItemRegistryChangeListener> listeners = new CopyOnWriteArraySet<ItemRegistryChangeListener>();
 
@@ -63,6 +84,11 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		}
 		// then release all items
 		itemMap.clear();
+		itemIndex.clear();
+		synchronized(groupMembers) {
+			groupMembers.clear();
+		}
+		patternCache.clear();
     }
 
 	/* (non-Javadoc)
@@ -70,14 +96,11 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	 */
     @Override
 	public Item getItem(String name) throws ItemNotFoundException {
-		for(Collection<Item> items : itemMap.values()) {
-			for(Item item : items) {
-				if(item.getName().equals(name)) {
-					return item;
-				}
-			}
+		Item item = name!=null ? itemIndex.get(name) : null;
+		if(item==null) {
+			throw new ItemNotFoundException(name);
 		}
-		throw new ItemNotFoundException(name);
+		return item;
 	}
 
 	/* (non-Javadoc)
@@ -116,17 +139,45 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 	 */
     @Override
 	public Collection<Item> getItems(String pattern) {
-		String regex = pattern.replace("?", ".?").replace("*", ".*?");
 		Collection<Item> matchedItems = new ArrayList<Item>();
-		for(Collection<Item> items : itemMap.values()) {
-			for(Item item : items) {
-				if(item.getName().matches(regex)) {
-					matchedItems.add(item);
-				}
+		if(isValidItemName(pattern)) {
+			// the pattern does not contain any wildcards or regex characters,
+			// so it can only match a single item, which we find in our index
+			Item item = itemIndex.get(pattern);
+			if(item!=null) {
+				matchedItems.add(item);
+			}
+			return matchedItems;
+		}
+		Pattern regex = getCompiledPattern(pattern);
+		for(Item item : itemIndex.values()) {
+			if(regex.matcher(item.getName()).matches()) {
+				matchedItems.add(item);
 			}
 		}
         return matchedItems;
 	}
+	
+	/**
+	 * Returns the compiled regular expression for the given search pattern.
+	 * Compiled patterns are cached, so that frequently used search patterns
+	 * do not need to be compiled again on every call.
+	 * 
+	 * @param pattern the search pattern, which may contain the wildcards '?' and '*'
+	 * @return the compiled regular expression for the search pattern
+	 */
+	private Pattern getCompiledPattern(String pattern) {
+		Pattern regex = patternCache.get(pattern);
+		if(regex==null) {
+			regex = Pattern.compile(pattern.replace("?", ".?").replace("*", ".*?"));
+			if(patternCache.size() >= MAX_CACHED_PATTERNS) {
+				// we do not expect many different patterns, so simply start over
+				patternCache.clear();
+			}
+			patternCache.put(pattern, regex);
+		}
+		return regex;
+	}
 
 	public void addItemProvider(ItemProvider itemProvider) {
 		// only add this provider if it does not already exist
@@ -141,7 +192,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 
     @Override
 	public boolean isValidItemName(String name) {
-		return name.matches("[a-zA-Z0-9_]*");
+		return name!=null && VALID_ITEM_NAME_PATTERN.matcher(name).matches();
 	}
 
 	public void removeItemProvider(ItemProvider itemProvider) {
@@ -153,7 +204,10 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 					((GenericItem) item).dispose();
 				}
 			}
-			itemMap.remove(itemProvider);
+			Collection<Item> removedItems = itemMap.remove(itemProvider);
+			if(removedItems!=null) {
+				unregisterItems(removedItems);
+			}
 
 			itemProvider.removeItemChangeListener(this);
 			logger.debug("Item provider '{}' has been removed.", itemProvider.getClass().getSimpleName());
@@ -190,10 +244,14 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		}
 
 		Collection<Item> items = new CopyOnWriteArrayList<Item>();
-    	itemMap.put(provider, items);
+    	Collection<Item> oldItems = itemMap.put(provider, items);
+    	if(oldItems!=null) {
+    		unregisterItems(oldItems);
+    	}
 		for(Item item : provider.getItems()) {
 			if(initializeItem(item)) {
 				items.add(item);
+				registerItem(item);
 			}
 		}
 
@@ -209,6 +267,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		if(items!=null) {
 			if(initializeItem(item)) {
 				items.add(item);
+				registerItem(item);
 			} else {
 				return;
 			}
@@ -224,6 +283,7 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
         items = itemMap.get(provider);
 		if(items!=null) {
 			items.remove(item);
+			unregisterItem(item);
 		}
 		for(ItemRegistryChangeListener listener : listeners) {
 			listener.itemRemoved(item);
@@ -240,6 +300,100 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 		listeners.remove(listener);
 	}
 
+	/**
+	 * Adds an (already initialized) item to the name index and wires it with
+	 * its groups: the item is added as a member to all its registered groups
+	 * and, if it is a group itself, all registered items that declare to be
+	 * a member of it are added to it. Each membership is therefore only
+	 * resolved once, when the second of both items is registered.
+	 * 
+	 * @param item the item to register
+	 */
+	private void registerItem(Item item) {
+		synchronized(groupMembers) {
+			itemIndex.put(item.getName(), item);
+			
+			if(item instanceof GroupItem) {
+				// fill group with its members 
+				Set<String> memberNames = groupMembers.get(item.getName());
+				if(memberNames!=null) {
+					for(String memberName : memberNames) {
+						Item member = itemIndex.get(memberName);
+						if(member!=null) {
+							((GroupItem)item).addMember(member);
+						}
+					}
+				}
+			}
+			// add the item to all relevant groups
+			for(String groupName : item.getGroupNames()) {
+				Set<String> memberNames = groupMembers.get(groupName);
+				if(memberNames==null) {
+					memberNames = new HashSet<String>();
+					groupMembers.put(groupName, memberNames);
+				}
+				memberNames.add(item.getName());
+
+				// the group might not yet be registered, it will then pick up
+				// this item as soon as it is
+				Item groupItem = itemIndex.get(groupName);
+				if(groupItem instanceof GroupItem) {
+					((GroupItem)groupItem).addMember(item);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Removes the given items from the name index and from all groups they
+	 * are a member of.
+	 * 
+	 * @param items the items to unregister
+	 * @see #unregisterItem(Item)
+	 */
+	private void unregisterItems(Collection<Item> items) {
+		for(Item item : items) {
+			unregisterItem(item);
+		}
+	}
+	
+	/**
+	 * Removes an item from the name index and from all groups it is a member
+	 * of. If the item is a group itself, all its members are removed from it.
+	 * An index entry is only removed if it still refers to the very same item
+	 * instance, so that an item with the same name from another provider is kept.
+	 * 
+	 * @param item the item to unregister
+	 */
+	private void unregisterItem(Item item) {
+		synchronized(groupMembers) {
+			if(!itemIndex.remove(item.getName(), item)) {
+				return;
+			}
+			
+			for(String groupName : item.getGroupNames()) {
+				Set<String> memberNames = groupMembers.get(groupName);
+				if(memberNames!=null) {
+					memberNames.remove(item.getName());
+					if(memberNames.isEmpty()) {
+						groupMembers.remove(groupName);
+					}
+				}
+				Item groupItem = itemIndex.get(groupName);
+				if(groupItem instanceof GroupItem) {
+					((GroupItem)groupItem).removeMember(item);
+				}
+			}
+
+			if(item instanceof GroupItem) {
+				GroupItem groupItem = (GroupItem) item;
+				for(Item member : groupItem.getMembers()) {
+					groupItem.removeMember(member);
+				}
+			}
+		}
+	}
+
 	/**
 	 * an item should be initialized, which means that the event publisher is
 	 * injected and its implementation is notified that it has just been created,
@@ -255,26 +409,6 @@ public class ItemRegistryImpl implements ItemRegistry, ItemsChangeListener {
 				genericItem.setEventPublisher(eventPublisher);
 				genericItem.initialize();
 			}
-			
-			if(item instanceof GroupItem) {
-				// fill group with its members 
-				for(Item i : getItems()) {
-					if(i.getGroupNames().contains(item.getName())) {
-						((GroupItem)item).addMember(i);
-					}
-				}
-			}
-			// add the item to all relevant groups
-			for(String groupName : item.getGroupNames()) {
-				try {
-					Item groupItem = getItem(groupName);
-					if(groupItem instanceof GroupItem) {
-						((GroupItem)groupItem).addMember(item);
-					}
-				} catch (ItemNotFoundException e) {
-					// the group might not yet be registered, let's ignore this
-				}
-			}
 			return true;
 		} else {
 			logger.warn("Ignoring item '{}' as it does not comply with" +
@@ -8,6 +8,10 @@
  */
 package org.openhab.core.internal.items;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.openhab.core.events.AbstractEventSubscriber;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.GroupItem;
@@ -23,6 +27,10 @@ import org.slf4j.LoggerFactory;
  * The ItemUpdater listens on the event bus and passes any received status update
  * to the item registry.
  * 
+ * Whether an item accepts the type of a status update is cached by the class of the
+ * item and the class of the state, as the accepted data types of an item only depend
+ * on its class (or the class of the base item for groups).
+ * 
  * @author Kai Kreuzer
  * @since 0.1.0
  *
@@ -33,6 +41,9 @@ public class ItemUpdater extends AbstractEventSubscriber {
 	
 	protected ItemRegistry itemRegistry;
 	
+	/** the acceptance of state classes by item class */
+	private final Map<Class<?>, Map<Class<?>, Boolean>> acceptedStates = new ConcurrentHashMap<Class<?>, Map<Class<?>, Boolean>>();
+	
 	public void setItemRegistry(ItemRegistry itemRegistry) {
 		this.itemRegistry = itemRegistry;
 	}
@@ -49,25 +60,7 @@ public class ItemUpdater extends AbstractEventSubscriber {
 		if (itemRegistry != null) {
 			try {
 				GenericItem item = (GenericItem) itemRegistry.getItem(itemName);
-				boolean isAccepted = false;
-				if (item.getAcceptedDataTypes().contains(newStatus.getClass())) {
-					isAccepted = true;
-				} else {
-					// Look for class hierarchy
-					for (Class<? extends State> state : item.getAcceptedDataTypes()) {
-						try {
-							if (!state.isEnum() && state.newInstance().getClass().isAssignableFrom(newStatus.getClass())) {
-								isAccepted = true;
-								break;
-							}
-						} catch (InstantiationException e) {
-							logger.warn("InstantiationException on {}", e.getMessage()); // Should never happen
-						} catch (IllegalAccessException e) {
-							logger.warn("IllegalAccessException on {}", e.getMessage()); // Should never happen
-						}
-					}
-				}				
-				if (isAccepted) {
+				if (isAccepted(item, newStatus.getClass())) {
 					item.setState(newStatus);
 				} else {
 					logger.debug("Received update of a not accepted type ("	+ newStatus.getClass().getSimpleName() + ") for item " + itemName);
@@ -78,6 +71,50 @@ public class ItemUpdater extends AbstractEventSubscriber {
 		}
 	}
 	
+	/**
+	 * Checks whether an item accepts a state type, either directly or as a subclass
+	 * of one of its accepted types (e.g. a PercentType for an item that accepts DecimalTypes).
+	 * 
+	 * @param item the item to check
+	 * @param stateClass the class of the state
+	 * @return true, if the item accepts the state
+	 */
+	private boolean isAccepted(GenericItem item, Class<? extends State> stateClass) {
+		Class<?> itemClass = item.getClass();
+		if (item instanceof GroupItem) {
+			GenericItem baseItem = ((GroupItem) item).getBaseItem();
+			if (baseItem == null) {
+				// the accepted types depend on the members, so they cannot be cached
+				return isAccepted(item.getAcceptedDataTypes(), stateClass);
+			}
+			itemClass = baseItem.getClass();
+		}
+		Map<Class<?>, Boolean> acceptedByItemClass = acceptedStates.get(itemClass);
+		if (acceptedByItemClass == null) {
+			acceptedByItemClass = new ConcurrentHashMap<Class<?>, Boolean>();
+			acceptedStates.put(itemClass, acceptedByItemClass);
+		}
+		Boolean accepted = acceptedByItemClass.get(stateClass);
+		if (accepted == null) {
+			accepted = isAccepted(item.getAcceptedDataTypes(), stateClass);
+			acceptedByItemClass.put(stateClass, accepted);
+		}
+		return accepted;
+	}
+	
+	private static boolean isAccepted(List<Class<? extends State>> acceptedDataTypes, Class<? extends State> stateClass) {
+		if (acceptedDataTypes.contains(stateClass)) {
+			return true;
+		}
+		// look for the class hierarchy
+		for (Class<? extends State> acceptedDataType : acceptedDataTypes) {
+			if (!acceptedDataType.isEnum() && acceptedDataType.isAssignableFrom(stateClass)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	/**
 	 * {@inheritDoc}
 	 */
@@ -8,12 +8,9 @@
  */
 package org.openhab.core.items;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
-import java.util.Set;
-import java.util.WeakHashMap;
-import java.util.concurrent.CopyOnWriteArraySet;
 
 import org.openhab.core.events.EventPublisher;
 import org.openhab.core.types.Command;
@@ -24,6 +21,11 @@ import org.openhab.core.types.UnDefType;
  * The abstract base class for all items. It provides all relevant logic
  * for the infrastructure, such as publishing updates to the event bus
  * or notifying listeners.
+ * 
+ * Listeners are only weakly referenced. They are kept in an array that is replaced
+ * whenever a listener is added or removed, so that a state update iterates over a
+ * snapshot of the listeners without allocating anything. References to listeners that
+ * have been garbage collected are removed from the array on the next change to it.
  *  
  * @author Kai Kreuzer
  * @since 0.1.0
@@ -33,7 +35,11 @@ abstract public class GenericItem implements Item {
 	
 	protected EventPublisher eventPublisher;
 
-	protected Set<StateChangeListener> listeners = new CopyOnWriteArraySet<StateChangeListener>(Collections.newSetFromMap(new WeakHashMap<StateChangeListener, Boolean>()));
+	private static final ListenerReference[] NO_LISTENERS = new ListenerReference[0];
+	
+	private volatile ListenerReference[] listeners = NO_LISTENERS;
+	
+	private final Object listenersLock = new Object();
 	
 	protected List<String> groupNames = new ArrayList<String>();
 	
@@ -101,17 +107,25 @@ abstract public class GenericItem implements Item {
 	}
 
 	private void notifyListeners(State oldState, State newState) {
-		// if nothing has changed, we send update notifications
-		Set<StateChangeListener> clonedListeners = null;
-		clonedListeners = new CopyOnWriteArraySet<StateChangeListener>(listeners);
-		for(StateChangeListener listener : clonedListeners) {
+		// every listener receives an update notification and, if the state has changed,
+		// a change notification right after it
+		ListenerReference[] currentListeners = listeners;
+		boolean changed = !oldState.equals(newState);
+		boolean stale = false;
+		for(int i=0; i<currentListeners.length; i++) {
+			StateChangeListener listener = currentListeners[i].get();
+			if(listener==null) {
+				stale = true;
+				continue;
+			}
 			listener.stateUpdated(this, newState);
-		}
-		if(!oldState.equals(newState)) {
-			for(StateChangeListener listener : clonedListeners) {
+			if(changed) {
 				listener.stateChanged(this, oldState, newState);
 			}
 		}
+		if(stale) {
+			removeStateChangeListener(null);
+		}
 	}
 		
 	/**
@@ -125,15 +139,40 @@ abstract public class GenericItem implements Item {
 	}
 
 	public void addStateChangeListener(StateChangeListener listener) {
-		synchronized(listeners) {
-			listeners.add(listener);
+		synchronized(listenersLock) {
+			List<ListenerReference> newListeners = copyListenersWithout(listener);
+			newListeners.add(new ListenerReference(listener));
+			listeners = newListeners.toArray(new ListenerReference[newListeners.size()]);
 		}
 	}
 	
+	/**
+	 * Removes a listener. References to listeners that have been garbage collected are
+	 * removed as well.
+	 * 
+	 * @param listener the listener to remove, might be <code>null</code> to only remove
+	 * the collected listeners
+	 */
 	public void removeStateChangeListener(StateChangeListener listener) {
-		synchronized(listeners) {
-			listeners.remove(listener);
+		synchronized(listenersLock) {
+			List<ListenerReference> newListeners = copyListenersWithout(listener);
+			listeners = newListeners.isEmpty() ? NO_LISTENERS : newListeners.toArray(new ListenerReference[newListeners.size()]);
+		}
+	}
+	
+	/**
+	 * @return the current listeners, without the collected ones 
+	 */
+	private List<ListenerReference> copyListenersWithout(StateChangeListener listener) {
+		ListenerReference[] currentListeners = listeners;
+		List<ListenerReference> result = new ArrayList<ListenerReference>(currentListeners.length + 1);
+		for(ListenerReference reference : currentListeners) {
+			StateChangeListener existingListener = reference.get();
+			if(existingListener!=null && !existingListener.equals(listener)) {
+				result.add(reference);
+			}
 		}
+		return result;
 	}
 	
 
@@ -174,5 +213,13 @@ abstract public class GenericItem implements Item {
 		return true;
 	}
 	
+	/**
+	 * A weak reference to a listener; this class only exists to be able to create arrays of it.
+	 */
+	private static class ListenerReference extends WeakReference<StateChangeListener> {
+		ListenerReference(StateChangeListener listener) {
+			super(listener);
+		}
+	}
 	
 }
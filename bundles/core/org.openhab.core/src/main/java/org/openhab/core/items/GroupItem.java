@@ -10,7 +10,9 @@ package org.openhab.core.items;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -29,6 +31,18 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	protected final List<Item> members;
 	
 	protected GroupFunction function;
+	
+	/** the running aggregate over the direct members, if the function is incremental */
+	protected final IncrementalGroupFunction.Aggregate<?> memberAggregate;
+	
+	/** the running aggregate over all (recursively resolved) members, if the function is incremental */
+	protected final IncrementalGroupFunction.Aggregate<?> allMembersAggregate;
+	
+	/** all recursively resolved non-group members with the number of paths they are reachable by */
+	private final Map<Item, Integer> allMemberCounts = new IdentityHashMap<Item, Integer>();
+	
+	/** the groups this group is a direct member of */
+	private final List<GroupItem> parentGroups = new CopyOnWriteArrayList<GroupItem>();
 
 	public GroupItem(String name) {
 		this(name, null);
@@ -43,6 +57,13 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 		members = new CopyOnWriteArrayList<Item>();
 		this.function = function;
 		this.baseItem = baseItem;
+		if(function instanceof IncrementalGroupFunction) {
+			memberAggregate = ((IncrementalGroupFunction) function).createAggregate();
+			allMembersAggregate = ((IncrementalGroupFunction) function).createAggregate();
+		} else {
+			memberAggregate = null;
+			allMembersAggregate = null;
+		}
 	}
 	
 	/**
@@ -92,6 +113,18 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 
 	public void addMember(Item item) {
 		members.add(item);
+		if(memberAggregate!=null) {
+			memberAggregate.add(item);
+		}
+		if (item instanceof GroupItem) {
+			GroupItem groupItem = (GroupItem) item;
+			groupItem.parentGroups.add(this);
+			for(Item member : groupItem.getAllMemberInstances()) {
+				addToAllMembers(member);
+			}
+		} else {
+			addToAllMembers(item);
+		}
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.addStateChangeListener(this);
@@ -100,12 +133,105 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	
 	public void removeMember(Item item) {
 		members.remove(item);
+		if(memberAggregate!=null) {
+			memberAggregate.remove(item);
+		}
+		if (item instanceof GroupItem) {
+			GroupItem groupItem = (GroupItem) item;
+			for(int i=0; i<groupItem.parentGroups.size(); i++) {
+				if(groupItem.parentGroups.get(i)==this) {
+					groupItem.parentGroups.remove(i);
+					break;
+				}
+			}
+			for(Item member : groupItem.getAllMemberInstances()) {
+				removeFromAllMembers(member);
+			}
+		} else {
+			removeFromAllMembers(item);
+		}
 		if (item instanceof GenericItem) {
 			GenericItem genericItem = (GenericItem) item;
 			genericItem.removeStateChangeListener(this);
 		}
 	}
 	
+	/**
+	 * Returns all distinct non-group item instances that are (recursively)
+	 * contained in this group.
+	 * 
+	 * @return a snapshot of all member instances
+	 */
+	private List<Item> getAllMemberInstances() {
+		synchronized(allMemberCounts) {
+			return new ArrayList<Item>(allMemberCounts.keySet());
+		}
+	}
+	
+	/**
+	 * Registers another path by which the given non-group item is reachable
+	 * from this group. If the item was not reachable before, it is added
+	 * to the aggregate and passed on to all parent groups.
+	 * 
+	 * @param item the non-group item to add
+	 */
+	private void addToAllMembers(Item item) {
+		synchronized(allMemberCounts) {
+			Integer count = allMemberCounts.get(item);
+			allMemberCounts.put(item, count==null ? 1 : count + 1);
+			if(count!=null) {
+				return;
+			}
+		}
+		if(allMembersAggregate!=null) {
+			allMembersAggregate.add(item);
+		}
+		for(GroupItem parentGroup : parentGroups) {
+			parentGroup.addToAllMembers(item);
+		}
+	}
+	
+	/**
+	 * Removes a path by which the given non-group item is reachable from
+	 * this group. If it was the last one, the item is removed from the 
+	 * aggregate and from all parent groups.
+	 * 
+	 * @param item the non-group item to remove
+	 */
+	private void removeFromAllMembers(Item item) {
+		synchronized(allMemberCounts) {
+			Integer count = allMemberCounts.get(item);
+			if(count==null) {
+				return;
+			} else if(count > 1) {
+				allMemberCounts.put(item, count - 1);
+				return;
+			}
+			allMemberCounts.remove(item);
+		}
+		if(allMembersAggregate!=null) {
+			allMembersAggregate.remove(item);
+		}
+		for(GroupItem parentGroup : parentGroups) {
+			parentGroup.removeFromAllMembers(item);
+		}
+	}
+	
+	/**
+	 * Passes the state update of a (recursively contained) non-group item
+	 * to the aggregate of this group and of all its parent groups.
+	 * 
+	 * @param item the non-group item that has been updated
+	 */
+	private void allMembersUpdated(Item item) {
+		if(allMembersAggregate!=null) {
+			allMembersAggregate.update(item);
+		}
+		for(GroupItem parentGroup : parentGroups) {
+			parentGroup.allMembersUpdated(item);
+		}
+	}
+	
 	/** 
 	 * The accepted data types of a group item is the same as of the underlying base item.
 	 * If none is defined, the intersection of all sets of accepted data types of all group
@@ -182,7 +308,8 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	 */
 	@Override
 	public State getStateAs(Class<? extends State> typeClass) {
-		State newState = function.getStateAs(getAllMembers(), typeClass);
+		State newState = allMembersAggregate!=null ? 
+				allMembersAggregate.getStateAs(typeClass) : function.getStateAs(getAllMembers(), typeClass);
 		if(newState==null && baseItem!=null) {
 			// we use the transformation method from the base item
 			baseItem.setState(state);
@@ -210,13 +337,29 @@ public class GroupItem extends GenericItem implements StateChangeListener {
 	 * @{inheritDoc
 	 */
 	public void stateChanged(Item item, State oldState, State newState) {
-		setState(function.calculate(members));
+		// the aggregates have already been updated through stateUpdated()
+		setState(calculateState());
 	}
 
 	/**
 	 * @{inheritDoc
 	 */
 	public void stateUpdated(Item item, State state) {
-		setState(function.calculate(members));
+		if(memberAggregate!=null) {
+			memberAggregate.update(item);
+		}
+		if(!(item instanceof GroupItem)) {
+			// nested groups pass on the updates of their members themselves
+			allMembersUpdated(item);
+		}
+		setState(calculateState());
+	}
+	
+	private State calculateState() {
+		if(memberAggregate!=null) {
+			return memberAggregate.getState();
+		} else {
+			return function.calculate(members);
+		}
 	}
 }
@@ -0,0 +1,164 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.items;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.openhab.core.types.State;
+
+/**
+ * An incremental group function is a {@link GroupFunction} that is able to keep
+ * a running aggregate of the states of the group members. Instead of walking all
+ * members whenever a single member changes its state, a {@link GroupItem} only
+ * updates the contribution of the member that has changed.
+ *
+ * @since 1.7.0
+ *
+ */
+public interface IncrementalGroupFunction extends GroupFunction {
+
+	/**
+	 * Creates a new and empty aggregate for this function. Each group item
+	 * holds its own aggregates, so that a function instance can still be shared.
+	 *
+	 * @return a new aggregate without any members
+	 */
+	public Aggregate<?> createAggregate();
+
+	/**
+	 * An aggregate holds the contribution of every member to the group state.
+	 * A contribution is derived from the member's state by {@link #contributionOf(Item)}
+	 * and it is recalculated whenever the member is updated. Implementations only need
+	 * to maintain their running values within {@link #added(Object)} and {@link #removed(Object)}.
+	 *
+	 * Members are tracked by their identity; if the same item is added several times, it
+	 * also contributes several times to the aggregate.
+	 *
+	 * @param <T> the type of the contribution of a single member
+	 *
+	 * @since 1.7.0
+	 */
+	static abstract class Aggregate<T> {
+
+		private final Map<Item, Contribution<T>> contributions = new IdentityHashMap<Item, Contribution<T>>();
+
+		/**
+		 * Adds a member to this aggregate.
+		 *
+		 * @param item the member to add
+		 */
+		public synchronized void add(Item item) {
+			T value = contributionOf(item);
+			Contribution<T> contribution = contributions.get(item);
+			if(contribution==null) {
+				contribution = new Contribution<T>(value);
+				contributions.put(item, contribution);
+			} else {
+				replace(contribution, value);
+			}
+			contribution.count++;
+			added(value);
+		}
+
+		/**
+		 * Removes a member from this aggregate. Nothing happens if the item is not a member.
+		 *
+		 * @param item the member to remove
+		 */
+		public synchronized void remove(Item item) {
+			Contribution<T> contribution = contributions.get(item);
+			if(contribution!=null) {
+				removed(contribution.value);
+				if(--contribution.count==0) {
+					contributions.remove(item);
+				}
+			}
+		}
+
+		/**
+		 * Recalculates the contribution of a member after its state has been updated.
+		 * Nothing happens if the item is not a member.
+		 *
+		 * @param item the member that has been updated
+		 */
+		public synchronized void update(Item item) {
+			Contribution<T> contribution = contributions.get(item);
+			if(contribution!=null) {
+				replace(contribution, contributionOf(item));
+			}
+		}
+
+		/**
+		 * Returns the group state as calculated from the current aggregate.
+		 *
+		 * @return the group state
+		 */
+		public abstract State getState();
+
+		/**
+		 * Returns the group state as a state of the requested type.
+		 *
+		 * @param stateClass the type in which the state should be returned
+		 * @return the group state of the requested type or null, if type is not supported
+		 */
+		public State getStateAs(Class<? extends State> stateClass) {
+			State state = getState();
+			if(stateClass.isInstance(state)) {
+				return state;
+			} else {
+				return null;
+			}
+		}
+
+		/**
+		 * Determines the contribution of a member based on its current state.
+		 *
+		 * @param item the member to determine the contribution for
+		 * @return the contribution, which might be null
+		 */
+		protected abstract T contributionOf(Item item);
+
+		/**
+		 * Adds a contribution to the running values of this aggregate.
+		 *
+		 * @param value the contribution to add, might be null
+		 */
+		protected abstract void added(T value);
+
+		/**
+		 * Removes a contribution from the running values of this aggregate.
+		 *
+		 * @param value the contribution to remove, might be null
+		 */
+		protected abstract void removed(T value);
+
+		private void replace(Contribution<T> contribution, T value) {
+			T oldValue = contribution.value;
+			if(oldValue==null ? value==null : oldValue.equals(value)) {
+				return;
+			}
+			for(int i=0; i<contribution.count; i++) {
+				removed(oldValue);
+				added(value);
+			}
+			contribution.value = value;
+		}
+
+		private static class Contribution<T> {
+			T value;
+			int count;
+
+			Contribution(T value) {
+				this.value = value;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,44 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.core.service;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * A {@link ThreadFactory} which creates daemon threads with a common name prefix
+ * and a sequence number, so that the threads of a service can be identified in 
+ * thread dumps.
+ * 
+ * @since 1.7.0
+ */
+public class NamedThreadFactory implements ThreadFactory {
+
+	private final String namePrefix;
+
+	private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+	/**
+	 * @param name the name prefix of all created threads, e.g. "openHAB-events"
+	 */
+	public NamedThreadFactory(String name) {
+		this.namePrefix = name + "-";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public Thread newThread(Runnable runnable) {
+		Thread thread = new Thread(runnable, namePrefix + threadNumber.getAndIncrement());
+		thread.setDaemon(true);
+		return thread;
+	}
+
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.broadcaster;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Hashtable;
+
+import org.atmosphere.cpr.AtmosphereResource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.cm.ConfigurationException;
+
+/**
+ * @since 1.7.0
+ */
+public class DelayedBroadcastSchedulerTest {
+
+	private DelayedBroadcastScheduler scheduler;
+
+	@Before
+	public void setUp() throws ConfigurationException {
+		scheduler = new DelayedBroadcastScheduler();
+		// a long delay keeps the broadcasts pending during the test
+		Hashtable<String, String> config = new Hashtable<String, String>();
+		config.put("pollingdelay", "60000");
+		scheduler.updated(config);
+		scheduler.activate();
+	}
+
+	@After
+	public void tearDown() {
+		scheduler.deactivate();
+	}
+
+	@Test
+	public void testMessagesForPendingResourceAreCoalesced() {
+		AtmosphereResource resource = createResource();
+		DelayedBroadcastScheduler.schedule("page", resource, "first");
+		DelayedBroadcastScheduler.schedule("page", resource, "second");
+		DelayedBroadcastScheduler.schedule("page", createResource(), "other");
+
+		assertEquals(2, scheduler.getPendingCount());
+		assertEquals(2, scheduler.getScheduledCount());
+		assertEquals(1, scheduler.getCoalescedCount());
+	}
+
+	@Test
+	public void testDeactivatedSchedulerRefusesBroadcasts() {
+		DelayedBroadcastScheduler.schedule("page", createResource(), "message");
+		scheduler.deactivate();
+
+		assertEquals(0, scheduler.getPendingCount());
+		DelayedBroadcastScheduler.schedule("page", createResource(), "message");
+		scheduler.scheduleBroadcast("page", createResource(), "message");
+		assertEquals(0, scheduler.getPendingCount());
+		assertEquals(1, scheduler.getScheduledCount());
+		assertEquals(1, scheduler.getDroppedCount());
+	}
+
+	private static AtmosphereResource createResource() {
+		return (AtmosphereResource) Proxy.newProxyInstance(DelayedBroadcastSchedulerTest.class.getClassLoader(),
+				new Class<?>[] { AtmosphereResource.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if (method.getName().equals("equals")) {
+							return proxy == args[0];
+						} else if (method.getName().equals("hashCode")) {
+							return System.identityHashCode(proxy);
+						}
+						return null;
+					}
+				});
+	}
+
+}
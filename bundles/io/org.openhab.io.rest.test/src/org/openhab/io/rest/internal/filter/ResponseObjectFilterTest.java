@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Queue;
+
+import org.atmosphere.cpr.AtmosphereRequest;
+import org.atmosphere.cpr.AtmosphereResource;
+import org.atmosphere.cpr.BroadcastFilter.BroadcastAction;
+import org.atmosphere.cpr.HeaderConfig;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.io.rest.internal.listeners.PageBeanCache;
+import org.openhab.io.rest.internal.resources.beans.ItemBean;
+import org.openhab.io.rest.internal.resources.beans.PageBean;
+import org.openhab.io.rest.internal.resources.beans.WidgetBean;
+import org.openhab.io.rest.internal.resources.beans.WidgetListBean;
+
+/**
+ * Tests which widgets of a broadcast page are sent to streaming clients.
+ *
+ * @since 1.7.0
+ */
+public class ResponseObjectFilterTest {
+
+	private final SwitchItem item = new SwitchItem("Light");
+
+	private TestCache cache;
+
+	private WidgetBean light;
+
+	private WidgetBean group;
+
+	private PageBean page;
+
+	@Before
+	public void setUp() {
+		cache = new TestCache();
+		cache.pages.add(createPage(createWidget("0", "Lights", "0"), createWidget("1", "Light", "OFF"),
+				createWidget("2", "Temperature", "20")));
+		cache.getPageBean("demo", "page", URI.create("http://localhost:8080/rest/"), new Object());
+
+		// the state of the light changes the label of the group
+		group = createWidget("0", "Lights", "0");
+		group.label = "Lights [1]";
+		light = createWidget("1", "Light", "ON");
+		cache.pages.add(createPage(group, light, createWidget("2", "Temperature", "20")));
+		page = cache.getPageBean("demo", "page", URI.create("http://localhost:8080/rest/"), item);
+	}
+
+	@Test
+	public void testStreamingClientReceivesWidgetsOfItemAndChangedWidgets() {
+		BroadcastAction action = new ResponseObjectFilter(cache).filter(createResource(HeaderConfig.STREAMING_TRANSPORT), item, page);
+
+		assertEquals(BroadcastAction.ACTION.CONTINUE, action.action());
+		assertEquals(Arrays.asList(light, group), ((WidgetListBean) action.message()).entries);
+	}
+
+	@Test
+	public void testChangedWidgetsOfOtherCacheAreNotSent() {
+		BroadcastAction action = new ResponseObjectFilter(new TestCache()).filter(createResource(HeaderConfig.WEBSOCKET_TRANSPORT), item, page);
+
+		assertEquals(Collections.singletonList(light), ((WidgetListBean) action.message()).entries);
+	}
+
+	@Test
+	public void testLongPollingClientReceivesPage() {
+		BroadcastAction action = new ResponseObjectFilter(cache).filter(createResource(HeaderConfig.LONG_POLLING_TRANSPORT), item, page);
+
+		assertEquals(BroadcastAction.ACTION.CONTINUE, action.action());
+		assertSame(page, action.message());
+	}
+
+	private static AtmosphereResource createResource(String transport) {
+		Map<String, String> headers = new HashMap<String, String>();
+		headers.put(HeaderConfig.X_ATMOSPHERE_TRANSPORT, transport);
+		final AtmosphereRequest request = new AtmosphereRequest.Builder().headers(headers).build();
+		return (AtmosphereResource) Proxy.newProxyInstance(ResponseObjectFilterTest.class.getClassLoader(),
+				new Class<?>[] { AtmosphereResource.class }, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						return method.getName().equals("getRequest") ? request : null;
+					}
+				});
+	}
+
+	private static PageBean createPage(WidgetBean... widgets) {
+		PageBean page = new PageBean();
+		page.widgets.addAll(Arrays.asList(widgets));
+		return page;
+	}
+
+	private static WidgetBean createWidget(String id, String itemName, String state) {
+		WidgetBean widget = new WidgetBean();
+		widget.widgetId = id;
+		widget.label = itemName;
+		widget.item = new ItemBean();
+		widget.item.name = itemName;
+		widget.item.state = state;
+		return widget;
+	}
+
+	/**
+	 * Renders the prepared pages.
+	 */
+	private static class TestCache extends PageBeanCache {
+
+		final Queue<PageBean> pages = new LinkedList<PageBean>();
+
+		@Override
+		protected PageBean renderPageBean(String sitemapName, String pageId, URI uri) {
+			return pages.remove();
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.listeners;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Queue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.io.rest.internal.resources.beans.ItemBean;
+import org.openhab.io.rest.internal.resources.beans.PageBean;
+import org.openhab.io.rest.internal.resources.beans.WidgetBean;
+
+/**
+ * @since 1.7.0
+ */
+public class PageBeanCacheTest {
+
+	private static final URI URI_1 = URI.create("http://localhost:8080/rest/");
+
+	private static final URI URI_2 = URI.create("http://openhab:8080/rest/");
+
+	private TestCache cache;
+
+	@Before
+	public void setUp() {
+		cache = new TestCache();
+	}
+
+	@Test
+	public void testPageIsRenderedOncePerTrigger() {
+		Object trigger = new Object();
+		PageBean page = getPageBean(trigger);
+
+		assertSame(page, getPageBean(trigger));
+		assertNotSame(page, getPageBean(new Object()));
+		assertEquals(2, cache.renderCount);
+	}
+
+	@Test
+	public void testInvalidationRendersPageAgain() {
+		Object trigger = new Object();
+		PageBean page = getPageBean(trigger);
+		long generation = cache.getGeneration();
+
+		cache.invalidate();
+
+		assertEquals(generation + 1, cache.getGeneration());
+		assertNotSame(page, getPageBean(trigger));
+		assertEquals(2, cache.renderCount);
+	}
+
+	@Test
+	public void testRelevantItemChangeInvalidatesCacheOfListener() {
+		SitemapStateChangeListener listener = new SitemapStateChangeListener();
+		PageBeanCache listenerCache = listener.getPageBeanCache();
+		long generation = listenerCache.getGeneration();
+
+		listener.relevantItemChanged(new SwitchItem("Light"));
+
+		assertEquals(generation + 1, listenerCache.getGeneration());
+		assertNotSame(listenerCache, new SitemapStateChangeListener().getPageBeanCache());
+	}
+
+	@Test
+	public void testPagesAreCachedByUri() {
+		Object trigger = new Object();
+		PageBean page = getPageBean(trigger);
+		PageBean otherPage = cache.getPageBean("demo", "page", URI_2, trigger);
+
+		assertNotSame(page, otherPage);
+		assertSame(page, getPageBean(trigger));
+		assertSame(otherPage, cache.getPageBean("demo", "page", URI_2, trigger));
+		assertEquals(2, cache.renderCount);
+	}
+
+	@Test
+	public void testMissingPageIsNotCached() {
+		cache.pages.add(null);
+		Object trigger = new Object();
+
+		assertNull(getPageBean(trigger));
+		getPageBean(trigger);
+		assertEquals(2, cache.renderCount);
+	}
+
+	@Test
+	public void testChangedWidgetsAreComparedToPreviousRendering() {
+		WidgetBean light = createWidget("1", "Light", "OFF");
+		WidgetBean temperature = createWidget("2", "Temperature", "20");
+		WidgetBean frame = createWidget("0", null, null);
+		frame.widgets.add(light);
+		cache.pages.add(createPage(frame, temperature));
+		PageBean first = getPageBean(new Object());
+		assertNull(cache.getChangedWidgets(first));
+
+		WidgetBean changedLight = createWidget("1", "Light", "ON");
+		WidgetBean sameTemperature = createWidget("2", "Temperature", "20");
+		WidgetBean relabeledFrame = createWidget("0", null, null);
+		relabeledFrame.label = "Lights on";
+		relabeledFrame.widgets.add(changedLight);
+		WidgetBean newWidget = createWidget("3", "Humidity", "50");
+		cache.pages.add(createPage(relabeledFrame, sameTemperature, newWidget));
+		PageBean second = getPageBean(new Object());
+
+		assertEquals(Arrays.asList(relabeledFrame, changedLight, newWidget), cache.getChangedWidgets(second));
+		// the changed widgets belong to the cache which has rendered the page
+		assertNull(new TestCache().getChangedWidgets(second));
+	}
+
+	private PageBean getPageBean(Object trigger) {
+		return cache.getPageBean("demo", "page", URI_1, trigger);
+	}
+
+	static PageBean createPage(WidgetBean... widgets) {
+		PageBean page = new PageBean();
+		page.widgets.addAll(Arrays.asList(widgets));
+		return page;
+	}
+
+	static WidgetBean createWidget(String id, String itemName, String state) {
+		WidgetBean widget = new WidgetBean();
+		widget.widgetId = id;
+		widget.label = itemName;
+		if (itemName != null) {
+			widget.item = new ItemBean();
+			widget.item.name = itemName;
+			widget.item.state = state;
+		}
+		return widget;
+	}
+
+	/**
+	 * Renders the prepared pages or a new empty page, if none is prepared.
+	 */
+	static class TestCache extends PageBeanCache {
+
+		final Queue<PageBean> pages = new LinkedList<PageBean>();
+
+		int renderCount = 0;
+
+		@Override
+		protected PageBean renderPageBean(String sitemapName, String pageId, URI uri) {
+			renderCount++;
+			return pages.isEmpty() ? new PageBean() : pages.remove();
+		}
+	}
+
+}
@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.resources;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.io.rest.RESTApplication;
+import org.openhab.io.rest.internal.resources.writer.StructureOutput;
+import org.openhab.ui.items.ItemUIRegistry;
+
+/**
+ * Tests the paging, the field selection, the entity tags and the compression of the
+ * streamed item list.
+ *
+ * @since 1.7.0
+ */
+public class ItemResourceTest {
+
+	private static final String BASE_URI = "http://localhost:8080/rest/";
+
+	private final List<Item> items = new ArrayList<Item>();
+
+	private final Map<String, String> requestHeaders = new HashMap<String, String>();
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private ItemResource resource;
+
+	@Before
+	public void setUp() {
+		// the registry does not return the items in the order of their names
+		for (int i = 4; i >= 0; i--) {
+			SwitchItem item = new SwitchItem("Item" + i);
+			item.setState(OnOffType.ON);
+			items.add(item);
+		}
+		new RESTApplication().setItemUIRegistry(createProxy(ItemUIRegistry.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				return method.getName().equals("getItems") ? items : null;
+			}
+		}));
+		resource = new ItemResource();
+		resource.uriInfo = createProxy(UriInfo.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("getBaseUri")) {
+					return new URI(BASE_URI);
+				} else if (method.getName().equals("getRequestUri")) {
+					return new URI(BASE_URI + ItemResource.PATH_ITEMS);
+				} else {
+					return ItemResource.PATH_ITEMS;
+				}
+			}
+		});
+	}
+
+	@After
+	public void tearDown() {
+		new RESTApplication().unsetItemUIRegistry(null);
+	}
+
+	@Test
+	public void testItemsArePagedInTheOrderOfTheirNames() throws IOException {
+		Response response = getItems(1, 2, null);
+
+		assertEquals(200, response.getStatus());
+		assertEquals(5, response.getMetadata().getFirst(ItemResource.TOTAL_COUNT_HEADER));
+		JsonNode entries = readJson(response).get("item");
+		assertEquals(2, entries.size());
+		assertEquals("Item1", entries.get(0).get("name").getTextValue());
+		assertEquals("Item2", entries.get(1).get("name").getTextValue());
+	}
+
+	@Test
+	public void testAllItemsAreReturnedWithoutLimit() throws IOException {
+		Response response = getItems(0, -1, null);
+
+		assertEquals(5, response.getMetadata().getFirst(ItemResource.TOTAL_COUNT_HEADER));
+		assertEquals(5, readJson(response).get("item").size());
+	}
+
+	@Test
+	public void testOffsetBehindTheLastItemReturnsNoItems() throws IOException {
+		Response response = getItems(5, 10, null);
+
+		assertEquals(5, response.getMetadata().getFirst(ItemResource.TOTAL_COUNT_HEADER));
+		assertNull(readJson(response).get("item"));
+	}
+
+	@Test
+	public void testNegativeOffsetIsRejected() {
+		assertEquals(400, getItems(-1, 10, null).getStatus());
+	}
+
+	@Test
+	public void testFieldsSelectWrittenFields() throws IOException {
+		JsonNode entry = readJson(getItems(0, 1, "name, state")).get("item");
+
+		assertEquals("Item0", entry.get("name").getTextValue());
+		assertEquals("ON", entry.get("state").getTextValue());
+		assertFalse(entry.has("type"));
+		assertFalse(entry.has("link"));
+	}
+
+	@Test
+	public void testUnknownFieldIsRejected() {
+		try {
+			getItems(0, -1, "name,label");
+			fail();
+		} catch (WebApplicationException e) {
+			assertEquals(400, e.getResponse().getStatus());
+		}
+	}
+
+	@Test
+	public void testMatchingEntityTagIsAnsweredWithNotModified() {
+		EntityTag eTag = getEntityTag(getItems(0, -1, null));
+		assertTrue(eTag.isWeak());
+
+		requestHeaders.put(HttpHeaders.IF_NONE_MATCH, "\"other\", W/\"" + eTag.getValue() + "\"");
+		Response response = getItems(0, -1, null);
+		assertEquals(304, response.getStatus());
+		assertNull(response.getEntity());
+	}
+
+	@Test
+	public void testStateChangeChangesEntityTag() {
+		EntityTag eTag = getEntityTag(getItems(0, -1, null));
+		requestHeaders.put(HttpHeaders.IF_NONE_MATCH, "W/\"" + eTag.getValue() + "\"");
+
+		((SwitchItem) items.get(0)).setState(OnOffType.OFF);
+		Response response = getItems(0, -1, null);
+		assertEquals(200, response.getStatus());
+		assertFalse(eTag.equals(getEntityTag(response)));
+	}
+
+	@Test
+	public void testResponseIsCompressedIfAccepted() throws IOException {
+		String uncompressed = write(getItems(0, -1, null));
+
+		requestHeaders.put(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip");
+		Response response = getItems(0, -1, null);
+		assertEquals("gzip", response.getMetadata().getFirst("Content-Encoding"));
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		((StructureOutput) response.getEntity()).write(out);
+		GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()));
+		ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1024];
+		for (int length = in.read(buffer); length >= 0; length = in.read(buffer)) {
+			decompressed.write(buffer, 0, length);
+		}
+		assertEquals(uncompressed, decompressed.toString("UTF-8"));
+	}
+
+	@Test
+	public void testResponseIsNotCompressedIfRefused() {
+		requestHeaders.put(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, deflate");
+
+		assertNull(getItems(0, -1, null).getMetadata().getFirst("Content-Encoding"));
+	}
+
+	private Response getItems(int offset, int limit, String fields) {
+		return resource.getItems(createHeaders(), null, "callback", offset, limit, fields);
+	}
+
+	private EntityTag getEntityTag(Response response) {
+		EntityTag eTag = (EntityTag) response.getMetadata().getFirst("ETag");
+		assertNotNull(eTag);
+		return eTag;
+	}
+
+	private JsonNode readJson(Response response) throws IOException {
+		return mapper.readTree(write(response));
+	}
+
+	private String write(Response response) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		((StructureOutput) response.getEntity()).write(out);
+		return out.toString("UTF-8");
+	}
+
+	private HttpHeaders createHeaders() {
+		return createProxy(HttpHeaders.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("getAcceptableMediaTypes")) {
+					return Collections.singletonList(MediaType.APPLICATION_JSON_TYPE);
+				} else if (method.getName().equals("getRequestHeader")) {
+					String value = requestHeaders.get(args[0]);
+					return value != null ? Collections.singletonList(value) : null;
+				}
+				return null;
+			}
+		});
+	}
+
+	private static <T> T createProxy(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(ItemResourceTest.class.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+}
@@ -0,0 +1,375 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.resources.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+import javax.ws.rs.core.MediaType;
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Test;
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.StringItem;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.io.rest.internal.resources.ItemResource;
+import org.openhab.io.rest.internal.resources.MediaTypeHelper;
+import org.openhab.io.rest.internal.resources.beans.GroupItemBean;
+import org.openhab.io.rest.internal.resources.beans.ItemBean;
+import org.openhab.io.rest.internal.resources.beans.ItemListBean;
+import org.openhab.io.rest.internal.resources.beans.MappingBean;
+import org.openhab.io.rest.internal.resources.beans.PageBean;
+import org.openhab.io.rest.internal.resources.beans.SitemapBean;
+import org.openhab.io.rest.internal.resources.beans.SitemapListBean;
+import org.openhab.io.rest.internal.resources.beans.WidgetBean;
+import org.w3c.dom.Element;
+
+import com.sun.jersey.api.json.JSONConfiguration;
+import com.sun.jersey.api.json.JSONJAXBContext;
+
+/**
+ * Compares the output of the {@link ResourceWriter} with the output of the JAXB beans,
+ * as Jersey has marshalled them before: plain JAXB for XML and the default "mapped"
+ * notation for JSON. The documents are compared after parsing them, so that e.g. an
+ * empty element may be written with or without an end tag.
+ *
+ * @since 1.7.0
+ */
+public class ResourceWriterTest {
+
+	private static final String URI_PATH = "http://localhost:8080/rest/";
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	@Test
+	public void testItemsMatchBeans() throws Exception {
+		final List<Item> items = Arrays.asList(createSwitch("Light", OnOffType.ON),
+				createNumber("Temperature", "21.5"), new StringItem("Text"));
+
+		assertSameOutput(createItemListBean(items), new Output() {
+			public void write(StructureWriter writer) throws IOException {
+				ResourceWriter.writeItems(writer, items, URI_PATH, null);
+			}
+		});
+	}
+
+	@Test
+	public void testSingleItemListMatchesBeans() throws Exception {
+		final List<Item> items = Arrays.<Item>asList(createSwitch("Light", OnOffType.OFF));
+
+		assertSameOutput(createItemListBean(items), new Output() {
+			public void write(StructureWriter writer) throws IOException {
+				ResourceWriter.writeItems(writer, items, URI_PATH, null);
+			}
+		});
+	}
+
+	@Test
+	public void testEmptyItemListMatchesBeans() throws Exception {
+		final List<Item> items = new ArrayList<Item>();
+
+		assertSameOutput(createItemListBean(items), new Output() {
+			public void write(StructureWriter writer) throws IOException {
+				ResourceWriter.writeItems(writer, items, URI_PATH, null);
+			}
+		});
+	}
+
+	@Test
+	public void testNestedGroupsMatchBeans() throws Exception {
+		GroupItem innerGroup = new GroupItem("Inner");
+		innerGroup.addMember(createSwitch("Light", OnOffType.ON));
+		final GroupItem group = new GroupItem("Outer");
+		group.addMember(innerGroup);
+		group.addMember(createNumber("Temperature", "20"));
+
+		assertSameOutput(createGroupItemBean(group), new Output() {
+			public void write(StructureWriter writer) throws IOException {
+				ResourceWriter.writeItem(writer, group, URI_PATH);
+			}
+		});
+	}
+
+	@Test
+	public void testGroupWithSingleMemberMatchesBeans() throws Exception {
+		final GroupItem group = new GroupItem("Lights");
+		group.addMember(createSwitch("Light", OnOffType.ON));
+
+		assertSameOutput(createGroupItemBean(group), new Output() {
+			public void write(StructureWriter writer) throws IOException {
+				ResourceWriter.writeItem(writer, group, URI_PATH);
+			}
+		});
+	}
+
+	@Test
+	public void testItemMatchesBean() throws Exception {
+		final Item item = createNumber("Temperature", "21.5");
+
+		assertSameOutput(ItemResource.createItemBean(item, true, URI_PATH), new Output() {
+			public void write(StructureWriter writer) throws IOException {
+				ResourceWriter.writeItem(writer, item, URI_PATH);
+			}
+		});
+	}
+
+	@Test
+	public void testSitemapsMatchBeans() throws Exception {
+		final List<SitemapBean> sitemaps = Arrays.asList(createSitemap("default"), createSitemap("other"));
+
+		assertSameOutput(new SitemapListBean(sitemaps), new Output() {
+			public void write(StructureWriter writer) throws IOException {
+				ResourceWriter.writeSitemaps(writer, sitemaps);
+			}
+		});
+	}
+
+	@Test
+	public void testSingleSitemapListMatchesBeans() throws Exception {
+		final List<SitemapBean> sitemaps = Arrays.asList(createSitemap("default"));
+
+		assertSameOutput(new SitemapListBean(sitemaps), new Output() {
+			public void write(StructureWriter writer) throws IOException {
+				ResourceWriter.writeSitemaps(writer, sitemaps);
+			}
+		});
+	}
+
+	@Test
+	public void testSitemapWithHomepageMatchesBean() throws Exception {
+		final SitemapBean sitemap = createSitemap("default");
+		sitemap.homepage = createPage("default", null);
+
+		assertSameOutput(sitemap, new Output() {
+			public void write(StructureWriter writer) throws IOException {
+				ResourceWriter.writeSitemap(writer, sitemap);
+			}
+		});
+	}
+
+	@Test
+	public void testPageMatchesBean() throws Exception {
+		PageBean parent = createPage("default", null);
+		final PageBean page = createPage("0001", parent);
+
+		assertSameOutput(page, new Output() {
+			public void write(StructureWriter writer) throws IOException {
+				ResourceWriter.writePage(writer, page);
+			}
+		});
+	}
+
+	@Test
+	public void testJsonpWrapsJson() throws Exception {
+		final List<Item> items = Arrays.<Item>asList(createSwitch("Light", OnOffType.ON));
+		Output output = new Output() {
+			public void write(StructureWriter writer) throws IOException {
+				ResourceWriter.writeItems(writer, items, URI_PATH, null);
+			}
+		};
+
+		String json = write(output, MediaType.APPLICATION_JSON, null);
+		String jsonp = write(output, MediaTypeHelper.APPLICATION_X_JAVASCRIPT, "callback");
+		assertEquals("callback(" + json + ")", jsonp);
+		assertEquals(mapper.readTree(marshalJson(createItemListBean(items))), mapper.readTree(json));
+	}
+
+	@Test
+	public void testFieldsSelectWrittenItemFields() throws Exception {
+		final List<Item> items = Arrays.<Item>asList(createSwitch("Light", OnOffType.ON));
+		String json = write(new Output() {
+			public void write(StructureWriter writer) throws IOException {
+				ResourceWriter.writeItems(writer, items, URI_PATH, new HashSet<String>(Arrays.asList("name", "state")));
+			}
+		}, MediaType.APPLICATION_JSON, null);
+
+		assertEquals("{\"item\":{\"name\":\"Light\",\"state\":\"ON\"}}", json);
+	}
+
+	private void assertSameOutput(Object bean, Output output) throws Exception {
+		String expectedXml = marshalXml(bean);
+		String xml = write(output, MediaType.APPLICATION_XML, null);
+		assertTrue("expected " + expectedXml + " but was " + xml, parseXml(expectedXml).isEqualNode(parseXml(xml)));
+		assertEquals(mapper.readTree(marshalJson(bean)), mapper.readTree(write(output, MediaType.APPLICATION_JSON, null)));
+	}
+
+	private String write(Output output, String mediaType, String callback) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		output.write(StructureWriter.create(out, mediaType, callback));
+		return out.toString("UTF-8");
+	}
+
+	private String marshalXml(Object bean) throws JAXBException, IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		JAXBContext.newInstance(bean.getClass()).createMarshaller().marshal(bean, out);
+		return out.toString("UTF-8");
+	}
+
+	private Element parseXml(String xml) throws Exception {
+		Element element = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+				.parse(new ByteArrayInputStream(xml.getBytes("UTF-8"))).getDocumentElement();
+		element.normalize();
+		return element;
+	}
+
+	private String marshalJson(Object bean) throws JAXBException, IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new JSONJAXBContext(JSONConfiguration.DEFAULT, bean.getClass()).createJSONMarshaller().marshallToJSON(bean, out);
+		return out.toString("UTF-8");
+	}
+
+	private ItemListBean createItemListBean(Collection<Item> items) {
+		List<ItemBean> beans = new ArrayList<ItemBean>();
+		for (Item item : items) {
+			beans.add(ItemResource.createItemBean(item, false, URI_PATH));
+		}
+		return new ItemListBean(beans);
+	}
+
+	/**
+	 * Creates the bean of a group, whose members are sorted in the order of the group.
+	 */
+	private GroupItemBean createGroupItemBean(GroupItem group) {
+		GroupItemBean bean = (GroupItemBean) ItemResource.createItemBean(group, true, URI_PATH);
+		final List<String> names = new ArrayList<String>();
+		for (Item member : group.getMembers()) {
+			names.add(member.getName());
+		}
+		Arrays.sort(bean.members, new Comparator<ItemBean>() {
+			public int compare(ItemBean bean1, ItemBean bean2) {
+				return names.indexOf(bean1.name) - names.indexOf(bean2.name);
+			}
+		});
+		return bean;
+	}
+
+	private SitemapBean createSitemap(String name) {
+		SitemapBean sitemap = new SitemapBean();
+		sitemap.name = name;
+		sitemap.label = "Home & <Garden>";
+		sitemap.link = URI_PATH + "sitemaps/" + name;
+		return sitemap;
+	}
+
+	/**
+	 * Creates a page with a frame, which contains widgets of most types.
+	 */
+	private PageBean createPage(String id, PageBean parent) {
+		PageBean page = new PageBean();
+		page.id = id;
+		page.title = "Page " + id;
+		page.icon = "house";
+		page.link = URI_PATH + "sitemaps/default/" + id;
+		page.parent = parent;
+		page.leaf = parent != null;
+
+		WidgetBean frame = createWidget(id + "_0", "Frame");
+		frame.label = "Frame";
+		page.widgets.add(frame);
+
+		WidgetBean switchWidget = createWidget(id + "_0_0", "Switch");
+		switchWidget.item = ItemResource.createItemBean(createSwitch("Light", OnOffType.ON), false, URI_PATH);
+		switchWidget.labelcolor = "#ff0000";
+		switchWidget.valuecolor = "green";
+		switchWidget.mappings.add(createMapping("ON", "On"));
+		frame.widgets.add(switchWidget);
+
+		WidgetBean selection = createWidget(id + "_0_1", "Selection");
+		selection.item = ItemResource.createItemBean(createNumber("Mode", "1"), false, URI_PATH);
+		selection.mappings.add(createMapping("1", "Day"));
+		selection.mappings.add(createMapping("2", "Night"));
+		frame.widgets.add(selection);
+
+		WidgetBean setpoint = createWidget(id + "_0_2", "Setpoint");
+		setpoint.item = ItemResource.createItemBean(createNumber("Target", "21.5"), false, URI_PATH);
+		setpoint.minValue = new BigDecimal("10");
+		setpoint.maxValue = new BigDecimal("3E+1");
+		setpoint.step = new BigDecimal("0.5");
+		frame.widgets.add(setpoint);
+
+		WidgetBean slider = createWidget(id + "_0_3", "Slider");
+		slider.switchSupport = true;
+		slider.sendFrequency = 200;
+		frame.widgets.add(slider);
+
+		WidgetBean group = createWidget(id + "_0_4", "Group");
+		group.linkedPage = new PageBean();
+		group.linkedPage.id = id + "_0_4";
+		group.linkedPage.title = "Group";
+		group.linkedPage.link = URI_PATH + "sitemaps/default/" + id + "_0_4";
+		group.linkedPage.leaf = true;
+		frame.widgets.add(group);
+
+		WidgetBean chart = createWidget(id + "_1", "Chart");
+		chart.service = "rrd4j";
+		chart.period = "D";
+		chart.refresh = 10000;
+		chart.height = 4;
+		page.widgets.add(chart);
+
+		WidgetBean webview = createWidget(id + "_2", "Webview");
+		webview.url = "http://localhost/?a=1&b=2";
+		webview.encoding = "mpeg";
+		webview.separator = "-";
+		page.widgets.add(webview);
+
+		return page;
+	}
+
+	private WidgetBean createWidget(String widgetId, String type) {
+		WidgetBean widget = new WidgetBean();
+		widget.widgetId = widgetId;
+		widget.type = type;
+		widget.label = type + " [" + widgetId + "]";
+		widget.icon = type.toLowerCase();
+		return widget;
+	}
+
+	private MappingBean createMapping(String command, String label) {
+		MappingBean mapping = new MappingBean();
+		mapping.command = command;
+		mapping.label = label;
+		return mapping;
+	}
+
+	private SwitchItem createSwitch(String name, OnOffType state) {
+		SwitchItem item = new SwitchItem(name);
+		item.setState(state);
+		return item;
+	}
+
+	private NumberItem createNumber(String name, String value) {
+		NumberItem item = new NumberItem(name);
+		item.setState(new DecimalType(value));
+		return item;
+	}
+
+	private interface Output {
+		void write(StructureWriter writer) throws IOException;
+	}
+
+}
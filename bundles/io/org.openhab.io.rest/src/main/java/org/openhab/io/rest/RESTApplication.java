@@ -22,6 +22,7 @@ import org.atmosphere.cpr.AtmosphereServlet;
 import org.openhab.core.events.EventPublisher;
 import org.openhab.core.items.ItemRegistry;
 import org.openhab.io.net.http.SecureHttpContext;
+import org.openhab.io.rest.internal.listeners.RegistryVersionTracker;
 import org.openhab.io.rest.internal.resources.ItemResource;
 import org.openhab.io.rest.internal.resources.RootResource;
 import org.openhab.io.rest.internal.resources.SitemapResource;
@@ -68,6 +69,8 @@ public class RESTApplication extends Application {
 
 	static private ModelRepository modelRepository;
 
+	static private RegistryVersionTracker versionTracker = new RegistryVersionTracker();
+
 	public void setHttpService(HttpService httpService) {
 		this.httpService = httpService;
 	}
@@ -90,9 +93,11 @@ public class RESTApplication extends Application {
 
 	public void setItemUIRegistry(ItemUIRegistry itemUIRegistry) {
 		RESTApplication.itemUIRegistry = itemUIRegistry;
+		versionTracker.setItemRegistry(itemUIRegistry);
 	}
 	
 	public void unsetItemUIRegistry(ItemRegistry itemUIRegistry) {
+		versionTracker.unsetItemRegistry();
 		RESTApplication.itemUIRegistry = null;
 	}
 
@@ -102,9 +107,11 @@ public class RESTApplication extends Application {
 
 	public void setModelRepository(ModelRepository modelRepository) {
 		RESTApplication.modelRepository = modelRepository;
+		versionTracker.setModelRepository(modelRepository);
 	}
 	
 	public void unsetModelRepository(ModelRepository modelRepository) {
+		versionTracker.unsetModelRepository();
 		RESTApplication.modelRepository = null;
 	}
 
@@ -112,6 +119,10 @@ public class RESTApplication extends Application {
 		return modelRepository;
 	}
 
+	static public RegistryVersionTracker getVersionTracker() {
+		return versionTracker;
+	}
+
 	public void setDiscoveryService(DiscoveryService discoveryService) {
 		this.discoveryService = discoveryService;
 	}
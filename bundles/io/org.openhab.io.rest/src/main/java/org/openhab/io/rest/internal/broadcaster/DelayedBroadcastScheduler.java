@@ -0,0 +1,276 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.broadcaster;
+
+import java.util.Dictionary;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.StringUtils;
+import org.atmosphere.cpr.AtmosphereResource;
+import org.atmosphere.cpr.BroadcasterFactory;
+import org.eclipse.osgi.framework.console.CommandInterpreter;
+import org.eclipse.osgi.framework.console.CommandProvider;
+import org.openhab.core.service.NamedThreadFactory;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * This scheduler sends messages to single resources of a {@link GeneralBroadcaster} after a delay.
+ * All delayed broadcasts of the REST API share its threads.
+ *
+ * If a message is scheduled for a resource that still has a pending delayed broadcast, the
+ * pending broadcast sends the new message instead and no further broadcast is scheduled. So
+ * a resource gets at most one delayed broadcast at a time, however often its items change.
+ *
+ * The broadcast filters are created by Atmosphere and reach the scheduler through
+ * {@link #schedule(String, AtmosphereResource, Object)}, which hands the message to the
+ * currently active component. Messages that are scheduled while no component is active
+ * are dropped.
+ *
+ * @since 1.7.0
+ */
+public class DelayedBroadcastScheduler implements ManagedService, CommandProvider {
+
+	private static final Logger logger = LoggerFactory.getLogger(DelayedBroadcastScheduler.class);
+
+	private static final long DEFAULT_DELAY = 300;
+
+	private static final int DEFAULT_THREADS = 1;
+
+	/** the active component, which schedules the broadcasts of the filters */
+	private static volatile DelayedBroadcastScheduler activeScheduler;
+
+	/** the delay of a broadcast in milliseconds */
+	private volatile long delay = DEFAULT_DELAY;
+
+	private volatile int threads = DEFAULT_THREADS;
+
+	/** the executor of the broadcasts; it is null while the component is not active */
+	private ScheduledThreadPoolExecutor executor;
+
+	/** the pending broadcasts by their resource, guarded by itself */
+	private final Map<AtmosphereResource, DelayedBroadcast> pendingBroadcasts = new HashMap<AtmosphereResource, DelayedBroadcast>();
+
+	private final AtomicLong scheduledCount = new AtomicLong();
+
+	private final AtomicLong coalescedCount = new AtomicLong();
+
+	private final AtomicLong droppedCount = new AtomicLong();
+
+	public void activate() {
+		synchronized (pendingBroadcasts) {
+			executor = new ScheduledThreadPoolExecutor(threads, new NamedThreadFactory("openHAB-rest-broadcast"));
+		}
+		activeScheduler = this;
+		logger.debug("Delayed broadcasts are sent after {}ms by {} thread(s).", delay, threads);
+	}
+
+	public void deactivate() {
+		if (activeScheduler == this) {
+			activeScheduler = null;
+		}
+		synchronized (pendingBroadcasts) {
+			pendingBroadcasts.clear();
+			if (executor != null) {
+				executor.shutdownNow();
+				executor = null;
+			}
+		}
+	}
+
+	/**
+	 * Broadcasts a message to a single resource after the configured delay.
+	 *
+	 * @param broadcasterName the name of the {@link GeneralBroadcaster} of the resource
+	 * @param resource the resource to send the message to
+	 * @param message the message to send
+	 */
+	public static void schedule(String broadcasterName, AtmosphereResource resource, Object message) {
+		DelayedBroadcastScheduler scheduler = activeScheduler;
+		if (scheduler != null) {
+			scheduler.scheduleBroadcast(broadcasterName, resource, message);
+		} else {
+			logger.debug("Delayed broadcast has been dropped, as the scheduler is not active.");
+		}
+	}
+
+	/**
+	 * Broadcasts a message to a single resource after the configured delay, unless
+	 * this scheduler has already been deactivated.
+	 *
+	 * @param broadcasterName the name of the {@link GeneralBroadcaster} of the resource
+	 * @param resource the resource to send the message to
+	 * @param message the message to send
+	 */
+	void scheduleBroadcast(String broadcasterName, AtmosphereResource resource, Object message) {
+		synchronized (pendingBroadcasts) {
+			if (executor == null) {
+				droppedCount.incrementAndGet();
+				logger.debug("Delayed broadcast has been dropped, as the scheduler has been deactivated.");
+				return;
+			}
+			DelayedBroadcast pendingBroadcast = pendingBroadcasts.get(resource);
+			if (pendingBroadcast != null) {
+				pendingBroadcast.broadcasterName = broadcasterName;
+				pendingBroadcast.message = message;
+				coalescedCount.incrementAndGet();
+				return;
+			}
+			DelayedBroadcast broadcast = new DelayedBroadcast(broadcasterName, resource, message);
+			pendingBroadcasts.put(resource, broadcast);
+			try {
+				executor.schedule(broadcast, delay, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				pendingBroadcasts.remove(resource);
+				droppedCount.incrementAndGet();
+				logger.debug("Delayed broadcast has been rejected: {}", e.getMessage());
+				return;
+			}
+		}
+		scheduledCount.incrementAndGet();
+	}
+
+	/**
+	 * @return the number of delayed broadcasts that have not been sent yet
+	 */
+	public int getPendingCount() {
+		synchronized (pendingBroadcasts) {
+			return pendingBroadcasts.size();
+		}
+	}
+
+	/**
+	 * @return the number of delayed broadcasts that have been scheduled
+	 */
+	public long getScheduledCount() {
+		return scheduledCount.get();
+	}
+
+	/**
+	 * @return the number of messages that have replaced the message of a pending broadcast
+	 */
+	public long getCoalescedCount() {
+		return coalescedCount.get();
+	}
+
+	/**
+	 * @return the number of messages that have been dropped, because the scheduler has been deactivated
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "DelayedBroadcastScheduler [pending=" + getPendingCount() + ", scheduled=" + getScheduledCount() +
+				", coalesced=" + getCoalescedCount() + ", dropped=" + getDroppedCount() + "]";
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getHelp() {
+		return "---openHAB REST---\n\trestbroadcasts - shows the statistics of the delayed REST broadcasts\n";
+	}
+
+	/**
+	 * Prints the statistics of the delayed broadcasts to the console.
+	 *
+	 * @param interpreter the console command interpreter
+	 * @return null
+	 */
+	public Object _restbroadcasts(CommandInterpreter interpreter) {
+		interpreter.println("Delay: " + delay + "ms, threads: " + threads);
+		interpreter.println("Pending: " + getPendingCount() + ", scheduled: " + getScheduledCount() +
+				", coalesced: " + getCoalescedCount() + ", dropped: " + getDroppedCount());
+		return null;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@SuppressWarnings("rawtypes")
+	public void updated(Dictionary config) throws ConfigurationException {
+		long newDelay = DEFAULT_DELAY;
+		int newThreads = DEFAULT_THREADS;
+		if (config != null) {
+			newDelay = parseInt(config, "pollingdelay", (int) DEFAULT_DELAY, 0);
+			newThreads = parseInt(config, "pollingthreads", DEFAULT_THREADS, 1);
+		}
+		delay = newDelay;
+		synchronized (pendingBroadcasts) {
+			threads = newThreads;
+			if (executor != null) {
+				executor.setCorePoolSize(threads);
+			}
+		}
+		logger.debug("Delayed broadcasts are sent after {}ms by {} thread(s).", delay, threads);
+	}
+
+	@SuppressWarnings("rawtypes")
+	private int parseInt(Dictionary config, String key, int defaultValue, int minValue) throws ConfigurationException {
+		String value = (String) config.get(key);
+		if (StringUtils.isBlank(value)) {
+			return defaultValue;
+		}
+		try {
+			int result = Integer.parseInt(value.trim());
+			if (result >= minValue) {
+				return result;
+			}
+		} catch (NumberFormatException e) {
+			// handled below
+		}
+		throw new ConfigurationException(key, "The value must be an integer of at least " + minValue + ", but is '" + value + "'");
+	}
+
+	/**
+	 * A broadcast to a single resource, whose message can be replaced until it is sent.
+	 */
+	private class DelayedBroadcast implements Runnable {
+
+		private final AtmosphereResource resource;
+
+		private String broadcasterName;
+
+		private Object message;
+
+		DelayedBroadcast(String broadcasterName, AtmosphereResource resource, Object message) {
+			this.broadcasterName = broadcasterName;
+			this.resource = resource;
+			this.message = message;
+		}
+
+		public void run() {
+			String name;
+			Object currentMessage;
+			synchronized (pendingBroadcasts) {
+				pendingBroadcasts.remove(resource);
+				name = broadcasterName;
+				currentMessage = message;
+			}
+			try {
+				GeneralBroadcaster delayedBroadcaster = (GeneralBroadcaster) BroadcasterFactory.getDefault().lookup(GeneralBroadcaster.class, name);
+				if (delayedBroadcaster != null) {
+					delayedBroadcaster.broadcast(currentMessage, resource);
+				}
+			} catch (Exception e) {
+				logger.error("Could not broadcast message", e);
+			}
+		}
+	}
+
+}
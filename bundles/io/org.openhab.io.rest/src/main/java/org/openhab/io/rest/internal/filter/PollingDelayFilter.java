@@ -8,17 +8,14 @@
  */
 package org.openhab.io.rest.internal.filter;
 
-import java.util.concurrent.Executors;
-
 import javax.servlet.http.HttpServletRequest;
 
 import org.atmosphere.cpr.AtmosphereResource;
 import org.atmosphere.cpr.BroadcastFilter.BroadcastAction.ACTION;
-import org.atmosphere.cpr.BroadcasterFactory;
 import org.atmosphere.cpr.PerRequestBroadcastFilter;
 import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
-import org.openhab.io.rest.internal.broadcaster.GeneralBroadcaster;
+import org.openhab.io.rest.internal.broadcaster.DelayedBroadcastScheduler;
 import org.openhab.io.rest.internal.resources.ResponseTypeHelper;
 import org.openhab.io.rest.internal.resources.beans.PageBean;
 import org.slf4j.Logger;
@@ -53,19 +50,8 @@ public class PollingDelayFilter implements PerRequestBroadcastFilter {
 				return new BroadcastAction(ACTION.ABORT,  message);				
 			}
 			if(!isStreamingTransport && message instanceof PageBean && isItemMessage) {
-				final String delayedBroadcasterName = resource.getRequest().getPathInfo();
-				Executors.newSingleThreadExecutor().submit(new Runnable() {
-		            public void run() {
-		                try {
-		                    Thread.sleep(300);
-							GeneralBroadcaster delayedBroadcaster = (GeneralBroadcaster) BroadcasterFactory.getDefault().lookup(GeneralBroadcaster.class, delayedBroadcasterName);
-							if(delayedBroadcaster != null)
-								delayedBroadcaster.broadcast(message, resource);
-						} catch (Exception e) {
-							logger.error("Could not broadcast message",e);
-						} 
-		            }
-		        });
+				String delayedBroadcasterName = resource.getRequest().getPathInfo();
+				DelayedBroadcastScheduler.schedule(delayedBroadcasterName, resource, message);
 			} else {
 				//pass message to next filter
 				return new BroadcastAction(ACTION.CONTINUE,  message);
@@ -18,6 +18,7 @@ import org.atmosphere.cpr.AtmosphereResource;
 import org.atmosphere.cpr.BroadcastFilter.BroadcastAction.ACTION;
 import org.atmosphere.cpr.PerRequestBroadcastFilter;
 import org.openhab.core.items.Item;
+import org.openhab.io.rest.internal.listeners.PageBeanCache;
 import org.openhab.io.rest.internal.resources.ResponseTypeHelper;
 import org.openhab.io.rest.internal.resources.beans.PageBean;
 import org.openhab.io.rest.internal.resources.beans.WidgetBean;
@@ -37,6 +38,20 @@ public class ResponseObjectFilter implements PerRequestBroadcastFilter {
 
 	private static final Logger logger = LoggerFactory.getLogger(ResponseObjectFilter.class);
 	
+	private final PageBeanCache pageBeanCache;
+	
+	public ResponseObjectFilter() {
+		this(null);
+	}
+	
+	/**
+	 * @param pageBeanCache the cache which knows the changed widgets of the broadcast pages,
+	 *        or <code>null</code>, if the broadcasts are no pages
+	 */
+	public ResponseObjectFilter(PageBeanCache pageBeanCache) {
+		this.pageBeanCache = pageBeanCache;
+	}
+	
 	@Override
 	public BroadcastAction filter(Object arg0, Object message) {
 		return new BroadcastAction(ACTION.CONTINUE, message);
@@ -63,7 +78,17 @@ public class ResponseObjectFilter implements PerRequestBroadcastFilter {
 	private Object getSingleResponseObject(PageBean pageBean, Item item, HttpServletRequest request) {
 		WidgetListBean responseBeam ;
 		if(pageBean!=null) {
-			responseBeam = new WidgetListBean( getItemsOnPage(pageBean.widgets, item));
+			List<WidgetBean> widgets = getItemsOnPage(pageBean.widgets, item);
+			// add the widgets whose label, icon, colors or visibility depend on the item
+			List<WidgetBean> changedWidgets = pageBeanCache != null ? pageBeanCache.getChangedWidgets(pageBean) : null;
+			if(changedWidgets != null) {
+				for(WidgetBean widget : changedWidgets) {
+					if(!widgets.contains(widget)) {
+						widgets.add(widget);
+					}
+				}
+			}
+			responseBeam = new WidgetListBean(widgets);
 	    	return responseBeam;
 	    	
     	}
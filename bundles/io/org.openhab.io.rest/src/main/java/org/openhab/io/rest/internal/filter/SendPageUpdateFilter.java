@@ -8,16 +8,13 @@
  */
 package org.openhab.io.rest.internal.filter;
 
-import java.util.concurrent.Executors;
-
 import javax.servlet.http.HttpServletRequest;
 
 import org.atmosphere.cpr.AtmosphereResource;
 import org.atmosphere.cpr.BroadcastFilter.BroadcastAction.ACTION;
-import org.atmosphere.cpr.BroadcasterFactory;
 import org.atmosphere.cpr.PerRequestBroadcastFilter;
 import org.openhab.core.items.Item;
-import org.openhab.io.rest.internal.broadcaster.GeneralBroadcaster;
+import org.openhab.io.rest.internal.broadcaster.DelayedBroadcastScheduler;
 import org.openhab.io.rest.internal.listeners.ResourceStateChangeListener;
 import org.openhab.io.rest.internal.listeners.ResourceStateChangeListener.CacheEntry;
 import org.openhab.io.rest.internal.resources.ResponseTypeHelper;
@@ -51,22 +48,9 @@ public class SendPageUpdateFilter implements PerRequestBroadcastFilter {
 			if(ResponseTypeHelper.isStreamingTransport(request)){
 				if( message instanceof PageBean && originalMessage instanceof Item) {
 					// check if the page icon or label has been changed and do a separate broadcast for the changed page object
-					final String delayedBroadcasterName = resource.getRequest().getPathInfo();
+					String delayedBroadcasterName = resource.getRequest().getPathInfo();
 					if (isPageUpdated(request, message)){	
-						Executors.newSingleThreadExecutor().submit(new Runnable() {
-				            public void run() {
-				                try {
-				                    Thread.sleep(300);
-			                		
-			                		GeneralBroadcaster delayedBroadcaster = (GeneralBroadcaster) BroadcasterFactory.getDefault().lookup(GeneralBroadcaster.class, delayedBroadcasterName);
-			                		delayedBroadcaster.broadcast(message, resource);
-				                	
-									
-								} catch (Exception e) {
-									logger.error("Could not broadcast messages",e);
-								} 
-				            }
-				        });
+						DelayedBroadcastScheduler.schedule(delayedBroadcasterName, resource, message);
 					}
 				}
 				// remove the widgets
@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.listeners;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang.ObjectUtils;
+import org.openhab.io.rest.internal.resources.SitemapResource;
+import org.openhab.io.rest.internal.resources.beans.PageBean;
+import org.openhab.io.rest.internal.resources.beans.WidgetBean;
+
+/**
+ * This cache holds the rendered {@link PageBean} of a sitemap page for the broadcasts of a
+ * {@link SitemapStateChangeListener}. All clients of a page receive the same broadcast, so
+ * the page is rendered only once per broadcast instead of once per client. A rendered page
+ * is invalidated by a change of one of the items that the page depends on.
+ *
+ * Besides the page, the cache remembers the widgets that have changed since the previous
+ * rendering of the page, so that streaming clients can be sent only these widgets.
+ *
+ * @since 1.7.0
+ */
+public class PageBeanCache {
+
+	/** the widgets that have changed with a rendered page bean compared to its predecessor */
+	private final Map<PageBean, List<WidgetBean>> changedWidgets =
+			Collections.synchronizedMap(new WeakHashMap<PageBean, List<WidgetBean>>());
+
+	/** the rendered pages by their base URI, which is part of the links of a page */
+	private final Map<URI, CacheEntry> entries = new HashMap<URI, CacheEntry>();
+
+	/** the generation of the cache, which is increased by every invalidation */
+	private final AtomicLong generation = new AtomicLong();
+
+	/**
+	 * Invalidates all rendered pages.
+	 */
+	public void invalidate() {
+		generation.incrementAndGet();
+	}
+
+	/**
+	 * Returns the rendered page for a broadcast. The page is rendered again if the cache
+	 * has been invalidated or if the broadcast has been triggered by another message.
+	 *
+	 * @param sitemapName the name of the sitemap
+	 * @param pageId the id of the page
+	 * @param uri the base URI of the request
+	 * @param trigger the message which has triggered the broadcast
+	 * @return the page bean or <code>null</code>, if the page does not exist
+	 */
+	public PageBean getPageBean(String sitemapName, String pageId, URI uri, Object trigger) {
+		synchronized (entries) {
+			CacheEntry entry = entries.get(uri);
+			long currentGeneration = generation.get();
+			if (entry != null && entry.generation == currentGeneration && entry.trigger == trigger) {
+				return entry.pageBean;
+			}
+			PageBean pageBean = renderPageBean(sitemapName, pageId, uri);
+			if (pageBean == null) {
+				entries.remove(uri);
+				return null;
+			}
+			if (entry != null) {
+				changedWidgets.put(pageBean, getChangedWidgets(entry.pageBean, pageBean));
+			}
+			entries.put(uri, new CacheEntry(pageBean, currentGeneration, trigger));
+			return pageBean;
+		}
+	}
+
+	/**
+	 * Renders a page.
+	 *
+	 * @param sitemapName the name of the sitemap
+	 * @param pageId the id of the page
+	 * @param uri the base URI of the request
+	 * @return the page bean or <code>null</code>, if the page does not exist
+	 */
+	protected PageBean renderPageBean(String sitemapName, String pageId, URI uri) {
+		return SitemapResource.getPageBean(sitemapName, pageId, uri);
+	}
+
+	/**
+	 * @return the generation of the cache, which is increased by every invalidation
+	 */
+	long getGeneration() {
+		return generation.get();
+	}
+
+	/**
+	 * Returns the widgets whose state, label, icon or colors have changed, or which have become
+	 * visible, with the given page compared to the previous rendering of the page.
+	 *
+	 * @param pageBean a page bean returned by {@link #getPageBean(String, String, URI, Object)}
+	 * @return the changed widgets or <code>null</code>, if it is unknown which widgets have changed
+	 */
+	public List<WidgetBean> getChangedWidgets(PageBean pageBean) {
+		return changedWidgets.get(pageBean);
+	}
+
+	private static List<WidgetBean> getChangedWidgets(PageBean previousPage, PageBean page) {
+		Map<String, WidgetBean> previousWidgets = new HashMap<String, WidgetBean>();
+		collectWidgets(previousPage.widgets, previousWidgets);
+		Map<String, WidgetBean> widgets = new LinkedHashMap<String, WidgetBean>();
+		collectWidgets(page.widgets, widgets);
+
+		List<WidgetBean> changed = new ArrayList<WidgetBean>();
+		for (Map.Entry<String, WidgetBean> entry : widgets.entrySet()) {
+			WidgetBean previousWidget = previousWidgets.get(entry.getKey());
+			if (previousWidget == null || isChanged(previousWidget, entry.getValue())) {
+				changed.add(entry.getValue());
+			}
+		}
+		return changed;
+	}
+
+	private static void collectWidgets(List<WidgetBean> widgets, Map<String, WidgetBean> result) {
+		if (widgets == null) {
+			return;
+		}
+		for (WidgetBean widget : widgets) {
+			if (widget.widgetId != null) {
+				result.put(widget.widgetId, widget);
+			}
+			collectWidgets(widget.widgets, result);
+		}
+	}
+
+	private static boolean isChanged(WidgetBean previousWidget, WidgetBean widget) {
+		String previousState = previousWidget.item != null ? previousWidget.item.state : null;
+		String state = widget.item != null ? widget.item.state : null;
+		return !ObjectUtils.equals(previousState, state)
+				|| !ObjectUtils.equals(previousWidget.label, widget.label)
+				|| !ObjectUtils.equals(previousWidget.icon, widget.icon)
+				|| !ObjectUtils.equals(previousWidget.labelcolor, widget.labelcolor)
+				|| !ObjectUtils.equals(previousWidget.valuecolor, widget.valuecolor);
+	}
+
+	private static class CacheEntry {
+
+		private final PageBean pageBean;
+
+		private final long generation;
+
+		private final Object trigger;
+
+		CacheEntry(PageBean pageBean, long generation, Object trigger) {
+			this.pageBean = pageBean;
+			this.generation = generation;
+			this.trigger = trigger;
+		}
+	}
+
+}
@@ -0,0 +1,166 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.listeners;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openhab.core.items.GenericItem;
+import org.openhab.core.items.Item;
+import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.items.ItemRegistryChangeListener;
+import org.openhab.core.items.StateChangeListener;
+import org.openhab.core.transform.TransformationCache;
+import org.openhab.core.types.State;
+import org.openhab.model.core.EventType;
+import org.openhab.model.core.ModelRepository;
+import org.openhab.model.core.ModelRepositoryChangeListener;
+
+/**
+ * This tracker counts the changes of everything that the item and sitemap resources are
+ * rendered from: item states, the items of the registry, the models and the transformation
+ * files which labels are formatted with. Its version is increased with every change, so a
+ * client that has received a resource at a version does not need to receive it again as
+ * long as the version stays the same.
+ *
+ * The version is increased after a state has been set, so a resource which is rendered
+ * after the version has been read is never older than this version.
+ *
+ * Changes of transformation files are taken from the {@link TransformationCache}, whose
+ * watcher notices them within a few seconds. Until then, or if a file is added that has not
+ * been used before, a client which revalidates a resource may keep an outdated copy.
+ *
+ * @since 1.7.0
+ */
+public class RegistryVersionTracker implements ItemRegistryChangeListener, StateChangeListener, ModelRepositoryChangeListener {
+
+	/** distinguishes the versions of this instance from those before a restart */
+	private final String instanceId = Long.toHexString(System.currentTimeMillis());
+
+	private final AtomicLong version = new AtomicLong();
+
+	private ItemRegistry itemRegistry;
+
+	private ModelRepository modelRepository;
+
+	public synchronized void setItemRegistry(ItemRegistry itemRegistry) {
+		unsetItemRegistry();
+		this.itemRegistry = itemRegistry;
+		if (itemRegistry != null) {
+			itemRegistry.addItemRegistryChangeListener(this);
+			registerItems(itemRegistry.getItems());
+		}
+		version.incrementAndGet();
+	}
+
+	public synchronized void unsetItemRegistry() {
+		if (itemRegistry != null) {
+			itemRegistry.removeItemRegistryChangeListener(this);
+			for (Item item : itemRegistry.getItems()) {
+				unregisterItem(item);
+			}
+			itemRegistry = null;
+		}
+		version.incrementAndGet();
+	}
+
+	public synchronized void setModelRepository(ModelRepository modelRepository) {
+		unsetModelRepository();
+		this.modelRepository = modelRepository;
+		if (modelRepository != null) {
+			modelRepository.addModelRepositoryChangeListener(this);
+		}
+		version.incrementAndGet();
+	}
+
+	public synchronized void unsetModelRepository() {
+		if (modelRepository != null) {
+			modelRepository.removeModelRepositoryChangeListener(this);
+			modelRepository = null;
+		}
+		version.incrementAndGet();
+	}
+
+	/**
+	 * Returns the current version, which is unique across restarts.
+	 *
+	 * @return the version, e.g. "14b2c3f7a21-42.3"
+	 */
+	public String getVersion() {
+		return instanceId + "-" + version.get() + "." + TransformationCache.getVersion();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void allItemsChanged(Collection<String> oldItemNames) {
+		ItemRegistry registry = itemRegistry;
+		if (registry != null) {
+			// the listeners of removed items are released together with the items
+			registerItems(registry.getItems());
+		}
+		version.incrementAndGet();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void itemAdded(Item item) {
+		registerItem(item);
+		version.incrementAndGet();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void itemRemoved(Item item) {
+		unregisterItem(item);
+		version.incrementAndGet();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void stateChanged(Item item, State oldState, State newState) {
+		version.incrementAndGet();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void stateUpdated(Item item, State state) {
+		// an update without a change does not change any resource
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void modelChanged(String modelName, EventType type) {
+		version.incrementAndGet();
+	}
+
+	private void registerItems(Collection<Item> items) {
+		for (Item item : items) {
+			registerItem(item);
+		}
+	}
+
+	private void registerItem(Item item) {
+		if (item instanceof GenericItem) {
+			((GenericItem) item).addStateChangeListener(this);
+		}
+	}
+
+	private void unregisterItem(Item item) {
+		if (item instanceof GenericItem) {
+			((GenericItem) item).removeStateChangeListener(this);
+		}
+	}
+
+}
@@ -92,7 +92,7 @@ abstract public class ResourceStateChangeListener {
 				BroadcastAction result = null;
 				try {
 				 request = resource.getRequest();
-				 Object responce = getResponseObject(request);
+				 Object responce = getResponseObject(request, originalMessage);
 				 result = new BroadcastAction(ACTION.CONTINUE,  responce);
 				} catch (Exception e) {
 					result = new BroadcastAction(ACTION.ABORT,  getResponseObject(request));					
@@ -104,11 +104,12 @@ abstract public class ResourceStateChangeListener {
 		broadcaster.getBroadcasterConfig().addFilter(new PollingDelayFilter());
 		broadcaster.getBroadcasterConfig().addFilter(new SendPageUpdateFilter());
 		broadcaster.getBroadcasterConfig().addFilter(new DuplicateBroadcastProtectionFilter());
-		broadcaster.getBroadcasterConfig().addFilter(new ResponseObjectFilter());
+		broadcaster.getBroadcasterConfig().addFilter(new ResponseObjectFilter(getPageBeanCache()));
 		
 		stateChangeListener = new StateChangeListener() {
 			// don't react on update events
 			public void stateUpdated(Item item, State state) {
+				relevantItemChanged(item);
 				broadcaster.broadcast(item);
 				// if the group has a base item and thus might calculate its state
 				// as a DecimalType or other, we also consider it to be necessary to
@@ -128,6 +129,7 @@ abstract public class ResourceStateChangeListener {
 			}
 			
 			public void stateChanged(final Item item, State oldState, State newState) {
+				relevantItemChanged(item);
 				broadcaster.broadcast(item);
 //				Collection<AtmosphereResource> resources = broadcaster.getAtmosphereResources();
 //				if(!resources.isEmpty()) {
@@ -204,7 +206,38 @@ abstract public class ResourceStateChangeListener {
 	 * @return the response content
 	 */
 	abstract protected Object getResponseObject(final HttpServletRequest request);
-	
+
+	/**
+	 * Determines the response content for an HTTP request to which the given message
+	 * is broadcast. All requests of a broadcaster receive the same broadcasts, so an
+	 * implementation may share the response content among them.
+	 * 
+	 * @param request the HttpServletRequest
+	 * @param message the message that has been broadcast
+	 * @return the response content
+	 */
+	protected Object getResponseObject(final HttpServletRequest request, Object message) {
+		return getResponseObject(request);
+	}
+
+	/**
+	 * Is called whenever one of the relevant items has been updated, before the
+	 * update is broadcast.
+	 * 
+	 * @param item the updated item
+	 */
+	protected void relevantItemChanged(Item item) {
+	}
+
+	/**
+	 * Returns the cache of the pages that are rendered for the broadcasts of this listener.
+	 *
+	 * @return the cache or <code>null</code>, if the broadcasts are no pages
+	 */
+	protected PageBeanCache getPageBeanCache() {
+		return null;
+	}
+
 	/**
 	 * Determines the response content for a single item.
 	 * This method has to do all the HTTP header evaluation itself that is normally
@@ -49,6 +49,9 @@ import org.slf4j.LoggerFactory;
 public class SitemapStateChangeListener extends ResourceStateChangeListener {
 
 	private static final Logger logger = LoggerFactory.getLogger(SitemapStateChangeListener.class);
+
+	/** the pages rendered for the broadcasts to all clients of this page */
+	private final PageBeanCache pageBeanCache = new PageBeanCache();
 	
 	@Override
 	public void registerItems() {
@@ -76,16 +79,31 @@ public class SitemapStateChangeListener extends ResourceStateChangeListener {
 	
 	@Override
 	protected Object getResponseObject(HttpServletRequest request) {
-		PageBean pageBean = getPageBean(request);
+		PageBean pageBean = getPageBean(request, null);
 		if(pageBean!=null) {
 			return pageBean;
     	}
 		return null;
 	}
+
+	@Override
+	protected Object getResponseObject(HttpServletRequest request, Object message) {
+		return getPageBean(request, message);
+	}
+
+	@Override
+	protected void relevantItemChanged(Item item) {
+		pageBeanCache.invalidate();
+	}
+
+	@Override
+	protected PageBeanCache getPageBeanCache() {
+		return pageBeanCache;
+	}
 		
 	@Override
 	protected Object getSingleResponseObject(Item item, HttpServletRequest request) {
-		PageBean pageBean = getPageBean(request);
+		PageBean pageBean = getPageBean(request, null);
 		WidgetListBean responseBeam ;
 		if(pageBean!=null) {
 			responseBeam = new WidgetListBean( getItemsOnPage(pageBean.widgets, item));
@@ -148,7 +166,15 @@ public class SitemapStateChangeListener extends ResourceStateChangeListener {
 		return itemNames;
 	}
 	
-	private PageBean getPageBean(HttpServletRequest request){
+	/**
+	 * Returns the page of the request. If a broadcast message is given, the page is
+	 * taken from the cache, which shares it among all requests of the broadcast.
+	 * 
+	 * @param request the request of the page
+	 * @param message the broadcast message or <code>null</code> to render a new page
+	 * @return the page or <code>null</code>, if the request is no valid page request
+	 */
+	private PageBean getPageBean(HttpServletRequest request, Object message){
 		try {
 			String query = request.getQueryString();
 		String pathInfo = request.getPathInfo();
@@ -163,6 +189,9 @@ public class SitemapStateChangeListener extends ResourceStateChangeListener {
 	            	String pageId = pathSegments[2];
 	            	Sitemap sitemap = (Sitemap) RESTApplication.getModelRepository().getModel(sitemapName + ".sitemap");
 	            	if(sitemap!=null) {
+	            		if(message!=null) {
+	            			return pageBeanCache.getPageBean(sitemapName, pageId, basePath, message);
+	            		}
 						return SitemapResource.getPageBean(sitemapName, pageId, basePath);
 	            	}
 	            }
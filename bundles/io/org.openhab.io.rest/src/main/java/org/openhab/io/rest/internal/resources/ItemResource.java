@@ -8,10 +8,14 @@
  */
 package org.openhab.io.rest.internal.resources;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DefaultValue;
@@ -25,6 +29,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -52,13 +57,13 @@ import org.openhab.io.rest.internal.broadcaster.GeneralBroadcaster;
 import org.openhab.io.rest.internal.listeners.ItemStateChangeListener;
 import org.openhab.io.rest.internal.resources.beans.GroupItemBean;
 import org.openhab.io.rest.internal.resources.beans.ItemBean;
-import org.openhab.io.rest.internal.resources.beans.ItemListBean;
+import org.openhab.io.rest.internal.resources.writer.ResourceWriter;
+import org.openhab.io.rest.internal.resources.writer.StructureOutput;
+import org.openhab.io.rest.internal.resources.writer.StructureWriter;
 import org.openhab.ui.items.ItemUIRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.sun.jersey.api.json.JSONWithPadding;
-
 /**
  * <p>This class acts as a REST resource for items and provides different methods to interact with them,
  * like retrieving lists of items, sending commands to them or checking a single status.</p>
@@ -79,20 +84,43 @@ public class ItemResource {
 	/** The URI path to this resource */
     public static final String PATH_ITEMS = "items";
     
+	/** the response header which contains the number of items before paging */
+	public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
 	@Context UriInfo uriInfo;
 	@GET
     @Produces( { MediaType.WILDCARD })
     public Response getItems(
     		@Context HttpHeaders headers,
     		@QueryParam("type") String type, 
-    		@QueryParam("jsoncallback") @DefaultValue("callback") String callback) {
+    		@QueryParam("jsoncallback") @DefaultValue("callback") String callback,
+    		@QueryParam("offset") @DefaultValue("0") int offset,
+    		@QueryParam("limit") @DefaultValue("-1") int limit,
+    		@QueryParam("fields") String fields) {
 		logger.debug("Received HTTP GET request at '{}' for media type '{}'.", new String[] { uriInfo.getPath(), type });
 
 		String responseType = MediaTypeHelper.getResponseMediaType(headers.getAcceptableMediaTypes(), type);
 		if(responseType!=null) {
-	    	Object responseObject = responseType.equals(MediaTypeHelper.APPLICATION_X_JAVASCRIPT) ?
-	    			new JSONWithPadding(new ItemListBean(getItemBeans()), callback) : new ItemListBean(getItemBeans());
-	    	return Response.ok(responseObject, responseType).build();
+			if(offset < 0) {
+				logger.warn("Received HTTP GET request at '{}' with an invalid offset '{}'.", uriInfo.getPath(), offset);
+				return Response.status(Status.BAD_REQUEST).build();
+			}
+			final Set<String> fieldSet = parseFields(fields);
+			EntityTag eTag = StreamingResponseHelper.getEntityTag(responseType, uriInfo);
+			if(StreamingResponseHelper.isNotModified(headers, eTag)) {
+				return Response.notModified(eTag).build();
+			}
+			List<Item> items = getSortedItems();
+			final List<Item> page = getPage(items, offset, limit);
+			final String uriPath = uriInfo.getBaseUri().toASCIIString();
+			StructureOutput output = new StructureOutput(responseType, callback) {
+				@Override
+				protected void write(StructureWriter writer) throws IOException {
+					ResourceWriter.writeItems(writer, page, uriPath, fieldSet);
+				}
+			};
+			return StreamingResponseHelper.ok(output, responseType, headers, eTag)
+					.header(TOTAL_COUNT_HEADER, items.size()).build();
 		} else {
 			return Response.notAcceptable(null).build();
 		}
@@ -134,12 +162,25 @@ public class ItemResource {
     		@Context AtmosphereResource resource) {
 		logger.debug("Received HTTP GET request at '{}' for media type '{}'.", new String[] { uriInfo.getPath(), type });
 		if(atmosphereTransport==null || atmosphereTransport.isEmpty()) {
-			final String responseType = MediaTypeHelper.getResponseMediaType(headers.getAcceptableMediaTypes(), type);
+			String responseType = MediaTypeHelper.getResponseMediaType(headers.getAcceptableMediaTypes(), type);
 			if(responseType!=null) {
-		    	final Object responseObject = responseType.equals(MediaTypeHelper.APPLICATION_X_JAVASCRIPT) ?
-		    			new JSONWithPadding(getItemDataBean(itemname), callback) : getItemDataBean(itemname);
-		    	throw new WebApplicationException(Response.ok(responseObject, responseType).build());  
-		
+				EntityTag eTag = StreamingResponseHelper.getEntityTag(responseType, uriInfo);
+				if(StreamingResponseHelper.isNotModified(headers, eTag)) {
+					throw new WebApplicationException(Response.notModified(eTag).build());
+				}
+				final Item item = getItem(itemname);
+				if(item==null) {
+					logger.info("Received HTTP GET request at '{}' for the unknown item '{}'.", uriInfo.getPath(), itemname);
+					throw new WebApplicationException(404);
+				}
+				final String uriPath = uriInfo.getBaseUri().toASCIIString();
+				StructureOutput output = new StructureOutput(responseType, callback) {
+					@Override
+					protected void write(StructureWriter writer) throws IOException {
+						ResourceWriter.writeItem(writer, item, uriPath);
+					}
+				};
+		    	throw new WebApplicationException(StreamingResponseHelper.ok(output, responseType, headers, eTag).build());
 			} else {
 				throw new WebApplicationException(Response.notAcceptable(null).build());
 			}
@@ -242,22 +283,43 @@ public class ItemResource {
         return null;
     }
 
-	private List<ItemBean> getItemBeans() {
-		List<ItemBean> beans = new LinkedList<ItemBean>();
-		ItemUIRegistry registry = RESTApplication.getItemUIRegistry();
-		for(Item item : registry.getItems()) {
-			beans.add(createItemBean(item, false, uriInfo.getBaseUri().toASCIIString()));
-		}
-		return beans;
+	/**
+	 * Returns all items sorted by their names, so that the pages of a list are stable.
+	 */
+	private List<Item> getSortedItems() {
+		List<Item> items = new ArrayList<Item>(RESTApplication.getItemUIRegistry().getItems());
+		Collections.sort(items, new Comparator<Item>() {
+			public int compare(Item item1, Item item2) {
+				return item1.getName().compareTo(item2.getName());
+			}
+		});
+		return items;
 	}
 
-	private ItemBean getItemDataBean(String itemname) {
-		Item item = getItem(itemname);
-		if(item!=null) {
-			return createItemBean(item, true, uriInfo.getBaseUri().toASCIIString());
-		} else {
-			logger.info("Received HTTP GET request at '{}' for the unknown item '{}'.", uriInfo.getPath(), itemname);
-			throw new WebApplicationException(404);
+	private List<Item> getPage(List<Item> items, int offset, int limit) {
+		int fromIndex = Math.min(offset, items.size());
+		int toIndex = limit < 0 ? items.size() : (int) Math.min((long) fromIndex + limit, items.size());
+		return items.subList(fromIndex, toIndex);
+	}
+
+	/**
+	 * Parses the comma separated list of fields that a request has selected.
+	 * 
+	 * @return the selected fields or <code>null</code> if all fields are selected
+	 */
+	private Set<String> parseFields(String fields) {
+		if(fields==null || fields.trim().isEmpty()) {
+			return null;
+		}
+		Set<String> fieldSet = new HashSet<String>();
+		for(String field : fields.split(",")) {
+			field = field.trim();
+			if(!ResourceWriter.ITEM_FIELDS.contains(field)) {
+				logger.warn("Received HTTP GET request at '{}' with the unknown field '{}'.", uriInfo.getPath(), field);
+				throw new WebApplicationException(Status.BAD_REQUEST);
+			}
+			fieldSet.add(field);
 		}
+		return fieldSet;
 	}
 }
@@ -8,6 +8,7 @@
  */
 package org.openhab.io.rest.internal.resources;
 
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLEncoder;
@@ -24,6 +25,7 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -47,8 +49,10 @@ import org.openhab.io.rest.internal.listeners.SitemapStateChangeListener;
 import org.openhab.io.rest.internal.resources.beans.MappingBean;
 import org.openhab.io.rest.internal.resources.beans.PageBean;
 import org.openhab.io.rest.internal.resources.beans.SitemapBean;
-import org.openhab.io.rest.internal.resources.beans.SitemapListBean;
 import org.openhab.io.rest.internal.resources.beans.WidgetBean;
+import org.openhab.io.rest.internal.resources.writer.ResourceWriter;
+import org.openhab.io.rest.internal.resources.writer.StructureOutput;
+import org.openhab.io.rest.internal.resources.writer.StructureWriter;
 import org.openhab.model.core.ModelRepository;
 import org.openhab.model.sitemap.Chart;
 import org.openhab.model.sitemap.Frame;
@@ -68,8 +72,6 @@ import org.openhab.ui.items.ItemUIRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.sun.jersey.api.json.JSONWithPadding;
-
 /**
  * <p>This class acts as a REST resource for sitemaps and provides different methods to interact with them,
  * like retrieving a list of all available sitemaps or just getting the widgets of a single page.</p>
@@ -107,9 +109,18 @@ public class SitemapResource {
 		logger.debug("Received HTTP GET request at '{}' for media type '{}'.", new String[] { uriInfo.getPath(), type });
 		String responseType = MediaTypeHelper.getResponseMediaType(headers.getAcceptableMediaTypes(), type);
 		if(responseType!=null) {
-	    	Object responseObject = responseType.equals(MediaTypeHelper.APPLICATION_X_JAVASCRIPT) ?
-	    			new JSONWithPadding(new SitemapListBean(getSitemapBeans(uriInfo.getAbsolutePathBuilder().build())), callback) : new SitemapListBean(getSitemapBeans(uriInfo.getAbsolutePathBuilder().build()));
-	    	return Response.ok(responseObject, responseType).build();
+			EntityTag eTag = StreamingResponseHelper.getEntityTag(responseType, uriInfo);
+			if(StreamingResponseHelper.isNotModified(headers, eTag)) {
+				return Response.notModified(eTag).build();
+			}
+			final Collection<SitemapBean> sitemaps = getSitemapBeans(uriInfo.getAbsolutePathBuilder().build());
+			StructureOutput output = new StructureOutput(responseType, callback) {
+				@Override
+				protected void write(StructureWriter writer) throws IOException {
+					ResourceWriter.writeSitemaps(writer, sitemaps);
+				}
+			};
+	    	return StreamingResponseHelper.ok(output, responseType, headers, eTag).build();
 		} else {
 			return Response.notAcceptable(null).build();
 		}
@@ -125,9 +136,18 @@ public class SitemapResource {
 		logger.debug("Received HTTP GET request at '{}' for media type '{}'.", new String[] { uriInfo.getPath(), type });
 		String responseType = MediaTypeHelper.getResponseMediaType(headers.getAcceptableMediaTypes(), type);
 		if(responseType!=null) {
-	    	Object responseObject = responseType.equals(MediaTypeHelper.APPLICATION_X_JAVASCRIPT) ?
-	    			new JSONWithPadding(getSitemapBean(sitemapname, uriInfo.getBaseUriBuilder().build()), callback) : getSitemapBean(sitemapname, uriInfo.getBaseUriBuilder().build());
-	    	return Response.ok(responseObject, responseType).build();
+			EntityTag eTag = StreamingResponseHelper.getEntityTag(responseType, uriInfo);
+			if(StreamingResponseHelper.isNotModified(headers, eTag)) {
+				return Response.notModified(eTag).build();
+			}
+			final SitemapBean sitemap = getSitemapBean(sitemapname, uriInfo.getBaseUriBuilder().build());
+			StructureOutput output = new StructureOutput(responseType, callback) {
+				@Override
+				protected void write(StructureWriter writer) throws IOException {
+					ResourceWriter.writeSitemap(writer, sitemap);
+				}
+			};
+	    	return StreamingResponseHelper.ok(output, responseType, headers, eTag).build();
 		} else {
 			return Response.notAcceptable(null).build();
 		}
@@ -147,9 +167,18 @@ public class SitemapResource {
 		if(atmosphereTransport==null || atmosphereTransport.isEmpty()) {
 			String responseType = MediaTypeHelper.getResponseMediaType(headers.getAcceptableMediaTypes(), type);
 			if(responseType!=null) {
-		    	Object responseObject = responseType.equals(MediaTypeHelper.APPLICATION_X_JAVASCRIPT) ?
-		    			new JSONWithPadding(getPageBean(sitemapname, pageId, uriInfo.getBaseUriBuilder().build()), callback) : getPageBean(sitemapname, pageId, uriInfo.getBaseUriBuilder().build());
-		    	throw new WebApplicationException(Response.ok(responseObject, responseType).header(ATMOS_TIMEOUT_HEADER, DEFAULT_TIMEOUT_SECS + "").build());
+				EntityTag eTag = StreamingResponseHelper.getEntityTag(responseType, uriInfo);
+				if(StreamingResponseHelper.isNotModified(headers, eTag)) {
+					throw new WebApplicationException(Response.notModified(eTag).header(ATMOS_TIMEOUT_HEADER, DEFAULT_TIMEOUT_SECS + "").build());
+				}
+				final PageBean page = getPageBean(sitemapname, pageId, uriInfo.getBaseUriBuilder().build());
+				StructureOutput output = new StructureOutput(responseType, callback) {
+					@Override
+					protected void write(StructureWriter writer) throws IOException {
+						ResourceWriter.writePage(writer, page);
+					}
+				};
+		    	throw new WebApplicationException(StreamingResponseHelper.ok(output, responseType, headers, eTag).header(ATMOS_TIMEOUT_HEADER, DEFAULT_TIMEOUT_SECS + "").build());
 			} else {
 				throw new WebApplicationException(Response.notAcceptable(null).build());
 			}
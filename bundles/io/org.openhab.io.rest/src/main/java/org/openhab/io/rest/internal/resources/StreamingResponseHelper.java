@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.resources;
+
+import java.util.List;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.UriInfo;
+
+import org.openhab.io.rest.RESTApplication;
+import org.openhab.io.rest.internal.resources.writer.StructureOutput;
+
+/**
+ * This class contains static helper methods for responses which are streamed by a
+ * {@link StructureOutput}. Such responses carry an entity tag, which is derived from the
+ * version of the items and models, so that a client can revalidate a resource it has
+ * already received without getting it rendered and sent again.
+ *
+ * @since 1.7.0
+ */
+public class StreamingResponseHelper {
+
+	private static final String GZIP = "gzip";
+
+	/**
+	 * Returns the entity tag of a resource for the current version of the items and models.
+	 * The tag depends on the request URI and the media type, as they change the representation.
+	 *
+	 * @param mediaType the media type of the response
+	 * @param uriInfo the URI of the request
+	 * @return the weak entity tag of the resource
+	 */
+	static public EntityTag getEntityTag(String mediaType, UriInfo uriInfo) {
+		String representation = mediaType + " " + uriInfo.getRequestUri().toASCIIString();
+		String value = RESTApplication.getVersionTracker().getVersion() + "-" + Integer.toHexString(representation.hashCode());
+		return new EntityTag(value, true);
+	}
+
+	/**
+	 * Checks whether the client already has the current representation of a resource.
+	 *
+	 * @param headers the headers of the request
+	 * @param eTag the current entity tag of the resource
+	 * @return true, if one of the entity tags of the "If-None-Match" header matches
+	 */
+	static public boolean isNotModified(HttpHeaders headers, EntityTag eTag) {
+		List<String> values = headers.getRequestHeader(HttpHeaders.IF_NONE_MATCH);
+		if (values == null) {
+			return false;
+		}
+		for (String value : values) {
+			for (String tag : value.split(",")) {
+				tag = tag.trim();
+				if (tag.equals("*") || tag.endsWith("\"" + eTag.getValue() + "\"")) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Creates a response for a streamed entity, which is compressed if the client accepts it.
+	 *
+	 * @param output the entity of the response
+	 * @param mediaType the media type of the response
+	 * @param headers the headers of the request
+	 * @param eTag the entity tag of the resource
+	 * @return the response builder
+	 */
+	static public ResponseBuilder ok(StructureOutput output, String mediaType, HttpHeaders headers, EntityTag eTag) {
+		ResponseBuilder builder = Response.ok(output, mediaType).tag(eTag).header("Vary", "Accept, Accept-Encoding");
+		if (acceptsGzip(headers)) {
+			output.setGzip(true);
+			builder.header("Content-Encoding", GZIP);
+		}
+		return builder;
+	}
+
+	static private boolean acceptsGzip(HttpHeaders headers) {
+		List<String> values = headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING);
+		if (values == null) {
+			return false;
+		}
+		for (String value : values) {
+			for (String coding : value.split(",")) {
+				String[] parts = coding.split(";");
+				if (GZIP.equalsIgnoreCase(parts[0].trim())) {
+					// a quality of zero means that gzip is not acceptable
+					return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+				}
+			}
+		}
+		return false;
+	}
+
+}
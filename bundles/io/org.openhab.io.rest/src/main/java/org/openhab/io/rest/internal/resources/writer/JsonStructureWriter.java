@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.resources.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+
+import org.codehaus.jackson.JsonEncoding;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+
+/**
+ * Writes a structure in the "mapped" JSON notation, optionally wrapped in a JSONP callback.
+ * The name of the root object is left out, all values are written as strings and a list
+ * with a single entry is written as an object.
+ *
+ * @since 1.7.0
+ */
+class JsonStructureWriter extends StructureWriter {
+
+	private static final JsonFactory factory = new JsonFactory();
+
+	static {
+		factory.configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false);
+	}
+
+	private final OutputStream out;
+
+	private final String callback;
+
+	private final JsonGenerator generator;
+
+	/** the names of the open lists, whose entries are written as objects if they are no arrays */
+	private final LinkedList<String> lists = new LinkedList<String>();
+
+	/** whether the open lists are written as arrays */
+	private final LinkedList<Boolean> arrays = new LinkedList<Boolean>();
+
+	JsonStructureWriter(OutputStream out, String callback) throws IOException {
+		this.out = out;
+		this.callback = callback;
+		this.generator = factory.createJsonGenerator(out, JsonEncoding.UTF8);
+	}
+
+	@Override
+	public void startDocument(String name) throws IOException {
+		if (callback != null) {
+			out.write((callback + "(").getBytes("UTF-8"));
+		}
+		generator.writeStartObject();
+	}
+
+	@Override
+	public void endDocument() throws IOException {
+		generator.writeEndObject();
+		generator.flush();
+		if (callback != null) {
+			out.write(')');
+		}
+		out.flush();
+	}
+
+	@Override
+	public void startObject(String name) throws IOException {
+		generator.writeObjectFieldStart(name);
+	}
+
+	@Override
+	public void endObject() throws IOException {
+		generator.writeEndObject();
+	}
+
+	@Override
+	public void startList(String name, int size) throws IOException {
+		boolean array = size > 1;
+		lists.addFirst(name);
+		arrays.addFirst(array);
+		if (array) {
+			generator.writeArrayFieldStart(name);
+		}
+	}
+
+	@Override
+	public void endList() throws IOException {
+		lists.removeFirst();
+		if (arrays.removeFirst()) {
+			generator.writeEndArray();
+		}
+	}
+
+	@Override
+	public void startEntry() throws IOException {
+		if (arrays.getFirst()) {
+			generator.writeStartObject();
+		} else {
+			generator.writeObjectFieldStart(lists.getFirst());
+		}
+	}
+
+	@Override
+	public void endEntry() throws IOException {
+		generator.writeEndObject();
+	}
+
+	@Override
+	public void field(String name, Object value) throws IOException {
+		if (value != null) {
+			generator.writeStringField(name, toString(value));
+		}
+	}
+
+}
@@ -0,0 +1,234 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.resources.writer;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.ws.rs.core.UriBuilder;
+
+import org.openhab.core.items.GroupItem;
+import org.openhab.core.items.Item;
+import org.openhab.io.rest.internal.resources.ItemResource;
+import org.openhab.io.rest.internal.resources.beans.ItemBean;
+import org.openhab.io.rest.internal.resources.beans.MappingBean;
+import org.openhab.io.rest.internal.resources.beans.PageBean;
+import org.openhab.io.rest.internal.resources.beans.SitemapBean;
+import org.openhab.io.rest.internal.resources.beans.WidgetBean;
+
+/**
+ * This class writes the item and sitemap resources to a {@link StructureWriter}. Items are
+ * written directly from the registry, so that no beans have to be created for them. The
+ * fields are written in the same order as the fields of the JAXB beans.
+ *
+ * @since 1.7.0
+ */
+public class ResourceWriter {
+
+	/** the fields of an item, which can be selected by a request */
+	public static final Set<String> ITEM_FIELDS = Collections.unmodifiableSet(
+			new LinkedHashSet<String>(Arrays.asList("type", "name", "state", "link")));
+
+	private ResourceWriter() {
+		// prevent instantiation
+	}
+
+	/**
+	 * Writes a list of items.
+	 *
+	 * @param writer the writer
+	 * @param items the items to write
+	 * @param uriPath the base URI of the links
+	 * @param fields the fields to write or <code>null</code> to write all fields
+	 */
+	public static void writeItems(StructureWriter writer, Collection<Item> items, String uriPath, Set<String> fields) throws IOException {
+		String itemsUri = getItemsUri(uriPath);
+		writer.startDocument("items");
+		writer.startList("item", items.size());
+		for (Item item : items) {
+			writer.startEntry();
+			writeItemFields(writer, item, itemsUri, fields);
+			writer.endEntry();
+		}
+		writer.endList();
+		writer.endDocument();
+	}
+
+	/**
+	 * Writes a single item. The members of a group item are written as well.
+	 *
+	 * @param writer the writer
+	 * @param item the item to write
+	 * @param uriPath the base URI of the links
+	 */
+	public static void writeItem(StructureWriter writer, Item item, String uriPath) throws IOException {
+		String itemsUri = getItemsUri(uriPath);
+		writer.startDocument("item");
+		writeItemFields(writer, item, itemsUri, null);
+		if (item instanceof GroupItem) {
+			List<Item> members = ((GroupItem) item).getMembers();
+			writer.startList("members", members.size());
+			for (Item member : members) {
+				writer.startEntry();
+				writeItemFields(writer, member, itemsUri, null);
+				writer.endEntry();
+			}
+			writer.endList();
+		}
+		writer.endDocument();
+	}
+
+	/**
+	 * Writes a list of sitemaps.
+	 */
+	public static void writeSitemaps(StructureWriter writer, Collection<SitemapBean> sitemaps) throws IOException {
+		writer.startDocument("sitemaps");
+		writer.startList("sitemap", sitemaps.size());
+		for (SitemapBean sitemap : sitemaps) {
+			writer.startEntry();
+			writeSitemapFields(writer, sitemap);
+			writer.endEntry();
+		}
+		writer.endList();
+		writer.endDocument();
+	}
+
+	/**
+	 * Writes a sitemap together with its homepage.
+	 */
+	public static void writeSitemap(StructureWriter writer, SitemapBean sitemap) throws IOException {
+		writer.startDocument("sitemap");
+		writeSitemapFields(writer, sitemap);
+		writer.endDocument();
+	}
+
+	/**
+	 * Writes a page together with its widgets.
+	 */
+	public static void writePage(StructureWriter writer, PageBean page) throws IOException {
+		writer.startDocument("page");
+		writePageFields(writer, page);
+		writer.endDocument();
+	}
+
+	private static String getItemsUri(String uriPath) {
+		return UriBuilder.fromUri(uriPath).path(ItemResource.PATH_ITEMS).build().toASCIIString();
+	}
+
+	private static void writeItemFields(StructureWriter writer, Item item, String itemsUri, Set<String> fields) throws IOException {
+		// item names only consist of characters which need not be encoded in a URI
+		if (fields == null || fields.contains("type")) {
+			writer.field("type", item.getClass().getSimpleName());
+		}
+		if (fields == null || fields.contains("name")) {
+			writer.field("name", item.getName());
+		}
+		if (fields == null || fields.contains("state")) {
+			writer.field("state", item.getState().toString());
+		}
+		if (fields == null || fields.contains("link")) {
+			writer.field("link", itemsUri + "/" + item.getName());
+		}
+	}
+
+	private static void writeSitemapFields(StructureWriter writer, SitemapBean sitemap) throws IOException {
+		writer.field("name", sitemap.name);
+		writer.field("icon", sitemap.icon);
+		writer.field("label", sitemap.label);
+		writer.field("link", sitemap.link);
+		if (sitemap.homepage != null) {
+			writer.startObject("homepage");
+			writePageFields(writer, sitemap.homepage);
+			writer.endObject();
+		}
+	}
+
+	private static void writePageFields(StructureWriter writer, PageBean page) throws IOException {
+		writer.field("id", page.id);
+		writer.field("title", page.title);
+		writer.field("icon", page.icon);
+		writer.field("link", page.link);
+		if (page.parent != null) {
+			writer.startObject("parent");
+			writePageFields(writer, page.parent);
+			writer.endObject();
+		}
+		writer.field("leaf", page.leaf);
+		writeWidgets(writer, page.widgets);
+	}
+
+	private static void writeWidgets(StructureWriter writer, List<WidgetBean> widgets) throws IOException {
+		if (widgets == null || widgets.isEmpty()) {
+			return;
+		}
+		writer.startList("widget", widgets.size());
+		for (WidgetBean widget : widgets) {
+			writer.startEntry();
+			writeWidgetFields(writer, widget);
+			writer.endEntry();
+		}
+		writer.endList();
+	}
+
+	private static void writeWidgetFields(StructureWriter writer, WidgetBean widget) throws IOException {
+		writer.field("widgetId", widget.widgetId);
+		writer.field("type", widget.type);
+		writer.field("name", widget.name);
+		writer.field("label", widget.label);
+		writer.field("icon", widget.icon);
+		writer.field("labelcolor", widget.labelcolor);
+		writer.field("valuecolor", widget.valuecolor);
+		if (widget.mappings != null && !widget.mappings.isEmpty()) {
+			writer.startList("mapping", widget.mappings.size());
+			for (MappingBean mapping : widget.mappings) {
+				writer.startEntry();
+				writer.field("command", mapping.command);
+				writer.field("label", mapping.label);
+				writer.endEntry();
+			}
+			writer.endList();
+		}
+		writer.field("switchSupport", widget.switchSupport);
+		writer.field("sendFrequency", widget.sendFrequency);
+		writer.field("separator", widget.separator);
+		writer.field("refresh", widget.refresh);
+		writer.field("height", widget.height);
+		writer.field("minValue", widget.minValue);
+		writer.field("maxValue", widget.maxValue);
+		writer.field("step", widget.step);
+		writer.field("url", widget.url);
+		writer.field("encoding", widget.encoding);
+		writer.field("service", widget.service);
+		writer.field("period", widget.period);
+		if (widget.item != null) {
+			writer.startObject("item");
+			writeItemBeanFields(writer, widget.item);
+			writer.endObject();
+		}
+		if (widget.linkedPage != null) {
+			writer.startObject("linkedPage");
+			writePageFields(writer, widget.linkedPage);
+			writer.endObject();
+		}
+		writeWidgets(writer, widget.widgets);
+	}
+
+	private static void writeItemBeanFields(StructureWriter writer, ItemBean item) throws IOException {
+		writer.field("type", item.type);
+		writer.field("name", item.name);
+		writer.field("state", item.state);
+		writer.field("link", item.link);
+	}
+
+}
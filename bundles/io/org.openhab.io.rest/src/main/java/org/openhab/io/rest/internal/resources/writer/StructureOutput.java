@@ -0,0 +1,72 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.resources.writer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * A response entity which is written by a {@link StructureWriter} while the response is
+ * sent, optionally compressed with gzip.
+ *
+ * @since 1.7.0
+ */
+public abstract class StructureOutput implements StreamingOutput {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final String mediaType;
+
+	private final String callback;
+
+	private boolean gzip;
+
+	/**
+	 * @param mediaType the media type of the response
+	 * @param callback the name of the JSONP callback function
+	 */
+	public StructureOutput(String mediaType, String callback) {
+		this.mediaType = mediaType;
+		this.callback = callback;
+	}
+
+	/**
+	 * @param gzip whether the output is compressed with gzip
+	 */
+	public void setGzip(boolean gzip) {
+		this.gzip = gzip;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void write(OutputStream output) throws IOException {
+		if (gzip) {
+			GZIPOutputStream out = new GZIPOutputStream(output, BUFFER_SIZE);
+			write(StructureWriter.create(out, mediaType, callback));
+			out.finish();
+		} else {
+			OutputStream out = new BufferedOutputStream(output, BUFFER_SIZE);
+			write(StructureWriter.create(out, mediaType, callback));
+			out.flush();
+		}
+	}
+
+	/**
+	 * Writes the entity.
+	 *
+	 * @param writer the writer for the media type of the response
+	 */
+	protected abstract void write(StructureWriter writer) throws IOException;
+
+}
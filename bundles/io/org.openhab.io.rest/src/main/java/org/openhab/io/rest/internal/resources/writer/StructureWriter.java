@@ -0,0 +1,101 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.resources.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+
+import javax.ws.rs.core.MediaType;
+
+import org.openhab.io.rest.internal.resources.MediaTypeHelper;
+
+/**
+ * A structure writer streams a tree of objects, lists and fields to an output stream,
+ * without building the tree in memory first. Its output is the same as the output of the
+ * JAXB beans of this bundle, which are marshalled by Jersey: elements in XML and the
+ * "mapped" JSON notation, in which all values are strings and a list with a single entry
+ * is written as an object instead of an array.
+ *
+ * @since 1.7.0
+ */
+public abstract class StructureWriter {
+
+	/**
+	 * Creates a writer for the given media type.
+	 *
+	 * @param out the stream to write to, which is not closed by the writer
+	 * @param mediaType one of the media types returned by {@link MediaTypeHelper#getResponseMediaType}
+	 * @param callback the name of the JSONP callback function, only used for {@link MediaTypeHelper#APPLICATION_X_JAVASCRIPT}
+	 * @return the writer
+	 * @throws IOException if the writer cannot be created
+	 */
+	public static StructureWriter create(OutputStream out, String mediaType, String callback) throws IOException {
+		if (MediaType.APPLICATION_XML.equals(mediaType)) {
+			return new XmlStructureWriter(out);
+		} else if (MediaTypeHelper.APPLICATION_X_JAVASCRIPT.equals(mediaType)) {
+			return new JsonStructureWriter(out, callback);
+		} else {
+			return new JsonStructureWriter(out, null);
+		}
+	}
+
+	/**
+	 * Starts the document with its root object.
+	 *
+	 * @param name the name of the root object, which is only written to XML
+	 */
+	public abstract void startDocument(String name) throws IOException;
+
+	/**
+	 * Ends the root object and flushes the document.
+	 */
+	public abstract void endDocument() throws IOException;
+
+	/**
+	 * Starts a nested object, which has to be ended by {@link #endObject()}.
+	 */
+	public abstract void startObject(String name) throws IOException;
+
+	public abstract void endObject() throws IOException;
+
+	/**
+	 * Starts a list, whose entries are written by {@link #startEntry()} and {@link #endEntry()}.
+	 *
+	 * @param name the name of the list entries
+	 * @param size the number of entries that will be written
+	 */
+	public abstract void startList(String name, int size) throws IOException;
+
+	public abstract void endList() throws IOException;
+
+	/**
+	 * Starts an entry of the current list, which is an object.
+	 */
+	public abstract void startEntry() throws IOException;
+
+	public abstract void endEntry() throws IOException;
+
+	/**
+	 * Writes a field of the current object.
+	 *
+	 * @param name the name of the field
+	 * @param value the value of the field; if it is <code>null</code>, the field is left out
+	 */
+	public abstract void field(String name, Object value) throws IOException;
+
+	protected static String toString(Object value) {
+		if (value instanceof BigDecimal) {
+			return ((BigDecimal) value).toPlainString();
+		} else {
+			return value.toString();
+		}
+	}
+
+}
@@ -0,0 +1,114 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.io.rest.internal.resources.writer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.LinkedList;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes a structure as XML, in which every list entry is an element named after its list.
+ *
+ * @since 1.7.0
+ */
+class XmlStructureWriter extends StructureWriter {
+
+	private static final XMLOutputFactory factory = XMLOutputFactory.newInstance();
+
+	private final XMLStreamWriter writer;
+
+	/** the entry names of the open lists */
+	private final LinkedList<String> lists = new LinkedList<String>();
+
+	XmlStructureWriter(OutputStream out) throws IOException {
+		try {
+			writer = factory.createXMLStreamWriter(out, "UTF-8");
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public void startDocument(String name) throws IOException {
+		try {
+			writer.writeStartDocument("UTF-8", "1.0");
+			writer.writeStartElement(name);
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public void endDocument() throws IOException {
+		try {
+			writer.writeEndElement();
+			writer.writeEndDocument();
+			writer.flush();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public void startObject(String name) throws IOException {
+		try {
+			writer.writeStartElement(name);
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public void endObject() throws IOException {
+		try {
+			writer.writeEndElement();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public void startList(String name, int size) {
+		lists.addFirst(name);
+	}
+
+	@Override
+	public void endList() {
+		lists.removeFirst();
+	}
+
+	@Override
+	public void startEntry() throws IOException {
+		startObject(lists.getFirst());
+	}
+
+	@Override
+	public void endEntry() throws IOException {
+		endObject();
+	}
+
+	@Override
+	public void field(String name, Object value) throws IOException {
+		if (value == null) {
+			return;
+		}
+		try {
+			writer.writeStartElement(name);
+			writer.writeCharacters(toString(value));
+			writer.writeEndElement();
+		} catch (XMLStreamException e) {
+			throw new IOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openhab.core.scriptengine.ScriptEngine;
+import org.openhab.model.rule.internal.engine.RuleExecutor.RuleStatistics;
+import org.openhab.model.rule.internal.engine.RuleExecutor.ScriptEngineProvider;
+import org.openhab.model.rule.rules.Rule;
+
+/**
+ * @since 1.7.0
+ */
+public class RuleExecutorTest {
+
+	private final BlockingScriptEngineProvider scriptEngineProvider = new BlockingScriptEngineProvider();
+
+	private RuleExecutor executor;
+
+	@After
+	public void tearDown() {
+		scriptEngineProvider.release();
+		if(executor!=null) {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testPoolGrowsUpToMaximumIfAllThreadsAreBusy() throws InterruptedException {
+		executor = new RuleExecutor(scriptEngineProvider, 1, 3, 10);
+		for(int i=0; i<3; i++) {
+			executor.execute(createRule("Rule" + i), null, null);
+			scriptEngineProvider.awaitRunning(i + 1);
+		}
+		executor.execute(createRule("Rule3"), null, null);
+
+		assertEquals(3, executor.getActiveThreadCount());
+		assertEquals(3, executor.getCorePoolSize());
+		assertEquals(1, executor.getWaitingCount());
+
+		scriptEngineProvider.release();
+		awaitExecutions(4);
+		awaitCorePoolSize(1);
+	}
+
+	@Test
+	public void testSetThreadsResizesPool() throws InterruptedException {
+		executor = new RuleExecutor(scriptEngineProvider, 1, 1, 10);
+		executor.execute(createRule("Rule0"), null, null);
+		scriptEngineProvider.awaitRunning(1);
+		executor.execute(createRule("Rule1"), null, null);
+		executor.execute(createRule("Rule2"), null, null);
+		assertEquals(2, executor.getWaitingCount());
+
+		executor.setThreads(3, 3);
+		scriptEngineProvider.awaitRunning(3);
+		assertEquals(0, executor.getWaitingCount());
+
+		executor.setThreads(1, 1);
+		scriptEngineProvider.release();
+		awaitExecutions(3);
+		awaitCorePoolSize(1);
+	}
+
+	@Test
+	public void testExecutionsAfterShutdownAreRejectedQuietly() throws InterruptedException {
+		executor = new RuleExecutor(scriptEngineProvider, 1, 1, 10);
+		Rule rule = createRule("Rule");
+		executor.execute(rule, null, null);
+		scriptEngineProvider.awaitRunning(1);
+		executor.execute(rule, null, null);
+
+		executor.shutdown();
+		executor.execute(createRule("Other"), null, null);
+		scriptEngineProvider.release();
+
+		// the pending execution is still processed, the rejected one is not queued at all
+		awaitExecutions(2);
+		List<RuleStatistics> statistics = executor.getStatistics();
+		assertEquals(1, statistics.size());
+		assertEquals("Rule", statistics.get(0).getRuleName());
+		assertEquals(0, statistics.get(0).getPending());
+	}
+
+	private void awaitExecutions(int count) throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		long executions = 0;
+		while(System.currentTimeMillis() < end) {
+			executions = 0;
+			for(RuleStatistics statistics : executor.getStatistics()) {
+				executions += statistics.getExecutions();
+			}
+			if(executions >= count) {
+				break;
+			}
+			Thread.sleep(10);
+		}
+		assertEquals(count, executions);
+	}
+
+	private void awaitCorePoolSize(int corePoolSize) throws InterruptedException {
+		long end = System.currentTimeMillis() + 5000;
+		while(executor.getCorePoolSize()!=corePoolSize && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		assertEquals(corePoolSize, executor.getCorePoolSize());
+	}
+
+	private static Rule createRule(final String name) {
+		return (Rule) Proxy.newProxyInstance(RuleExecutorTest.class.getClassLoader(), new Class<?>[] { Rule.class },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if(method.getName().equals("getName")) {
+							return name;
+						} else if(method.getName().equals("equals")) {
+							return proxy==args[0];
+						} else if(method.getName().equals("hashCode")) {
+							return System.identityHashCode(proxy);
+						}
+						return null;
+					}
+				});
+	}
+
+	/**
+	 * Keeps every execution waiting until {@link #release()} is called. As it provides
+	 * no script engine, the executions fail afterwards without running a script.
+	 */
+	private static class BlockingScriptEngineProvider implements ScriptEngineProvider {
+
+		private int running = 0;
+
+		private boolean released = false;
+
+		public synchronized ScriptEngine getScriptEngine() {
+			running++;
+			notifyAll();
+			while(!released) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+			return null;
+		}
+
+		synchronized void awaitRunning(int count) throws InterruptedException {
+			long end = System.currentTimeMillis() + 5000;
+			while(running < count && System.currentTimeMillis() < end) {
+				wait(100);
+			}
+			assertEquals(count, running);
+		}
+
+		synchronized void release() {
+			released = true;
+			notifyAll();
+		}
+	}
+
+}
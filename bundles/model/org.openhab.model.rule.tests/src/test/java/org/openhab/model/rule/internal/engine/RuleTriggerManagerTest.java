@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes.CHANGE;
+import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes.COMMAND;
+import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerTypes.UPDATE;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.util.BasicEList;
+import org.eclipse.emf.common.util.EList;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.items.SwitchItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.State;
+import org.openhab.model.rule.rules.ChangedEventTrigger;
+import org.openhab.model.rule.rules.CommandEventTrigger;
+import org.openhab.model.rule.rules.EventTrigger;
+import org.openhab.model.rule.rules.Rule;
+import org.openhab.model.rule.rules.UpdateEventTrigger;
+
+/**
+ * @since 1.7.0
+ */
+public class RuleTriggerManagerTest {
+
+	private final SwitchItem light = new SwitchItem("Light");
+
+	private final NumberItem temperature = new NumberItem("Temperature");
+
+	private RuleTriggerManager triggerManager;
+
+	@Before
+	public void setUp() {
+		triggerManager = new RuleTriggerManager();
+	}
+
+	@Test
+	public void testUpdateTriggerWithoutStateMatchesAnyState() {
+		triggerManager.addRule(createRule("Any", createTrigger(UpdateEventTrigger.class, "Light", null)));
+
+		assertEquals("[Any]", getNames(triggerManager.getRules(UPDATE, light, (State) OnOffType.ON)));
+		assertEquals("[Any]", getNames(triggerManager.getRules(UPDATE, light, (State) OnOffType.OFF)));
+		assertEquals("[]", getNames(triggerManager.getRules(UPDATE, temperature, (State) new DecimalType(1))));
+	}
+
+	@Test
+	public void testUpdateTriggerWithStateMatchesOnlyThatState() {
+		triggerManager.addRule(createRule("On", createTrigger(UpdateEventTrigger.class, "Light", "ON")));
+
+		assertEquals("[On]", getNames(triggerManager.getRules(UPDATE, light, (State) OnOffType.ON)));
+		assertEquals("[]", getNames(triggerManager.getRules(UPDATE, light, (State) OnOffType.OFF)));
+	}
+
+	@Test
+	public void testDecimalTriggerStateMatchesStateOfOtherScale() {
+		triggerManager.addRule(createRule("One", createTrigger(UpdateEventTrigger.class, "Temperature", "1")));
+		triggerManager.addRule(createRule("OnePointZero", createTrigger(UpdateEventTrigger.class, "Temperature", "1.0")));
+
+		assertEquals("[One, OnePointZero]", getNames(triggerManager.getRules(UPDATE, temperature, (State) new DecimalType("1"))));
+		assertEquals("[One, OnePointZero]", getNames(triggerManager.getRules(UPDATE, temperature, (State) new DecimalType("1.0"))));
+		assertEquals("[]", getNames(triggerManager.getRules(UPDATE, temperature, (State) new DecimalType("1.5"))));
+	}
+
+	@Test
+	public void testUnparsableTriggerStateNeverMatches() {
+		triggerManager.addRule(createRule("Invalid", createTrigger(UpdateEventTrigger.class, "Temperature", "warm")));
+
+		assertEquals("[]", getNames(triggerManager.getRules(UPDATE, temperature, (State) new DecimalType(1))));
+	}
+
+	@Test
+	public void testChangedTriggerWithoutStatesMatchesAnyChange() {
+		triggerManager.addRule(createRule("Any", createChangedTrigger("Light", null, null)));
+
+		assertEquals("[Any]", getNames(triggerManager.getRules(CHANGE, light, OnOffType.OFF, OnOffType.ON)));
+		assertEquals("[Any]", getNames(triggerManager.getRules(CHANGE, light, OnOffType.ON, OnOffType.OFF)));
+	}
+
+	@Test
+	public void testChangedTriggerWithStatesMatchesOnlyThoseStates() {
+		triggerManager.addRule(createRule("FromOffToOn", createChangedTrigger("Light", "OFF", "ON")));
+		triggerManager.addRule(createRule("ToOn", createChangedTrigger("Light", null, "ON")));
+		triggerManager.addRule(createRule("FromOn", createChangedTrigger("Light", "ON", null)));
+
+		assertEquals("[FromOffToOn, ToOn]", getNames(triggerManager.getRules(CHANGE, light, OnOffType.OFF, OnOffType.ON)));
+		assertEquals("[FromOn]", getNames(triggerManager.getRules(CHANGE, light, OnOffType.ON, OnOffType.OFF)));
+	}
+
+	@Test
+	public void testChangedTriggerMatchesDecimalStatesOfOtherScale() {
+		triggerManager.addRule(createRule("FromOneToTwo", createChangedTrigger("Temperature", "1", "2.0")));
+
+		assertEquals("[FromOneToTwo]", getNames(triggerManager.getRules(CHANGE, temperature, new DecimalType("1.00"), new DecimalType("2"))));
+		assertEquals("[]", getNames(triggerManager.getRules(CHANGE, temperature, new DecimalType("2"), new DecimalType("1"))));
+	}
+
+	@Test
+	public void testCommandTriggerWithoutCommandMatchesAnyCommand() {
+		triggerManager.addRule(createRule("Any", createTrigger(CommandEventTrigger.class, "Light", null)));
+
+		assertEquals("[Any]", getNames(triggerManager.getRules(COMMAND, light, (Command) OnOffType.ON)));
+		assertEquals("[Any]", getNames(triggerManager.getRules(COMMAND, light, (Command) OnOffType.OFF)));
+	}
+
+	@Test
+	public void testCommandTriggerWithCommandMatchesOnlyThatCommand() {
+		triggerManager.addRule(createRule("On", createTrigger(CommandEventTrigger.class, "Light", "ON")));
+		triggerManager.addRule(createRule("One", createTrigger(CommandEventTrigger.class, "Temperature", "1")));
+
+		assertEquals("[On]", getNames(triggerManager.getRules(COMMAND, light, (Command) OnOffType.ON)));
+		assertEquals("[]", getNames(triggerManager.getRules(COMMAND, light, (Command) OnOffType.OFF)));
+		assertEquals("[One]", getNames(triggerManager.getRules(COMMAND, temperature, (Command) new DecimalType("1.0"))));
+		assertEquals("[]", getNames(triggerManager.getRules(COMMAND, temperature, (Command) new DecimalType("2"))));
+	}
+
+	@Test
+	public void testRuleIsReturnedOncePerMatchingTrigger() {
+		triggerManager.addRule(createRule("Twice", createTrigger(UpdateEventTrigger.class, "Light", null),
+				createTrigger(UpdateEventTrigger.class, "Light", "ON")));
+
+		assertEquals("[Twice, Twice]", getNames(triggerManager.getRules(UPDATE, light, (State) OnOffType.ON)));
+		assertEquals("[Twice]", getNames(triggerManager.getRules(UPDATE, light, (State) OnOffType.OFF)));
+	}
+
+	@Test
+	public void testAddedRuleIsMatchedAfterEarlierLookup() {
+		triggerManager.addRule(createRule("First", createTrigger(UpdateEventTrigger.class, "Light", "ON")));
+		assertEquals("[First]", getNames(triggerManager.getRules(UPDATE, light, (State) OnOffType.ON)));
+
+		triggerManager.addRule(createRule("Second", createTrigger(UpdateEventTrigger.class, "Light", "ON")));
+		assertEquals("[First, Second]", getNames(triggerManager.getRules(UPDATE, light, (State) OnOffType.ON)));
+	}
+
+	/**
+	 * @return the sorted names of the rules, as the rules of an item are not kept in any order
+	 */
+	private static String getNames(Iterable<Rule> rules) {
+		List<String> names = new ArrayList<String>();
+		for(Rule rule : rules) {
+			names.add(rule.getName());
+		}
+		Collections.sort(names);
+		return names.toString();
+	}
+
+	private static Rule createRule(String name, EventTrigger... triggers) {
+		Map<String, Object> values = new HashMap<String, Object>();
+		values.put("getName", name);
+		EList<EventTrigger> eventTriggers = new BasicEList<EventTrigger>();
+		Collections.addAll(eventTriggers, triggers);
+		values.put("getEventtrigger", eventTriggers);
+		return createProxy(Rule.class, values);
+	}
+
+	/**
+	 * Creates an update or command trigger.
+	 */
+	private static <T extends EventTrigger> T createTrigger(Class<T> type, String itemName, String value) {
+		Map<String, Object> values = new HashMap<String, Object>();
+		values.put("getItem", itemName);
+		values.put(type==CommandEventTrigger.class ? "getCommand" : "getState", value);
+		return createProxy(type, values);
+	}
+
+	private static ChangedEventTrigger createChangedTrigger(String itemName, String oldState, String newState) {
+		Map<String, Object> values = new HashMap<String, Object>();
+		values.put("getItem", itemName);
+		values.put("getOldState", oldState);
+		values.put("getNewState", newState);
+		return createProxy(ChangedEventTrigger.class, values);
+	}
+
+	/**
+	 * Creates a model object, whose getters return the given values.
+	 */
+	private static <T> T createProxy(Class<T> type, final Map<String, Object> values) {
+		return type.cast(Proxy.newProxyInstance(RuleTriggerManagerTest.class.getClassLoader(), new Class<?>[] { type },
+				new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						if(method.getName().equals("equals")) {
+							return proxy==args[0];
+						} else if(method.getName().equals("hashCode")) {
+							return System.identityHashCode(proxy);
+						}
+						return values.get(method.getName());
+					}
+				}));
+	}
+
+}
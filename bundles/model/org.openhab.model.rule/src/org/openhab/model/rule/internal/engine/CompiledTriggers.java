@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.openhab.core.types.Type;
+import org.openhab.model.rule.rules.Rule;
+
+/**
+ * Compiled triggers hold the rules that are triggered by a single item for a single
+ * trigger type. The states and commands of the triggers are parsed once when the
+ * triggers are compiled, and the resulting rule lists are prepared for every combination
+ * of trigger values, so that a lookup neither parses nor allocates anything.
+ *
+ * A trigger matches up to two values: the state or command of an event and, for
+ * "changed" triggers, the previous state of the item. A trigger value of <code>null</code>
+ * matches any value.
+ *
+ * Values are compared by {@link Object#equals(Object)} against the distinct trigger values
+ * of the item, as number types consider values equal that differ in their scale
+ * (and thus in their hash codes).
+ *
+ * A rule is returned once for every trigger that matches, so a rule with several
+ * matching triggers is executed several times, just as if its triggers had been
+ * evaluated one by one.
+ *
+ * @since 1.7.0
+ */
+public class CompiledTriggers {
+
+	private final int version;
+
+	private final List<?> acceptedTypes;
+
+	private final Type[] firstValues;
+
+	private final Row[] rows;
+
+	private final Row anyRow;
+
+	private CompiledTriggers(int version, List<?> acceptedTypes, Type[] firstValues, Row[] rows, Row anyRow) {
+		this.version = version;
+		this.acceptedTypes = acceptedTypes;
+		this.firstValues = firstValues;
+		this.rows = rows;
+		this.anyRow = anyRow;
+	}
+
+	/**
+	 * Checks whether these triggers have been compiled from the current set of rules
+	 * and for the given accepted types of the item.
+	 *
+	 * @param version the current version of the rule set
+	 * @param acceptedTypes the types the item currently accepts
+	 * @return true, if these triggers can be used
+	 */
+	public boolean isValid(int version, List<?> acceptedTypes) {
+		return this.version==version &&
+				(this.acceptedTypes==acceptedTypes || (this.acceptedTypes!=null && this.acceptedTypes.equals(acceptedTypes)));
+	}
+
+	/**
+	 * Returns the rules whose triggers match the given values.
+	 *
+	 * @param value the state or command of the event
+	 * @param secondValue the previous state for "changed" triggers, <code>null</code> otherwise
+	 * @return the matching rules in the order of their triggers, a rule once per matching
+	 *         trigger; never <code>null</code>
+	 */
+	public List<Rule> getRules(Type value, Type secondValue) {
+		Row row = anyRow;
+		for(int i=0; i<firstValues.length; i++) {
+			if(value.equals(firstValues[i])) {
+				row = rows[i];
+				break;
+			}
+		}
+		return row.getRules(secondValue);
+	}
+
+	/**
+	 * The rules for a single first value, by second value.
+	 */
+	private static class Row {
+
+		final Type[] secondValues;
+
+		final List<List<Rule>> rules;
+
+		final List<Rule> anyRules;
+
+		Row(Type[] secondValues, List<List<Rule>> rules, List<Rule> anyRules) {
+			this.secondValues = secondValues;
+			this.rules = rules;
+			this.anyRules = anyRules;
+		}
+
+		List<Rule> getRules(Type secondValue) {
+			if(secondValue!=null) {
+				for(int i=0; i<secondValues.length; i++) {
+					if(secondValue.equals(secondValues[i])) {
+						return rules.get(i);
+					}
+				}
+			}
+			return anyRules;
+		}
+	}
+
+	/**
+	 * Collects the parsed triggers of an item to compile them.
+	 */
+	public static class Builder {
+
+		private final int version;
+
+		private final List<?> acceptedTypes;
+
+		private final List<Rule> entryRules = new ArrayList<Rule>();
+
+		private final List<Type> entryFirstValues = new ArrayList<Type>();
+
+		private final List<Type> entrySecondValues = new ArrayList<Type>();
+
+		/**
+		 * @param version the version of the rule set the triggers are compiled from
+		 * @param acceptedTypes the types of the item the trigger values have been parsed with
+		 */
+		public Builder(int version, List<?> acceptedTypes) {
+			this.version = version;
+			this.acceptedTypes = acceptedTypes;
+		}
+
+		/**
+		 * Adds a trigger.
+		 *
+		 * @param rule the rule to trigger
+		 * @param firstValue the state or command to match, <code>null</code> for any
+		 * @param secondValue the previous state to match, <code>null</code> for any
+		 */
+		public void add(Rule rule, Type firstValue, Type secondValue) {
+			entryRules.add(rule);
+			entryFirstValues.add(firstValue);
+			entrySecondValues.add(secondValue);
+		}
+
+		public CompiledTriggers build() {
+			Type[] firstValues = distinctValues(entryFirstValues);
+			Type[] secondValues = distinctValues(entrySecondValues);
+			Row[] rows = new Row[firstValues.length];
+			for(int i=0; i<firstValues.length; i++) {
+				rows[i] = buildRow(firstValues[i], secondValues);
+			}
+			return new CompiledTriggers(version, acceptedTypes, firstValues, rows, buildRow(null, secondValues));
+		}
+
+		private Row buildRow(Type firstValue, Type[] secondValues) {
+			List<List<Rule>> rules = new ArrayList<List<Rule>>(secondValues.length);
+			for(Type secondValue : secondValues) {
+				rules.add(collectRules(firstValue, secondValue));
+			}
+			return new Row(secondValues, rules, collectRules(firstValue, null));
+		}
+
+		private List<Rule> collectRules(Type firstValue, Type secondValue) {
+			List<Rule> rules = new ArrayList<Rule>();
+			for(int i=0; i<entryRules.size(); i++) {
+				if(matches(entryFirstValues.get(i), firstValue) && matches(entrySecondValues.get(i), secondValue)) {
+					rules.add(entryRules.get(i));
+				}
+			}
+			return rules.isEmpty() ? Collections.<Rule>emptyList() : Collections.unmodifiableList(rules);
+		}
+
+		private static boolean matches(Type triggerValue, Type value) {
+			return triggerValue==null || (value!=null && value.equals(triggerValue));
+		}
+
+		private static Type[] distinctValues(List<Type> values) {
+			List<Type> distinct = new ArrayList<Type>();
+			for(Type value : values) {
+				if(value!=null && !distinct.contains(value)) {
+					distinct.add(value);
+				}
+			}
+			return distinct.toArray(new Type[distinct.size()]);
+		}
+	}
+
+}
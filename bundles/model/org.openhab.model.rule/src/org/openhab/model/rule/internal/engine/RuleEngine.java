@@ -18,10 +18,15 @@ import static org.openhab.model.rule.internal.engine.RuleTriggerManager.TriggerT
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Dictionary;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
+import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.ecore.EObject;
-import org.eclipse.xtext.naming.QualifiedName;
+import org.eclipse.osgi.framework.console.CommandInterpreter;
+import org.eclipse.osgi.framework.console.CommandProvider;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -31,14 +36,16 @@ import org.openhab.core.items.StateChangeListener;
 import org.openhab.core.scriptengine.Script;
 import org.openhab.core.scriptengine.ScriptEngine;
 import org.openhab.core.scriptengine.ScriptExecutionException;
-import org.openhab.core.scriptengine.ScriptExecutionThread;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.EventType;
 import org.openhab.core.types.State;
 import org.openhab.model.core.ModelRepository;
 import org.openhab.model.core.ModelRepositoryChangeListener;
+import org.openhab.model.rule.internal.engine.RuleExecutor.RuleStatistics;
 import org.openhab.model.rule.rules.Rule;
 import org.openhab.model.rule.rules.RuleModel;
+import org.osgi.service.cm.ConfigurationException;
+import org.osgi.service.cm.ManagedService;
 import org.osgi.service.event.Event;
 import org.osgi.service.event.EventHandler;
 import org.slf4j.Logger;
@@ -52,23 +59,49 @@ import com.google.common.collect.Lists;
  * It listens to changes to the rules folder, evaluates the trigger conditions of the rules and
  * schedules them for execution dependent on their triggering conditions.
  * 
+ * Triggered rules are executed by a {@link RuleExecutor}, whose statistics can be
+ * shown on the console with the command "rules".
+ * 
  * @author Kai Kreuzer
  * @since 0.9.0
  *
  */
 @SuppressWarnings("restriction")
-public class RuleEngine implements EventHandler, ItemRegistryChangeListener, StateChangeListener, ModelRepositoryChangeListener {
+public class RuleEngine implements EventHandler, ItemRegistryChangeListener, StateChangeListener, ModelRepositoryChangeListener,
+		ManagedService, CommandProvider {
 
 		static private final Logger logger = LoggerFactory.getLogger(RuleEngine.class);
 		
+		/** the default number of threads to execute rules with */
+		private static final int DEFAULT_THREADS = 5;
+		
+		/** the default number of threads the pool may grow to, if all threads are busy */
+		private static final int DEFAULT_MAX_THREADS = 20;
+		
+		/** the default maximum number of pending executions per rule */
+		private static final int DEFAULT_QUEUE_SIZE = 100;
+		
 		private ItemRegistry itemRegistry;
 		private ModelRepository modelRepository;
 		private ScriptEngine scriptEngine;
 
 		private RuleTriggerManager triggerManager;
+		
+		private RuleExecutor ruleExecutor;
+		
+		private int threads = DEFAULT_THREADS;
+		private int maxThreads = DEFAULT_MAX_THREADS;
+		private int queueSize = DEFAULT_QUEUE_SIZE;
+		private Set<String> concurrentRules = new HashSet<String>();
 						
 		public void activate() {
 			triggerManager = new RuleTriggerManager();
+			ruleExecutor = new RuleExecutor(new RuleExecutor.ScriptEngineProvider() {
+				public ScriptEngine getScriptEngine() {
+					return scriptEngine;
+				}
+			}, threads, maxThreads, queueSize);
+			ruleExecutor.setConcurrentRules(concurrentRules);
 
 			if(!isEnabled()) {
 				logger.info("Rule engine is disabled.");
@@ -100,6 +133,7 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 			executeRules(triggerManager.getRules(SHUTDOWN));
 			triggerManager.clearAll();
 			triggerManager = null;
+			ruleExecutor.shutdown();
 		}
 		
 		public void setItemRegistry(ItemRegistry itemRegistry) {
@@ -166,9 +200,7 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 		public void stateChanged(Item item, State oldState, State newState) {			
 			if(triggerManager!=null) {
 				Iterable<Rule> rules = triggerManager.getRules(CHANGE, item, oldState, newState);
-				RuleEvaluationContext context = new RuleEvaluationContext();
-				context.newValue(QualifiedName.create(RuleContextHelper.VAR_PREVIOUS_STATE), oldState);
-				executeRules(rules, context);
+				executeRules(rules, RuleContextHelper.VAR_PREVIOUS_STATE, oldState);
 			}
 		}
 
@@ -187,9 +219,7 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 				try {
 					Item item = itemRegistry.getItem(itemName);
 					Iterable<Rule> rules = triggerManager.getRules(COMMAND, item, command);
-					RuleEvaluationContext context = new RuleEvaluationContext();
-					context.newValue(QualifiedName.create(RuleContextHelper.VAR_RECEIVED_COMMAND), command);
-					executeRules(rules, context);
+					executeRules(rules, RuleContextHelper.VAR_RECEIVED_COMMAND, command);
 				} catch (ItemNotFoundException e) {
 					// ignore commands for non-existent items
 				}
@@ -288,29 +318,115 @@ public class RuleEngine implements EventHandler, ItemRegistryChangeListener, Sta
 			return message;
 		}
 
-		protected synchronized void executeRule(Rule rule) {
-			executeRule(rule, new RuleEvaluationContext());
+		protected void executeRule(Rule rule) {
+			executeRule(rule, null, null);
 		}
 			
-		protected synchronized void executeRule(Rule rule, RuleEvaluationContext context) {
-			Script script = scriptEngine.newScriptFromXExpression(rule.getScript());
-			
-			logger.debug("Executing rule '{}'", rule.getName());
-			
-			context.setGlobalContext(RuleContextHelper.getContext(rule));
-			
-			ScriptExecutionThread thread = new ScriptExecutionThread(rule.getName(), script, context);
-			thread.start();
+		/**
+		 * Queues a rule for its execution by the rule executor.
+		 * 
+		 * @param rule the rule to execute
+		 * @param variableName the name of the variable to pass the trigger value in, might be <code>null</code>
+		 * @param value the trigger value
+		 */
+		protected void executeRule(Rule rule, String variableName, Object value) {
+			RuleExecutor executor = ruleExecutor;
+			if(executor!=null) {
+				executor.execute(rule, variableName, value);
+			}
 		}
 
-		protected synchronized void executeRules(Iterable<Rule> rules) {
-			executeRules(rules, new RuleEvaluationContext());
+		protected void executeRules(Iterable<Rule> rules) {
+			executeRules(rules, null, null);
 		}
 		
-		protected synchronized void executeRules(Iterable<Rule> rules, RuleEvaluationContext context) {
+		protected void executeRules(Iterable<Rule> rules, String variableName, Object value) {
 			for(Rule rule : rules) {
-				executeRule(rule, context);
+				executeRule(rule, variableName, value);
+			}
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("rawtypes")
+		public void updated(Dictionary config) throws ConfigurationException {
+			int newThreads = DEFAULT_THREADS;
+			int newMaxThreads = DEFAULT_MAX_THREADS;
+			int newQueueSize = DEFAULT_QUEUE_SIZE;
+			Set<String> newConcurrentRules = new HashSet<String>();
+			if (config != null) {
+				newThreads = parsePositiveInt(config, "threads", DEFAULT_THREADS);
+				newMaxThreads = parsePositiveInt(config, "maxthreads", DEFAULT_MAX_THREADS);
+				newQueueSize = parsePositiveInt(config, "queuesize", DEFAULT_QUEUE_SIZE);
+				String concurrentString = (String) config.get("concurrentrules");
+				if (StringUtils.isNotBlank(concurrentString)) {
+					for(String ruleName : concurrentString.split(",")) {
+						if (StringUtils.isNotBlank(ruleName)) {
+							newConcurrentRules.add(ruleName.trim());
+						}
+					}
+				}
+			}
+			threads = newThreads;
+			maxThreads = newMaxThreads;
+			queueSize = newQueueSize;
+			concurrentRules = newConcurrentRules;
+			
+			RuleExecutor executor = ruleExecutor;
+			if (executor != null) {
+				executor.setThreads(threads, maxThreads);
+				executor.setQueueSize(queueSize);
+				executor.setConcurrentRules(concurrentRules);
+			}
+		}
+		
+		@SuppressWarnings("rawtypes")
+		private int parsePositiveInt(Dictionary config, String key, int defaultValue) throws ConfigurationException {
+			String value = (String) config.get(key);
+			if (StringUtils.isBlank(value)) {
+				return defaultValue;
+			}
+			try {
+				int result = Integer.parseInt(value.trim());
+				if (result > 0) {
+					return result;
+				}
+			} catch (NumberFormatException e) {
+				// handled below
+			}
+			throw new ConfigurationException(key, "The value must be a positive integer, but is '" + value + "'");
+		}
+		
+		/**
+		 * {@inheritDoc}
+		 */
+		public String getHelp() {
+			return "---openHAB rule engine---\n\trules - shows the execution statistics of all triggered rules\n";
+		}
+		
+		/**
+		 * Prints the execution statistics of the rules to the console.
+		 * 
+		 * @param interpreter the console command interpreter
+		 * @return null
+		 */
+		public Object _rules(CommandInterpreter interpreter) {
+			RuleExecutor executor = ruleExecutor;
+			if (executor == null) {
+				interpreter.println("The rule engine is not running.");
+				return null;
+			}
+			interpreter.println("Rule threads: " + executor.getActiveThreadCount() + " active of " + executor.getPoolSize() +
+					" (" + threads + " to " + Math.max(threads, maxThreads) + "), " + executor.getWaitingCount() + " rule(s) waiting");
+			List<RuleStatistics> statistics = executor.getStatistics();
+			if (statistics.isEmpty()) {
+				interpreter.println("No rule has been triggered yet.");
+			}
+			for(RuleStatistics ruleStatistics : statistics) {
+				interpreter.println(ruleStatistics.toString());
 			}
+			return null;
 		}
 				
 		/**
@@ -0,0 +1,525 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.rule.internal.engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.xtext.naming.QualifiedName;
+import org.openhab.core.scriptengine.Script;
+import org.openhab.core.scriptengine.ScriptEngine;
+import org.openhab.core.scriptengine.ScriptExecutionException;
+import org.openhab.core.service.NamedThreadFactory;
+import org.openhab.model.rule.rules.Rule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The rule executor runs triggered rules on a bounded pool of threads.
+ *
+ * The pool keeps the configured number of threads. If all of them are busy, e.g. because
+ * rules are sleeping, while further rules are waiting for a thread, it grows by one thread
+ * at a time up to the configured maximum. As soon as no rule is waiting anymore, it shrinks
+ * back to the configured number of threads. A warning is logged if rules have to wait,
+ * because the maximum has been reached.
+ *
+ * Every rule has its own queue of pending executions. A rule is executed by at most
+ * one thread at a time, so that its executions do not overlap and keep the order
+ * of their triggers. Only rules that have been explicitly configured as concurrent
+ * may be executed by several threads at once.
+ *
+ * The queue of a rule is bounded. If it is full, a new trigger is coalesced with
+ * a pending one: it replaces a pending execution with the same trigger value or,
+ * if there is none, the most recent pending execution.
+ *
+ * @since 1.7.0
+ */
+@SuppressWarnings("restriction")
+public class RuleExecutor {
+
+	private static final Logger logger = LoggerFactory.getLogger(RuleExecutor.class);
+
+	private final ScriptEngineProvider scriptEngineProvider;
+
+	private final ThreadPoolExecutor pool;
+
+	/** the execution queues by the name of the rule file and the rule name, see {@link #getQueueKey(Rule)} */
+	private final Map<String, RuleQueue> queues = new HashMap<String, RuleQueue>();
+
+	/** the number of threads the pool keeps */
+	private volatile int threads;
+
+	/** the number of threads the pool may grow to, if rules are waiting for a thread */
+	private volatile int maxThreads;
+
+	/** whether the waiting rules of a saturated pool have been reported since it was saturated */
+	private boolean saturationReported = false;
+
+	private volatile int queueSize;
+
+	private volatile Set<String> concurrentRules = Collections.emptySet();
+
+	/**
+	 * Provides the script engine to parse the rule scripts with, which might
+	 * change while the executor is running.
+	 */
+	public interface ScriptEngineProvider {
+		ScriptEngine getScriptEngine();
+	}
+
+	/**
+	 * @param scriptEngineProvider provides the script engine to use
+	 * @param threads the number of threads to execute rules with
+	 * @param maxThreads the number of threads the pool may grow to if all threads are busy
+	 * @param queueSize the maximum number of pending executions per rule
+	 */
+	public RuleExecutor(ScriptEngineProvider scriptEngineProvider, int threads, int maxThreads, int queueSize) {
+		this.scriptEngineProvider = scriptEngineProvider;
+		this.threads = threads;
+		this.maxThreads = Math.max(threads, maxThreads);
+		this.queueSize = queueSize;
+		this.pool = new ThreadPoolExecutor(threads, this.maxThreads, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("openHAB-rules"));
+		this.pool.allowCoreThreadTimeOut(true);
+	}
+
+	/**
+	 * Changes the number of threads rules are executed with.
+	 *
+	 * @param threads the new number of threads
+	 * @param maxThreads the new number of threads the pool may grow to if all threads are busy
+	 */
+	public synchronized void setThreads(int threads, int maxThreads) {
+		this.threads = threads;
+		this.maxThreads = Math.max(threads, maxThreads);
+		if(this.maxThreads > pool.getMaximumPoolSize()) {
+			pool.setMaximumPoolSize(this.maxThreads);
+			pool.setCorePoolSize(threads);
+		} else {
+			pool.setCorePoolSize(threads);
+			pool.setMaximumPoolSize(this.maxThreads);
+		}
+		adjustPoolSize();
+	}
+
+	/**
+	 * Grows the pool by one thread if all of its threads are busy while rules are waiting
+	 * for a thread, and shrinks it back to the configured number of threads as soon as no
+	 * rule is waiting anymore.
+	 */
+	private synchronized void adjustPoolSize() {
+		int waiting = pool.getQueue().size();
+		int corePoolSize = pool.getCorePoolSize();
+		if(waiting==0) {
+			if(corePoolSize > threads) {
+				pool.setCorePoolSize(threads);
+			}
+			saturationReported = false;
+		} else if(pool.getActiveCount() >= corePoolSize) {
+			if(corePoolSize < maxThreads) {
+				pool.setCorePoolSize(corePoolSize + 1);
+				logger.debug("All {} rule threads are busy, added another thread.", corePoolSize);
+			} else if(!saturationReported) {
+				saturationReported = true;
+				logger.warn("All {} rule threads are busy, {} rule(s) are waiting for a thread. " +
+						"Long running rules might have to be shortened or 'rules:maxthreads' to be raised.", corePoolSize, waiting);
+			}
+		}
+	}
+
+	/**
+	 * Changes the maximum number of pending executions per rule.
+	 *
+	 * @param queueSize the new queue size
+	 */
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	/**
+	 * Defines the rules that may be executed by several threads at once.
+	 *
+	 * @param ruleNames the names of the concurrent rules
+	 */
+	public void setConcurrentRules(Set<String> ruleNames) {
+		this.concurrentRules = Collections.unmodifiableSet(new HashSet<String>(ruleNames));
+	}
+
+	/**
+	 * Queues the execution of a rule.
+	 *
+	 * @param rule the rule to execute
+	 * @param variableName the name of the variable that holds the trigger value,
+	 * <code>null</code> if there is none
+	 * @param value the trigger value
+	 */
+	public void execute(Rule rule, String variableName, Object value) {
+		if(pool.isShutdown()) {
+			return;
+		}
+		String key = getQueueKey(rule);
+		RuleQueue queue;
+		synchronized(queues) {
+			queue = queues.get(key);
+			if(queue==null) {
+				queue = new RuleQueue(rule.getName(), getModelName(rule));
+				queues.put(key, queue);
+			}
+		}
+		queue.add(new Execution(rule, variableName, value));
+	}
+
+	/**
+	 * Rule names are only unique within a rule file, so the queue of a rule is looked up by both.
+	 * The key stays the same when the rule file is reloaded, so that the statistics are kept.
+	 */
+	private static String getQueueKey(Rule rule) {
+		String modelName = getModelName(rule);
+		return modelName==null ? rule.getName() : modelName + "/" + rule.getName();
+	}
+
+	/**
+	 * @return the name of the file the rule is defined in, <code>null</code> if it is unknown
+	 */
+	private static String getModelName(Rule rule) {
+		return rule.eResource()!=null ? rule.eResource().getURI().lastSegment() : null;
+	}
+
+	/**
+	 * Stops the executor. Executions that are already pending are still processed.
+	 */
+	public void shutdown() {
+		pool.shutdown();
+	}
+
+	/**
+	 * @return the number of threads that are currently executing rules
+	 */
+	public int getActiveThreadCount() {
+		return pool.getActiveCount();
+	}
+
+	/**
+	 * @return the number of threads of the pool, including the idle ones
+	 */
+	public int getPoolSize() {
+		return pool.getPoolSize();
+	}
+
+	/**
+	 * @return the number of threads the pool currently keeps, idle threads above it time out
+	 */
+	int getCorePoolSize() {
+		return pool.getCorePoolSize();
+	}
+
+	/**
+	 * @return the number of triggered rules that are waiting for a thread
+	 */
+	public int getWaitingCount() {
+		return pool.getQueue().size();
+	}
+
+	/**
+	 * @return the statistics of all rules that have been triggered so far, sorted by rule file and rule name
+	 */
+	public List<RuleStatistics> getStatistics() {
+		List<String> keys;
+		synchronized(queues) {
+			keys = new ArrayList<String>(queues.keySet());
+		}
+		Collections.sort(keys);
+		List<RuleStatistics> result = new ArrayList<RuleStatistics>(keys.size());
+		for(String key : keys) {
+			RuleQueue queue;
+			synchronized(queues) {
+				queue = queues.get(key);
+			}
+			result.add(queue.getStatistics());
+		}
+		return result;
+	}
+
+	/**
+	 * Executes a single rule.
+	 * 
+	 * @return false, if the execution has failed
+	 */
+	private boolean run(Execution execution) {
+		Rule rule = execution.rule;
+		ScriptEngine scriptEngine = scriptEngineProvider.getScriptEngine();
+		if(scriptEngine==null) {
+			logger.debug("Script engine is not available, cannot execute rule '{}'", rule.getName());
+			return false;
+		}
+		logger.debug("Executing rule '{}'", rule.getName());
+		try {
+			Script script = scriptEngine.newScriptFromXExpression(rule.getScript());
+			RuleEvaluationContext context = new RuleEvaluationContext();
+			if(execution.variableName!=null) {
+				context.newValue(QualifiedName.create(execution.variableName), execution.value);
+			}
+			context.setGlobalContext(RuleContextHelper.getContext(rule));
+			script.execute(context);
+			return true;
+		} catch (ScriptExecutionException e) {
+			String msg = e.getCause()!=null ? e.getCause().getMessage() : e.getMessage();
+			if (msg==null) {
+				logger.error("Error during the execution of rule '{}'", rule.getName(), e.getCause());
+			} else {
+				logger.error("Error during the execution of rule '{}': {}", new String[] { rule.getName(), msg });
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * A triggered execution of a rule, which is waiting for a thread.
+	 */
+	private static class Execution {
+		final Rule rule;
+		final String variableName;
+		final Object value;
+		long queuedAt = System.nanoTime();
+
+		Execution(Rule rule, String variableName, Object value) {
+			this.rule = rule;
+			this.variableName = variableName;
+			this.value = value;
+		}
+
+		boolean hasSameTrigger(Execution other) {
+			return rule==other.rule && (variableName==null ? other.variableName==null : variableName.equals(other.variableName))
+					&& (value==null ? other.value==null : value.equals(other.value));
+		}
+	}
+
+	/**
+	 * The pending executions and the statistics of a single rule.
+	 */
+	private class RuleQueue implements Runnable {
+
+		private final String ruleName;
+
+		private final String modelName;
+
+		private final LinkedList<Execution> pending = new LinkedList<Execution>();
+
+		private int running = 0;
+
+		private long executions = 0;
+		private long failures = 0;
+		private long coalesced = 0;
+		private long totalExecutionTime = 0;
+		private long maxExecutionTime = 0;
+		private long totalLatency = 0;
+		private long maxLatency = 0;
+
+		RuleQueue(String ruleName, String modelName) {
+			this.ruleName = ruleName;
+			this.modelName = modelName;
+		}
+
+		void add(Execution execution) {
+			synchronized(this) {
+				if(pending.size() >= queueSize && !pending.isEmpty()) {
+					coalesce(execution);
+					return;
+				}
+				pending.addLast(execution);
+				int maxRunning = concurrentRules.contains(ruleName) ? maxThreads : 1;
+				if(running >= maxRunning) {
+					return;
+				}
+				running++;
+			}
+			try {
+				pool.execute(this);
+			} catch (RejectedExecutionException e) {
+				// the executor has been shut down meanwhile, the execution stays pending
+				synchronized(this) {
+					running--;
+				}
+				logger.debug("Rule '{}' has not been executed, as the rule executor has been shut down.", ruleName);
+				return;
+			}
+			adjustPoolSize();
+		}
+
+		/**
+		 * Replaces a pending execution with the same trigger or the most recent one.
+		 */
+		private void coalesce(Execution execution) {
+			coalesced++;
+			if(coalesced==1 || coalesced % 1000==0) {
+				logger.warn("Execution queue of rule '{}' is full, {} trigger(s) have been coalesced so far.", ruleName, coalesced);
+			}
+			ListIterator<Execution> iterator = pending.listIterator(pending.size());
+			while(iterator.hasPrevious()) {
+				Execution previous = iterator.previous();
+				if(previous.hasSameTrigger(execution)) {
+					// the pending execution keeps its position and waiting time
+					return;
+				}
+			}
+			execution.queuedAt = pending.getLast().queuedAt;
+			pending.set(pending.size() - 1, execution);
+		}
+
+		public void run() {
+			while(true) {
+				Execution execution;
+				synchronized(this) {
+					execution = pending.poll();
+					if(execution==null) {
+						running--;
+						break;
+					}
+				}
+				long start = System.nanoTime();
+				boolean failed = true;
+				try {
+					failed = !RuleExecutor.this.run(execution);
+				} catch (Throwable e) {
+					// keep the queue alive, whatever the rule has done
+					logger.error("Error during the execution of rule '" + ruleName + "'", e);
+				}
+				long end = System.nanoTime();
+				synchronized(this) {
+					long latency = start - execution.queuedAt;
+					long executionTime = end - start;
+					executions++;
+					if(failed) {
+						failures++;
+					}
+					totalLatency += latency;
+					maxLatency = Math.max(maxLatency, latency);
+					totalExecutionTime += executionTime;
+					maxExecutionTime = Math.max(maxExecutionTime, executionTime);
+				}
+			}
+			adjustPoolSize();
+		}
+
+		synchronized RuleStatistics getStatistics() {
+			return new RuleStatistics(ruleName, modelName, pending.size(), executions, failures, coalesced,
+					totalExecutionTime, maxExecutionTime, totalLatency, maxLatency);
+		}
+	}
+
+	/**
+	 * A snapshot of the execution statistics of a rule. All times are in milliseconds.
+	 */
+	public static class RuleStatistics {
+
+		private final String ruleName;
+		private final String modelName;
+		private final int pending;
+		private final long executions;
+		private final long failures;
+		private final long coalesced;
+		private final long totalExecutionTime;
+		private final long maxExecutionTime;
+		private final long totalLatency;
+		private final long maxLatency;
+
+		RuleStatistics(String ruleName, String modelName, int pending, long executions, long failures, long coalesced,
+				long totalExecutionTime, long maxExecutionTime, long totalLatency, long maxLatency) {
+			this.ruleName = ruleName;
+			this.modelName = modelName;
+			this.pending = pending;
+			this.executions = executions;
+			this.failures = failures;
+			this.coalesced = coalesced;
+			this.totalExecutionTime = totalExecutionTime;
+			this.maxExecutionTime = maxExecutionTime;
+			this.totalLatency = totalLatency;
+			this.maxLatency = maxLatency;
+		}
+
+		public String getRuleName() {
+			return ruleName;
+		}
+
+		/**
+		 * @return the name of the file the rule is defined in, <code>null</code> if it is unknown
+		 */
+		public String getModelName() {
+			return modelName;
+		}
+
+		/**
+		 * @return the number of executions that are waiting for a thread
+		 */
+		public int getPending() {
+			return pending;
+		}
+
+		/**
+		 * @return the number of finished executions, including the failed ones
+		 */
+		public long getExecutions() {
+			return executions;
+		}
+
+		public long getFailures() {
+			return failures;
+		}
+
+		/**
+		 * @return the number of triggers that have been coalesced because of a full queue
+		 */
+		public long getCoalesced() {
+			return coalesced;
+		}
+
+		public double getAverageExecutionTime() {
+			return executions==0 ? 0 : toMillis(totalExecutionTime) / executions;
+		}
+
+		public double getMaxExecutionTime() {
+			return toMillis(maxExecutionTime);
+		}
+
+		/**
+		 * @return the average time executions have waited for a thread
+		 */
+		public double getAverageLatency() {
+			return executions==0 ? 0 : toMillis(totalLatency) / executions;
+		}
+
+		public double getMaxLatency() {
+			return toMillis(maxLatency);
+		}
+
+		private static double toMillis(long nanos) {
+			return nanos / 1000000.0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%s: executions=%d, failures=%d, pending=%d, coalesced=%d, " +
+					"time avg/max=%.1f/%.1f ms, latency avg/max=%.1f/%.1f ms",
+					modelName==null ? ruleName : ruleName + " (" + modelName + ")", executions, failures, pending, coalesced,
+					getAverageExecutionTime(), getMaxExecutionTime(), getAverageLatency(), getMaxLatency());
+		}
+	}
+
+}
@@ -23,6 +23,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.openhab.core.items.Item;
@@ -61,6 +62,9 @@ import com.google.common.collect.Sets;
  * It keeps lists of which rule must be executed for which trigger and takes
  * over the evaluation of states and trigger conditions for the rule engine.
  * 
+ * The triggers of each item are compiled into {@link CompiledTriggers} on first use,
+ * so that the trigger states and commands are only parsed once and not for every event.
+ * 
  * @author Kai Kreuzer
  * @since 0.9.0
  *
@@ -85,6 +89,12 @@ public class RuleTriggerManager {
 	private List<Rule> systemStartupTriggeredRules = Lists.newArrayList();
 	private List<Rule> systemShutdownTriggeredRules = Lists.newArrayList();
 	private List<Rule> timerEventTriggeredRules = Lists.newArrayList();
+	
+	// the compiled triggers by item name, which are valid as long as the version does not change
+	private Map<String, CompiledTriggers> compiledUpdateTriggers = new ConcurrentHashMap<String, CompiledTriggers>();
+	private Map<String, CompiledTriggers> compiledChangedTriggers = new ConcurrentHashMap<String, CompiledTriggers>();
+	private Map<String, CompiledTriggers> compiledCommandTriggers = new ConcurrentHashMap<String, CompiledTriggers>();
+	private volatile int triggerVersion = 0;
 
 	// the scheduler used for timer events
 	private Scheduler scheduler;
@@ -166,83 +176,125 @@ public class RuleTriggerManager {
 	}
 
 	private Iterable<Rule> internalGetRules(TriggerTypes triggerType, Item item, Type oldType, Type newType) {
-		List<Rule> result = Lists.newArrayList();
-		Iterable<Rule> rules = getAllRules(triggerType, item.getName());
-		if(rules==null) {
-			rules = Lists.newArrayList();
-		}
 		switch(triggerType) {
 		case STARTUP:  return systemStartupTriggeredRules;
 		case SHUTDOWN: return systemShutdownTriggeredRules;
 		case TIMER :   return timerEventTriggeredRules;
 		case UPDATE:   
 			if(newType instanceof State) {
-				State state = (State) newType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof UpdateEventTrigger) {
-							UpdateEventTrigger ut = (UpdateEventTrigger) t;
-							if(ut.getItem().equals(item.getName())) {
-								if(ut.getState()!=null) {
-									State triggerState = TypeParser.parseState(item.getAcceptedDataTypes(), ut.getState());
-									if(!state.equals(triggerState)) {
-										continue;
-									}
-								}
-								result.add(rule);
-							}
-						}
-					}
-				}
+				return getCompiledTriggers(UPDATE, item).getRules(newType, null);
 			}
 			break;
 		case CHANGE:
 			if(newType instanceof State && oldType instanceof State) {
-				State newState = (State) newType;
-				State oldState = (State) oldType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof ChangedEventTrigger) {
-							ChangedEventTrigger ct = (ChangedEventTrigger) t;						
-							if(ct.getItem().equals(item.getName())) {
-								if(ct.getOldState()!=null) {
-									State triggerOldState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getOldState());
-									if(!oldState.equals(triggerOldState)) {
-										continue;
-									}								
-								}
-								if(ct.getNewState()!=null) {
-									State triggerNewState = TypeParser.parseState(item.getAcceptedDataTypes(), ct.getNewState());
-									if(!newState.equals(triggerNewState)) {
-										continue;
-									}								
-								}
-								result.add(rule);
-							}
-						}
-					}
-				}
+				return getCompiledTriggers(CHANGE, item).getRules(newType, oldType);
 			}
 			break;
 		case COMMAND:  
 			if(newType instanceof Command) {
-				Command command = (Command) newType;
-				for(Rule rule : rules) {
-					for(EventTrigger t : rule.getEventtrigger()) {
-						if (t instanceof CommandEventTrigger) {
-							CommandEventTrigger ct = (CommandEventTrigger) t;
-							Command triggerCommand = TypeParser.parseCommand(item.getAcceptedCommandTypes(), ct.getCommand());
-							if(ct.getItem().equals(item.getName()) &&
-									(triggerCommand==null || command.equals(triggerCommand))) {
-								result.add(rule);
+				return getCompiledTriggers(COMMAND, item).getRules(newType, null);
+			}
+			break;
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Returns the compiled triggers of an item for a trigger type. They are compiled,
+	 * if the rules or the accepted types of the item have changed since the last call.
+	 * 
+	 * @param triggerType one of UPDATE, CHANGE or COMMAND
+	 * @param item the item to get the triggers for
+	 * @return the compiled triggers
+	 */
+	private CompiledTriggers getCompiledTriggers(TriggerTypes triggerType, Item item) {
+		Map<String, CompiledTriggers> compiledTriggers;
+		List<?> acceptedTypes;
+		switch(triggerType) {
+			case UPDATE:  compiledTriggers = compiledUpdateTriggers; acceptedTypes = item.getAcceptedDataTypes(); break;
+			case CHANGE:  compiledTriggers = compiledChangedTriggers; acceptedTypes = item.getAcceptedDataTypes(); break;
+			default:      compiledTriggers = compiledCommandTriggers; acceptedTypes = item.getAcceptedCommandTypes(); break;
+		}
+		CompiledTriggers triggers = compiledTriggers.get(item.getName());
+		if(triggers==null || !triggers.isValid(triggerVersion, acceptedTypes)) {
+			triggers = compileTriggers(triggerType, item);
+			compiledTriggers.put(item.getName(), triggers);
+		}
+		return triggers;
+	}
+
+	/**
+	 * Parses the trigger states and commands of all rules that are triggered by an item.
+	 * 
+	 * @param triggerType one of UPDATE, CHANGE or COMMAND
+	 * @param item the item to compile the triggers for
+	 * @return the compiled triggers
+	 */
+	private synchronized CompiledTriggers compileTriggers(TriggerTypes triggerType, Item item) {
+		String itemName = item.getName();
+		List<Class<? extends State>> dataTypes = item.getAcceptedDataTypes();
+		List<Class<? extends Command>> commandTypes = item.getAcceptedCommandTypes();
+		CompiledTriggers.Builder builder = 
+				new CompiledTriggers.Builder(triggerVersion, triggerType==COMMAND ? commandTypes : dataTypes);
+		Iterable<Rule> rules = getAllRules(triggerType, itemName);
+		if(rules!=null) {
+			for(Rule rule : rules) {
+				for(EventTrigger t : rule.getEventtrigger()) {
+					if (triggerType==UPDATE && t instanceof UpdateEventTrigger) {
+						UpdateEventTrigger ut = (UpdateEventTrigger) t;
+						if(ut.getItem().equals(itemName)) {
+							State triggerState = null;
+							if(ut.getState()!=null) {
+								triggerState = TypeParser.parseState(dataTypes, ut.getState());
+								if(triggerState==null) {
+									// a state that cannot be parsed never matches
+									continue;
+								}
 							}
+							builder.add(rule, triggerState, null);
+						}
+					} else if (triggerType==CHANGE && t instanceof ChangedEventTrigger) {
+						ChangedEventTrigger ct = (ChangedEventTrigger) t;						
+						if(ct.getItem().equals(itemName)) {
+							State triggerOldState = null;
+							if(ct.getOldState()!=null) {
+								triggerOldState = TypeParser.parseState(dataTypes, ct.getOldState());
+								if(triggerOldState==null) {
+									continue;
+								}
+							}
+							State triggerNewState = null;
+							if(ct.getNewState()!=null) {
+								triggerNewState = TypeParser.parseState(dataTypes, ct.getNewState());
+								if(triggerNewState==null) {
+									continue;
+								}
+							}
+							builder.add(rule, triggerNewState, triggerOldState);
+						}
+					} else if (triggerType==COMMAND && t instanceof CommandEventTrigger) {
+						CommandEventTrigger ct = (CommandEventTrigger) t;
+						if(ct.getItem().equals(itemName)) {
+							// a command that cannot be parsed matches any command
+							Command triggerCommand = ct.getCommand()!=null ? 
+									TypeParser.parseCommand(commandTypes, ct.getCommand()) : null;
+							builder.add(rule, triggerCommand, null);
 						}
 					}
 				}
 			}
-			break;
 		}
-		return result;
+		return builder.build();
+	}
+
+	/**
+	 * Invalidates all compiled triggers, so that they are compiled again on their next use.
+	 */
+	private void invalidateCompiledTriggers() {
+		triggerVersion++;
+		compiledUpdateTriggers.clear();
+		compiledChangedTriggers.clear();
+		compiledCommandTriggers.clear();
 	}
 
 	/**
@@ -250,7 +302,8 @@ public class RuleTriggerManager {
 	 * 
 	 * @param type the trigger type 
 	 */
-	public void clear(TriggerTypes type) {
+	public synchronized void clear(TriggerTypes type) {
+		invalidateCompiledTriggers();
 		switch(type) {
 			case STARTUP:  	systemStartupTriggeredRules.clear(); break;
 			case SHUTDOWN: 	systemShutdownTriggeredRules.clear(); break;
@@ -282,6 +335,7 @@ public class RuleTriggerManager {
 	 * @param rule the rule to add
 	 */
 	public synchronized void addRule(Rule rule) {
+		invalidateCompiledTriggers();
 		for(EventTrigger t : rule.getEventtrigger()) {
 			// add the rule to the lookup map for the trigger kind
 			if(t instanceof SystemOnStartupTrigger) {
@@ -329,7 +383,8 @@ public class RuleTriggerManager {
 	 * @param type the trigger type for which the rule should be removed
 	 * @param rule the rule to add
 	 */
-	public void removeRule(TriggerTypes type, Rule rule) {
+	public synchronized void removeRule(TriggerTypes type, Rule rule) {
+		invalidateCompiledTriggers();
 		switch(type) {
 			case STARTUP:  	systemStartupTriggeredRules.remove(rule); break;
 			case SHUTDOWN: 	systemShutdownTriggeredRules.remove(rule); break;
@@ -358,7 +413,8 @@ public class RuleTriggerManager {
 	 * 
 	 * @param ruleModel the rule model
 	 */
-	public void removeRuleModel(RuleModel ruleModel) {
+	public synchronized void removeRuleModel(RuleModel ruleModel) {
+		invalidateCompiledTriggers();
 		removeRules(UPDATE, updateEventTriggeredRules.values(), ruleModel);
 		removeRules(CHANGE, changedEventTriggeredRules.values(), ruleModel);
 		removeRules(COMMAND, commandEventTriggeredRules.values(), ruleModel);
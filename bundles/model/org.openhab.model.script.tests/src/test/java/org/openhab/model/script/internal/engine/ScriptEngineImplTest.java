@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.script.internal.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.xtext.xbase.XExpression;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.scriptengine.Script;
+import org.openhab.core.scriptengine.ScriptParsingException;
+
+/**
+ * @since 1.7.0
+ */
+public class ScriptEngineImplTest {
+
+	private ScriptEngineImpl engine;
+
+	@Before
+	public void setUp() {
+		engine = new ScriptEngineImpl();
+		engine.activate();
+	}
+
+	@After
+	public void tearDown() {
+		engine.deactivate();
+	}
+
+	@Test
+	public void testCacheCountsHitsAndMisses() throws ScriptParsingException {
+		engine.newScriptFromString("1 + 1");
+		engine.newScriptFromString("1 + 1");
+		engine.newScriptFromString("1 + 2");
+		engine.newScriptFromString("1 + 1");
+
+		assertEquals(2, engine.getCachedScriptCount());
+		assertEquals(2, engine.getCacheHits());
+		assertEquals(2, engine.getCacheMisses());
+		assertEquals(0.5, engine.getCacheHitRate(), 0.001);
+	}
+
+	@Test
+	public void testEvictionRemovesResourceOfLeastRecentlyUsedScript() throws ScriptParsingException {
+		List<Resource> resources = new ArrayList<Resource>();
+		for(int i=0; i<ScriptEngineImpl.MAX_CACHED_SCRIPTS; i++) {
+			resources.add(getResource(engine.newScriptFromString(String.valueOf(i))));
+		}
+		// use the first script again, so that the second one is the least recently used
+		engine.newScriptFromString("0");
+		Resource newResource = getResource(engine.newScriptFromString(String.valueOf(ScriptEngineImpl.MAX_CACHED_SCRIPTS)));
+
+		assertEquals(ScriptEngineImpl.MAX_CACHED_SCRIPTS, engine.getCachedScriptCount());
+		assertFalse(engine.resourceSet.getResources().contains(resources.get(1)));
+		assertTrue(engine.resourceSet.getResources().contains(resources.get(0)));
+		assertTrue(engine.resourceSet.getResources().contains(resources.get(2)));
+		assertTrue(engine.resourceSet.getResources().contains(newResource));
+		assertEquals(1, engine.getCacheHits());
+		assertEquals(ScriptEngineImpl.MAX_CACHED_SCRIPTS + 1, engine.getCacheMisses());
+
+		// the evicted script has to be parsed again
+		engine.newScriptFromString("1");
+		assertEquals(1, engine.getCacheHits());
+		assertEquals(ScriptEngineImpl.MAX_CACHED_SCRIPTS + 2, engine.getCacheMisses());
+		assertEquals(ScriptEngineImpl.MAX_CACHED_SCRIPTS, engine.getCachedScriptCount());
+	}
+
+	@Test
+	public void testScriptWithSyntaxErrorIsNotCached() {
+		try {
+			engine.newScriptFromString("1 +");
+			fail();
+		} catch (ScriptParsingException e) {
+			// expected
+		}
+		assertEquals(0, engine.getCachedScriptCount());
+		assertEquals(1, engine.getCacheMisses());
+	}
+
+	@Test
+	public void testScriptIsReusedForExpression() throws ScriptParsingException {
+		XExpression expression = ((ScriptImpl) engine.newScriptFromString("1 + 1")).getXExpression();
+		Script script = engine.newScriptFromXExpression(expression);
+
+		assertSame(script, engine.newScriptFromXExpression(expression));
+		assertSame(expression, ((ScriptImpl) script).getXExpression());
+	}
+
+	@Test
+	public void testScriptIsCreatedAgainAfterRestart() throws ScriptParsingException {
+		XExpression expression = ((ScriptImpl) engine.newScriptFromString("1 + 1")).getXExpression();
+		Script script = engine.newScriptFromXExpression(expression);
+		int adapterCount = expression.eAdapters().size();
+
+		engine.deactivate();
+		engine.activate();
+		Script newScript = engine.newScriptFromXExpression(expression);
+
+		assertNotSame(script, newScript);
+		assertSame(newScript, engine.newScriptFromXExpression(expression));
+		// the adapter of the old script has been replaced
+		assertEquals(adapterCount, expression.eAdapters().size());
+	}
+
+	@Test
+	public void testScriptWithoutExpressionIsNotReused() {
+		assertNotSame(engine.newScriptFromXExpression(null), engine.newScriptFromXExpression(null));
+	}
+
+	private Resource getResource(Script script) {
+		return ((ScriptImpl) script).getXExpression().eResource();
+	}
+
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.script.internal.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.xtext.xbase.XExpression;
+import org.eclipse.xtext.xbase.interpreter.IEvaluationResult;
+import org.eclipse.xtext.xbase.interpreter.IExpressionInterpreter;
+import org.junit.Test;
+
+import com.google.inject.Provider;
+
+/**
+ * @since 1.7.0
+ */
+public class ScriptImplTest {
+
+	@Test
+	public void testConcurrentExecutionsUseSeparateInterpreters() throws Exception {
+		final CountDownLatch evaluating = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		final ScriptImpl script = new ScriptImpl();
+		script.setXExpression(createProxy(XExpression.class, null));
+		script.interpreter = createInterpreter("shared", evaluating, release);
+		script.interpreterProvider = new Provider<IExpressionInterpreter>() {
+			public IExpressionInterpreter get() {
+				return createInterpreter("own", null, null);
+			}
+		};
+
+		final Object[] result = new Object[1];
+		Thread thread = new Thread() {
+			public void run() {
+				try {
+					result[0] = script.execute(null);
+				} catch (Exception e) {
+					result[0] = e;
+				}
+			}
+		};
+		thread.start();
+		assertTrue(evaluating.await(5, TimeUnit.SECONDS));
+
+		// the shared interpreter is busy, so a concurrent execution has to get its own
+		assertEquals("own", script.execute(null));
+
+		release.countDown();
+		thread.join(5000);
+		assertEquals("shared", result[0]);
+		assertEquals("shared", script.execute(null));
+	}
+
+	/**
+	 * Creates an interpreter which evaluates every expression to the given result.
+	 * If latches are given, it signals that it has started an evaluation and waits
+	 * for the release before returning.
+	 */
+	private static IExpressionInterpreter createInterpreter(final String result,
+			final CountDownLatch evaluating, final CountDownLatch release) {
+		return createProxy(IExpressionInterpreter.class, new InvocationHandler() {
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if(!method.getName().equals("evaluate")) {
+					return null;
+				}
+				if(evaluating!=null) {
+					evaluating.countDown();
+					release.await(5, TimeUnit.SECONDS);
+				}
+				return createProxy(IEvaluationResult.class, new InvocationHandler() {
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						return method.getName().equals("getResult") ? result : null;
+					}
+				});
+			}
+		});
+	}
+
+	private static <T> T createProxy(Class<T> type, InvocationHandler handler) {
+		if(handler==null) {
+			handler = new InvocationHandler() {
+				public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+					return null;
+				}
+			};
+		}
+		return type.cast(Proxy.newProxyInstance(ScriptImplTest.class.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.model.script.interpreter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.types.Type;
+import org.openhab.core.types.UnDefType;
+import org.openhab.model.script.ScriptStandaloneSetup;
+import org.openhab.model.script.scoping.StateAndCommandProvider;
+
+/**
+ * @since 1.7.0
+ */
+public class ScriptInterpreterTest {
+
+	private ScriptInterpreter interpreter;
+
+	@Before
+	public void setUp() {
+		interpreter = new ScriptStandaloneSetup().createInjectorAndDoEMFRegistration().getInstance(ScriptInterpreter.class);
+	}
+
+	@Test
+	public void testTypesByNameContainsAllStatesAndCommands() {
+		Map<String, Type> typesByName = interpreter.getTypesByName();
+		int count = 0;
+		for(Type type : new StateAndCommandProvider().getAllTypes()) {
+			assertSame(type, typesByName.get(type.toString()));
+			count++;
+		}
+		assertEquals(count, typesByName.size());
+		assertSame(OnOffType.ON, typesByName.get("ON"));
+		assertSame(UnDefType.NULL, typesByName.get("NULL"));
+	}
+
+	@Test
+	public void testTypesByNameDoesNotContainOtherNames() {
+		assertNull(interpreter.getTypesByName().get("Temperature"));
+		assertNull(interpreter.getTypesByName().get("on"));
+	}
+
+	@Test
+	public void testTypesByNameIsOnlyBuiltOnce() {
+		assertSame(interpreter.getTypesByName(), interpreter.getTypesByName());
+	}
+
+}
@@ -11,14 +11,20 @@ package org.openhab.model.script.internal.engine;
 import static com.google.common.collect.Iterables.filter;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.Resource.Diagnostic;
 import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.osgi.framework.console.CommandInterpreter;
+import org.eclipse.osgi.framework.console.CommandProvider;
 import org.eclipse.xtext.diagnostics.Severity;
 import org.eclipse.xtext.resource.XtextResource;
 import org.eclipse.xtext.resource.XtextResourceSet;
@@ -33,6 +39,8 @@ import org.openhab.core.scriptengine.ScriptEngine;
 import org.openhab.core.scriptengine.ScriptExecutionException;
 import org.openhab.core.scriptengine.ScriptParsingException;
 import org.openhab.model.script.ScriptStandaloneSetup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.google.common.base.Predicate;
 import com.google.inject.Injector;
@@ -40,16 +48,51 @@ import com.google.inject.Injector;
 /**
  * This is the implementation of a {@link ScriptEngine} which is made available as an OSGi service.
  * 
+ * The scripts that are created for an {@link XExpression} are attached to the expression
+ * and reused, as creating a script instance (together with its interpreter) is far more
+ * expensive than executing most rules. They are garbage collected together with their
+ * model, e.g. when a rule file is reloaded. Only this setup is saved: the expressions are
+ * still evaluated by the interpreter, there is no compiled execution mode.
+ * 
+ * Scripts that are parsed from strings are kept in a cache by their text. When the cache
+ * is full, the least recently used script is evicted and its synthetic resource is removed
+ * from the resource set again. The statistics of the cache are shown by the console
+ * command "scriptcache".
+ * 
  * @author Kai Kreuzer
  * @since 0.9.0
  *
  */
 @SuppressWarnings("restriction")
-public class ScriptEngineImpl implements ScriptEngine {
+public class ScriptEngineImpl implements ScriptEngine, CommandProvider {
+
+	private static final Logger logger = LoggerFactory.getLogger(ScriptEngineImpl.class);
+
+	/** the maximum number of parsed scripts that are kept in the cache */
+	static final int MAX_CACHED_SCRIPTS = 100;
 
 	protected Injector guiceInjector;
 	protected XtextResourceSet resourceSet;
 
+	/** the parsed scripts by their text, in the order of their last use */
+	private final Map<String, XExpression> parsedScripts = new LinkedHashMap<String, XExpression>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, XExpression> eldest) {
+			if(size() > MAX_CACHED_SCRIPTS) {
+				removeResource(eldest.getValue().eResource());
+				logger.debug("Evicted script from cache, hit rate is {}%", Math.round(getCacheHitRate() * 100));
+				return true;
+			}
+			return false;
+		}
+	};
+
+	private long cacheHits = 0;
+	private long cacheMisses = 0;
+	private long resourceCounter = 0;
+
 	public ScriptEngineImpl() {}
 	
 	public void activate() {
@@ -59,6 +102,9 @@ public class ScriptEngineImpl implements ScriptEngine {
 	}
 	
 	public void deactivate() {
+		synchronized(parsedScripts) {
+			parsedScripts.clear();
+		}
 		this.guiceInjector = null;
 		this.resourceSet = null;
 	}
@@ -68,14 +114,83 @@ public class ScriptEngineImpl implements ScriptEngine {
 	 */
 	public Script newScriptFromString(String scriptAsString)
 			throws ScriptParsingException {
-		return newScriptFromXExpression(parseScriptIntoXTextEObject(scriptAsString));
+		XExpression expression;
+		synchronized(parsedScripts) {
+			expression = parsedScripts.get(scriptAsString);
+			if(expression!=null) {
+				cacheHits++;
+			} else {
+				cacheMisses++;
+				expression = parseScriptIntoXTextEObject(scriptAsString);
+				if(expression!=null) {
+					parsedScripts.put(scriptAsString, expression);
+				}
+			}
+		}
+		return newScriptFromXExpression(expression);
+	}
+	
+	/**
+	 * @return the number of parsed scripts in the cache
+	 */
+	public int getCachedScriptCount() {
+		synchronized(parsedScripts) {
+			return parsedScripts.size();
+		}
+	}
+
+	/**
+	 * @return the number of scripts that have been taken from the cache
+	 */
+	public long getCacheHits() {
+		synchronized(parsedScripts) {
+			return cacheHits;
+		}
+	}
+
+	/**
+	 * @return the number of scripts that have been parsed because they were not in the cache
+	 */
+	public long getCacheMisses() {
+		synchronized(parsedScripts) {
+			return cacheMisses;
+		}
+	}
+
+	/**
+	 * @return the share of scripts that have been taken from the cache instead of being parsed, between 0 and 1
+	 */
+	public double getCacheHitRate() {
+		synchronized(parsedScripts) {
+			long requests = cacheHits + cacheMisses;
+			return requests==0 ? 0 : (double) cacheHits / requests;
+		}
 	}
 
 	/**
 	 * {@inheritDoc}
 	 */
 	public Script newScriptFromXExpression(XExpression expression) {
-		ScriptImpl script = guiceInjector.getInstance(ScriptImpl.class);
+		Injector injector = guiceInjector;
+		if(expression==null) {
+			return newScript(injector, null);
+		}
+		synchronized(expression) {
+			ScriptAdapter adapter = (ScriptAdapter) EcoreUtil.getExistingAdapter(expression, ScriptAdapter.class);
+			if(adapter!=null && adapter.injector==injector) {
+				return adapter.script;
+			}
+			ScriptImpl script = newScript(injector, expression);
+			if(adapter!=null) {
+				expression.eAdapters().remove(adapter);
+			}
+			expression.eAdapters().add(new ScriptAdapter(injector, script));
+			return script;
+		}
+	}
+	
+	private ScriptImpl newScript(Injector injector, XExpression expression) {
+		ScriptImpl script = injector.getInstance(ScriptImpl.class);
 		script.setXExpression(expression);
 		return script;
 	}
@@ -90,28 +205,49 @@ public class ScriptEngineImpl implements ScriptEngine {
 
 	private XExpression parseScriptIntoXTextEObject(String scriptAsString) throws ScriptParsingException {
 		Resource resource = resourceSet.createResource(computeUnusedUri(resourceSet)); // IS-A XtextResource
+		boolean parsed = false;
 		try {
-			resource.load(new StringInputStream(scriptAsString), resourceSet.getLoadOptions());
-		} catch (IOException e) {
-			throw new ScriptParsingException("Unexpected IOException; from close() of a String-based ByteArrayInputStream, no real I/O; how is that possible???", scriptAsString, e);
-		}
-		
-		List<Diagnostic> errors = resource.getErrors();
-		if (errors.size() != 0) {
-			throw new ScriptParsingException("Failed to parse expression (due to managed SyntaxError/s)", scriptAsString).addDiagnosticErrors(errors);
-		}
-		
-		EList<EObject> contents = resource.getContents();
-
-		if (!contents.isEmpty()) {
-			Iterable<Issue> validationErrors = getValidationErrors(contents.get(0));
-			if(!validationErrors.iterator().hasNext()) {
-				return (XExpression) contents.get(0);
+			try {
+				resource.load(new StringInputStream(scriptAsString), resourceSet.getLoadOptions());
+			} catch (IOException e) {
+				throw new ScriptParsingException("Unexpected IOException; from close() of a String-based ByteArrayInputStream, no real I/O; how is that possible???", scriptAsString, e);
+			}
+			
+			List<Diagnostic> errors = resource.getErrors();
+			if (errors.size() != 0) {
+				throw new ScriptParsingException("Failed to parse expression (due to managed SyntaxError/s)", scriptAsString).addDiagnosticErrors(errors);
+			}
+			
+			EList<EObject> contents = resource.getContents();
+	
+			if (!contents.isEmpty()) {
+				Iterable<Issue> validationErrors = getValidationErrors(contents.get(0));
+				if(!validationErrors.iterator().hasNext()) {
+					parsed = true;
+					return (XExpression) contents.get(0);
+				} else {
+					throw new ScriptParsingException("Failed to parse expression (due to managed ValidationError/s)", scriptAsString).addValidationIssues(validationErrors);
+				}
 			} else {
-				throw new ScriptParsingException("Failed to parse expression (due to managed ValidationError/s)", scriptAsString).addValidationIssues(validationErrors);
+				return null;
+			}
+		} finally {
+			if(!parsed) {
+				// only the resources of cached scripts are kept in the resource set
+				removeResource(resource);
 			}
-		} else {
-			return null;
+		}
+	}
+	
+	/**
+	 * Removes a synthetic resource from the resource set. Its contents are not unloaded,
+	 * so that scripts which are still being executed are not affected.
+	 * 
+	 * @param resource the resource to remove
+	 */
+	private void removeResource(Resource resource) {
+		if(resource!=null && resourceSet!=null) {
+			resourceSet.getResources().remove(resource);
 		}
 	}
 
@@ -120,7 +256,7 @@ public class ScriptEngineImpl implements ScriptEngine {
 		final int MAX_TRIES=1000;
 		for(int i=0; i<MAX_TRIES; i++) {
 			// NOTE: The "filename extension" (".script") must match the file.extensions in the *.mwe2
-			URI syntheticUri = URI.createURI(name+Math.random()+ "." + Script.SCRIPT_FILEEXT);
+			URI syntheticUri = URI.createURI(name + (resourceCounter++) + "." + Script.SCRIPT_FILEEXT);
 			if (resourceSet.getResource(syntheticUri, false)==null)
 				return syntheticUri;
 		} 
@@ -142,4 +278,45 @@ public class ScriptEngineImpl implements ScriptEngine {
 		return issues;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getHelp() {
+		return "---openHAB script engine---\n\tscriptcache - shows the statistics of the cache of parsed scripts\n";
+	}
+
+	/**
+	 * Prints the statistics of the script cache to the console.
+	 * 
+	 * @param interpreter the console command interpreter
+	 * @return null
+	 */
+	public Object _scriptcache(CommandInterpreter interpreter) {
+		synchronized(parsedScripts) {
+			interpreter.println("Cached scripts: " + parsedScripts.size() + " of " + MAX_CACHED_SCRIPTS);
+			interpreter.println("Hits: " + cacheHits + ", misses: " + cacheMisses
+					+ ", hit rate: " + Math.round(getCacheHitRate() * 100) + "%");
+		}
+		return null;
+	}
+	
+	/**
+	 * Attaches the script of an expression to the expression.
+	 */
+	private static class ScriptAdapter extends AdapterImpl {
+		
+		final Injector injector;
+		final ScriptImpl script;
+		
+		ScriptAdapter(Injector injector, ScriptImpl script) {
+			this.injector = injector;
+			this.script = script;
+		}
+		
+		@Override
+		public boolean isAdapterForType(Object type) {
+			return type==ScriptAdapter.class;
+		}
+	}
+
 }
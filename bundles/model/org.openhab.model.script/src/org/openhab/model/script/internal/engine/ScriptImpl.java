@@ -8,6 +8,7 @@
  */
 package org.openhab.model.script.internal.engine;
 
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.xtext.util.CancelIndicator;
 import org.eclipse.xtext.xbase.XExpression;
@@ -23,6 +24,11 @@ import com.google.inject.Provider;
 /**
  * This is the default implementation of a {@link Script}.
  * 
+ * A script is reused for all executions of its expression and may be executed by several
+ * threads at once. As the Xbase interpreter is not meant to be used concurrently,
+ * the injected interpreter is only used by one execution at a time; concurrent executions
+ * get an interpreter of their own.
+ * 
  * @author Kai Kreuzer
  * @since 0.9.0
  *
@@ -31,8 +37,12 @@ import com.google.inject.Provider;
 public class ScriptImpl implements Script {
 
 	@Inject protected IExpressionInterpreter interpreter;
+	@Inject protected Provider<IExpressionInterpreter> interpreterProvider;
 	@Inject protected Provider<IEvaluationContext> contextProvider;
 
+	/** whether the injected interpreter is used by an execution */
+	private final AtomicBoolean interpreterInUse = new AtomicBoolean(false);
+
 	private XExpression xExpression;
 
 	@Inject
@@ -55,8 +65,10 @@ public class ScriptImpl implements Script {
 
 	public Object execute(IEvaluationContext evaluationContext) throws ScriptExecutionException {
 		if(xExpression!=null) {
+			boolean sharedInterpreter = interpreterInUse.compareAndSet(false, true);
 		    try {
-		    	IEvaluationResult result = interpreter.evaluate(xExpression, evaluationContext, CancelIndicator.NullImpl);
+		    	IExpressionInterpreter currentInterpreter = sharedInterpreter ? interpreter : interpreterProvider.get();
+		    	IEvaluationResult result = currentInterpreter.evaluate(xExpression, evaluationContext, CancelIndicator.NullImpl);
 			    if(result==null) {
 			    	// this can only happen on an InterpreterCancelledException, i.e. NEVER ;-)
 			    	return null;
@@ -71,6 +83,10 @@ public class ScriptImpl implements Script {
 		    	} else {
 		    		throw new ScriptExecutionException("An error occured during the script execution: " + e.getMessage(), e);
 		    	}
+		    } finally {
+		    	if(sharedInterpreter) {
+		    		interpreterInUse.set(false);
+		    	}
 		    }
 		} else {
 	        throw new ScriptExecutionException("Script does not contain any expression");
@@ -8,6 +8,9 @@
  */
 package org.openhab.model.script.interpreter;
 
+import java.util.HashMap;
+import java.util.Map;
+
 import org.eclipse.xtext.common.types.JvmIdentifiableElement;
 import org.eclipse.xtext.naming.QualifiedName;
 import org.eclipse.xtext.util.CancelIndicator;
@@ -46,21 +49,37 @@ public class ScriptInterpreter extends XbaseInterpreter {
 	StateAndCommandProvider stateAndCommandProvider;
 		
 	private PolymorphicDispatcher<Object> featureCallDispatcher = createFeatureCallDispatcher();
+	
+	/** the states and commands by their name, which is looked up for every unresolved feature call */
+	private volatile Map<String, Type> typesByName;
 
 	protected Object _featureCallJvmIdentifyableElement(JvmIdentifiableElement identifiable, XFeatureCall featureCall, Object receiver,
 			IEvaluationContext context, CancelIndicator indicator) {
 		Object value = super._featureCallJvmIdentifyableElement(identifiable, featureCall, receiver, context, indicator);
 		if(value==null && receiver==null) {
-			for(Type type : stateAndCommandProvider.getAllTypes()) {
-				if(type.toString().equals(featureCall.toString())) {
-					return type;
-				}
+			String name = featureCall.toString();
+			Type type = getTypesByName().get(name);
+			if(type!=null) {
+				return type;
 			}
-			value = getItem(featureCall.toString());
+			value = getItem(name);
 		}
 		return value;
 	}
 	
+	/* package-local */
+	Map<String, Type> getTypesByName() {
+		Map<String, Type> types = typesByName;
+		if(types==null) {
+			types = new HashMap<String, Type>();
+			for(Type type : stateAndCommandProvider.getAllTypes()) {
+				types.put(type.toString(), type);
+			}
+			typesByName = types;
+		}
+		return types;
+	}
+	
 	protected Object internalFeatureCallDispatch(XAbstractFeatureCall featureCall, Object receiverObj,
 			IEvaluationContext context, CancelIndicator indicator) {
 		if(featureCall.getFeature().eIsProxy()) {
@@ -21,16 +21,20 @@ import java.io.FilenameFilter;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 import org.openhab.core.items.Item;
+import org.openhab.core.persistence.BulkQueryablePersistenceService;
+import org.openhab.core.persistence.Downsampler;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
-import org.openhab.core.persistence.QueryablePersistenceService;
 import org.quartz.CronScheduleBuilder;
 import org.quartz.CronTrigger;
 import org.quartz.DisallowConcurrentExecution;
@@ -52,6 +56,7 @@ import com.db4o.ObjectSet;
 import com.db4o.ext.DatabaseClosedException;
 import com.db4o.ext.Db4oException;
 import com.db4o.ext.ExtObjectContainer;
+import com.db4o.query.Constraint;
 import com.db4o.query.Query;
 
 
@@ -61,7 +66,7 @@ import com.db4o.query.Query;
  * @author Kai Kreuzer
  * @since 1.0.0
  */
-public class Db4oPersistenceService implements QueryablePersistenceService {
+public class Db4oPersistenceService implements BulkQueryablePersistenceService {
 
 	private static final Logger logger = LoggerFactory.getLogger(Db4oPersistenceService.class);
 	
@@ -156,6 +161,9 @@ public class Db4oPersistenceService implements QueryablePersistenceService {
 				query.descend("timestamp").orderDescending();
 			}
 			ObjectSet<HistoricItem> results = query.execute();
+			if(filter.getResolution() > 0) {
+				return Downsampler.downsample(results, filter);
+			}
 	
 			int startIndex = filter.getPageNumber() * filter.getPageSize();
 			if (startIndex < results.size()) {
@@ -170,6 +178,38 @@ public class Db4oPersistenceService implements QueryablePersistenceService {
 		return Collections.emptyList();
 	}
 	
+	/**
+	 * Queries the entries of all given items at once, ordered by descending timestamp, 
+	 * so that the first entry found for an item is its latest one. 
+	 * 
+	 * @{inheritDoc}
+	 */
+	public Map<String, HistoricItem> queryLatest(Collection<String> itemNames) {
+		Map<String, HistoricItem> latestItems = new HashMap<String, HistoricItem>();
+		Query query = queryWithReconnect();
+		
+		if (query != null && !itemNames.isEmpty()) {
+			query.constrain(Db4oItem.class);
+			Constraint nameConstraint = null;
+			for (String itemName : itemNames) {
+				Constraint constraint = query.descend("name").constrain(itemName).equal();
+				nameConstraint = nameConstraint==null ? constraint : nameConstraint.or(constraint);
+			}
+			query.descend("timestamp").orderDescending();
+			ObjectSet<HistoricItem> results = query.execute();
+			
+			// the objects are only activated when they are read, so we stop as soon as all items have been found
+			while (results.hasNext() && latestItems.size() < itemNames.size()) {
+				HistoricItem historicItem = results.next();
+				if (!latestItems.containsKey(historicItem.getName())) {
+					latestItems.put(historicItem.getName(), historicItem);
+				}
+			}
+		}
+		
+		return latestItems;
+	}
+	
 	/**
 	 * Creates a new Query and returns it. In case the Database is closed for
 	 * some reason we'll try to reopen it again and try to create a query a
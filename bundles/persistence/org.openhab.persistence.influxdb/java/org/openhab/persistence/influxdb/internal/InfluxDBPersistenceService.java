@@ -33,6 +33,7 @@ import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
+import org.openhab.core.persistence.Downsampler;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
@@ -337,7 +338,8 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService,
         query.append(" order asc");
       }
 
-      if (filter.getPageSize() != 0) {
+      // a downsampled result is reduced from all points of the period
+      if (filter.getPageSize() != 0 && filter.getResolution() <= 0) {
         logger.debug("got page size {}", filter.getPageSize());
         pageSize = filter.getPageSize();
       }
@@ -381,7 +383,7 @@ public class InfluxDBPersistenceService implements QueryablePersistenceService,
       }
     }
 
-    return historicItems;
+    return Downsampler.downsample(historicItems, filter);
   }
 
   private String getTimeFilter(Date time) {
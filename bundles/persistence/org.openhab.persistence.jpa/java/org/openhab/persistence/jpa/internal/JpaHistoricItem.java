@@ -77,32 +77,40 @@ public class JpaHistoricItem implements HistoricItem {
 	public static List<HistoricItem> fromResultList(List<JpaPersistentItem> jpaQueryResult, Item item) {
 		List<HistoricItem> ret = new ArrayList<HistoricItem>();
 		for(JpaPersistentItem i : jpaQueryResult) {
-			
-			State state;
-			if (item instanceof NumberItem) {
-				state = new DecimalType(Double.valueOf(i.getValue()));
-			} else if (item instanceof DimmerItem) {
-				state = new PercentType(Integer.valueOf(i.getValue()));
-			} else if (item instanceof SwitchItem) {
-				state = OnOffType.valueOf(i.getValue());
-			} else if (item instanceof ContactItem) {
-				state = OpenClosedType.valueOf(i.getValue());
-			} else if (item instanceof RollershutterItem) {
-				state = new PercentType(Integer.valueOf(i.getValue()));
-			} else if (item instanceof ColorItem) {
-				state = new HSBType(i.getValue());
-			} else if (item instanceof DateTimeItem) {
-				Calendar cal = Calendar.getInstance();
-				cal.setTime(new Date(Long.valueOf(i.getValue())));
-				state = new DateTimeType(cal);
-			} else {
-				state = new StringType(i.getValue());
-			}
-			
-			JpaHistoricItem hi = new JpaHistoricItem(item.getName(), state, i.getTimestamp());
-			ret.add(hi);
+			ret.add(fromPersistedItem(i, item));
 		}
 		
 		return ret;
 	}
+
+	/**
+	 * This method maps a single jpa result item to a historic item.
+	 * @param pItem the jpa result item
+	 * @param item used for query information, like the state (State)
+	 * @return the historic item
+	 */
+	public static HistoricItem fromPersistedItem(JpaPersistentItem pItem, Item item) {
+		State state;
+		if (item instanceof NumberItem) {
+			state = new DecimalType(Double.valueOf(pItem.getValue()));
+		} else if (item instanceof DimmerItem) {
+			state = new PercentType(Integer.valueOf(pItem.getValue()));
+		} else if (item instanceof SwitchItem) {
+			state = OnOffType.valueOf(pItem.getValue());
+		} else if (item instanceof ContactItem) {
+			state = OpenClosedType.valueOf(pItem.getValue());
+		} else if (item instanceof RollershutterItem) {
+			state = new PercentType(Integer.valueOf(pItem.getValue()));
+		} else if (item instanceof ColorItem) {
+			state = new HSBType(pItem.getValue());
+		} else if (item instanceof DateTimeItem) {
+			Calendar cal = Calendar.getInstance();
+			cal.setTime(new Date(Long.valueOf(pItem.getValue())));
+			state = new DateTimeType(cal);
+		} else {
+			state = new StringType(pItem.getValue());
+		}
+		
+		return new JpaHistoricItem(item.getName(), state, pItem.getTimestamp());
+	}
 }
@@ -8,6 +8,13 @@
  */
 package org.openhab.persistence.jpa.internal;
 
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
@@ -17,14 +24,17 @@ import java.util.Map;
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.Persistence;
-import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.items.ItemRegistry;
+import org.openhab.core.persistence.BatchPersistenceService;
+import org.openhab.core.persistence.BulkQueryablePersistenceService;
+import org.openhab.core.persistence.Downsampler;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.HistoricItem;
-import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.persistence.PersistenceEntry;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.types.UnDefType;
 import org.openhab.persistence.jpa.internal.model.JpaPersistentItem;
@@ -32,25 +42,42 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
  /** 
-	 JPA based implementation of QueryablePersistenceService.
+	 JPA based implementation of BulkQueryablePersistenceService.
+	 
+	 The items of each batch that the persistence manager has queued are committed
+	 within a single transaction.
 	 
  * @author Manfred Bergmann
  * @since 1.6.0
  */
-public class JpaPersistenceService implements QueryablePersistenceService {
+public class JpaPersistenceService implements BulkQueryablePersistenceService, BatchPersistenceService {
 	private static final Logger logger = LoggerFactory.getLogger(JpaPersistenceService.class);
 
+	/** the number of rows that are read at once by a query */
+	private static final int QUERY_PAGE_SIZE = 1000;
+
+	/** the name of the index on the item name and timestamp */
+	private static final String INDEX_NAME = "HISTORIC_ITEM_NAME_TIME";
+
+	/** the number of times items are written again after a database error */
+	private static final int MAX_WRITE_RETRIES = 3;
+
+	/** the time in ms to wait before items are written again, multiplied by the attempt */
+	private static final long RETRY_DELAY = 1000;
+
 	protected ItemRegistry itemRegistry;
 	
 	private EntityManagerFactory emf = null;
+
 	
 	/**
 	 * lazy loading because update() is called after activate()
 	 * @return
 	 */
-	protected EntityManagerFactory getEntityManagerFactory() {
+	protected synchronized EntityManagerFactory getEntityManagerFactory() {
 		if(emf == null) {
 			emf = newEntityManagerFactory();
+			createIndex(emf);
 		}
 		return emf;
 	}
@@ -89,49 +116,145 @@ public class JpaPersistenceService implements QueryablePersistenceService {
 
 	@Override
 	public void store(Item item, String alias) {
-		logger.debug("Storing item: " + item.getName());
-		
-		if (item.getState() instanceof UnDefType) {
-			logger.debug("This item is of undefined type. Cannot perist it!");
-			return;
-		}
-		
+		store(Collections.singletonList(new PersistenceEntry(item, alias, item.getState(), new Date())));
+	}
+
+	/**
+	 * Writes the given entries, which the persistence manager has collected in its queue.
+	 * Items which could not be written because of a database error are written again
+	 * after a delay, up to MAX_WRITE_RETRIES times. Meanwhile, new entries wait in the
+	 * queue of the persistence manager.
+	 * 
+	 * @{inheritDoc}
+	 */
+	@Override
+	public void store(List<PersistenceEntry> entries) {
 		if(!JpaConfiguration.isInitialized) {
 			logger.warn("Trying to create EntityManagerFactory but we don't have configuration yet!");
 			return;
 		}
-		
-		// determine item name to be stored
-		String name = (alias != null) ? alias : item.getName();
-		
-		JpaPersistentItem pItem = new JpaPersistentItem();
-		try {
-			pItem.setValue(StateHelper.toString(item.getState()));
-		} catch (Exception e1) {
-			logger.error("Error on converting state value to string: {}", e1.getMessage());
+
+		List<JpaPersistentItem> items = new ArrayList<JpaPersistentItem>(entries.size());
+		for(PersistenceEntry entry : entries) {
+			logger.debug("Storing item: " + entry.getItem().getName());
+			
+			if (entry.getState() instanceof UnDefType) {
+				logger.debug("This item is of undefined type. Cannot perist it!");
+				continue;
+			}
+			
+			JpaPersistentItem pItem = new JpaPersistentItem();
+			try {
+				pItem.setValue(StateHelper.toString(entry.getState()));
+			} catch (Exception e1) {
+				logger.error("Error on converting state value to string: {}", e1.getMessage());
+				continue;
+			}
+			// the alias is stored as name, if there is one
+			pItem.setName(entry.getName());
+			pItem.setRealName(entry.getItem().getName());
+			pItem.setTimestamp(entry.getTimestamp());
+			items.add(pItem);
+		}
+		if(items.isEmpty()) {
 			return;
 		}
-		pItem.setName(name);
-		pItem.setRealName(item.getName());
-		pItem.setTimestamp(new Date());
 
-		EntityManager em = getEntityManagerFactory().createEntityManager();
+		List<JpaPersistentItem> failedItems = write(items);
+		for(int attempt = 1; !failedItems.isEmpty() && attempt <= MAX_WRITE_RETRIES; attempt++) {
+			try {
+				Thread.sleep(RETRY_DELAY * attempt);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			failedItems = write(failedItems);
+		}
+		if(!failedItems.isEmpty()) {
+			logger.error("Discarding {} items after failed attempts to persist them.", failedItems.size());
+		}
+	}
+
+	/**
+	 * Writes the given items within a single transaction. If the database rejects a single
+	 * row, the whole transaction is rolled back and JPA does not tell which entity has caused
+	 * it. The items are then persisted one by one, in order to discard only the rows the
+	 * database rejects, e.g. because a value does not fit into its column. Any other error,
+	 * like a lost connection, ends this and returns the remaining items to be written again.
+	 * 
+	 * @param items the items to write
+	 * @return the items which could not be written because of a database error
+	 */
+	private List<JpaPersistentItem> write(List<JpaPersistentItem> items) {
+		long start = System.currentTimeMillis();
+		logger.debug("Persisting {} items...", items.size());
+		try {
+			persist(items);
+			logger.debug("Persisting {} items...done in {}ms", items.size(), System.currentTimeMillis() - start);
+			return Collections.emptyList();
+		} catch (RuntimeException e) {
+			logger.warn("Error on persisting {} items, persisting them one by one: {}", items.size(), e.getMessage());
+		}
+
+		for(int i = 0; i < items.size(); i++) {
+			JpaPersistentItem pItem = items.get(i);
+			try {
+				persist(Collections.singletonList(pItem));
+			} catch (RuntimeException e) {
+				if(!isRejectedByDatabase(e)) {
+					logger.warn("Error on persisting item '{}', writing the remaining {} items again: {}", 
+							new Object[] { pItem.getName(), items.size() - i, e.getMessage() });
+					return new ArrayList<JpaPersistentItem>(items.subList(i, items.size()));
+				}
+				logger.error("Discarding item '" + pItem.getName() + "', which the database has rejected", e);
+			}
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Checks whether the database has rejected the row of a single item, as opposed to
+	 * errors of the connection or the transaction, which might pass.
+	 * 
+	 * @param e the exception thrown while persisting the item
+	 * @return true, if the SQL state of the cause is a data exception (class 22) or an
+	 *         integrity constraint violation (class 23)
+	 */
+	private static boolean isRejectedByDatabase(Throwable e) {
+		for(Throwable cause = e; cause != null && cause != cause.getCause(); cause = cause.getCause()) {
+			if(cause instanceof SQLException) {
+				String sqlState = ((SQLException) cause).getSQLState();
+				return sqlState != null && (sqlState.startsWith("22") || sqlState.startsWith("23"));
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Persists the given items within a single transaction, which is rolled back on errors.
+	 */
+	private void persist(List<JpaPersistentItem> items) {
+		EntityManager em = null;
 		try {
-			logger.debug("Persisting item...");
+			em = getEntityManagerFactory().createEntityManager();
 			// In RESOURCE_LOCAL calls to EntityManager require a begin/commit			
 			em.getTransaction().begin();
-			em.persist(pItem);
+			for(JpaPersistentItem pItem : items) {
+				// a rolled back transaction might have assigned an id already
+				pItem.setId(null);
+				em.persist(pItem);
+			}
 			em.getTransaction().commit();
-			logger.debug("Persisting item...done");
-		} catch (Exception e) {
-			logger.error("Error on persisting item! Rolling back!");
-			logger.error(e.getMessage(), e);
-			em.getTransaction().rollback();
+		} catch (RuntimeException e) {
+			if(em != null && em.getTransaction().isActive()) {
+				em.getTransaction().rollback();
+			}
+			throw e;
 		} finally {
-			em.close();
+			if(em != null) {
+				em.close();
+			}
 		}
-		
-		logger.debug("Storing item...done");
 	}
 
 	@Override
@@ -146,8 +269,11 @@ public class JpaPersistenceService implements QueryablePersistenceService {
 		String itemName = filter.getItemName();
 		Item item = getItemFromRegistry(itemName);
 		
+		// a downsampled result is reduced page by page, which requires ascending rows
+		Downsampler downsampler = filter.getResolution() > 0 ? new Downsampler(filter) : null;
+
 		String sortOrder;
-		if(filter.getOrdering() == Ordering.ASCENDING) sortOrder = "ASC";
+		if(filter.getOrdering() == Ordering.ASCENDING || downsampler != null) sortOrder = "ASC";
 		else sortOrder = "DESC";
 
 		boolean hasBeginDate = false;
@@ -171,21 +297,42 @@ public class JpaPersistenceService implements QueryablePersistenceService {
 			em.getTransaction().begin();
 			
 			logger.debug("Creating query...");
-			Query query = em.createQuery(queryString);
-			query.setParameter("itemName", item.getName());
+			TypedQuery<JpaPersistentItem> query = em.createQuery(queryString, JpaPersistentItem.class);
+			query.setParameter("itemName", itemName);
 			if(hasBeginDate) query.setParameter("beginDate", filter.getBeginDate());
 			if(hasEndDate) query.setParameter("endDate", filter.getEndDate());
-			
-			query.setFirstResult(filter.getPageNumber() * filter.getPageSize());
-			query.setMaxResults(filter.getPageSize());
 			logger.debug("Creating query...done");
 
+			// read the rows page by page, so that the persistence context
+			// never holds more than a single page of entities
 			logger.debug("Retrieving result list...");
-			@SuppressWarnings("unchecked")
-			List<JpaPersistentItem> result = (List<JpaPersistentItem>)query.getResultList();
+			List<HistoricItem> historicList = new ArrayList<HistoricItem>();
+			int firstResult = downsampler != null ? 0 : filter.getPageNumber() * filter.getPageSize();
+			int remaining = downsampler != null ? Integer.MAX_VALUE : filter.getPageSize();
+			while(remaining > 0) {
+				int pageSize = Math.min(remaining, QUERY_PAGE_SIZE);
+				query.setFirstResult(firstResult);
+				query.setMaxResults(pageSize);
+				List<JpaPersistentItem> result = query.getResultList();
+				if(downsampler != null) {
+					for(HistoricItem historicItem : JpaHistoricItem.fromResultList(result, item)) {
+						downsampler.add(historicItem);
+					}
+				} else {
+					historicList.addAll(JpaHistoricItem.fromResultList(result, item));
+				}
+				em.clear();
+				if(result.size() < pageSize) {
+					break;
+				}
+				firstResult += pageSize;
+				remaining -= pageSize;
+			}
+			if(downsampler != null) {
+				historicList = downsampler.getResult();
+			}
 			logger.debug("Retrieving result list...done");
 			
-			List<HistoricItem> historicList = JpaHistoricItem.fromResultList(result, item);
 			em.getTransaction().commit();
 			
 			return historicList;
@@ -200,6 +347,56 @@ public class JpaPersistenceService implements QueryablePersistenceService {
 		
 		return Collections.emptyList();			
 	}
+
+	@Override
+	public Map<String, HistoricItem> queryLatest(Collection<String> itemNames) {
+		logger.debug("querying for latest states of {} items", itemNames.size());
+		
+		if(!JpaConfiguration.isInitialized) {
+			logger.warn("Trying to create EntityManagerFactory but we don't have configuration yet!");
+			return Collections.emptyMap();
+		}
+		if(itemNames.isEmpty()) {
+			return Collections.emptyMap();
+		}
+
+		String entityName = JpaPersistentItem.class.getSimpleName();
+		String queryString = "SELECT n FROM " + entityName + " n WHERE n.realName IN :itemNames" 
+				+ " AND n.timestamp = (SELECT MAX(m.timestamp) FROM " + entityName + " m WHERE m.realName = n.realName)";
+		
+		logger.debug("The query: " + queryString);
+
+		EntityManager em = getEntityManagerFactory().createEntityManager();
+		try {
+			// In RESOURCE_LOCAL calls to EntityManager require a begin/commit
+			em.getTransaction().begin();
+			
+			TypedQuery<JpaPersistentItem> query = em.createQuery(queryString, JpaPersistentItem.class);
+			query.setParameter("itemNames", itemNames);
+			
+			List<JpaPersistentItem> result = query.getResultList();
+			
+			Map<String, HistoricItem> latestItems = new HashMap<String, HistoricItem>();
+			for(JpaPersistentItem pItem : result) {
+				Item item = getItemFromRegistry(pItem.getRealName());
+				if(item != null) {
+					latestItems.put(item.getName(), JpaHistoricItem.fromPersistedItem(pItem, item));
+				}
+			}
+			em.getTransaction().commit();
+			
+			return latestItems;
+			
+		} catch (Exception e) {
+			logger.error("Error on querying database!");
+			logger.error(e.getMessage(), e);
+			em.getTransaction().rollback();
+		} finally {
+			em.close();
+		}
+		
+		return Collections.emptyMap();
+	}
 	
 	/**
 	 * Creates a new EntityManagerFactory with properties read from openhab.cfg via JpaConfiguration.
@@ -220,6 +417,91 @@ public class JpaPersistenceService implements QueryablePersistenceService {
 		return fac;
 	}
 	
+	/**
+	 * Creates an index on the item name and timestamp of the historic items, which serves
+	 * the queries for a single item. The schema generation of JPA 2.0 cannot define indexes
+	 * that span several columns, so the index is created through JDBC. The column names are
+	 * read from the database, as they depend on its naming rules, e.g. for reserved words.
+	 * @param factory the factory to get a connection from
+	 */
+	private void createIndex(EntityManagerFactory factory) {
+		EntityManager em = factory.createEntityManager();
+		try {
+			// the first query lets the schema be created
+			em.createQuery("SELECT n FROM " + JpaPersistentItem.class.getSimpleName() + " n", JpaPersistentItem.class)
+				.setMaxResults(1).getResultList();
+
+			em.getTransaction().begin();
+			Connection connection = em.unwrap(Connection.class);
+			try {
+				DatabaseMetaData metaData = connection.getMetaData();
+				String[] table = findTable(metaData, "HISTORIC_ITEM");
+				if(table == null) {
+					logger.warn("Table HISTORIC_ITEM not found, cannot create index {}", INDEX_NAME);
+					return;
+				}
+				String nameColumn = null;
+				String timestampColumn = null;
+				ResultSet rs = metaData.getColumns(table[0], table[1], table[2], null);
+				while(rs.next()) {
+					String column = rs.getString("COLUMN_NAME");
+					if(column.equalsIgnoreCase("REALNAME")) nameColumn = column;
+					else if(column.toUpperCase().startsWith("TIMESTAMP")) timestampColumn = column;
+				}
+				rs.close();
+				if(nameColumn == null || timestampColumn == null) {
+					logger.warn("Columns of table {} not found, cannot create index {}", table[2], INDEX_NAME);
+					return;
+				}
+
+				rs = metaData.getIndexInfo(table[0], table[1], table[2], false, true);
+				while(rs.next()) {
+					if(INDEX_NAME.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+						rs.close();
+						return;
+					}
+				}
+				rs.close();
+
+				logger.debug("Creating index {} on {}({}, {})", INDEX_NAME, table[2], nameColumn, timestampColumn);
+				Statement statement = connection.createStatement();
+				try {
+					statement.executeUpdate("CREATE INDEX " + INDEX_NAME + " ON " + table[2] + " (" + nameColumn + ", " + timestampColumn + ")");
+				} finally {
+					statement.close();
+				}
+			} finally {
+				connection.close();
+				em.getTransaction().commit();
+			}
+		} catch (Exception e) {
+			logger.warn("Could not create index {}: {}", INDEX_NAME, e.getMessage());
+			if(em.getTransaction().isActive()) {
+				em.getTransaction().rollback();
+			}
+		} finally {
+			em.close();
+		}
+	}
+
+	/**
+	 * Finds a table by name, ignoring the case of the name.
+	 * @return the catalog, schema and name of the table or null if there is no such table
+	 */
+	private static String[] findTable(DatabaseMetaData metaData, String tableName) throws SQLException {
+		ResultSet rs = metaData.getTables(null, null, null, new String[] { "TABLE" });
+		try {
+			while(rs.next()) {
+				if(tableName.equalsIgnoreCase(rs.getString("TABLE_NAME"))) {
+					return new String[] { rs.getString("TABLE_CAT"), rs.getString("TABLE_SCHEM"), rs.getString("TABLE_NAME") };
+				}
+			}
+		} finally {
+			rs.close();
+		}
+		return null;
+	}
+
 	/**
 	 * Closes EntityManagerFactory
 	 */
@@ -11,10 +11,14 @@ package org.openhab.persistence.mongodb.internal;
 import java.text.DateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Arrays;
 import java.util.Dictionary;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
 import org.bson.types.ObjectId;
@@ -35,13 +39,15 @@ import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.BulkQueryablePersistenceService;
+import org.openhab.core.persistence.Downsampler;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Operator;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.PersistentStateRestorer;
-import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.osgi.service.cm.ConfigurationException;
@@ -49,7 +55,10 @@ import org.osgi.service.cm.ManagedService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.mongodb.AggregationOptions;
+import com.mongodb.AggregationOptions.OutputMode;
 import com.mongodb.BasicDBObject;
+import com.mongodb.Cursor;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
@@ -62,8 +71,8 @@ import com.mongodb.MongoClientURI;
  * @author Thorsten Hoeger
  * @since 1.5.0
  */
-public class MongoDBPersistenceService implements QueryablePersistenceService,
-		ManagedService {
+public class MongoDBPersistenceService implements BulkQueryablePersistenceService,
+		AggregatingPersistenceService, ManagedService {
 
 	private static final String FIELD_ID = "_id";
 	private static final String FIELD_ITEM = "item";
@@ -203,6 +212,8 @@ public class MongoDBPersistenceService implements QueryablePersistenceService,
 			BasicDBObject idx = new BasicDBObject();
 			idx.append(FIELD_TIMESTAMP, 1).append(FIELD_ITEM, 1);
 			this.mongoCollection.createIndex(idx);
+			// lets queryLatest() sort the matched values without reading them into memory
+			this.mongoCollection.createIndex(new BasicDBObject(FIELD_ITEM, 1).append(FIELD_TIMESTAMP, -1));
 			logger.debug("Connect MongoDB ... done");
 		} catch (Exception e) {
 			logger.error("Failed to connect to database {}", this.url);
@@ -293,6 +304,22 @@ public class MongoDBPersistenceService implements QueryablePersistenceService,
 					new BasicDBObject("$lte", filter.getEndDate()));
 		}
 
+		if (filter.getResolution() > 0) {
+			// reduce the documents while reading them, which requires them in ascending order
+			Downsampler downsampler = new Downsampler(filter);
+			DBCursor cursor = this.mongoCollection.find(query)
+					.sort(new BasicDBObject(FIELD_TIMESTAMP, 1));
+			try {
+				while (cursor.hasNext()) {
+					BasicDBObject obj = (BasicDBObject) cursor.next();
+					downsampler.add(new MongoDBItem(name, convertState(item, obj), obj.getDate(FIELD_TIMESTAMP)));
+				}
+			} finally {
+				cursor.close();
+			}
+			return downsampler.getResult();
+		}
+
 		Integer sortDir = (filter.getOrdering() == Ordering.ASCENDING) ? 1 : -1;
 		DBCursor cursor = this.mongoCollection.find(query)
 				.sort(new BasicDBObject(FIELD_TIMESTAMP, sortDir))
@@ -301,34 +328,149 @@ public class MongoDBPersistenceService implements QueryablePersistenceService,
 
 		while (cursor.hasNext()) {
 			BasicDBObject obj = (BasicDBObject) cursor.next();
+			items.add(new MongoDBItem(name, convertState(item, obj), obj.getDate(FIELD_TIMESTAMP)));
+		}
 
-			final State state;
-			if (item instanceof NumberItem) {
-				state = new DecimalType(obj.getDouble(FIELD_VALUE));
-			} else if (item instanceof DimmerItem) {
-				state = new PercentType(obj.getInt(FIELD_VALUE));
-			} else if (item instanceof SwitchItem) {
-				state = OnOffType.valueOf(obj.getString(FIELD_VALUE));
-			} else if (item instanceof ContactItem) {
-				state = OpenClosedType.valueOf(obj.getString(FIELD_VALUE));
-			} else if (item instanceof RollershutterItem) {
-				state = new PercentType(obj.getInt(FIELD_VALUE));
-			} else if (item instanceof ColorItem) {
-				state = new HSBType(obj.getString(FIELD_VALUE));
-			} else if (item instanceof DateTimeItem) {
-				Calendar cal = Calendar.getInstance();
-				cal.setTime(obj.getDate(FIELD_VALUE));
-				state = new DateTimeType(cal);
-			} else {
-				state = new StringType(obj.getString(FIELD_VALUE));
-			}
+		return items;
+	}
 
-			items.add(new MongoDBItem(name, state, obj.getDate(FIELD_TIMESTAMP)));
+	/**
+	 * Queries the latest value of all given items with a single aggregation,
+	 * which groups the documents of the items by their name.
+	 * 
+	 * @{inheritDoc}
+	 */
+	public Map<String, HistoricItem> queryLatest(Collection<String> itemNames) {
+		if (!initialized)
+			return Collections.emptyMap();
+
+		if (!isConnected())
+			connectToDatabase();
+
+		if (!isConnected())
+			return Collections.emptyMap();
+
+		DBObject match = new BasicDBObject("$match", 
+				new BasicDBObject(FIELD_ITEM, new BasicDBObject("$in", itemNames)));
+		// the sort follows the index on item and timestamp; should the server sort in memory
+		// nevertheless, it may use temporary files instead of failing at its memory limit
+		DBObject sort = new BasicDBObject("$sort", new BasicDBObject(FIELD_ITEM, 1).append(FIELD_TIMESTAMP, -1));
+		DBObject group = new BasicDBObject("$group", new BasicDBObject(FIELD_ID, "$" + FIELD_ITEM)
+				.append(FIELD_TIMESTAMP, new BasicDBObject("$first", "$" + FIELD_TIMESTAMP))
+				.append(FIELD_VALUE, new BasicDBObject("$first", "$" + FIELD_VALUE)));
+		AggregationOptions options = AggregationOptions.builder()
+				.allowDiskUse(true)
+				.outputMode(OutputMode.CURSOR)
+				.build();
+
+		Map<String, HistoricItem> items = new HashMap<String, HistoricItem>();
+		Cursor cursor = this.mongoCollection.aggregate(Arrays.asList(match, sort, group), options);
+		try {
+			while (cursor.hasNext()) {
+				BasicDBObject obj = (BasicDBObject) cursor.next();
+				String name = obj.getString(FIELD_ID);
+				Item item = getItem(name);
+				items.put(name, new MongoDBItem(name, convertState(item, obj), obj.getDate(FIELD_TIMESTAMP)));
+			}
+		} finally {
+			cursor.close();
 		}
 
 		return items;
 	}
 
+	/**
+	 * Computes averages and counts with the aggregation pipeline. For the minimum
+	 * and maximum, the single document with the extreme value is read.
+	 * 
+	 * @{inheritDoc}
+	 */
+	public HistoricItem aggregate(FilterCriteria filter, AggregateFunction function) {
+		String name = filter.getItemName();
+		Date now = new Date();
+		HistoricItem noValues = (function == AggregateFunction.COUNT) ? new MongoDBItem(name, DecimalType.ZERO, now) : null;
+		if (!initialized)
+			return noValues;
+
+		if (!isConnected())
+			connectToDatabase();
+
+		if (!isConnected())
+			return noValues;
+
+		// numbers are stored as doubles, which have the BSON type 1
+		BasicDBObject query = new BasicDBObject(FIELD_ITEM, name)
+				.append(FIELD_VALUE, new BasicDBObject("$type", 1));
+		BasicDBObject period = new BasicDBObject();
+		if (filter.getBeginDate() != null) {
+			period.append("$gte", filter.getBeginDate());
+		}
+		if (filter.getEndDate() != null) {
+			period.append("$lte", filter.getEndDate());
+		}
+		if (!period.isEmpty()) {
+			query.append(FIELD_TIMESTAMP, period);
+		}
+		Date timestamp = (filter.getEndDate() != null) ? filter.getEndDate() : now;
+
+		switch (function) {
+		case AVERAGE:
+		case COUNT:
+			DBObject match = new BasicDBObject("$match", query);
+			DBObject group = new BasicDBObject("$group", new BasicDBObject(FIELD_ID, null)
+					.append("average", new BasicDBObject("$avg", "$" + FIELD_VALUE))
+					.append("count", new BasicDBObject("$sum", 1)));
+			for (DBObject result : this.mongoCollection.aggregate(match, group).results()) {
+				BasicDBObject obj = (BasicDBObject) result;
+				if (function == AggregateFunction.COUNT) {
+					return new MongoDBItem(name, new DecimalType(obj.getLong("count")), timestamp);
+				}
+				return new MongoDBItem(name, new DecimalType(obj.getDouble("average")), timestamp);
+			}
+			return noValues;
+		default:
+			Integer sortDir = (function == AggregateFunction.MAXIMUM) ? -1 : 1;
+			DBCursor cursor = this.mongoCollection.find(query)
+					.sort(new BasicDBObject(FIELD_VALUE, sortDir).append(FIELD_TIMESTAMP, 1))
+					.limit(1);
+			try {
+				if (cursor.hasNext()) {
+					BasicDBObject obj = (BasicDBObject) cursor.next();
+					Item item = getItem(name);
+					State state = (item != null) ? convertState(item, obj) : new DecimalType(obj.getDouble(FIELD_VALUE));
+					return new MongoDBItem(name, state, obj.getDate(FIELD_TIMESTAMP));
+				}
+			} finally {
+				cursor.close();
+			}
+			return noValues;
+		}
+	}
+
+	private State convertState(Item item, BasicDBObject obj) {
+		final State state;
+		if (item instanceof NumberItem) {
+			state = new DecimalType(obj.getDouble(FIELD_VALUE));
+		} else if (item instanceof DimmerItem) {
+			state = new PercentType(obj.getInt(FIELD_VALUE));
+		} else if (item instanceof SwitchItem) {
+			state = OnOffType.valueOf(obj.getString(FIELD_VALUE));
+		} else if (item instanceof ContactItem) {
+			state = OpenClosedType.valueOf(obj.getString(FIELD_VALUE));
+		} else if (item instanceof RollershutterItem) {
+			state = new PercentType(obj.getInt(FIELD_VALUE));
+		} else if (item instanceof ColorItem) {
+			state = new HSBType(obj.getString(FIELD_VALUE));
+		} else if (item instanceof DateTimeItem) {
+			Calendar cal = Calendar.getInstance();
+			cal.setTime(obj.getDate(FIELD_VALUE));
+			state = new DateTimeType(cal);
+		} else {
+			state = new StringType(obj.getString(FIELD_VALUE));
+		}
+		return state;
+	}
+
 	private String convertOperator(Operator operator) {
 		switch (operator) {
 		case EQ:
@@ -0,0 +1,275 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.mysql.internal;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.Properties;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A small pool of connections to the MySQL database.
+ *
+ * Connections are opened on demand, up to a maximum number. Every connection keeps
+ * the statements that have been prepared on it, so that the statements to store
+ * and query an item table are prepared only once per connection. A connection that
+ * has been idle for a while is validated before it is handed out again.
+ *
+ * @since 1.7.0
+ */
+public class MysqlConnectionPool {
+
+	private static final Logger logger = LoggerFactory.getLogger(MysqlConnectionPool.class);
+
+	/** the maximum number of prepared statements that are kept per connection */
+	private static final int MAX_STATEMENTS = 200;
+
+	/** the time after which an idle connection is validated before it is used again */
+	private static final long VALIDATION_INTERVAL = 30000;
+
+	/** the maximum time to wait for a free connection */
+	private static final long BORROW_TIMEOUT = 10000;
+
+	private final String url;
+
+	private final Properties properties;
+
+	private final int maxConnections;
+
+	private final int waitTimeout;
+
+	/** the idle connections, the most recently used one first */
+	private final LinkedList<PooledConnection> idle = new LinkedList<PooledConnection>();
+
+	private int openConnections = 0;
+
+	private boolean closed = false;
+
+	/**
+	 * @param url the JDBC url of the database
+	 * @param user the database user
+	 * @param password the password of the database user
+	 * @param maxConnections the maximum number of open connections
+	 * @param waitTimeout the session wait_timeout to set in seconds, -1 to keep the server default
+	 */
+	public MysqlConnectionPool(String url, String user, String password, int maxConnections, int waitTimeout) {
+		this.url = url;
+		this.maxConnections = maxConnections;
+		this.waitTimeout = waitTimeout;
+		this.properties = new Properties();
+		properties.setProperty("user", user);
+		if (password != null) {
+			properties.setProperty("password", password);
+		}
+		// send the rows of a statement batch as a single multi-row insert
+		properties.setProperty("rewriteBatchedStatements", "true");
+	}
+
+	/**
+	 * Takes a connection from the pool or opens a new one. The connection has to be
+	 * given back by {@link PooledConnection#release(boolean)}.
+	 *
+	 * @return a connection for the exclusive use by the caller
+	 * @throws SQLException if no connection could be opened or none has become free in time
+	 */
+	public PooledConnection getConnection() throws SQLException {
+		long deadline = System.currentTimeMillis() + BORROW_TIMEOUT;
+		while (true) {
+			PooledConnection connection = null;
+			synchronized (this) {
+				while (!closed && idle.isEmpty() && openConnections >= maxConnections) {
+					long wait = deadline - System.currentTimeMillis();
+					if (wait <= 0) {
+						throw new SQLException("No free connection to the database within " + BORROW_TIMEOUT + "ms");
+					}
+					try {
+						wait(wait);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new SQLException("Interrupted while waiting for a free connection");
+					}
+				}
+				if (closed) {
+					throw new SQLException("The connection pool has been closed");
+				}
+				if (!idle.isEmpty()) {
+					connection = idle.removeFirst();
+				} else {
+					openConnections++;
+				}
+			}
+
+			if (connection == null) {
+				try {
+					return new PooledConnection(connect());
+				} catch (SQLException e) {
+					discard(null);
+					throw e;
+				}
+			}
+			if (connection.isValid()) {
+				return connection;
+			}
+			logger.debug("mySQL: Discarding invalid connection to database {}", url);
+			discard(connection);
+		}
+	}
+
+	/**
+	 * Closes all idle connections. Connections that are in use are closed as soon as they are released.
+	 */
+	public void close() {
+		LinkedList<PooledConnection> connections;
+		synchronized (this) {
+			closed = true;
+			connections = new LinkedList<PooledConnection>(idle);
+			openConnections -= idle.size();
+			idle.clear();
+			notifyAll();
+		}
+		for (PooledConnection connection : connections) {
+			connection.close();
+		}
+	}
+
+	private Connection connect() throws SQLException {
+		logger.debug("mySQL: Attempting to connect to database {}", url);
+		Connection connection = DriverManager.getConnection(url, properties);
+		if (waitTimeout != -1) {
+			logger.debug("mySQL: Setting wait_timeout to {} seconds.", waitTimeout);
+			Statement st = connection.createStatement();
+			try {
+				st.executeUpdate("SET SESSION wait_timeout=" + waitTimeout);
+			} finally {
+				st.close();
+			}
+		}
+		logger.debug("mySQL: Connected to database {}", url);
+		return connection;
+	}
+
+	private void release(PooledConnection connection, boolean broken) {
+		synchronized (this) {
+			if (!broken && !closed) {
+				connection.lastUsed = System.currentTimeMillis();
+				idle.addFirst(connection);
+				notifyAll();
+				return;
+			}
+		}
+		discard(connection);
+	}
+
+	private void discard(PooledConnection connection) {
+		if (connection != null) {
+			connection.close();
+		}
+		synchronized (this) {
+			openConnections--;
+			notifyAll();
+		}
+	}
+
+	/**
+	 * A connection of the pool together with the statements that have been prepared on it.
+	 */
+	public class PooledConnection {
+
+		private final Connection connection;
+
+		private final Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, PreparedStatement> eldest) {
+				if (size() > MAX_STATEMENTS) {
+					closeQuietly(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+
+		private long lastUsed = System.currentTimeMillis();
+
+		private PooledConnection(Connection connection) {
+			this.connection = connection;
+		}
+
+		public Connection getConnection() {
+			return connection;
+		}
+
+		/**
+		 * Returns the prepared statement for the given SQL, which is prepared on the
+		 * first call only. The statement must not be closed by the caller.
+		 *
+		 * @param sql the SQL of the statement
+		 * @return the prepared statement
+		 * @throws SQLException if the statement cannot be prepared
+		 */
+		public PreparedStatement prepareStatement(String sql) throws SQLException {
+			PreparedStatement statement = statements.get(sql);
+			if (statement == null) {
+				statement = connection.prepareStatement(sql);
+				statements.put(sql, statement);
+			}
+			return statement;
+		}
+
+		/**
+		 * Gives the connection back to the pool.
+		 *
+		 * @param broken true, if an error has occurred on the connection; it is closed then
+		 */
+		public void release(boolean broken) {
+			MysqlConnectionPool.this.release(this, broken);
+		}
+
+		private boolean isValid() {
+			if (System.currentTimeMillis() - lastUsed < VALIDATION_INTERVAL) {
+				return true;
+			}
+			try {
+				return connection.isValid(5);
+			} catch (SQLException e) {
+				return false;
+			}
+		}
+
+		private void close() {
+			for (PreparedStatement statement : statements.values()) {
+				closeQuietly(statement);
+			}
+			statements.clear();
+			try {
+				connection.close();
+				logger.debug("mySQL: Disconnected from database {}", url);
+			} catch (SQLException e) {
+				logger.debug("mySQL: Failed disconnecting from the SQL database: {}", e.getMessage());
+			}
+		}
+	}
+
+	private static void closeQuietly(Statement statement) {
+		try {
+			statement.close();
+		} catch (SQLException hidden) {
+		}
+	}
+
+}
@@ -9,20 +9,27 @@
 package org.openhab.persistence.mysql.internal;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
-import java.text.SimpleDateFormat;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Dictionary;
 import java.util.Enumeration;
 import java.util.Formatter;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -45,14 +52,19 @@ import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
 import org.openhab.core.library.types.PercentType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.persistence.AggregatingPersistenceService;
+import org.openhab.core.persistence.BatchPersistenceService;
+import org.openhab.core.persistence.BulkQueryablePersistenceService;
+import org.openhab.core.persistence.Downsampler;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
+import org.openhab.core.persistence.PersistenceEntry;
 import org.openhab.core.persistence.PersistenceService;
 import org.openhab.core.persistence.PersistentStateRestorer;
-import org.openhab.core.persistence.QueryablePersistenceService;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
+import org.openhab.persistence.mysql.internal.MysqlConnectionPool.PooledConnection;
 import org.osgi.service.cm.ConfigurationException;
 import org.osgi.service.cm.ManagedService;
 import org.slf4j.Logger;
@@ -79,12 +91,17 @@ import org.slf4j.LoggerFactory;
  * keep the best resolution, we store as a number in SQL and convert to
  * DecimalType before persisting to MySQL.
  * 
+ * Item states are written in the batches that the persistence manager has queued,
+ * through a pool of connections. Every connection keeps the prepared statements
+ * for the item tables it has used.
+ * 
  * @author Henrik Sjöstrand
  * @author Thomas.Eichstaedt-Engelen
  * @author Chris Jackson
  * @since 1.1.0
  */
-public class MysqlPersistenceService implements QueryablePersistenceService, ManagedService {
+public class MysqlPersistenceService implements BulkQueryablePersistenceService, AggregatingPersistenceService,
+		BatchPersistenceService, ManagedService {
 
 	private static final Pattern EXTRACT_CONFIG_PATTERN = Pattern.compile("^(.*?)\\.([0-9.a-zA-Z]+)$");
 
@@ -100,17 +117,34 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 	private PersistentStateRestorer persistentStateRestorer;
 
 	// Error counter - used to reconnect to database on error
-	private int errCnt;
+	private volatile int errCnt;
 	private int errReconnectThreshold = 0;
-	
+
 	private int waitTimeout = -1;
 
-	private Connection connection = null;
+	// The maximum number of connections to the database
+	private int maxConnections = 4;
+
+	private volatile MysqlConnectionPool pool = null;
 
-	private Map<String, String> sqlTables = new HashMap<String, String>();
+	private volatile boolean tablesLoaded = false;
+
+	private Map<String, String> sqlTables = new ConcurrentHashMap<String, String>();
 	private Map<String, String> sqlTypes = new HashMap<String, String>();
 
-	
+	// The number of times item states are written again after a database error
+	private static final int MAX_WRITE_RETRIES = 3;
+
+	// The time (in ms) to wait before item states are written again, multiplied by the attempt
+	private static final long RETRY_DELAY = 1000;
+
+	// The time (in s) to wait for the validation of a connection
+	private static final int VALIDATION_TIMEOUT = 5;
+
+	// The number of rows that are read at once while the result of a query is iterated
+	private static final int QUERY_PAGE_SIZE = 1000;
+
+
 	public void activate() {
 		// Initialise the type array
 		sqlTypes.put("COLORITEM", "CHAR(25)");
@@ -136,11 +170,11 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 	public void unsetItemRegistry(ItemRegistry itemRegistry) {
 		this.itemRegistry = null;
 	}
-	
+
 	public void setPersistentStateRestorer(PersistentStateRestorer persistentStateRestorer) {
 		this.persistentStateRestorer = persistentStateRestorer;
 	}
-	
+
 	public void unsetPersistentStateRestorer(PersistentStateRestorer persistentStateRestorer) {
 		this.persistentStateRestorer = null;
 	}
@@ -152,7 +186,26 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 		return "mysql";
 	}
 
-	private String getTable(Item item) {
+	/**
+	 * Returns the name of the table of an item. The table is created if the item
+	 * has not been stored before.
+	 *
+	 * @param item the item to get the table for
+	 * @param connection the connection to create the table with
+	 * @return the table name or <code>null</code>, if the table could not be created
+	 */
+	private String getTable(Item item, Connection connection) {
+		String tableName = sqlTables.get(item.getName());
+
+		// Table already exists - return the name
+		if (tableName != null)
+			return tableName;
+
+		return createTable(item, connection);
+	}
+
+	private synchronized String createTable(Item item, Connection connection) {
+		PreparedStatement preparedStatement = null;
 		Statement statement = null;
 		String sqlCmd = null;
 		int rowId = 0;
@@ -161,19 +214,19 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 
 		String tableName = sqlTables.get(itemName);
 
-		// Table already exists - return the name
+		// Table has been created in the meantime
 		if (tableName != null)
 			return tableName;
 
 		// Create a new entry in the Items table. This is the translation of
 		// item name to table
 		try {
-			sqlCmd = new String("INSERT INTO Items (ItemName) VALUES ('" + itemName + "')");
-
-			statement = connection.createStatement();
-			statement.executeUpdate(sqlCmd, Statement.RETURN_GENERATED_KEYS);
+			preparedStatement = connection.prepareStatement("INSERT INTO Items (ItemName) VALUES (?)",
+					Statement.RETURN_GENERATED_KEYS);
+			preparedStatement.setString(1, itemName);
+			preparedStatement.executeUpdate();
 
-			ResultSet resultSet = statement.getGeneratedKeys();
+			ResultSet resultSet = preparedStatement.getGeneratedKeys();
 			if (resultSet != null && resultSet.next()) {
 				rowId = resultSet.getInt(1);
 			}
@@ -186,11 +239,11 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 			tableName = new String("Item" + rowId);
 			logger.debug("mySQL: new item {} is Item{}", itemName, rowId);
 		} catch (SQLException e) {
-			logger.error("mySQL: Could not create table for item '{}': ", itemName, e.getMessage());
+			logger.error("mySQL: Could not create table for item '{}': {}", itemName, e.getMessage());
 		} finally {
-			if (statement != null) {
+			if (preparedStatement != null) {
 				try {
-					statement.close();
+					preparedStatement.close();
 				} catch (SQLException logOrIgnore) {
 				}
 			}
@@ -224,7 +277,7 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 			sqlTables.put(itemName, tableName);
 		} catch (Exception e) {
 			logger.error("mySQL: Could not create table for item '" + itemName + "' with statement '" + sqlCmd + "': "
-					+ e.getMessage());			
+					+ e.getMessage());
 		} finally {
 			if (statement != null) {
 				try {
@@ -239,25 +292,27 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 		// The item needs to be removed from the index table to avoid duplicates
 		if(sqlTables.get(itemName) == null) {
 			logger.error("mySQL: Item '{}' was not added to the table - removing index", itemName);
-			sqlCmd = new String("DELETE FROM Items WHERE ItemName='" + itemName+"'");
+			sqlCmd = new String("DELETE FROM Items WHERE ItemName=?");
 			logger.debug("SQL: {}", sqlCmd);
-	
+
 			try {
-				statement = connection.createStatement();
-				statement.executeUpdate(sqlCmd);	
+				preparedStatement = connection.prepareStatement(sqlCmd);
+				preparedStatement.setString(1, itemName);
+				preparedStatement.executeUpdate();
 			} catch (Exception e) {
 				logger.error("mySQL: Could not remove index for item '" + itemName + "' with statement '" + sqlCmd + "': "
-						+ e.getMessage());			
+						+ e.getMessage());
 			} finally {
-				if (statement != null) {
+				if (preparedStatement != null) {
 					try {
-						statement.close();
+						preparedStatement.close();
 					} catch (Exception hidden) {
 					}
 				}
 			}
-		}			
-		
+			return null;
+		}
+
 		return tableName;
 	}
 
@@ -265,171 +320,275 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 	 * @{inheritDoc
 	 */
 	public void store(Item item, String alias) {
-		// Don't log undefined/uninitialised data
-		if(item.getState() instanceof UnDefType)
-			return;
+		store(Collections.singletonList(new PersistenceEntry(item, alias, item.getState(), new Date())));
+	}
+
+	/**
+	 * @{inheritDoc
+	 */
+	public void store(Item item) {
+		store(item, null);
+	}
 
+	/**
+	 * Writes the given entries, which the persistence manager has collected in its queue.
+	 * Entries which could not be written because of a database error are written again
+	 * after a delay, up to <code>MAX_WRITE_RETRIES</code> times. Meanwhile, new entries
+	 * wait in the queue of the persistence manager.
+	 *
+	 * @{inheritDoc}
+	 */
+	public void store(List<PersistenceEntry> entries) {
 		// If we've not initialised the bundle, then return
 		if (initialized == false)
 			return;
 
-		// Connect to mySQL server if we're not already connected 
-		if (!isConnected())
-			connectToDatabase();
-
-		// If we still didn't manage to connect, then return!
-		if (!isConnected()) {
-			logger.warn(
-					"mySQL: No connection to database. Can not persist item '{}'! Will retry connecting to database next time.",
-					item);
+		List<PersistenceEntry> definedEntries = new ArrayList<PersistenceEntry>(entries.size());
+		for (PersistenceEntry entry : entries) {
+			// Don't log undefined/uninitialised data
+			if (!(entry.getState() instanceof UnDefType)) {
+				definedEntries.add(entry);
+			}
+		}
+		if (definedEntries.isEmpty()) {
 			return;
 		}
 
-		// Get the table name for this item
-		String tableName = getTable(item);
-		if (tableName == null) {
-			logger.error("Unable to store item '{}'.", item.getName());
-			return;
+		List<PersistenceEntry> failedEntries = write(definedEntries);
+		for (int attempt = 1; !failedEntries.isEmpty() && attempt <= MAX_WRITE_RETRIES; attempt++) {
+			try {
+				Thread.sleep(RETRY_DELAY * attempt);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			}
+			failedEntries = write(failedEntries);
 		}
+		if (!failedEntries.isEmpty()) {
+			logger.error("mySQL: Discarding {} item state(s) after failed attempts to store them.",
+					failedEntries.size());
+		}
+	}
 
-		// Do some type conversion to ensure we know the data type.
-		// This is necessary for items that have multiple types and may return their
-		// state in a format that's not preferred or compatible with the MySQL type.
-		// eg. DimmerItem can return OnOffType (ON, OFF), or PercentType (0-100).
-		// We need to make sure we cover the best type for serialisation.
-		String value;
-		if (item instanceof DimmerItem || item instanceof RollershutterItem) {
-			value = item.getStateAs(PercentType.class).toString();
-		} else if (item instanceof ColorItem) {
-			value = item.getStateAs(HSBType.class).toString();
-		} else {
-			// All other items should return the best format by default
-			value = item.getState().toString();
+	/**
+	 * Writes the given entries with a batch insert per item table within a single transaction.
+	 * If the transaction fails, the entries are inserted one by one, so that an invalid
+	 * state only loses itself. As existing rows are updated, entries can be written again.
+	 *
+	 * @param entries the entries to write
+	 * @return the entries which could not be written because of a database error
+	 */
+	private List<PersistenceEntry> write(List<PersistenceEntry> entries) {
+		PooledConnection connection;
+		try {
+			connection = getConnection();
+		} catch (SQLException e) {
+			logger.warn(
+					"mySQL: No connection to database. Can not persist {} item state(s)! Will retry connecting to database next time: {}",
+					entries.size(), e.getMessage());
+			return entries;
 		}
 
-		String sqlCmd = null;
-		Statement statement = null;
+		boolean broken = false;
 		try {
-			statement = connection.createStatement();
-			sqlCmd = new String("INSERT INTO " + tableName + " (TIME, VALUE) VALUES(NOW(),'"
-					+ item.getState().toString() + "') ON DUPLICATE KEY UPDATE VALUE='"
-					+ item.getState().toString() + "';");
-			statement.executeUpdate(sqlCmd);
+			long timerStart = System.currentTimeMillis();
 
-			logger.debug("mySQL: Stored item '{}' as '{}'[{}] in SQL database at {}.", item.getName(), item.getState()
-					.toString(), value, (new java.util.Date()).toString());
-			logger.debug("mySQL: {}", sqlCmd);
+			// Group the entries by table, keeping their order within each table
+			Map<String, List<PersistenceEntry>> entriesByTable = new LinkedHashMap<String, List<PersistenceEntry>>();
+			for (PersistenceEntry entry : entries) {
+				String tableName = getTable(entry.getItem(), connection.getConnection());
+				if (tableName == null) {
+					logger.error("Unable to store item '{}'.", entry.getItem().getName());
+					continue;
+				}
+				List<PersistenceEntry> tableEntries = entriesByTable.get(tableName);
+				if (tableEntries == null) {
+					tableEntries = new ArrayList<PersistenceEntry>();
+					entriesByTable.put(tableName, tableEntries);
+				}
+				tableEntries.add(entry);
+			}
+
+			Connection jdbcConnection = connection.getConnection();
+			boolean committed = false;
+			jdbcConnection.setAutoCommit(false);
+			try {
+				for (Entry<String, List<PersistenceEntry>> tableEntries : entriesByTable.entrySet()) {
+					PreparedStatement statement = prepareInsert(connection, tableEntries.getKey());
+					statement.clearBatch();
+					for (PersistenceEntry entry : tableEntries.getValue()) {
+						setInsertParameters(statement, entry);
+						statement.addBatch();
+					}
+					statement.executeBatch();
+				}
+				jdbcConnection.commit();
+				committed = true;
+			} catch (SQLException e) {
+				try {
+					jdbcConnection.rollback();
+				} catch (SQLException hidden) {
+				}
+				logger.warn("mySQL: Could not store {} item state(s) in a batch, storing them one by one: {}",
+						entries.size(), e.getMessage());
+			} finally {
+				jdbcConnection.setAutoCommit(true);
+			}
+
+			if (!committed) {
+				writeSingleEntries(connection, entriesByTable);
+			}
+
+			logger.debug("mySQL: Stored {} item state(s) in {} table(s) in {}ms.", entries.size(),
+					entriesByTable.size(), System.currentTimeMillis() - timerStart);
 
 			// Success
 			errCnt = 0;
-		} catch (Exception e) {
-			errCnt++;
-
-			logger.error("mySQL: Could not store item '{}' in database with statement '{}': {}", item.getName(),
-					sqlCmd, e.getMessage());
+			return Collections.emptyList();
+		} catch (SQLException e) {
+			broken = true;
+			logger.error("mySQL: Could not store {} item state(s) in database: {}", entries.size(), e.getMessage());
+			handleError();
+			return entries;
 		} finally {
-			if (statement != null) {
+			connection.release(broken);
+		}
+	}
+
+	/**
+	 * Inserts the given entries one by one with auto-commit. An entry which the database
+	 * refuses is logged and skipped, as long as the connection is still valid.
+	 *
+	 * @throws SQLException if the connection to the database has failed
+	 */
+	private void writeSingleEntries(PooledConnection connection, Map<String, List<PersistenceEntry>> entriesByTable)
+			throws SQLException {
+		for (Entry<String, List<PersistenceEntry>> tableEntries : entriesByTable.entrySet()) {
+			PreparedStatement statement = prepareInsert(connection, tableEntries.getKey());
+			statement.clearBatch();
+			for (PersistenceEntry entry : tableEntries.getValue()) {
 				try {
-					statement.close();
-				} catch (Exception hidden) {
+					setInsertParameters(statement, entry);
+					statement.executeUpdate();
+				} catch (SQLException e) {
+					if (!connection.getConnection().isValid(VALIDATION_TIMEOUT)) {
+						throw e;
+					}
+					logger.error("mySQL: Could not store item '{}' with state '{}' in database: {}", new Object[] {
+							entry.getItem().getName(), entry.getState(), e.getMessage() });
 				}
 			}
 		}
 	}
 
-	/**
-	 * @{inheritDoc
-	 */
-	public void store(Item item) {
-		store(item, null);
+	private PreparedStatement prepareInsert(PooledConnection connection, String tableName) throws SQLException {
+		return connection.prepareStatement("INSERT INTO " + tableName
+				+ " (Time, Value) VALUES(?,?) ON DUPLICATE KEY UPDATE Value=VALUES(Value)");
+	}
+
+	private void setInsertParameters(PreparedStatement statement, PersistenceEntry entry) throws SQLException {
+		// The time column has a resolution of seconds, so drop the milliseconds
+		// instead of letting the database round them up
+		long time = entry.getTimestamp().getTime();
+		statement.setTimestamp(1, new Timestamp(time - time % 1000));
+		statement.setString(2, entry.getState().toString());
 	}
 
 	/**
-	 * Checks if we have a database connection
-	 * 
-	 * @return true if connection has been established, false otherwise
+	 * Takes a connection from the pool. On the first connection to the database, the
+	 * Items table is created if necessary and the table names of all items are loaded.
+	 *
+	 * @return the connection, which has to be released after its use
+	 * @throws SQLException if there is no connection to the database
 	 */
-	private boolean isConnected() {
-		// Error check. If we have 'errReconnectThreshold' errors in a row, then
-		// reconnect to the database
-		if (errReconnectThreshold != 0 && errCnt >= errReconnectThreshold) {
-			logger.error("mySQL: Error count exceeded {}. Disconnecting database.", errReconnectThreshold);
-			disconnectFromDatabase();
+	private PooledConnection getConnection() throws SQLException {
+		MysqlConnectionPool currentPool = pool;
+		if (currentPool == null) {
+			throw new SQLException("mySQL: Database connection is not configured");
+		}
+		PooledConnection connection = currentPool.getConnection();
+		if (!tablesLoaded) {
+			try {
+				loadTables(connection.getConnection());
+			} catch (SQLException e) {
+				connection.release(true);
+				throw e;
+			}
 		}
-		return connection != null;
+		return connection;
 	}
 
 	/**
-	 * Connects to the database
+	 * Creates the Items table if it does not exist and reads the table names of all items.
 	 */
-	private void connectToDatabase() {
-		try {
-			// Reset the error counter
-			errCnt = 0;
+	private synchronized void loadTables(Connection connection) throws SQLException {
+		if (tablesLoaded)
+			return;
 
-			logger.debug("mySQL: Attempting to connect to database {}", url);
-			Class.forName(driverClass).newInstance();
-			connection = DriverManager.getConnection(url, user, password);
-			logger.debug("mySQL: Connected to database {}", url);
+		Statement st = connection.createStatement();
+		try {
+			ResultSet rs = st.executeQuery("SHOW TABLES LIKE 'Items'");
+			boolean exists = rs.next();
+			rs.close();
 
-			Statement st = connection.createStatement();
-			int result = st.executeUpdate("SHOW TABLES LIKE 'Items'");
-			st.close();
-			
-			if(waitTimeout != -1) {
-				logger.debug("mySQL: Setting wait_timeout to {} seconds.", waitTimeout);
-				st = connection.createStatement();
-				st.executeUpdate("SET SESSION wait_timeout="+waitTimeout);
-				st.close();
-			}
-			if (result == 0) {
-				st = connection.createStatement();
-				st.executeUpdate(
-						"CREATE TABLE Items (ItemId INT NOT NULL AUTO_INCREMENT,ItemName VARCHAR(200) NOT NULL,PRIMARY KEY (ItemId));",
-						Statement.RETURN_GENERATED_KEYS);
-				st.close();
+			if (!exists) {
+				st.executeUpdate("CREATE TABLE Items (ItemId INT NOT NULL AUTO_INCREMENT,ItemName VARCHAR(200) NOT NULL,PRIMARY KEY (ItemId));");
 			}
 
 			// Retrieve the table array
-			st = connection.createStatement();
-
-			// Turn use of the cursor on.
-			st.setFetchSize(50);
-			ResultSet rs = st.executeQuery("SELECT ItemId, ItemName FROM Items");
+			rs = st.executeQuery("SELECT ItemId, ItemName FROM Items");
 			while (rs.next()) {
 				sqlTables.put(rs.getString(2), "Item" + rs.getInt(1));
 			}
 			rs.close();
+		} finally {
 			st.close();
-		} catch (Exception e) {
-			logger.error("mySQL: Failed connecting to the SQL database using: driverClass=" + driverClass + ", url="
-					+ url + ", user=" + user + ", password=" + password, e);
 		}
+		tablesLoaded = true;
+	}
+
+	/**
+	 * Counts an error. If we have 'errReconnectThreshold' errors in a row, then
+	 * all connections to the database are closed and reopened on demand.
+	 */
+	private void handleError() {
+		errCnt++;
+		if (errReconnectThreshold != 0 && errCnt >= errReconnectThreshold) {
+			logger.error("mySQL: Error count exceeded {}. Disconnecting database.", errReconnectThreshold);
+			connectToDatabase();
+		}
+	}
+
+	/**
+	 * Replaces the connection pool by a new one
+	 */
+	private synchronized void connectToDatabase() {
+		// Reset the error counter
+		errCnt = 0;
+
+		disconnectFromDatabase();
+		tablesLoaded = false;
+		pool = new MysqlConnectionPool(url, user, password, maxConnections, waitTimeout);
 	}
 
 	/**
 	 * Disconnects from the database
 	 */
-	private void disconnectFromDatabase() {
-		if (connection != null) {
-			try {
-				connection.close();
-				logger.debug("mySQL: Disconnected from database {}", url);
-			} catch (Exception e) {
-				logger.error("mySQL: Failed disconnecting from the SQL database {}", e);
-			}
-			connection = null;
+	private synchronized void disconnectFromDatabase() {
+		if (pool != null) {
+			pool.close();
+			pool = null;
 		}
 	}
 
 	/**
 	 * Formats the given <code>alias</code> by utilizing {@link Formatter}.
-	 * 
+	 *
 	 * @param alias
 	 *            the alias String which contains format strings
 	 * @param values
 	 *            the values which will be replaced in the alias String
-	 * 
+	 *
 	 * @return the formatted value. All format strings are replaced by
 	 *         appropriate values
 	 * @see java.util.Formatter for detailed information on format Strings.
@@ -496,19 +655,41 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 				waitTimeout = Integer.parseInt(tmpString);
 			}
 
+			tmpString = (String) config.get("maxConnections");
+			if (StringUtils.isNotBlank(tmpString)) {
+				maxConnections = Math.max(1, Integer.parseInt(tmpString));
+			}
+
+			try {
+				Class.forName(driverClass).newInstance();
+			} catch (Exception e) {
+				logger.error("mySQL: Failed loading the JDBC driver " + driverClass, e);
+			}
+
 			// reconnect to the database in case the configuration has changed.
-			disconnectFromDatabase();
 			connectToDatabase();
+			try {
+				getConnection().release(false);
+			} catch (SQLException e) {
+				logger.error("mySQL: Failed connecting to the SQL database using: driverClass=" + driverClass + ", url="
+						+ url + ", user=" + user, e);
+			}
 
-			// connection has been established ... initialization completed!
+			// connection pool has been set up ... initialization completed!
 			initialized = true;
-			
+
 			logger.debug("mySQL configuration complete.");
 			persistentStateRestorer.initializeItems(getName());
 		}
 
 	}
 
+	/**
+	 * The rows are read page by page while the result is iterated, so that only one page
+	 * of items is held in memory. A downsampled result is reduced while the pages are read.
+	 * 
+	 * @{inheritDoc}
+	 */
 	@Override
 	public Iterable<HistoricItem> query(FilterCriteria filter) {
 		if (!initialized) {
@@ -516,130 +697,415 @@ public class MysqlPersistenceService implements QueryablePersistenceService, Man
 			return Collections.emptyList();
 		}
 
-		if (!isConnected())
-			connectToDatabase();
+		// Get the item name from the filter
+		// Also get the Item object so we can determine the type
+		String itemName = filter.getItemName();
+		logger.debug("mySQL query: item is {}", itemName);
+		Item item = getItem(itemName);
 
-		if (!isConnected()) {
-			logger.debug("Query aborted on item {} - mySQL not connected!", filter.getItemName());
+		String table = sqlTables.get(itemName);
+		if (table == null) {
+			logger.error("mySQL: Unable to find table for query '" + itemName + "'.");
 			return Collections.emptyList();
 		}
 
-		SimpleDateFormat mysqlDateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+		if (filter.getResolution() <= 0) {
+			return new QueryResult(itemName, item, table, filter);
+		}
 
-		// Get the item name from the filter
-		// Also get the Item object so we can determine the type
-		Item item = null;
-		String itemName = filter.getItemName();
-		logger.debug("mySQL query: item is {}", itemName);
-		try {
-			if (itemRegistry != null) {
-				item = itemRegistry.getItem(itemName);
+		// A downsampled result is reduced while the rows are read, which requires ascending rows
+		long timerStart = System.currentTimeMillis();
+		Downsampler downsampler = new Downsampler(filter);
+		long count = 0;
+		for (HistoricItem historicItem : new QueryResult(itemName, item, table, filter, true)) {
+			downsampler.add(historicItem);
+			count++;
+		}
+		List<HistoricItem> items = downsampler.getResult();
+
+		long timerStop = System.currentTimeMillis();
+		logger.debug("mySQL: query returned {} rows as {} items in {}ms", count, items.size(), timerStop - timerStart);
+		return items;
+	}
+
+	/**
+	 * The result of a query, whose rows are read page by page while it is iterated. As the
+	 * time is the primary key of an item table, every page continues after the time of the
+	 * last row of the previous page, so that the database does not have to skip the rows
+	 * that have already been read. Each page is read through a connection of the pool, which
+	 * is released before the items of the page are returned. If reading a page fails, the
+	 * iteration ends with the items read so far.
+	 */
+	private class QueryResult implements Iterable<HistoricItem> {
+
+		private final String itemName;
+		private final Item item;
+		private final String table;
+		private final FilterCriteria filter;
+		private final boolean ascending;
+
+		QueryResult(String itemName, Item item, String table, FilterCriteria filter) {
+			this(itemName, item, table, filter, filter.getOrdering() == Ordering.ASCENDING);
+		}
+
+		QueryResult(String itemName, Item item, String table, FilterCriteria filter, boolean ascending) {
+			this.itemName = itemName;
+			this.item = item;
+			this.table = table;
+			this.filter = filter;
+			this.ascending = ascending;
+		}
+
+		public Iterator<HistoricItem> iterator() {
+			return new Iterator<HistoricItem>() {
+
+				private final boolean paged = filter.getPageSize() != Integer.MAX_VALUE && filter.getResolution() <= 0;
+
+				// The rows to skip before the first page, and the rows that are still to be returned
+				private long offset = paged ? (long) filter.getPageNumber() * filter.getPageSize() : 0;
+				private long remaining = paged ? filter.getPageSize() : Long.MAX_VALUE;
+
+				private List<HistoricItem> page = Collections.emptyList();
+				private int index = 0;
+				private boolean lastPage = false;
+
+				public boolean hasNext() {
+					if (index < page.size()) {
+						return true;
+					}
+					if (lastPage || remaining <= 0) {
+						return false;
+					}
+					Date after = page.isEmpty() ? null : page.get(page.size() - 1).getTimestamp();
+					int rows = (int) Math.min(QUERY_PAGE_SIZE, remaining);
+					page = readPage(after, offset, rows);
+					lastPage = page.size() < rows;
+					offset = 0;
+					remaining -= page.size();
+					index = 0;
+					return !page.isEmpty();
+				}
+
+				public HistoricItem next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return page.get(index++);
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+
+		/**
+		 * Reads the rows of a page.
+		 * 
+		 * @param after the time of the last row of the previous page or <code>null</code> for the first page
+		 * @param offset the number of rows to skip
+		 * @param rows the maximum number of rows to read
+		 * @return the items of the page, which are empty if the page could not be read
+		 */
+		private List<HistoricItem> readPage(Date after, long offset, int rows) {
+			PooledConnection connection;
+			try {
+				connection = getConnection();
+			} catch (SQLException e) {
+				logger.debug("Query aborted on item {} - mySQL not connected!", itemName);
+				return Collections.emptyList();
 			}
-		} catch (ItemNotFoundException e1) {
-			logger.error("Unable to get item type for {}", itemName);
 
-			// Set type to null - data will be returned as StringType
-			item = null;
+			StringBuilder queryString = new StringBuilder("SELECT Time, Value FROM ").append(table);
+			appendTimeFilter(queryString, filter);
+			if (after != null) {
+				queryString.append(filter.getBeginDate() != null || filter.getEndDate() != null ? " AND" : " WHERE");
+				queryString.append(ascending ? " Time>?" : " Time<?");
+			}
+			queryString.append(ascending ? " ORDER BY Time ASC" : " ORDER BY Time DESC");
+			queryString.append(" LIMIT ?,?");
+
+			boolean broken = false;
+			try {
+				logger.debug("mySQL: {}", queryString);
+
+				PreparedStatement st = connection.prepareStatement(queryString.toString());
+				int parameter = setTimeFilter(st, filter);
+				if (after != null) {
+					st.setTimestamp(parameter++, new Timestamp(after.getTime()));
+				}
+				st.setLong(parameter++, offset);
+				st.setInt(parameter++, rows);
+
+				List<HistoricItem> items = new ArrayList<HistoricItem>(rows);
+				ResultSet rs = st.executeQuery();
+				try {
+					while (rs.next()) {
+						items.add(new MysqlItem(itemName, getState(item, rs, 2), rs.getTimestamp(1)));
+					}
+				} finally {
+					rs.close();
+				}
+
+				// Success
+				errCnt = 0;
+
+				return items;
+			} catch (SQLException e) {
+				broken = true;
+				logger.error("mySQL: Error running querying : " + e.getMessage());
+				handleError();
+			} finally {
+				connection.release(broken);
+			}
+			return Collections.emptyList();
+		}
+	}
+
+	/**
+	 * Computes averages and counts with the SQL aggregate functions. For the minimum
+	 * and maximum, the single row with the extreme value is read.
+	 * 
+	 * @{inheritDoc}
+	 */
+	public HistoricItem aggregate(FilterCriteria filter, AggregateFunction function) {
+		String itemName = filter.getItemName();
+		Date now = new Date();
+		HistoricItem noValues = function == AggregateFunction.COUNT ? new MysqlItem(itemName, DecimalType.ZERO, now) : null;
+		if (!initialized) {
+			logger.debug("Aggregation aborted on item {} - mySQL not initialised!", itemName);
+			return noValues;
+		}
+
+		// Only the columns of these items hold numbers
+		Item item = getItem(itemName);
+		if (!(item instanceof NumberItem || item instanceof DimmerItem || item instanceof RollershutterItem)) {
+			return noValues;
+		}
+
+		PooledConnection connection;
+		try {
+			connection = getConnection();
+		} catch (SQLException e) {
+			logger.debug("Aggregation aborted on item {} - mySQL not connected!", itemName);
+			return noValues;
 		}
-                   
-        if(item instanceof GroupItem){
-            // For Group Items is BaseItem needed to get correct Type of Value.
-            item = GroupItem.class.cast(item).getBaseItem();
-        }
 
 		String table = sqlTables.get(itemName);
 		if (table == null) {
-			logger.error("mySQL: Unable to find table for query '" + itemName + "'.");
-			return Collections.emptyList();
+			connection.release(false);
+			return noValues;
 		}
 
-		String filterString = new String();
+		StringBuilder queryString = new StringBuilder();
+		switch (function) {
+		case AVERAGE:
+			queryString.append("SELECT AVG(Value) FROM ").append(table);
+			appendTimeFilter(queryString, filter);
+			break;
+		case COUNT:
+			queryString.append("SELECT COUNT(Value) FROM ").append(table);
+			appendTimeFilter(queryString, filter);
+			break;
+		default:
+			queryString.append("SELECT Time, Value FROM ").append(table);
+			appendTimeFilter(queryString, filter);
+			queryString.append(function == AggregateFunction.MINIMUM ? " ORDER BY Value ASC" : " ORDER BY Value DESC");
+			queryString.append(", Time ASC LIMIT 1");
+		}
+
+		boolean broken = false;
+		try {
+			logger.debug("mySQL: {}", queryString);
 
+			PreparedStatement st = connection.prepareStatement(queryString.toString());
+			setTimeFilter(st, filter);
+			ResultSet rs = st.executeQuery();
+			try {
+				if (!rs.next()) {
+					return noValues;
+				}
+				// Success
+				errCnt = 0;
+
+				Date timestamp = filter.getEndDate() != null ? filter.getEndDate() : now;
+				switch (function) {
+				case AVERAGE:
+					double average = rs.getDouble(1);
+					return rs.wasNull() ? null : new MysqlItem(itemName, new DecimalType(average), timestamp);
+				case COUNT:
+					return new MysqlItem(itemName, new DecimalType(rs.getLong(1)), timestamp);
+				default:
+					return new MysqlItem(itemName, getState(item, rs, 2), rs.getTimestamp(1));
+				}
+			} finally {
+				rs.close();
+			}
+		} catch (SQLException e) {
+			broken = true;
+			logger.error("mySQL: Error aggregating the values of item '{}': {}", itemName, e.getMessage());
+			handleError();
+		} finally {
+			connection.release(broken);
+		}
+		return noValues;
+	}
+
+	/**
+	 * Appends the conditions for the begin and end date of a filter to a query.
+	 */
+	private void appendTimeFilter(StringBuilder queryString, FilterCriteria filter) {
 		if (filter.getBeginDate() != null) {
-			if (filterString.isEmpty())
-				filterString += " WHERE";
-			else
-				filterString += " AND";
-			filterString += " TIME>'" + mysqlDateFormat.format(filter.getBeginDate()) + "'";
+			queryString.append(" WHERE Time>?");
 		}
 		if (filter.getEndDate() != null) {
-			if (filterString.isEmpty())
-				filterString += " WHERE";
-			else
-				filterString += " AND";
-			filterString += " TIME<'" + mysqlDateFormat.format(filter.getEndDate().getTime()) + "'";
+			queryString.append(filter.getBeginDate() != null ? " AND" : " WHERE").append(" Time<?");
 		}
+	}
 
-		if (filter.getOrdering() == Ordering.ASCENDING) {
-			filterString += " ORDER BY Time ASC";
-		} else {
-			filterString += " ORDER BY Time DESC";
+	/**
+	 * Sets the parameters for the conditions added by {@link #appendTimeFilter(StringBuilder, FilterCriteria)}.
+	 * 
+	 * @return the index of the next parameter
+	 */
+	private int setTimeFilter(PreparedStatement st, FilterCriteria filter) throws SQLException {
+		int parameter = 1;
+		if (filter.getBeginDate() != null) {
+			st.setTimestamp(parameter++, new Timestamp(filter.getBeginDate().getTime()));
 		}
+		if (filter.getEndDate() != null) {
+			st.setTimestamp(parameter++, new Timestamp(filter.getEndDate().getTime()));
+		}
+		return parameter;
+	}
 
-		if (filter.getPageSize() != 0x7fffffff)
-			filterString += " LIMIT " + filter.getPageNumber() * filter.getPageSize() + "," + filter.getPageSize();
-
+	/**
+	 * Returns the item to convert the values of a table with. For group items, this is their base item.
+	 * 
+	 * @return the item or <code>null</code>, if it does not exist
+	 */
+	private Item getItem(String itemName) {
+		Item item = null;
 		try {
-			long timerStart = System.currentTimeMillis();
+			if (itemRegistry != null) {
+				item = itemRegistry.getItem(itemName);
+			}
+		} catch (ItemNotFoundException e) {
+			logger.debug("Unable to get item type for {}", itemName);
+		}
+		if (item instanceof GroupItem) {
+			item = GroupItem.class.cast(item).getBaseItem();
+		}
+		return item;
+	}
 
-			// Retrieve the table array
-			Statement st = connection.createStatement();
+	/**
+	 * Queries the latest value of all given items with a single statement, which
+	 * combines one sub-select per item table.
+	 *
+	 * @{inheritDoc}
+	 */
+	public Map<String, HistoricItem> queryLatest(Collection<String> itemNames) {
+		if (!initialized) {
+			logger.debug("Query aborted - mySQL not initialised!");
+			return Collections.emptyMap();
+		}
 
-			String queryString = new String();
-			queryString = "SELECT Time, Value FROM " + table;
-			if (!filterString.isEmpty())
-				queryString += filterString;
+		PooledConnection connection;
+		try {
+			connection = getConnection();
+		} catch (SQLException e) {
+			logger.debug("Query aborted - mySQL not connected!");
+			return Collections.emptyMap();
+		}
 
-			logger.debug("mySQL: " + queryString);
+		List<String> queriedNames = new ArrayList<String>(itemNames.size());
+		StringBuilder queryString = new StringBuilder();
+		for (String itemName : itemNames) {
+			String table = sqlTables.get(itemName);
+			if (table == null) {
+				logger.debug("mySQL: Unable to find table for query '{}'.", itemName);
+				continue;
+			}
+			if (queryString.length() > 0) {
+				queryString.append(" UNION ALL ");
+			}
+			queryString.append("(SELECT ").append(queriedNames.size()).append(" AS Idx, Time, Value FROM ")
+					.append(table).append(" ORDER BY Time DESC LIMIT 1)");
+			queriedNames.add(itemName);
+		}
+		if (queriedNames.isEmpty()) {
+			connection.release(false);
+			return Collections.emptyMap();
+		}
 
-			// Turn use of the cursor on.
-			st.setFetchSize(50);
+		boolean broken = false;
+		Statement st = null;
+		try {
+			long timerStart = System.currentTimeMillis();
+			logger.debug("mySQL: {}", queryString);
 
-			ResultSet rs = st.executeQuery(queryString);
+			st = connection.getConnection().createStatement();
+			ResultSet rs = st.executeQuery(queryString.toString());
 
-			long count = 0;
-			List<HistoricItem> items = new ArrayList<HistoricItem>();
-			State state;
+			Map<String, HistoricItem> items = new HashMap<String, HistoricItem>();
 			while (rs.next()) {
-				count++;
-
-				if (item instanceof NumberItem)
-					state = new DecimalType(rs.getDouble(2));
-				else if (item instanceof ColorItem)
-					state = new HSBType(rs.getString(2));
-				else if (item instanceof DimmerItem)
-					state = new PercentType(rs.getInt(2));
-				else if (item instanceof SwitchItem)
-					state = OnOffType.valueOf(rs.getString(2));
-				else if (item instanceof ContactItem)
-					state = OpenClosedType.valueOf(rs.getString(2));
-				else if (item instanceof RollershutterItem)
-					state = new PercentType(rs.getInt(2));
-				else if (item instanceof DateTimeItem) {
-					Calendar calendar = Calendar.getInstance();
-					calendar.setTimeInMillis(rs.getTimestamp(2).getTime());
-					state = new DateTimeType(calendar);
-				} else
-					state = new StringType(rs.getString(2));
-
-				MysqlItem mysqlItem = new MysqlItem(itemName, state, rs.getTimestamp(1));
-				items.add(mysqlItem);
+				String itemName = queriedNames.get(rs.getInt(1));
+				Item item = getItem(itemName);
+				items.put(itemName, new MysqlItem(itemName, getState(item, rs, 3), rs.getTimestamp(2)));
 			}
-
 			rs.close();
-			st.close();
 
-			long timerStop = System.currentTimeMillis();
-			logger.debug("mySQL: query returned {} rows in {}ms", count, timerStop - timerStart);
+			logger.debug("mySQL: latest values of {} items queried in {}ms", queriedNames.size(),
+					System.currentTimeMillis() - timerStart);
 
 			// Success
 			errCnt = 0;
 
 			return items;
 		} catch (SQLException e) {
-			errCnt++;
-			logger.error("mySQL: Error running querying : " + e.getMessage());
+			broken = true;
+			logger.error("mySQL: Error querying latest values: " + e.getMessage());
+			handleError();
+		} finally {
+			if (st != null) {
+				try {
+					st.close();
+				} catch (SQLException hidden) {
+				}
+			}
+			connection.release(broken);
 		}
-		return null;
+		return Collections.emptyMap();
+	}
+
+	/**
+	 * Converts a value of a result set into a state that matches the type of the item.
+	 * 
+	 * @param item the item the value belongs to, might be <code>null</code>
+	 * @param rs the result set, positioned at the row to convert
+	 * @param column the index of the column that contains the value
+	 * @return the state of the value
+	 * @throws SQLException if the value cannot be read
+	 */
+	private State getState(Item item, ResultSet rs, int column) throws SQLException {
+		if (item instanceof NumberItem)
+			return new DecimalType(rs.getDouble(column));
+		else if (item instanceof ColorItem)
+			return new HSBType(rs.getString(column));
+		else if (item instanceof DimmerItem)
+			return new PercentType(rs.getInt(column));
+		else if (item instanceof SwitchItem)
+			return OnOffType.valueOf(rs.getString(column));
+		else if (item instanceof ContactItem)
+			return OpenClosedType.valueOf(rs.getString(column));
+		else if (item instanceof RollershutterItem)
+			return new PercentType(rs.getInt(column));
+		else if (item instanceof DateTimeItem) {
+			Calendar calendar = Calendar.getInstance();
+			calendar.setTimeInMillis(rs.getTimestamp(column).getTime());
+			return new DateTimeType(calendar);
+		} else
+			return new StringType(rs.getString(column));
 	}
 }
@@ -0,0 +1,209 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.persistence.rrd4j.internal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.core.library.items.NumberItem;
+import org.openhab.core.library.types.DecimalType;
+import org.openhab.core.persistence.FilterCriteria;
+import org.rrd4j.ConsolFun;
+import org.rrd4j.DsType;
+import org.rrd4j.core.RrdBackendFactory;
+import org.rrd4j.core.RrdDb;
+import org.rrd4j.core.RrdDef;
+import org.rrd4j.core.RrdMemoryBackendFactory;
+
+/**
+ * Tests the pool of open databases and the coalescing of updates within a second. The
+ * databases are kept in memory.
+ *
+ * @since 1.7.0
+ */
+public class RRD4jServiceTest {
+
+	private TestService service;
+
+	@Before
+	public void setUp() {
+		service = new TestService();
+		service.activate();
+	}
+
+	@After
+	public void tearDown() {
+		service.deactivate();
+	}
+
+	@Test
+	public void testDatabaseIsKeptOpen() {
+		RrdDb db = open("Item");
+
+		assertSame(db, open("Item"));
+		assertFalse(db.isClosed());
+		assertEquals(1, service.getOpenCount("Item"));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedDatabaseOfStripeIsClosed() {
+		List<String> names = getNamesOfStripe(0, RRD4jService.MAX_OPEN_DATABASES / RRD4jService.POOL_STRIPES + 1);
+		List<RrdDb> dbs = new ArrayList<RrdDb>();
+		for (String name : names) {
+			dbs.add(open(name));
+		}
+		// databases of other stripes do not count
+		RrdDb other = open(getNamesOfStripe(1, 1).get(0));
+
+		assertTrue(dbs.get(0).isClosed());
+		for (RrdDb db : dbs.subList(1, dbs.size())) {
+			assertFalse(db.isClosed());
+		}
+		assertFalse(other.isClosed());
+
+		// the database is opened again, which closes the next least recently used one
+		assertNotSame(dbs.get(0), open(names.get(0)));
+		assertEquals(2, service.getOpenCount(names.get(0)));
+		assertTrue(dbs.get(1).isClosed());
+	}
+
+	@Test
+	public void testUpdatesWithinOneSecondAreCoalesced() throws Exception {
+		NumberItem item = new NumberItem("Item");
+		long second = awaitNextSecond();
+		store(item, 1);
+		store(item, 2);
+		store(item, 3);
+
+		RrdDb db = open("Item");
+		assertEquals(second, db.getLastUpdateTime());
+		assertEquals(1, db.getLastDatasourceValue("state"), 0.0);
+
+		// the latest state is stored by the scheduler in the next second
+		long end = System.currentTimeMillis() + 5000;
+		while (db.getLastUpdateTime() == second && System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+		}
+		assertEquals(second + 1, db.getLastUpdateTime());
+		assertEquals(3, db.getLastDatasourceValue("state"), 0.0);
+	}
+
+	@Test
+	public void testPendingStoreIsFlushedOnDeactivation() throws IOException {
+		NumberItem item = new NumberItem("Item");
+		long second = awaitNextSecond();
+		store(item, 1);
+		store(item, 2);
+		RrdDb db = open("Item");
+
+		service.deactivate();
+
+		assertTrue(db.isClosed());
+		RrdDb reopened = new RrdDb(db.getPath(), true, service.backendFactory);
+		try {
+			assertEquals(second + 1, reopened.getLastUpdateTime());
+			assertEquals(2, reopened.getLastDatasourceValue("state"), 0.0);
+		} finally {
+			reopened.close();
+		}
+	}
+
+	private RrdDb open(String name) {
+		service.query(new FilterCriteria().setItemName(name).setBeginDate(new Date(System.currentTimeMillis() - 60000)));
+		return service.getLastOpened(name);
+	}
+
+	private void store(NumberItem item, int value) {
+		item.setState(new DecimalType(value));
+		service.store(item);
+	}
+
+	/**
+	 * Waits for the beginning of the next second, so that a test does not run into it.
+	 *
+	 * @return the next second
+	 */
+	private static long awaitNextSecond() {
+		long now = System.currentTimeMillis();
+		try {
+			Thread.sleep(1000 - now % 1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		return now / 1000 + 1;
+	}
+
+	private static List<String> getNamesOfStripe(int stripe, int count) {
+		List<String> names = new ArrayList<String>();
+		for (int i = 0; names.size() < count; i++) {
+			String name = "Item" + i;
+			if ((name.hashCode() & Integer.MAX_VALUE) % RRD4jService.POOL_STRIPES == stripe) {
+				names.add(name);
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * Keeps the databases in memory and records the databases it has opened.
+	 */
+	private static class TestService extends RRD4jService {
+
+		final RrdBackendFactory backendFactory = new RrdMemoryBackendFactory();
+
+		private final Map<String, List<RrdDb>> openedDatabases = new HashMap<String, List<RrdDb>>();
+
+		@Override
+		protected RrdDb openDB(String alias, ConsolFun function) {
+			try {
+				RrdDb db;
+				if (openedDatabases.containsKey(alias)) {
+					db = new RrdDb(alias, backendFactory);
+				} else {
+					RrdDef rrdDef = new RrdDef(alias);
+					rrdDef.setStep(1);
+					rrdDef.setStartTime(System.currentTimeMillis() / 1000 - 1);
+					rrdDef.addDatasource("state", DsType.GAUGE, 3600, Double.NaN, Double.NaN);
+					// any item can be queried with the default consolidation function
+					rrdDef.addArchive(ConsolFun.AVERAGE, 0.5, 1, 3600);
+					rrdDef.addArchive(ConsolFun.MAX, 0.5, 1, 3600);
+					db = new RrdDb(rrdDef, backendFactory);
+					openedDatabases.put(alias, new ArrayList<RrdDb>());
+				}
+				openedDatabases.get(alias).add(db);
+				return db;
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		int getOpenCount(String alias) {
+			return openedDatabases.get(alias).size();
+		}
+
+		RrdDb getLastOpened(String alias) {
+			List<RrdDb> dbs = openedDatabases.get(alias);
+			return dbs.get(dbs.size() - 1);
+		}
+	}
+
+}
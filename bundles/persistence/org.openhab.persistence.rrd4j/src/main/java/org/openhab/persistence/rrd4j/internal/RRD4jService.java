@@ -11,14 +11,18 @@ package org.openhab.persistence.rrd4j.internal;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -30,11 +34,13 @@ import org.openhab.core.library.items.SwitchItem;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.persistence.BulkQueryablePersistenceService;
+import org.openhab.core.persistence.Downsampler;
 import org.openhab.core.persistence.FilterCriteria;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
-import org.openhab.core.persistence.QueryablePersistenceService;
+import org.openhab.core.service.NamedThreadFactory;
 import org.openhab.core.types.State;
 import org.rrd4j.ConsolFun;
 import org.rrd4j.DsType;
@@ -51,10 +57,19 @@ import org.slf4j.LoggerFactory;
  * This is the implementation of the RRD4j {@link PersistenceService}. To learn
  * more about RRD4j please visit their <a href="http://code.google.com/p/rrd4j/">website</a>.
  * 
+ * The database files are kept open in a pool with least recently used eviction. The pool is
+ * divided into stripes by the name of the database, and each stripe has its own lock, so that
+ * databases of different stripes can be accessed in parallel.
+ * 
+ * RRD4j only accepts one sample per second and database. Updates that arrive within the
+ * same second are coalesced: the latest state of the item is stored by a shared scheduler
+ * as soon as the next second has begun. Stores that are still pending when the service is
+ * deactivated are written before the databases are closed.
+ * 
  * @author Kai Kreuzer
  * @since 1.0.0
  */
-public class RRD4jService implements QueryablePersistenceService {
+public class RRD4jService implements BulkQueryablePersistenceService {
 
 	private static final String DATASOURCE_STATE = "state";
 
@@ -62,10 +77,54 @@ public class RRD4jService implements QueryablePersistenceService {
 	
 	private static final Logger logger = LoggerFactory.getLogger(RRD4jService.class);
 
-	private Map<String,Timer> timers = new HashMap<String,Timer>();
+	/** the number of independently locked stripes of the database pool */
+	static final int POOL_STRIPES = 16;
+	
+	/** the maximum number of database files that are kept open */
+	static final int MAX_OPEN_DATABASES = 256;
+	
+	/** the time (in ms) to wait for a running store of the scheduler on deactivation */
+	private static final long SHUTDOWN_TIMEOUT = 5000;
+
+	private final DatabaseStripe[] stripes = new DatabaseStripe[POOL_STRIPES];
+	
+	/** the items whose state has to be stored in the next second, by database name */
+	private final Map<String, Item> pendingStores = new ConcurrentHashMap<String, Item>();
+	
+	private ScheduledExecutorService scheduler;
 	
 	protected ItemRegistry itemRegistry;
 	
+	public RRD4jService() {
+		for(int i=0; i<POOL_STRIPES; i++) {
+			stripes[i] = new DatabaseStripe(Math.max(1, MAX_OPEN_DATABASES / POOL_STRIPES));
+		}
+	}
+	
+	public void activate() {
+		scheduler = Executors.newSingleThreadScheduledExecutor(new NamedThreadFactory("openHAB-rrd4j"));
+	}
+	
+	public void deactivate() {
+		ScheduledExecutorService currentScheduler = scheduler;
+		scheduler = null;
+		if(currentScheduler!=null) {
+			// the pending stores are not left to the scheduler, but flushed below
+			currentScheduler.shutdownNow();
+			try {
+				currentScheduler.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		flushPendingStores();
+		for(DatabaseStripe stripe : stripes) {
+			synchronized(stripe) {
+				stripe.closeAll();
+			}
+		}
+	}
+	
 	public void setItemRegistry(ItemRegistry itemRegistry) {
 		this.itemRegistry = itemRegistry;
 	}
@@ -84,12 +143,27 @@ public class RRD4jService implements QueryablePersistenceService {
 	/**
 	 * @{inheritDoc}
 	 */
-	public synchronized void store(final Item item, final String alias) {
+	public void store(final Item item, final String alias) {
 		final String name = alias==null ? item.getName() : alias;
 		ConsolFun function = getConsolidationFunction(item);
-		RrdDb db = getDB(name, function);
-		if(db!=null) {
+		DatabaseStripe stripe = getStripe(name);
+		synchronized(stripe) {
+			RrdDb db = stripe.getDB(name, function);
+			if(db==null) {
+				return;
+			}
 			long now = System.currentTimeMillis()/1000;
+			try {
+				if(now <= db.getLastUpdateTime()) {
+					// there already is a sample for this second
+					storeLater(item, name, now);
+					return;
+				}
+			} catch (IOException e) {
+				logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
+				stripe.close(name);
+				return;
+			}
 			if(function!=ConsolFun.AVERAGE) {
 				try {
 					// we store the last value again, so that the value change in the database is not interpolated, but
@@ -122,31 +196,66 @@ public class RRD4jService implements QueryablePersistenceService {
 	            }
 			} catch (IllegalArgumentException e) {
 				if(e.getMessage().contains("at least one second step is required")) {
-
 					// we try to store the value one second later
-					TimerTask task = new TimerTask() {
-						public void run() {
-							store(item, name);
-						}
-					};
-					Timer timer = timers.get(name);
-					if(timer!=null) {
-						timer.cancel();
-						timers.remove(name);
-					}
-					timer = new Timer();
-					timers.put(name, timer);
-					timer.schedule(task, 1000);
+					storeLater(item, name, now);
 				} else {
 					logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
 				}
 			} catch (Exception e) {
 				logger.warn("Could not persist '{}' to rrd4j database: {}", new String[] { name, e.getMessage() });
 			}
-            try {
-				db.close();
-			} catch (IOException e) {
-				logger.debug("Error closing rrd4j database: {}", e.getMessage());
+		}
+	}
+	
+	/**
+	 * Stores the state of an item as soon as the next second has begun. If a store for
+	 * the same database is already pending, it will store the latest state of this item.
+	 * 
+	 * @param item the item to store
+	 * @param name the name of the database
+	 * @param now the current time in seconds
+	 */
+	private void storeLater(final Item item, final String name, long now) {
+		ScheduledExecutorService currentScheduler = scheduler;
+		if(currentScheduler==null) {
+			logger.debug("Discarding update of '{}', as the rrd4j service is not active", name);
+			return;
+		}
+		if(pendingStores.put(name, item)==null) {
+			long delay = Math.max(1, (now + 1) * 1000 - System.currentTimeMillis());
+			try {
+				currentScheduler.schedule(new Runnable() {
+					public void run() {
+						Item pendingItem = pendingStores.remove(name);
+						if(pendingItem!=null) {
+							store(pendingItem, name);
+						}
+					}
+				}, delay, TimeUnit.MILLISECONDS);
+			} catch (RejectedExecutionException e) {
+				// this happens if the service is deactivated
+				pendingStores.remove(name);
+			}
+		}
+	}
+
+	/**
+	 * Stores the pending states of all databases, before the databases are closed. As a store
+	 * is only pending until the next second, this waits for the next second to begin.
+	 */
+	private void flushPendingStores() {
+		if(pendingStores.isEmpty()) {
+			return;
+		}
+		try {
+			Thread.sleep(1000 - System.currentTimeMillis() % 1000);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		for(String name : new ArrayList<String>(pendingStores.keySet())) {
+			Item pendingItem = pendingStores.remove(name);
+			if(pendingItem!=null) {
+				store(pendingItem, name);
 			}
 		}
 	}
@@ -162,58 +271,117 @@ public class RRD4jService implements QueryablePersistenceService {
 	public Iterable<HistoricItem> query(FilterCriteria filter) {
 		String itemName = filter.getItemName();
 		ConsolFun consolidationFunction = getConsolidationFunction(itemName);
-		RrdDb db = getDB(itemName, consolidationFunction);
-		if(db!=null) {
-			long start = 0L;
-			long end = filter.getEndDate()==null ? System.currentTimeMillis()/1000 - 1 : filter.getEndDate().getTime()/1000;
+		DatabaseStripe stripe = getStripe(itemName);
+		synchronized(stripe) {
+			RrdDb db = stripe.getDB(itemName, consolidationFunction);
+			if(db!=null) {
+				return query(filter, db, itemName, consolidationFunction);
+			}
+		}
+		return Collections.emptyList();
+	}
+	
+	private Iterable<HistoricItem> query(FilterCriteria filter, RrdDb db, String itemName, ConsolFun consolidationFunction) {
+		long start = 0L;
+		long end = filter.getEndDate()==null ? System.currentTimeMillis()/1000 - 1 : filter.getEndDate().getTime()/1000;
 
-			try {
-				if(filter.getBeginDate()==null) {
-					// as rrd goes back for years and gets more and more inaccurate, we only support descending order and a single return value
-					// if there is no begin date is given - this case is required specifically for the historicState() query, which we
-					// want to support
-					if(filter.getOrdering()==Ordering.DESCENDING && filter.getPageSize()==1 && filter.getPageNumber()==0) {
-						if(filter.getEndDate()==null) {
-							// we are asked only for the most recent value!
-							double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
-							if(!Double.isNaN(lastValue)) {
-								HistoricItem rrd4jItem = new RRD4jItem(itemName, mapToState(lastValue, itemName), new Date(db.getLastArchiveUpdateTime() * 1000));
-								return Collections.singletonList(rrd4jItem);
-							} else {
-								return Collections.emptyList();
-							}
+		try {
+			if(filter.getBeginDate()==null) {
+				// as rrd goes back for years and gets more and more inaccurate, we only support descending order and a single return value
+				// if there is no begin date is given - this case is required specifically for the historicState() query, which we
+				// want to support
+				if(filter.getOrdering()==Ordering.DESCENDING && filter.getPageSize()==1 && filter.getPageNumber()==0) {
+					if(filter.getEndDate()==null) {
+						// we are asked only for the most recent value!
+						double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
+						if(!Double.isNaN(lastValue)) {
+							HistoricItem rrd4jItem = new RRD4jItem(itemName, mapToState(lastValue, itemName), new Date(db.getLastArchiveUpdateTime() * 1000));
+							return Collections.singletonList(rrd4jItem);
 						} else {
-							start = end;
+							return Collections.emptyList();
 						}
 					} else {
-						throw new UnsupportedOperationException("rrd4j does not allow querys without a begin date, " + 
-								"unless order is decending and a single value is requested");
+						start = end;
 					}
 				} else {
-					start = filter.getBeginDate().getTime()/1000;
+					throw new UnsupportedOperationException("rrd4j does not allow querys without a begin date, " + 
+							"unless order is decending and a single value is requested");
 				}
-				FetchRequest request = db.createFetchRequest(consolidationFunction, start, end, 1);
+			} else {
+				start = filter.getBeginDate().getTime()/1000;
+			}
+			// for a downsampled query, let rrd4j choose the coarsest archive that still provides the resolution
+			long resolution = filter.getResolution() > 0 ? Math.max(1, (end - start) / filter.getResolution()) : 1;
+			FetchRequest request = db.createFetchRequest(consolidationFunction, start, end, resolution);
+
+			List<HistoricItem> items = new ArrayList<HistoricItem>();
+			FetchData result = request.fetchData();
+			long ts = result.getFirstTimestamp();
+			long step = result.getRowCount() > 1 ? result.getStep() : 0;
+			for(double value : result.getValues(DATASOURCE_STATE)) {
+				if(!Double.isNaN(value)) {
+					RRD4jItem rrd4jItem = new RRD4jItem(itemName, mapToState(value, itemName), new Date(ts * 1000));
+					items.add(rrd4jItem);
+				}
+				ts += step;
+			}
+			if(filter.getResolution() > 0) {
+				// the archive rows are in ascending order
+				Downsampler downsampler = new Downsampler(filter);
+				for(HistoricItem item : items) {
+					downsampler.add(item);
+				}
+				return downsampler.getResult();
+			}
+			return items;
+		} catch (IOException e) {
+			logger.warn("Could not query rrd4j database for item '{}': {}", new String[] { itemName, e.getMessage() });
+		}	
+		return Collections.emptyList();
+	}
 
-				List<HistoricItem> items = new ArrayList<HistoricItem>();
-				FetchData result = request.fetchData();
-				long ts = result.getFirstTimestamp();
-				long step = result.getRowCount() > 1 ? result.getStep() : 0;
-				for(double value : result.getValues(DATASOURCE_STATE)) {
-					if(!Double.isNaN(value)) {
-						RRD4jItem rrd4jItem = new RRD4jItem(itemName, mapToState(value, itemName), new Date(ts * 1000));
-						items.add(rrd4jItem);
+	/**
+	 * Reads the last value of each item from its database file. Other than {@link #query(FilterCriteria)}, 
+	 * this does not create database files for items that have not been stored yet.
+	 * 
+	 * @{inheritDoc}
+	 */
+	public Map<String, HistoricItem> queryLatest(Collection<String> itemNames) {
+		Map<String, HistoricItem> latestItems = new HashMap<String, HistoricItem>();
+		for(String itemName : itemNames) {
+			File file = new File(DB_FOLDER + File.separator + itemName + ".rrd");
+			if(!file.exists()) {
+				continue;
+			}
+			DatabaseStripe stripe = getStripe(itemName);
+			synchronized(stripe) {
+				RrdDb db = stripe.getDB(itemName, getConsolidationFunction(itemName));
+				if(db!=null) {
+					try {
+						double lastValue = db.getLastDatasourceValue(DATASOURCE_STATE);
+						if(!Double.isNaN(lastValue)) {
+							latestItems.put(itemName, new RRD4jItem(itemName, mapToState(lastValue, itemName), 
+									new Date(db.getLastArchiveUpdateTime() * 1000)));
+						}
+					} catch (IOException e) {
+						logger.warn("Could not query rrd4j database for item '{}': {}", new String[] { itemName, e.getMessage() });
 					}
-					ts += step;
 				}
-				return items;
-			} catch (IOException e) {
-				logger.warn("Could not query rrd4j database for item '{}': {}", new String[] { itemName, e.getMessage() });
-			}	
+			}
 		}
-		return Collections.emptyList();
+		return latestItems;
+	}
+
+	private DatabaseStripe getStripe(String name) {
+		return stripes[(name.hashCode() & Integer.MAX_VALUE) % POOL_STRIPES];
 	}
 
-	protected synchronized RrdDb getDB(String alias, ConsolFun function) {
+	/**
+	 * Opens a database file or creates it, if it does not exist yet.
+	 * 
+	 * @return the opened database or <code>null</code>, if it could not be opened
+	 */
+	protected RrdDb openDB(String alias, ConsolFun function) {
 		RrdDb db = null;
         File file = new File(DB_FOLDER + File.separator + alias + ".rrd");
     	try {
@@ -236,6 +404,14 @@ public class RRD4jService implements QueryablePersistenceService {
 		}
 		return db;
 	}
+	
+	private static void closeDB(String name, RrdDb db) {
+		try {
+			db.close();
+		} catch (IOException e) {
+			logger.debug("Error closing rrd4j database '{}': {}", name, e.getMessage());
+		}
+	}
 
 	private RrdDef getRrdDef(ConsolFun function, File file) {
     	RrdDef rrdDef = new RrdDef(file.getAbsolutePath());
@@ -312,5 +488,54 @@ public class RRD4jService implements QueryablePersistenceService {
 			return "etc";
 		}
 	}
+	
+	/**
+	 * A stripe of the database pool, which keeps the databases it has opened until it
+	 * reaches its capacity. It must only be accessed while holding its lock.
+	 */
+	private class DatabaseStripe {
+		
+		private final Map<String, RrdDb> openDatabases;
+		
+		DatabaseStripe(final int capacity) {
+			openDatabases = new LinkedHashMap<String, RrdDb>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+				
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, RrdDb> eldest) {
+					if(size() > capacity) {
+						closeDB(eldest.getKey(), eldest.getValue());
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+		
+		RrdDb getDB(String name, ConsolFun function) {
+			RrdDb db = openDatabases.get(name);
+			if(db==null) {
+				db = openDB(name, function);
+				if(db!=null) {
+					openDatabases.put(name, db);
+				}
+			}
+			return db;
+		}
+		
+		void close(String name) {
+			RrdDb db = openDatabases.remove(name);
+			if(db!=null) {
+				closeDB(name, db);
+			}
+		}
+		
+		void closeAll() {
+			for(Map.Entry<String, RrdDb> entry : openDatabases.entrySet()) {
+				closeDB(entry.getKey(), entry.getValue());
+			}
+			openDatabases.clear();
+		}
+	}
 
 }
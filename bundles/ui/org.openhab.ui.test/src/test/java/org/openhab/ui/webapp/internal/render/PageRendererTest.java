@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.webapp.internal.render;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.eclipse.emf.common.util.BasicEList;
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openhab.model.sitemap.Frame;
+import org.openhab.model.sitemap.Group;
+import org.openhab.model.sitemap.Sitemap;
+import org.openhab.model.sitemap.Text;
+import org.openhab.model.sitemap.Widget;
+import org.openhab.ui.items.ItemUIRegistry;
+import org.openhab.ui.webapp.render.RenderException;
+
+/**
+ * Tests how the html code of the children of a widget is put in place of the
+ * "%children%" section of its snippet. The snippets are replaced by short test
+ * snippets, so that the expected pages stay readable.
+ *
+ * @since 1.7.0
+ */
+public class PageRendererTest {
+
+	private ItemUIRegistry registry;
+
+	private PageRenderer pageRenderer;
+
+	@Before
+	public void setUp() {
+		Snippets.put("main", "<main id=\"%id%\" title=\"%label%\">%children%</main>");
+		Snippets.put("layer", "<layer id=\"%id%\" title=\"%label%\">%children%</layer>");
+		Snippets.put("frame", "<frame style=\"%labelstyle%\">%label%<children>%children%</children></frame>");
+		Snippets.put("text", "<text id=\"%id%\" style=\"%labelstyle%\">%label%</text>");
+
+		registry = mock(ItemUIRegistry.class);
+		when(registry.getVisiblity(any(Widget.class))).thenReturn(true);
+
+		pageRenderer = new PageRenderer();
+		pageRenderer.setItemUIRegistry(registry);
+		FrameRenderer frameRenderer = new FrameRenderer();
+		frameRenderer.setItemUIRegistry(registry);
+		pageRenderer.addWidgetRenderer(frameRenderer);
+		TextRenderer textRenderer = new TextRenderer();
+		textRenderer.setItemUIRegistry(registry);
+		pageRenderer.addWidgetRenderer(textRenderer);
+	}
+
+	@After
+	public void tearDown() {
+		Snippets.clear();
+	}
+
+	@Test
+	public void testNestedFramesAreRenderedInPlaceOfTheirChildrenSection() throws RenderException {
+		Sitemap sitemap = mock(Sitemap.class);
+		Frame outer = createFrame("Outer", sitemap);
+		when(registry.getLabelColor(outer)).thenReturn("red");
+		Text temperature = createText("t", "Temperature [21.5]", outer);
+		when(registry.getValueColor(temperature)).thenReturn("blue");
+		Frame inner = createFrame("Inner", outer);
+		Text light = createText("l", "Light", inner);
+		when(registry.getLabelColor(light)).thenReturn("green");
+		outer.getChildren().add(temperature);
+		outer.getChildren().add(inner);
+		inner.getChildren().add(light);
+
+		StringBuilder page = pageRenderer.processPage("home", "demo", "Home", createList(outer), false);
+
+		assertEquals("<main id=\"home\" title=\"Home\">"
+				+ "<frame style=\"color:red\">Outer<children>"
+				+ "<text id=\"t\" style=\"\">Temperature <span style=\"color:blue\">21.5</span></text>"
+				+ "<frame style=\"\">Inner<children>"
+				+ "<text id=\"l\" style=\"color:green\">Light</text>"
+				+ "</children></frame>"
+				+ "</children></frame>"
+				+ "</main>", page.toString());
+	}
+
+	@Test
+	public void testChildrenWithoutFrameAreFramedImplicitly() throws RenderException {
+		Group group = mock(Group.class);
+		Text first = createText("1", "First", group);
+		Text second = createText("2", "Second", group);
+
+		StringBuilder page = pageRenderer.processPage("g", "demo", "Group [2]", createList(first, second), true);
+
+		assertEquals("<layer id=\"g\" title=\"Group 2\">"
+				+ "<frame style=\"\"><children>"
+				+ "<text id=\"1\" style=\"\">First</text>"
+				+ "<text id=\"2\" style=\"\">Second</text>"
+				+ "</children></frame>"
+				+ "</layer>", page.toString());
+	}
+
+	@Test
+	public void testCodeAfterSecondChildrenSectionIsIgnored() throws RenderException {
+		Snippets.put("frame", "<frame>%children%</frame>%children%<ignored/>");
+		Sitemap sitemap = mock(Sitemap.class);
+		Frame frame = createFrame("Frame", sitemap);
+		frame.getChildren().add(createText("1", "First", frame));
+
+		StringBuilder page = pageRenderer.processPage("home", "demo", "Home", createList(frame), false);
+
+		assertEquals("<main id=\"home\" title=\"Home\">"
+				+ "<frame><text id=\"1\" style=\"\">First</text></frame>"
+				+ "</main>", page.toString());
+	}
+
+	@Test
+	public void testEmptyPageKeepsCodeAfterChildrenSection() throws RenderException {
+		StringBuilder page = pageRenderer.processPage("home", "demo", "Home", createList(), false);
+
+		assertEquals("<main id=\"home\" title=\"Home\"></main>", page.toString());
+	}
+
+	private Frame createFrame(String label, EObject parent) {
+		Frame frame = mock(Frame.class);
+		EClass eClass = mock(EClass.class);
+		when(eClass.getName()).thenReturn("Frame");
+		when(frame.eClass()).thenReturn(eClass);
+		when(frame.eContainer()).thenReturn(parent);
+		EList<Widget> children = createList();
+		when(frame.getChildren()).thenReturn(children);
+		when(registry.getLabel(frame)).thenReturn(label);
+		return frame;
+	}
+
+	private Text createText(String id, String label, EObject parent) {
+		Text text = mock(Text.class);
+		when(text.eContainer()).thenReturn(parent);
+		EList<Widget> children = createList();
+		when(text.getChildren()).thenReturn(children);
+		when(registry.getWidgetId(text)).thenReturn(id);
+		when(registry.getLabel(text)).thenReturn(label);
+		when(registry.getIcon(text)).thenReturn("icon");
+		return text;
+	}
+
+	private static EList<Widget> createList(Widget... widgets) {
+		EList<Widget> list = new BasicEList<Widget>();
+		for (Widget widget : widgets) {
+			list.add(widget);
+		}
+		return list;
+	}
+
+	/**
+	 * Gives access to the snippet cache, which all renderers share.
+	 */
+	private static class Snippets extends AbstractWidgetRenderer {
+
+		static void put(String name, String snippet) {
+			snippetCache.put(name, SnippetTemplate.compile(snippet));
+		}
+
+		static void clear() {
+			snippetCache.clear();
+		}
+
+		public boolean canRender(Widget w) {
+			return false;
+		}
+
+		public EList<Widget> renderWidget(Widget w, StringBuilder sb) {
+			return null;
+		}
+	}
+
+}
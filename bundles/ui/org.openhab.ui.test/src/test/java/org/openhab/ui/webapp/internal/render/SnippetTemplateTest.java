@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.webapp.internal.render;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.openhab.ui.webapp.internal.render.SnippetTemplate.Values;
+
+/**
+ * @since 1.7.0
+ */
+public class SnippetTemplateTest {
+
+	@Test
+	public void testPlaceholdersAreReplaced() {
+		SnippetTemplate template = SnippetTemplate.compile("<div id=\"%id%\">%label%</div>");
+
+		assertEquals("<div id=\"w1\">Label</div>", template.values().set("id", "w1").set("label", "Label").toString());
+	}
+
+	@Test
+	public void testRepeatedPlaceholderIsReplacedEverywhere() {
+		SnippetTemplate template = SnippetTemplate.compile("%id%:%label%:%id%%id%");
+
+		assertEquals("w1:Label:w1w1", template.values().set("id", "w1").set("label", "Label").toString());
+	}
+
+	@Test
+	public void testMissingValueLeavesPlaceholder() {
+		SnippetTemplate template = SnippetTemplate.compile("<div>%label%%children%</div>%label%");
+
+		assertEquals("<div>Label%children%</div>Label", template.values().set("label", "Label").toString());
+		assertEquals("<div>%label%%children%</div>%label%", template.values().toString());
+		assertEquals("<div>%label%%children%</div>%label%", template.values().set("label", null).toString());
+	}
+
+	@Test
+	public void testUnknownPlaceholderIsIgnored() {
+		SnippetTemplate template = SnippetTemplate.compile("<div>%label%</div>");
+
+		assertEquals("<div>%label%</div>", template.values().set("icon", "icon").toString());
+	}
+
+	@Test
+	public void testPercentSignsOutsidePlaceholdersAreLiteral() {
+		SnippetTemplate template = SnippetTemplate.compile("width:100%;%label% %a b% %% 50%");
+
+		assertEquals("width:100%;Label %a b% %% 50%", template.values().set("label", "Label").toString());
+	}
+
+	@Test
+	public void testValuesAreInsertedLiterally() {
+		SnippetTemplate template = SnippetTemplate.compile("%id%/%label%");
+
+		assertEquals("w1/%id% $1 \\", template.values().set("id", "w1").set("label", "%id% $1 \\").toString());
+	}
+
+	@Test
+	public void testValuesOfRenderingsAreIndependent() {
+		SnippetTemplate template = SnippetTemplate.compile("[%label%]");
+		Values first = template.values().set("label", "first");
+		Values second = template.values().set("label", "second");
+
+		StringBuilder sb = new StringBuilder("page");
+		first.appendTo(sb);
+		second.appendTo(sb);
+		assertEquals("page[first][second]", sb.toString());
+	}
+
+}
@@ -12,14 +12,15 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.StringUtils;
 import org.openhab.model.sitemap.Widget;
 import org.openhab.ui.items.ItemUIRegistry;
 import org.openhab.ui.webapp.internal.WebAppActivator;
+import org.openhab.ui.webapp.internal.render.SnippetTemplate.Values;
 import org.openhab.ui.webapp.render.RenderException;
 import org.openhab.ui.webapp.render.WidgetRenderer;
 import org.osgi.service.component.ComponentContext;
@@ -50,8 +51,8 @@ abstract public class AbstractWidgetRenderer implements WidgetRenderer {
 	/* the snippet location inside this bundle */
 	protected static final String SNIPPET_LOCATION = "snippets/";
 
-	/* a local cache so we do not have to read the snippets over and over again from the bundle */
-	protected static final Map<String, String> snippetCache = new HashMap<String, String>(); 
+	/* a local cache so we do not have to read and parse the snippets over and over again from the bundle */
+	protected static final ConcurrentMap<String, SnippetTemplate> snippetCache = new ConcurrentHashMap<String, SnippetTemplate>(); 
 
 	public void setItemUIRegistry(ItemUIRegistry itemUIRegistry) {
 		this.itemUIRegistry = itemUIRegistry;
@@ -73,23 +74,29 @@ abstract public class AbstractWidgetRenderer implements WidgetRenderer {
 
 	/**
 	 * This method provides the html snippet for a given elementType of the sitemap model.
+	 * The snippet is read and parsed only once; concurrent requests may both parse a snippet
+	 * on its first use, but will then share the same template.
 	 * 
 	 * @param elementType the name of the model type (e.g. "Group" or "Switch")
-	 * @return the html snippet to be used in the UI (including placeholders for variables)
+	 * @return the compiled html snippet to be used in the UI (including placeholders for variables)
 	 * @throws RenderException if snippet could not be read 
 	 */
-	protected synchronized String getSnippet(String elementType) throws RenderException {
+	protected SnippetTemplate getSnippet(String elementType) throws RenderException {
 		elementType = elementType.toLowerCase();
-		String snippet = snippetCache.get(elementType);
+		SnippetTemplate snippet = snippetCache.get(elementType);
 		if(snippet==null) {
 			String snippetLocation = SNIPPET_LOCATION + elementType + SNIPPET_EXT;
 			URL entry = WebAppActivator.getContext().getBundle().getEntry(snippetLocation);
 			if(entry!=null) {
 				try {
-					snippet = IOUtils.toString(entry.openStream());
-					snippetCache.put(elementType, snippet);
+					snippet = SnippetTemplate.compile(IOUtils.toString(entry.openStream()));
 				} catch (IOException e) {
 					logger.warn("Cannot load snippet for element type '{}'", elementType, e);
+					throw new RenderException("Cannot load snippet for element type '" + elementType + "'");
+				}
+				SnippetTemplate existing = snippetCache.putIfAbsent(elementType, snippet);
+				if(existing!=null) {
+					snippet = existing;
 				}
 			} else {
 				throw new RenderException("Cannot find a snippet for element type '" + elementType + "'");
@@ -109,7 +116,12 @@ abstract public class AbstractWidgetRenderer implements WidgetRenderer {
 		String label = itemUIRegistry.getLabel(w);
 		
 		// insert the span between the left and right side of the label, if state section exists 
-		label = label.replaceAll("\\[", "<span style=\"%valuestyle%\">").replaceAll("\\]", "</span>");
+		if(label.indexOf('[') >= 0) {
+			label = StringUtils.replace(label, "[", "<span style=\"" + getStyle(itemUIRegistry.getValueColor(w)) + "\">");
+		}
+		if(label.indexOf(']') >= 0) {
+			label = StringUtils.replace(label, "]", "</span>");
+		}
 
 		return label;
 	}
@@ -136,22 +148,20 @@ abstract public class AbstractWidgetRenderer implements WidgetRenderer {
 	 * @param w
 	 *            The widget to process
 	 * @param snippet
-	 *            The snippet to translate
-	 * @return The updated snippet
+	 *            The values of the snippet to set the styles in
 	 */
-	protected String processColor(Widget w, String snippet) {
-		String style = "";
-		String color = itemUIRegistry.getLabelColor(w);
-		if(color != null)
-			style = "color:"+ color;
-		snippet = StringUtils.replace(snippet, "%labelstyle%", style);
-
-		style = "";
-		color = itemUIRegistry.getValueColor(w);
-		if(color != null)
-			style = "color:"+ color;
-		snippet = StringUtils.replace(snippet, "%valuestyle%", style);
-		
-		return snippet;
+	protected void processColor(Widget w, Values snippet) {
+		snippet.set("labelstyle", getStyle(itemUIRegistry.getLabelColor(w)));
+		snippet.set("valuestyle", getStyle(itemUIRegistry.getValueColor(w)));
+	}
+
+	/**
+	 * Creates the style attribute value for a color.
+	 * 
+	 * @param color the color or <code>null</code>
+	 * @return the style or an empty string, if no color is set
+	 */
+	protected String getStyle(String color) {
+		return color != null ? "color:" + color : "";
 	}
 }
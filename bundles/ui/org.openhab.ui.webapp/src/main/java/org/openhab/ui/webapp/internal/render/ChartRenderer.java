@@ -8,13 +8,13 @@
  */
 package org.openhab.ui.webapp.internal.render;
 
-import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.common.util.EList;
 import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.model.sitemap.Chart;
 import org.openhab.model.sitemap.Widget;
+import org.openhab.ui.webapp.internal.render.SnippetTemplate.Values;
 import org.openhab.ui.webapp.render.RenderException;
 import org.openhab.ui.webapp.render.WidgetRenderer;
 import org.slf4j.Logger;
@@ -58,21 +58,21 @@ public class ChartRenderer extends AbstractWidgetRenderer {
 			if(chart.getService() != null)
 				url += "&service=" + chart.getService();
 			
-			String snippet = getSnippet("image");			
+			String widgetId = itemUIRegistry.getWidgetId(w);
+			Values snippet = getSnippet("image").values();			
 
 			if(chart.getRefresh()>0) {
-				snippet = StringUtils.replace(snippet, "%setrefresh%", "<script type=\"text/javascript\">imagesToRefreshOnPage=1</script>");
-				snippet = StringUtils.replace(snippet, "%refresh%", "id=\"%id%\" onload=\"setTimeout('reloadImage(\\'%url%\\', \\'%id%\\')', " + chart.getRefresh() + ")\"");
+				snippet.set("setrefresh", "<script type=\"text/javascript\">imagesToRefreshOnPage=1</script>");
+				snippet.set("refresh", "id=\"" + widgetId + "\" onload=\"setTimeout('reloadImage(\\'" + url + "\\', \\'" + widgetId + "\\')', " + chart.getRefresh() + ")\"");
 			} else {
-				snippet = StringUtils.replace(snippet, "%setrefresh%", "");
-				snippet = StringUtils.replace(snippet, "%refresh%", "");
+				snippet.set("setrefresh", "");
+				snippet.set("refresh", "");
 			}
 
-			snippet = StringUtils.replace(snippet, "%id%", itemUIRegistry.getWidgetId(w));
-			snippet = StringUtils.replace(snippet, "%url%", url);
-			snippet = StringUtils.replace(snippet, "%refresh%", Integer.toString(chart.getRefresh()));
+			snippet.set("id", widgetId);
+			snippet.set("url", url);
 			
-			sb.append(snippet);
+			snippet.appendTo(sb);
 		} catch (ItemNotFoundException e) {
 			logger.warn("Chart cannot be rendered as item '{}' does not exist.", chart.getItem());
 		}
@@ -9,10 +9,10 @@
 package org.openhab.ui.webapp.internal.render;
 
 import org.apache.commons.lang.StringEscapeUtils;
-import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.common.util.EList;
 import org.openhab.model.sitemap.Frame;
 import org.openhab.model.sitemap.Widget;
+import org.openhab.ui.webapp.internal.render.SnippetTemplate.Values;
 import org.openhab.ui.webapp.render.RenderException;
 
 /**
@@ -36,14 +36,14 @@ public class FrameRenderer extends AbstractWidgetRenderer {
 	 * {@inheritDoc}
 	 */
 	public EList<Widget> renderWidget(Widget w, StringBuilder sb) throws RenderException {
-		String snippet = getSnippet("frame");
+		Values snippet = getSnippet("frame").values();
 
-		snippet = StringUtils.replace(snippet, "%label%", StringEscapeUtils.escapeHtml(getLabel(w)));
+		snippet.set("label", StringEscapeUtils.escapeHtml(getLabel(w)));
 
 		// Process the color tags
-		snippet = processColor(w, snippet);
+		processColor(w, snippet);
 
-		sb.append(snippet);
+		snippet.appendTo(sb);
 		return ((Frame)w).getChildren();
 	}
 }
@@ -8,10 +8,10 @@
  */
 package org.openhab.ui.webapp.internal.render;
 
-import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.common.util.EList;
 import org.openhab.model.sitemap.Group;
 import org.openhab.model.sitemap.Widget;
+import org.openhab.ui.webapp.internal.render.SnippetTemplate.Values;
 import org.openhab.ui.webapp.render.RenderException;
 import org.openhab.ui.webapp.render.WidgetRenderer;
 
@@ -36,16 +36,16 @@ public class GroupRenderer extends AbstractWidgetRenderer {
 	 * {@inheritDoc}
 	 */
 	public EList<Widget> renderWidget(Widget w, StringBuilder sb) throws RenderException {
-		String snippet = getSnippet("group");
+		Values snippet = getSnippet("group").values();
 
-		snippet = StringUtils.replace(snippet, "%id%", itemUIRegistry.getWidgetId(w));
-		snippet = StringUtils.replace(snippet, "%icon%", escapeURLPath(itemUIRegistry.getIcon(w)));
-		snippet = StringUtils.replace(snippet, "%label%", getLabel(w));
+		snippet.set("id", itemUIRegistry.getWidgetId(w));
+		snippet.set("icon", escapeURLPath(itemUIRegistry.getIcon(w)));
+		snippet.set("label", getLabel(w));
 
 		// Process the color tags
-		snippet = processColor(w, snippet);
+		processColor(w, snippet);
 
-		sb.append(snippet);
+		snippet.appendTo(sb);
 		return null;
 	}
 }
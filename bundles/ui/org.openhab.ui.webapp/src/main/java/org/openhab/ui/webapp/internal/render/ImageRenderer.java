@@ -10,10 +10,10 @@ package org.openhab.ui.webapp.internal.render;
 
 import java.util.Date;
 
-import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.common.util.EList;
 import org.openhab.model.sitemap.Image;
 import org.openhab.model.sitemap.Widget;
+import org.openhab.ui.webapp.internal.render.SnippetTemplate.Values;
 import org.openhab.ui.webapp.render.RenderException;
 import org.openhab.ui.webapp.render.WidgetRenderer;
 
@@ -39,26 +39,26 @@ public class ImageRenderer extends AbstractWidgetRenderer {
 	 */
 	public EList<Widget> renderWidget(Widget w, StringBuilder sb) throws RenderException {
 		Image image = (Image) w;
-		String snippet = (image.getChildren().size() > 0) ? 
-				getSnippet("image_link") : getSnippet("image");			
+		Values snippet = (image.getChildren().size() > 0) ? 
+				getSnippet("image_link").values() : getSnippet("image").values();			
 
-		if(image.getRefresh()>0) {
-			snippet = StringUtils.replace(snippet, "%setrefresh%", "<script type=\"text/javascript\">imagesToRefreshOnPage=1</script>");
-			snippet = StringUtils.replace(snippet, "%refresh%", "id=\"%id%\" onload=\"setTimeout('reloadImage(\\'%url%\\', \\'%id%\\')', " + image.getRefresh() + ")\"");
-		} else {
-			snippet = StringUtils.replace(snippet, "%setrefresh%", "");
-			snippet = StringUtils.replace(snippet, "%refresh%", "");
-		}
-		
 		String widgetId = itemUIRegistry.getWidgetId(w);
-		snippet = StringUtils.replace(snippet, "%id%", widgetId);
+		snippet.set("id", widgetId);
 		
 		String sitemap = w.eResource().getURI().path();
 		
 		String url = "proxy?sitemap=" + sitemap + "&widgetId=" + widgetId + "&t=" + (new Date()).getTime();
-		snippet = StringUtils.replace(snippet, "%url%", url);
+		snippet.set("url", url);
+		
+		if(image.getRefresh()>0) {
+			snippet.set("setrefresh", "<script type=\"text/javascript\">imagesToRefreshOnPage=1</script>");
+			snippet.set("refresh", "id=\"" + widgetId + "\" onload=\"setTimeout('reloadImage(\\'" + url + "\\', \\'" + widgetId + "\\')', " + image.getRefresh() + ")\"");
+		} else {
+			snippet.set("setrefresh", "");
+			snippet.set("refresh", "");
+		}
 		
-		sb.append(snippet);
+		snippet.appendTo(sb);
 		return null;
 	}
 }
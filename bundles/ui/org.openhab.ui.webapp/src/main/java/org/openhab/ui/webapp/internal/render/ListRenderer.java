@@ -8,10 +8,10 @@
  */
 package org.openhab.ui.webapp.internal.render;
 
-import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.common.util.EList;
 import org.openhab.model.sitemap.List;
 import org.openhab.model.sitemap.Widget;
+import org.openhab.ui.webapp.internal.render.SnippetTemplate.Values;
 import org.openhab.ui.webapp.render.RenderException;
 
 /**
@@ -35,22 +35,22 @@ public class ListRenderer extends AbstractWidgetRenderer {
 	 * {@inheritDoc}
 	 */
 	public EList<Widget> renderWidget(Widget w, StringBuilder sb) throws RenderException {
-		String snippet = getSnippet("list");
-		snippet = snippet.replaceAll("%label%", getLabel(w));
+		Values snippet = getSnippet("list").values();
+		snippet.set("label", getLabel(w));
 		
-		String rowSnippet = getSnippet("list_row");
+		SnippetTemplate rowSnippet = getSnippet("list_row");
 		String state = itemUIRegistry.getState(w).toString();
 		String[] rowContents = state.split(((List) w).getSeparator());
 		StringBuilder rowSB = new StringBuilder();
 		for(String row : rowContents) {
-			rowSB.append(StringUtils.replace(rowSnippet, "%title%", row));
+			rowSnippet.values().set("title", row).appendTo(rowSB);
 		}
-		snippet = StringUtils.replace(snippet, "%rows%", rowSB.toString());
+		snippet.set("rows", rowSB.toString());
 
 		// Process the color tags
-		snippet = processColor(w, snippet);
+		processColor(w, snippet);
 
-		sb.append(snippet);
+		snippet.appendTo(sb);
 		return null;
 	}
 }
@@ -18,6 +18,7 @@ import org.eclipse.emf.ecore.EObject;
 import org.openhab.model.sitemap.Frame;
 import org.openhab.model.sitemap.Sitemap;
 import org.openhab.model.sitemap.Widget;
+import org.openhab.ui.webapp.internal.render.SnippetTemplate.Values;
 import org.openhab.ui.webapp.internal.servlet.WebAppServlet;
 import org.openhab.ui.webapp.render.RenderException;
 import org.openhab.ui.webapp.render.WidgetRenderer;
@@ -39,6 +40,9 @@ public class PageRenderer extends AbstractWidgetRenderer {
 
 	private final static Logger logger = LoggerFactory.getLogger(PageRenderer.class);
 
+	/* the placeholder for the html code of the children of a widget */
+	private static final String CHILDREN = "%children%";
+
 	List<WidgetRenderer> widgetRenderers = new ArrayList<WidgetRenderer>();
 
 	public void addWidgetRenderer(WidgetRenderer widgetRenderer) {
@@ -62,8 +66,9 @@ public class PageRenderer extends AbstractWidgetRenderer {
 	 */
 	public StringBuilder processPage(String id, String sitemap, String label, EList<Widget> children, boolean async) throws RenderException {
 		
-		String snippet = getSnippet(async ? "layer" : "main");
-		snippet = snippet.replaceAll("%id%", id);
+		String snippetName = async ? "layer" : "main";
+		Values snippet = getSnippet(snippetName).values();
+		snippet.set("id", id);
 
 		// if the label contains a value span, we remove this span as
 		// the title of a page/layer cannot deal with this
@@ -71,78 +76,80 @@ public class PageRenderer extends AbstractWidgetRenderer {
 		// with some value defined (e.g. "Windows [%d]"), which getLabel()
 		// will convert into a "Windows <span>5</span>".
 		if(label.contains("[") && label.endsWith("]")) {
-			label = label.replace("[", "").replace("]", "");
-		}
-		snippet = StringUtils.replace(snippet, "%label%", label);
-		snippet = StringUtils.replace(snippet, "%servletname%", WebAppServlet.SERVLET_NAME);
-		snippet = StringUtils.replace(snippet, "%sitemap%", sitemap);
-
-		String[] parts = snippet.split("%children%");
-
-		StringBuilder pre_children = new StringBuilder(parts[0]);
-		StringBuilder post_children = new StringBuilder(parts[1]);
-		
-		if(parts.length==2) {
-			processChildren(pre_children, post_children, children);
-		} else if(parts.length > 2){
-			logger.error("Snippet '{}' contains multiple %children% sections, but only one is allowed!", async ? "layer" : "main");
+			label = StringUtils.remove(StringUtils.remove(label, '['), ']');
 		}
-		return pre_children.append(post_children);
+		snippet.set("label", label);
+		snippet.set("servletname", WebAppServlet.SERVLET_NAME);
+		snippet.set("sitemap", sitemap);
+
+		StringBuilder sb = new StringBuilder();
+		snippet.appendTo(sb);
+		String post = cutChildrenSection(sb, 0, snippetName);
+		processChildren(sb, children);
+		return sb.append(post);
 	}
 
-	private void processChildren(StringBuilder sb_pre, StringBuilder sb_post,
-			EList<Widget> children) throws RenderException {
+	private void processChildren(StringBuilder sb, EList<Widget> children) throws RenderException {
 		
 		// put a single frame around all children widgets, if there are no explicit frames 
 		if(!children.isEmpty()) {
 			EObject firstChild = children.get(0);
 			EObject parent = firstChild.eContainer();
 			if(!(firstChild instanceof Frame || parent instanceof Frame || parent instanceof Sitemap || parent instanceof List)) {
-				String frameSnippet = getSnippet("frame");
-				frameSnippet = StringUtils.replace(frameSnippet, "%label%", "");
+				Values frameSnippet = getSnippet("frame").values();
+				frameSnippet.set("label", "");
+				frameSnippet.set("labelstyle", "");
 				
-				String[] parts = frameSnippet.split("%children%");
-				if(parts.length>1) {
-					sb_pre.append(parts[0]);
-				}
-				if(parts.length>2) {
-					sb_post.insert(0, parts[1]);
-				} 
-				if(parts.length > 2){
-					logger.error("Snippet 'frame' contains multiple %children% sections, but only one is allowed!");
-				}
+				int start = sb.length();
+				frameSnippet.appendTo(sb);
+				String post = cutChildrenSection(sb, start, "frame");
+				processWidgets(sb, children);
+				sb.append(post);
+				return;
 			}
 		}
 
-		for(Widget w : children) {
-			StringBuilder new_pre = new StringBuilder();
-			StringBuilder new_post = new StringBuilder();
-			StringBuilder widgetSB = new StringBuilder();
-			EList<Widget> nextChildren = renderWidget(w, widgetSB);
+		processWidgets(sb, children);
+	}
+
+	private void processWidgets(StringBuilder sb, EList<Widget> widgets) throws RenderException {
+		for(Widget w : widgets) {
+			int start = sb.length();
+			EList<Widget> nextChildren = renderWidget(w, sb);
 			if(nextChildren!=null) {
-				String[] parts = widgetSB.toString().split("%children%");
-				// no %children% placeholder found or at the end
-				if(parts.length==1) {
-					new_pre.append(widgetSB);
-				}
-				// %children% section found 
-				if(parts.length>1) {
-					new_pre.append(parts[0]);
-					new_post.insert(0, parts[1]);
-				} 
-				// multiple %children% sections found -> log an error and ignore all code starting from the second occurance
-				if(parts.length > 2){
-					String widgetType = w.eClass().getInstanceTypeName().substring(w.eClass().getInstanceTypeName().lastIndexOf(".")+1);
-					logger.error("Snippet for widget '{}' contains multiple %children% sections, but only one is allowed!", widgetType);
-				}
-				processChildren(new_pre, new_post, nextChildren);
-				sb_pre.append(new_pre);
-				sb_pre.append(new_post);
-			} else {
-				sb_pre.append(widgetSB);
+				String post = cutChildrenSection(sb, start, w.eClass().getName());
+				processChildren(sb, nextChildren);
+				sb.append(post);
 			}
 		}
-		
+	}
+
+	/**
+	 * Removes the "%children%" placeholder and everything after it from the html code of a
+	 * snippet, so that the children can be appended in its place.
+	 * 
+	 * @param sb the string builder holding the html code
+	 * @param start the index at which the html code of the snippet starts
+	 * @param snippetName the name of the snippet for logging
+	 * @return the html code to append after the children; empty, if there is no placeholder
+	 */
+	private String cutChildrenSection(StringBuilder sb, int start, String snippetName) {
+		int index = sb.indexOf(CHILDREN, start);
+		if(index < 0) {
+			return "";
+		}
+		int end = index + CHILDREN.length();
+		int next = sb.indexOf(CHILDREN, end);
+		String post;
+		if(next < 0) {
+			post = sb.substring(end);
+		} else {
+			// multiple %children% sections found -> log an error and ignore all code starting from the second occurance
+			logger.error("Snippet '{}' contains multiple %children% sections, but only one is allowed!", snippetName);
+			post = sb.substring(end, next);
+		}
+		sb.setLength(index);
+		return post;
 	}
 
 	/**
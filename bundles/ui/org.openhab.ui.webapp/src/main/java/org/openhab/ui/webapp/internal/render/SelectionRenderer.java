@@ -8,11 +8,11 @@
  */
 package org.openhab.ui.webapp.internal.render;
 
-import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.common.util.EList;
 import org.openhab.model.sitemap.Mapping;
 import org.openhab.model.sitemap.Selection;
 import org.openhab.model.sitemap.Widget;
+import org.openhab.ui.webapp.internal.render.SnippetTemplate.Values;
 import org.openhab.ui.webapp.render.RenderException;
 
 /**
@@ -36,33 +36,34 @@ public class SelectionRenderer extends AbstractWidgetRenderer {
 	 * {@inheritDoc}
 	 */
 	public EList<Widget> renderWidget(Widget w, StringBuilder sb) throws RenderException {
-		String snippet = getSnippet("selection");
+		Values snippet = getSnippet("selection").values();
 
-		snippet = StringUtils.replace(snippet, "%icon%", escapeURLPath(itemUIRegistry.getIcon(w)));
-		snippet = StringUtils.replace(snippet, "%label_header%", getLabel(w));
+		snippet.set("icon", escapeURLPath(itemUIRegistry.getIcon(w)));
+		snippet.set("label_header", getLabel(w));
 		
 		String state = itemUIRegistry.getState(w).toString();
 		Selection selection = (Selection) w;
 		
+		SnippetTemplate rowTemplate = getSnippet("selection_row");
 		StringBuilder rowSB = new StringBuilder();
 		for(Mapping mapping : selection.getMappings()) {
-			String rowSnippet = getSnippet("selection_row");
-			rowSnippet = StringUtils.replace(rowSnippet, "%item%", w.getItem()!=null ? w.getItem() : "");
-			rowSnippet = StringUtils.replace(rowSnippet, "%cmd%", mapping.getCmd()!=null ? mapping.getCmd() : "");
-			rowSnippet = StringUtils.replace(rowSnippet, "%label%", mapping.getLabel()!=null ? mapping.getLabel() : "");
+			Values rowSnippet = rowTemplate.values();
+			rowSnippet.set("item", w.getItem()!=null ? w.getItem() : "");
+			rowSnippet.set("cmd", mapping.getCmd()!=null ? mapping.getCmd() : "");
+			rowSnippet.set("label", mapping.getLabel()!=null ? mapping.getLabel() : "");
 			if(state.equals(mapping.getCmd())) {
-				rowSnippet = StringUtils.replace(rowSnippet, "%checked%", "checked=\"true\"");
+				rowSnippet.set("checked", "checked=\"true\"");
 			} else {
-				rowSnippet = StringUtils.replace(rowSnippet, "%checked%", "");
+				rowSnippet.set("checked", "");
 			}
-			rowSB.append(rowSnippet);
+			rowSnippet.appendTo(rowSB);
 		}
-		snippet = StringUtils.replace(snippet, "%rows%", rowSB.toString());
+		snippet.set("rows", rowSB.toString());
 		
 		// Process the color tags
-		snippet = processColor(w, snippet);
+		processColor(w, snippet);
 
-		sb.append(snippet);
+		snippet.appendTo(sb);
 		return null;
 	}
 }
@@ -11,13 +11,13 @@ package org.openhab.ui.webapp.internal.render;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
-import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.common.util.EList;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.types.State;
 import org.openhab.core.types.UnDefType;
 import org.openhab.model.sitemap.Setpoint;
 import org.openhab.model.sitemap.Widget;
+import org.openhab.ui.webapp.internal.render.SnippetTemplate.Values;
 import org.openhab.ui.webapp.internal.servlet.WebAppServlet;
 import org.openhab.ui.webapp.render.RenderException;
 import org.openhab.ui.webapp.render.WidgetRenderer;
@@ -79,24 +79,24 @@ public class SetpointRenderer extends AbstractWidgetRenderer {
 		}
 		
 		String snippetName = "setpoint";
-		String snippet = getSnippet(snippetName);
+		Values snippet = getSnippet(snippetName).values();
 
-		snippet = StringUtils.replace(snippet, "%id%", itemUIRegistry.getWidgetId(w));
-		snippet = StringUtils.replace(snippet, "%icon%", escapeURLPath(itemUIRegistry.getIcon(w)));
-		snippet = StringUtils.replace(snippet, "%item%", w.getItem());
-		snippet = StringUtils.replace(snippet, "%state%", state.toString());
-		snippet = StringUtils.replace(snippet, "%newlowerstate%", newLowerState);
-		snippet = StringUtils.replace(snippet, "%newhigherstate%", newHigherState);
-		snippet = StringUtils.replace(snippet, "%label%", getLabel(w));
-		snippet = StringUtils.replace(snippet, "%servletname%", WebAppServlet.SERVLET_NAME);
-		snippet = StringUtils.replace(snippet, "%minValue%", minValue.toString());
-		snippet = StringUtils.replace(snippet, "%maxValue%", maxValue.toString());
-		snippet = StringUtils.replace(snippet, "%step%", step.toString());
+		snippet.set("id", itemUIRegistry.getWidgetId(w));
+		snippet.set("icon", escapeURLPath(itemUIRegistry.getIcon(w)));
+		snippet.set("item", w.getItem());
+		snippet.set("state", state.toString());
+		snippet.set("newlowerstate", newLowerState);
+		snippet.set("newhigherstate", newHigherState);
+		snippet.set("label", getLabel(w));
+		snippet.set("servletname", WebAppServlet.SERVLET_NAME);
+		snippet.set("minValue", minValue.toString());
+		snippet.set("maxValue", maxValue.toString());
+		snippet.set("step", step.toString());
 		
 		// Process the color tags
-		snippet = processColor(w, snippet);
+		processColor(w, snippet);
 
-		sb.append(snippet);
+		snippet.appendTo(sb);
 		return null;
 	}
 }
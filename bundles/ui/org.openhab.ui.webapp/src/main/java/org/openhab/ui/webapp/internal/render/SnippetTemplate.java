@@ -0,0 +1,174 @@
+/**
+ * Copyright (c) 2010-2015, openHAB.org and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ */
+package org.openhab.ui.webapp.internal.render;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compiled html snippet. The snippet is parsed once into its literal segments and its
+ * placeholders like "%label%", so that it can be rendered any number of times without
+ * searching and replacing the placeholders in the snippet text.
+ *
+ * The values of the placeholders are collected in a {@link Values} object for each
+ * rendering. A placeholder without a value is rendered as it is, e.g. "%children%".
+ * A value is inserted literally, placeholders in a value are not replaced.
+ *
+ * @since 1.7.0
+ */
+public class SnippetTemplate {
+
+	/** the literal segments, one more than there are placeholders */
+	private final String[] literals;
+
+	/** the slot of the value for each placeholder */
+	private final int[] slots;
+
+	/** the placeholder names by their slot */
+	private final String[] names;
+
+	/** the slots by placeholder name */
+	private final Map<String, Integer> slotsByName;
+
+	/** the length of all literal segments */
+	private final int literalLength;
+
+	private SnippetTemplate(String[] literals, int[] slots, String[] names, Map<String, Integer> slotsByName) {
+		this.literals = literals;
+		this.slots = slots;
+		this.names = names;
+		this.slotsByName = slotsByName;
+		int length = 0;
+		for(String literal : literals) {
+			length += literal.length();
+		}
+		this.literalLength = length;
+	}
+
+	/**
+	 * Parses a snippet. A placeholder is a name of letters, digits and underscores between
+	 * two percent signs; any other percent sign is part of the literal text.
+	 *
+	 * @param snippet the snippet text
+	 * @return the compiled snippet
+	 */
+	public static SnippetTemplate compile(String snippet) {
+		List<String> literals = new ArrayList<String>();
+		List<Integer> slots = new ArrayList<Integer>();
+		List<String> names = new ArrayList<String>();
+		Map<String, Integer> slotsByName = new HashMap<String, Integer>();
+
+		int literalStart = 0;
+		int index = snippet.indexOf('%');
+		while(index >= 0) {
+			int end = index + 1;
+			while(end < snippet.length() && isNameChar(snippet.charAt(end))) {
+				end++;
+			}
+			if(end > index + 1 && end < snippet.length() && snippet.charAt(end) == '%') {
+				String name = snippet.substring(index + 1, end);
+				Integer slot = slotsByName.get(name);
+				if(slot == null) {
+					slot = names.size();
+					names.add(name);
+					slotsByName.put(name, slot);
+				}
+				literals.add(snippet.substring(literalStart, index));
+				slots.add(slot);
+				literalStart = end + 1;
+				index = snippet.indexOf('%', literalStart);
+			} else {
+				index = snippet.indexOf('%', index + 1);
+			}
+		}
+		literals.add(snippet.substring(literalStart));
+
+		int[] slotArray = new int[slots.size()];
+		for(int i = 0; i < slotArray.length; i++) {
+			slotArray[i] = slots.get(i);
+		}
+		return new SnippetTemplate(literals.toArray(new String[literals.size()]), slotArray,
+				names.toArray(new String[names.size()]), slotsByName);
+	}
+
+	private static boolean isNameChar(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
+
+	/**
+	 * @return a new, empty set of values for rendering this snippet
+	 */
+	public Values values() {
+		return new Values();
+	}
+
+	/**
+	 * The values of the placeholders for a single rendering of a snippet.
+	 */
+	public class Values {
+
+		private final String[] values = new String[names.length];
+
+		private Values() {
+		}
+
+		/**
+		 * Sets the value of a placeholder. Names which do not occur in the snippet are ignored.
+		 *
+		 * @param name the name of the placeholder without the percent signs, e.g. "label"
+		 * @param value the value or <code>null</code> to leave the placeholder as it is
+		 * @return these values
+		 */
+		public Values set(String name, String value) {
+			Integer slot = slotsByName.get(name);
+			if(slot != null) {
+				values[slot] = value;
+			}
+			return this;
+		}
+
+		/**
+		 * Renders the snippet with these values.
+		 *
+		 * @param sb the string builder to append the html code to
+		 */
+		public void appendTo(StringBuilder sb) {
+			int length = literalLength;
+			for(int i = 0; i < slots.length; i++) {
+				String value = values[slots[i]];
+				length += value != null ? value.length() : names[slots[i]].length() + 2;
+			}
+			sb.ensureCapacity(sb.length() + length);
+
+			for(int i = 0; i < slots.length; i++) {
+				sb.append(literals[i]);
+				String value = values[slots[i]];
+				if(value != null) {
+					sb.append(value);
+				} else {
+					sb.append('%').append(names[slots[i]]).append('%');
+				}
+			}
+			sb.append(literals[slots.length]);
+		}
+
+		/**
+		 * @return the rendered snippet
+		 */
+		@Override
+		public String toString() {
+			StringBuilder sb = new StringBuilder();
+			appendTo(sb);
+			return sb.toString();
+		}
+	}
+
+}
@@ -8,7 +8,6 @@
  */
 package org.openhab.ui.webapp.internal.render;
 
-import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.common.util.EList;
 import org.openhab.core.items.GroupItem;
 import org.openhab.core.items.Item;
@@ -20,6 +19,7 @@ import org.openhab.core.types.State;
 import org.openhab.model.sitemap.Mapping;
 import org.openhab.model.sitemap.Switch;
 import org.openhab.model.sitemap.Widget;
+import org.openhab.ui.webapp.internal.render.SnippetTemplate.Values;
 import org.openhab.ui.webapp.internal.servlet.WebAppServlet;
 import org.openhab.ui.webapp.render.RenderException;
 import org.openhab.ui.webapp.render.WidgetRenderer;
@@ -71,13 +71,13 @@ public class SwitchRenderer extends AbstractWidgetRenderer {
 			snippetName = "switch";
 		}
 
-		String snippet = getSnippet(snippetName);
+		Values snippet = getSnippet(snippetName).values();
 
-		snippet = StringUtils.replace(snippet, "%id%", itemUIRegistry.getWidgetId(w));
-		snippet = StringUtils.replace(snippet, "%icon%", escapeURLPath(itemUIRegistry.getIcon(w)));
-		snippet = StringUtils.replace(snippet, "%item%", w.getItem());
-		snippet = StringUtils.replace(snippet, "%label%", getLabel(w));
-		snippet = StringUtils.replace(snippet, "%servletname%", WebAppServlet.SERVLET_NAME);
+		snippet.set("id", itemUIRegistry.getWidgetId(w));
+		snippet.set("icon", escapeURLPath(itemUIRegistry.getIcon(w)));
+		snippet.set("item", w.getItem());
+		snippet.set("label", getLabel(w));
+		snippet.set("servletname", WebAppServlet.SERVLET_NAME);
 		
 		State state = itemUIRegistry.getState(w);
 		
@@ -86,31 +86,36 @@ public class SwitchRenderer extends AbstractWidgetRenderer {
 				state = ((PercentType) state).intValue() > 0 ? OnOffType.ON : OnOffType.OFF;
 			}
 			if(state.equals(OnOffType.ON)) {
-				snippet = snippet.replaceAll("%checked%", "checked=true");
+				snippet.set("checked", "checked=true");
 			} else {
-				snippet = snippet.replaceAll("%checked%", "");
+				snippet.set("checked", "");
 			}
 		} else {
+			SnippetTemplate buttonTemplate = getSnippet("button");
+			String labelStyle = getStyle(itemUIRegistry.getLabelColor(w));
 			StringBuilder buttons = new StringBuilder();
-			for(Mapping mapping : s.getMappings()) {
-				String button = getSnippet("button");
-				button = StringUtils.replace(button, "%item%",w.getItem());
-				button = StringUtils.replace(button, "%cmd%", mapping.getCmd());
-				button = StringUtils.replace(button, "%label%", mapping.getLabel());
+			// the buttons are laid out from right to left, so the last mapping comes first
+			for(int i = s.getMappings().size() - 1; i >= 0; i--) {
+				Mapping mapping = s.getMappings().get(i);
+				Values button = buttonTemplate.values();
+				button.set("item", w.getItem());
+				button.set("cmd", mapping.getCmd());
+				button.set("label", mapping.getLabel());
+				button.set("labelstyle", labelStyle);
 				if(s.getMappings().size()>1 && state.toString().equals(mapping.getCmd())) {
-					button = StringUtils.replace(button, "%type%", "Warn"); // button with red color
+					button.set("type", "Warn"); // button with red color
 				} else {
-					button = StringUtils.replace(button, "%type%", "Action"); // button with blue color
+					button.set("type", "Action"); // button with blue color
 				}
-				buttons.insert(0, button);
+				button.appendTo(buttons);
 			}
-			snippet = StringUtils.replace(snippet, "%buttons%", buttons.toString());
+			snippet.set("buttons", buttons.toString());
 		}
 		
 		// Process the color tags
-		snippet = processColor(w, snippet);
+		processColor(w, snippet);
 
-		sb.append(snippet);
+		snippet.appendTo(sb);
 		return null;
 	}
 }
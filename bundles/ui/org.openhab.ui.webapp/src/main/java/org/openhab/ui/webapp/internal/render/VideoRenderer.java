@@ -8,10 +8,10 @@
  */
 package org.openhab.ui.webapp.internal.render;
 
-import org.apache.commons.lang.StringUtils;
 import org.eclipse.emf.common.util.EList;
 import org.openhab.model.sitemap.Video;
 import org.openhab.model.sitemap.Widget;
+import org.openhab.ui.webapp.internal.render.SnippetTemplate.Values;
 import org.openhab.ui.webapp.render.RenderException;
 import org.openhab.ui.webapp.render.WidgetRenderer;
 
@@ -37,22 +37,22 @@ public class VideoRenderer extends AbstractWidgetRenderer {
 	 */
 	public EList<Widget> renderWidget(Widget w, StringBuilder sb) throws RenderException {
 		Video videoWidget = (Video) w;
-		String snippet = null;
+		Values snippet = null;
 		
 		String widgetId = itemUIRegistry.getWidgetId(w);		
 		String sitemap = w.eResource().getURI().path();
 		
 		if(videoWidget.getEncoding() !=null && videoWidget.getEncoding().contains("mjpeg")) {
 			// we handle mjpeg streams as an html image as browser can usually handle this
-			snippet = getSnippet("image");
-			snippet = StringUtils.replace(snippet, "%setrefresh%", "");
-			snippet = StringUtils.replace(snippet, "%refresh%", "");
+			snippet = getSnippet("image").values();
+			snippet.set("setrefresh", "");
+			snippet.set("refresh", "");
 		} else {
-			snippet = getSnippet("video");			
+			snippet = getSnippet("video").values();			
 		}
 		String url = "proxy?sitemap=" + sitemap + "&widgetId=" + widgetId;
-		snippet = StringUtils.replace(snippet, "%url%", url);
-		sb.append(snippet);
+		snippet.set("url", url);
+		snippet.appendTo(sb);
 		return null;
 	}
 }
@@ -9,16 +9,19 @@
 package org.openhab.ui.webapp.internal.servlet;
 
 import java.io.IOException;
-import java.util.Date;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.servlet.ServletException;
 import javax.servlet.ServletRequest;
 import javax.servlet.ServletResponse;
 
 import org.eclipse.emf.common.util.EList;
+import org.eclipse.jetty.continuation.Continuation;
+import org.eclipse.jetty.continuation.ContinuationListener;
+import org.eclipse.jetty.continuation.ContinuationSupport;
 import org.openhab.core.items.GenericItem;
 import org.openhab.core.items.Item;
 import org.openhab.core.items.ItemNotFoundException;
@@ -118,9 +121,7 @@ public class WebAppServlet extends BaseServlet {
 				// we are at the homepage, so we render the children of the sitemap root node
 				String label = sitemap.getLabel()!=null ? sitemap.getLabel() : sitemapName;
 				EList<Widget> children = sitemap.getChildren();
-				if(poll && waitForChanges(children)==false) {
-					// we have reached the timeout, so we do not return any content as nothing has changed
-					res.getWriter().append(getTimeoutResponse()).close();
+				if(poll && waitForChanges(req, res, children)==false) {
 					return;
 				}
 				result.append(renderer.processPage("Home", sitemapName, label, sitemap.getChildren(), async));
@@ -132,9 +133,7 @@ public class WebAppServlet extends BaseServlet {
 						throw new RenderException("Widget '" + w + "' can not have any content");
 					}
 					EList<Widget> children = renderer.getItemUIRegistry().getChildren((LinkableWidget) w);
-					if(poll && waitForChanges(children)==false) {
-						// we have reached the timeout, so we do not return any content as nothing has changed
-						res.getWriter().append(getTimeoutResponse()).close();
+					if(poll && waitForChanges(req, res, children)==false) {
 						return;
 					}
 					String label = renderer.getItemUIRegistry().getLabel(w);
@@ -165,32 +164,33 @@ public class WebAppServlet extends BaseServlet {
 	}
 
 	/**
-	 * This method only returns when a change has occurred to any item on the page to display
+	 * Suspends a polling request until a change has occurred to any item on the page to display.
+	 * The request does not hold a thread while it is suspended; it is dispatched again as soon as
+	 * a state changes or the timeout is reached, and this method then tells which one it was.
 	 * 
+	 * @param req the polling request
+	 * @param res the response, to which the timeout response is written
 	 * @param widgets the widgets of the page to observe
+	 * @return true, if a change has occurred and the page has to be rendered; false, if the request
+	 * has been suspended or the response has already been written
 	 */
-	private boolean waitForChanges(EList<Widget> widgets) {
-		long startTime = (new Date()).getTime();
-		boolean timeout = false;
-		BlockingStateChangeListener listener = new BlockingStateChangeListener();
-		// let's get all items for these widgets
-		Set<GenericItem> items = getAllItems(widgets);
-		for(GenericItem item : items) {			
-			item.addStateChangeListener(listener);
+	private boolean waitForChanges(ServletRequest req, ServletResponse res, EList<Widget> widgets) throws IOException {
+		Continuation continuation = ContinuationSupport.getContinuation(req);
+		if(continuation.isExpired()) {
+			// we have reached the timeout, so we do not return any content as nothing has changed
+			res.getWriter().append(getTimeoutResponse()).close();
+			return false;
 		}
-		do {
-			timeout = (new Date()).getTime() - startTime > TIMEOUT_IN_MS;
-			try {
-				Thread.sleep(500);
-			} catch (InterruptedException e) {
-				timeout = true;
-				break;
-			}
-		} while(!listener.hasChangeOccurred() && !timeout);
-		for(GenericItem item : items) {
-			item.removeStateChangeListener(listener);
+		if(continuation.isResumed()) {
+			return true;
 		}
-		return !timeout;
+		// suspend first, so that a change during the registration of the listener can already resume the request
+		continuation.setTimeout(TIMEOUT_IN_MS);
+		continuation.suspend();
+		ResumingStateChangeListener listener = new ResumingStateChangeListener(continuation, getAllItems(widgets));
+		continuation.addContinuationListener(listener);
+		listener.register();
+		return false;
 	}
 
 	/**
@@ -225,37 +225,82 @@ public class WebAppServlet extends BaseServlet {
 	}
 
 	/**
-	 * This is a state change listener, which is merely used to determine, if a state
-	 * change has occurred on one of a list of items.
-	 * 
-	 * @author Kai Kreuzer
-	 *
+	 * This is a state change listener, which resumes a suspended polling request as soon as
+	 * a state change has occurred on one of a list of items. It removes itself from the items
+	 * when the request is resumed or has timed out.
 	 */
-	private static class BlockingStateChangeListener implements StateChangeListener {
+	private static class ResumingStateChangeListener implements StateChangeListener, ContinuationListener {
+		
+		private final Continuation continuation;
+		
+		private final Set<GenericItem> items;
+		
+		private final AtomicBoolean done = new AtomicBoolean(false);
+		
+		public ResumingStateChangeListener(Continuation continuation, Set<GenericItem> items) {
+			this.continuation = continuation;
+			this.items = items;
+		}
 		
-		private boolean changed = false;
+		/**
+		 * adds the listener to all of its items
+		 */
+		public void register() {
+			for(GenericItem item : items) {
+				item.addStateChangeListener(this);
+			}
+			// the request might have completed before the listener has been added to the items
+			if(done.get()) {
+				unregister();
+			}
+		}
 		
 		/**
 		 * {@inheritDoc}
 		 */
 		public void stateChanged(Item item, State oldState, State newState) {
-			changed = true;
+			resume();
 		}
 
 		/**
-		 * determines, whether a state change has occurred since its creation
-		 * 
-		 * @return true, if a state has changed
+		 * {@inheritDoc}
+		 */
+		public void stateUpdated(Item item, State state) {
+			resume();
+		}
+		
+		/**
+		 * {@inheritDoc}
 		 */
-		public boolean hasChangeOccurred() {
-			return changed;
+		public void onTimeout(Continuation continuation) {
+			if(done.compareAndSet(false, true)) {
+				unregister();
+			}
 		}
 
 		/**
 		 * {@inheritDoc}
 		 */
-		public void stateUpdated(Item item, State state) {
-			changed = true;
+		public void onComplete(Continuation continuation) {
+			onTimeout(continuation);
+		}
+		
+		private void resume() {
+			if(done.compareAndSet(false, true)) {
+				unregister();
+				try {
+					continuation.resume();
+				} catch(IllegalStateException e) {
+					// the request has just timed out
+					logger.trace("Polling request could not be resumed: {}", e.getMessage());
+				}
+			}
+		}
+
+		private void unregister() {
+			for(GenericItem item : items) {
+				item.removeStateChangeListener(this);
+			}
 		}
 		
 	}
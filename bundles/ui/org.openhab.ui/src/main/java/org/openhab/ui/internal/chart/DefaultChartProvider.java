@@ -28,7 +28,9 @@ import org.openhab.core.items.ItemNotFoundException;
 import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
 import org.openhab.core.library.types.OpenClosedType;
+import org.openhab.core.persistence.Downsampler;
 import org.openhab.core.persistence.FilterCriteria;
+import org.openhab.core.persistence.FilterCriteria.Aggregation;
 import org.openhab.core.persistence.FilterCriteria.Ordering;
 import org.openhab.core.persistence.HistoricItem;
 import org.openhab.core.persistence.PersistenceService;
@@ -181,7 +183,7 @@ public class DefaultChartProvider implements ChartProvider {
 			String[] itemNames = items.split(",");
 			for (String itemName : itemNames) {
 				Item item = itemUIRegistry.getItem(itemName);
-				if(addItem(chart, persistenceService, startTime, endTime, item, seriesCounter))
+				if(addItem(chart, persistenceService, startTime, endTime, item, seriesCounter, width))
 					seriesCounter++;
 			}
 		}
@@ -194,7 +196,7 @@ public class DefaultChartProvider implements ChartProvider {
 				if (item instanceof GroupItem) {
 					GroupItem groupItem = (GroupItem) item;
 					for (Item member : groupItem.getMembers()) {
-						if(addItem(chart, persistenceService, startTime, endTime, member, seriesCounter))
+						if(addItem(chart, persistenceService, startTime, endTime, member, seriesCounter, width))
 							seriesCounter++;
 					}
 				} else {
@@ -260,7 +262,7 @@ public class DefaultChartProvider implements ChartProvider {
 	}
 
 	boolean addItem(Chart chart, QueryablePersistenceService service, Date timeBegin, Date timeEnd, Item item,
-			int seriesCounter) {
+			int seriesCounter, int width) {
 		Color color = LINECOLORS[seriesCounter % LINECOLORS.length];
 
 		// Get the item label
@@ -308,9 +310,13 @@ public class DefaultChartProvider implements ChartProvider {
 		filter.setEndDate(timeEnd);
 		filter.setPageSize(Integer.MAX_VALUE);
 		filter.setOrdering(Ordering.ASCENDING);
+		// There is no point in plotting more than one value per pixel
+		filter.setResolution(width);
+		filter.setAggregation(Aggregation.MEAN);
 		
-		// Get the data from the persistence store
-		result = service.query(filter);
+		// Get the data from the persistence store; services that do not
+		// downsample on their own still return all values of the period
+		result = Downsampler.downsample(service.query(filter), filter);
 		Iterator<HistoricItem> it = result.iterator();
 
 		// Iterate through the data